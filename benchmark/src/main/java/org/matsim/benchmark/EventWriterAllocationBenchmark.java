@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares writing events with {@link EventWriterXML}, which gets the attributes through
+ * {@link Event#writeAttributes(Event.AttributeSink)}, with writing them from {@link Event#getAttributes()} as before.
+ * Run with the GC profiler (as in {@link #main(String[])}) and compare <code>gc.alloc.rate.norm</code>, the bytes
+ * allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventWriterAllocationBenchmark {
+
+	private Event[] events;
+	private EventWriterXML writer;
+	private BufferedWriter mapWriter;
+
+	@Setup
+	public void setup() {
+		this.events = new Event[] {
+				new ActivityEndEvent(21600., Id.createPersonId(1), Id.createLinkId(2), null, "home"),
+				new VehicleEntersTrafficEvent(21600., Id.createPersonId(1), Id.createLinkId(2), Id.createVehicleId(1), TransportMode.car, 1.0),
+				new LinkLeaveEvent(21601., Id.createVehicleId(1), Id.createLinkId(2)),
+				new LinkEnterEvent(21601., Id.createVehicleId(1), Id.createLinkId(3))
+		};
+		this.writer = new EventWriterXML(new NullOutputStream());
+		this.mapWriter = new BufferedWriter(new OutputStreamWriter(new NullOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	@Benchmark
+	public void attributeSink() {
+		for (Event event : this.events) {
+			this.writer.handleEvent(event);
+		}
+	}
+
+	@Benchmark
+	public void attributeMap() throws IOException {
+		for (Event event : this.events) {
+			// what EventWriterXML did before, without the xml encoding which is not needed for these events
+			this.mapWriter.append("\t<event ");
+			for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+				this.mapWriter.append(entry.getKey());
+				this.mapWriter.append("=\"");
+				this.mapWriter.append(entry.getValue());
+				this.mapWriter.append("\" ");
+			}
+			this.mapWriter.append(" />\n");
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventWriterAllocationBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+	private static class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
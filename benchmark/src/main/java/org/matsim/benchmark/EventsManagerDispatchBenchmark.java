@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the dispatch of an event to a number of handlers in EventsManagerImpl (which uses generated callers for
+ * all event types without a hand-written fast path, e.g. {@link VehicleLeavesTrafficEvent}) with the reflective
+ * dispatch through {@link Method#invoke(Object, Object...)} which was used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsManagerDispatchBenchmark {
+
+	@Param({"1", "15"})
+	private int numberOfHandlers;
+
+	private EventsManager eventsManager;
+	private CountingHandler[] handlers;
+	private Method handleEventMethod;
+	private VehicleLeavesTrafficEvent event;
+
+	@Setup
+	public void setup() throws NoSuchMethodException {
+		this.eventsManager = EventsUtils.createEventsManager();
+		this.handlers = new CountingHandler[this.numberOfHandlers];
+		for (int i = 0; i < this.numberOfHandlers; i++) {
+			this.handlers[i] = new CountingHandler();
+			this.eventsManager.addHandler(this.handlers[i]);
+		}
+		this.handleEventMethod = VehicleLeavesTrafficEventHandler.class.getMethod("handleEvent", VehicleLeavesTrafficEvent.class);
+		this.event = new VehicleLeavesTrafficEvent(3600., Id.createPersonId(1), Id.createLinkId(2), Id.createVehicleId(1),
+				TransportMode.car, 1.0);
+	}
+
+	@Benchmark
+	public void eventsManager(Blackhole bh) {
+		this.eventsManager.processEvent(this.event);
+		bh.consume(this.handlers[0].count);
+	}
+
+	@Benchmark
+	public void reflection(Blackhole bh) throws Exception {
+		for (CountingHandler handler : this.handlers) {
+			synchronized (handler) {
+				this.handleEventMethod.invoke(handler, this.event);
+			}
+		}
+		bh.consume(this.handlers[0].count);
+	}
+
+	@Benchmark
+	public void direct(Blackhole bh) {
+		for (CountingHandler handler : this.handlers) {
+			synchronized (handler) {
+				handler.handleEvent(this.event);
+			}
+		}
+		bh.consume(this.handlers[0].count);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsManagerDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	public static class CountingHandler implements VehicleLeavesTrafficEventHandler {
+		private long count = 0;
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			this.count++;
+		}
+	}
+
+}
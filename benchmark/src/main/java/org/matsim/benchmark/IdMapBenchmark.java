@@ -0,0 +1,108 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdIntMap;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares counting per vehicle (like the passengers in OccupancyAnalyzer) in a {@link HashMap} with boxed values
+ * and in an {@link IdIntMap}.  Each operation updates the count of every vehicle once, in a shuffled order like events
+ * arrive.  Run with the GC profiler (as in {@link #main(String[])}) to also see the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdMapBenchmark {
+
+	@Param({"100000", "1000000"})
+	private int numberOfIds;
+
+	private Id<Vehicle>[] ids;
+	private Map<Id<Vehicle>, Integer> hashMap;
+	private IdIntMap<Vehicle> idIntMap;
+
+	@Setup
+	public void setup() {
+		this.ids = new Id[this.numberOfIds];
+		for (int i = 0; i < this.numberOfIds; i++) {
+			this.ids[i] = Id.createVehicleId("veh_" + i);
+		}
+		// a fixed permutation, so both maps see the same order
+		for (int i = this.numberOfIds - 1; i > 0; i--) {
+			int j = (int) ((i * 2654435761L) % (i + 1));
+			Id<Vehicle> tmp = this.ids[i];
+			this.ids[i] = this.ids[j];
+			this.ids[j] = tmp;
+		}
+		this.hashMap = new HashMap<>();
+		this.idIntMap = new IdIntMap<>(Vehicle.class);
+	}
+
+	@Benchmark
+	public int hashMap() {
+		int sum = 0;
+		for (Id<Vehicle> id : this.ids) {
+			Integer count = this.hashMap.get(id);
+			int newCount = count == null ? 1 : count + 1;
+			this.hashMap.put(id, newCount);
+			sum += newCount;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int idIntMap() {
+		int sum = 0;
+		for (Id<Vehicle> id : this.ids) {
+			sum += this.idIntMap.add(id, 1);
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(IdMapBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * JDEQSimScalingBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.jdeqsim.JDEQSimConfigGroup;
+import org.matsim.core.mobsim.jdeqsim.JDEQSimulation;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JDEQSim on a grid network with car commuters, with the sequential scheduler (1 thread) and with the roads split
+ * into several partitions.  The speed-up depends on the lookahead (the shortest road at the boundaries of the
+ * partitions), which is printed at the start of every run, and on the number of windows, which is printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JDEQSimScalingBenchmark {
+
+	private static final double SPACING = 200;
+
+	@Param({"1", "2", "4", "8"})
+	private int numberOfThreads;
+
+	@Param({"80"})
+	private int gridSize;
+
+	@Param({"200000"})
+	private int numberOfPersons;
+
+	private Scenario scenario;
+	private JDEQSimConfigGroup config;
+
+	@Setup
+	public void setup() {
+		this.scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = this.scenario.getNetwork();
+		NetworkFactory nf = network.getFactory();
+		Random random = new Random(20200610L);
+		Node[][] nodes = new Node[this.gridSize][this.gridSize];
+		for (int x = 0; x < this.gridSize; x++) {
+			for (int y = 0; y < this.gridSize; y++) {
+				nodes[x][y] = nf.createNode(Id.createNodeId(x + "_" + y), new Coord(x * SPACING, y * SPACING));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		for (int x = 0; x < this.gridSize; x++) {
+			for (int y = 0; y < this.gridSize; y++) {
+				if (x + 1 < this.gridSize) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], random);
+					addLink(network, nodes[x + 1][y], nodes[x][y], random);
+				}
+				if (y + 1 < this.gridSize) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], random);
+					addLink(network, nodes[x][y + 1], nodes[x][y], random);
+				}
+			}
+		}
+
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		PopulationFactory pf = this.scenario.getPopulation().getFactory();
+		for (int i = 0; i < this.numberOfPersons; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Link home = links.get(random.nextInt(links.size()));
+			Activity morning = pf.createActivityFromLinkId("home", home.getId());
+			morning.setEndTime(6 * 3600 + random.nextDouble() * 3 * 3600);
+			plan.addActivity(morning);
+			Link work = addCarLeg(plan, home, random);
+			Activity day = pf.createActivityFromLinkId("work", work.getId());
+			day.setMaximumDuration(8 * 3600);
+			plan.addActivity(day);
+			Link evening = addCarLeg(plan, work, random);
+			plan.addActivity(pf.createActivityFromLinkId("home", evening.getId()));
+			person.addPlan(plan);
+			person.setSelectedPlan(plan);
+			this.scenario.getPopulation().addPerson(person);
+		}
+
+		this.config = new JDEQSimConfigGroup();
+		this.config.setNumberOfThreads(this.numberOfThreads);
+	}
+
+	private static void addLink(final Network network, final Node from, final Node to, final Random random) {
+		Link link = network.getFactory().createLink(Id.createLinkId(from.getId() + "-" + to.getId()), from, to);
+		link.setLength(SPACING);
+		link.setFreespeed(random.nextBoolean() ? 13.9 : 22.2);
+		link.setCapacity(random.nextBoolean() ? 1000 : 2000);
+		link.setNumberOfLanes(1);
+		network.addLink(link);
+	}
+
+	/** adds a car leg along a random walk of 10 to 40 links, and returns the link of the next activity */
+	private Link addCarLeg(final Plan plan, final Link start, final Random random) {
+		List<Id<Link>> route = new ArrayList<>();
+		Link current = start;
+		int steps = 10 + random.nextInt(30);
+		for (int i = 0; i < steps; i++) {
+			List<Link> next = new ArrayList<>(current.getToNode().getOutLinks().values());
+			current = next.get(random.nextInt(next.size()));
+			route.add(current.getId());
+		}
+		Link end = route.isEmpty() ? start : this.scenario.getNetwork().getLinks().get(route.remove(route.size() - 1));
+		Leg leg = this.scenario.getPopulation().getFactory().createLeg(TransportMode.car);
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(start.getId(), route, end.getId()));
+		plan.addLeg(leg);
+		return end;
+	}
+
+	@Benchmark
+	public void runJDEQSim() {
+		EventsManager events = EventsUtils.createEventsManager();
+		new JDEQSimulation(this.config, this.scenario, events).run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JDEQSimScalingBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NearestLinkBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.LinkQuadTree;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.PackedLinkRTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building a {@link LinkQuadTree} and a {@link PackedLinkRTree} for a grid network, and finding the nearest
+ * link for many locations with both, the latter also from all cores in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestLinkBenchmark {
+
+	private static final double SPACING = 100;
+	private static final int NUMBER_OF_QUERIES = 100000;
+
+	@Param({"200", "700"})
+	private int gridSize;
+
+	private Network network;
+	private LinkQuadTree quadTree;
+	private PackedLinkRTree rTree;
+	private double[] queryX;
+	private double[] queryY;
+
+	@Setup
+	public void setup() {
+		this.network = NetworkUtils.createNetwork();
+		NetworkFactory nf = this.network.getFactory();
+		Random random = new Random(20200602L);
+		Node[][] nodes = new Node[this.gridSize][this.gridSize];
+		for (int x = 0; x < this.gridSize; x++) {
+			for (int y = 0; y < this.gridSize; y++) {
+				// slightly irregular, so that not all links are axis-parallel
+				nodes[x][y] = nf.createNode(Id.createNodeId(x + "_" + y),
+						new Coord(x * SPACING + random.nextDouble() * 20, y * SPACING + random.nextDouble() * 20));
+				this.network.addNode(nodes[x][y]);
+			}
+		}
+		for (int x = 0; x < this.gridSize; x++) {
+			for (int y = 0; y < this.gridSize; y++) {
+				if (x + 1 < this.gridSize) {
+					addLink(nodes[x][y], nodes[x + 1][y]);
+					addLink(nodes[x + 1][y], nodes[x][y]);
+				}
+				if (y + 1 < this.gridSize) {
+					addLink(nodes[x][y], nodes[x][y + 1]);
+					addLink(nodes[x][y + 1], nodes[x][y]);
+				}
+			}
+		}
+		this.quadTree = buildLinkQuadTree();
+		this.rTree = buildPackedLinkRTree();
+		this.queryX = new double[NUMBER_OF_QUERIES];
+		this.queryY = new double[NUMBER_OF_QUERIES];
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			this.queryX[i] = random.nextDouble() * this.gridSize * SPACING;
+			this.queryY[i] = random.nextDouble() * this.gridSize * SPACING;
+		}
+	}
+
+	private void addLink(final Node from, final Node to) {
+		this.network.addLink(this.network.getFactory().createLink(Id.createLinkId(from.getId() + "-" + to.getId()), from, to));
+	}
+
+	@Benchmark
+	public LinkQuadTree buildLinkQuadTree() {
+		double size = this.gridSize * SPACING + 20;
+		LinkQuadTree qt = new LinkQuadTree(0, 0, size, size);
+		for (Link link : this.network.getLinks().values()) {
+			qt.put(link);
+		}
+		return qt;
+	}
+
+	@Benchmark
+	public PackedLinkRTree buildPackedLinkRTree() {
+		return new PackedLinkRTree(this.network.getLinks().values());
+	}
+
+	@Benchmark
+	public int nearestWithLinkQuadTree() {
+		List<Link> found = new ArrayList<>(NUMBER_OF_QUERIES);
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			found.add(this.quadTree.getNearest(this.queryX[i], this.queryY[i]));
+		}
+		return found.size();
+	}
+
+	@Benchmark
+	public int nearestWithPackedLinkRTree() {
+		List<Link> found = new ArrayList<>(NUMBER_OF_QUERIES);
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			found.add(this.rTree.getNearest(this.queryX[i], this.queryY[i]));
+		}
+		return found.size();
+	}
+
+	@Benchmark
+	public long nearestWithPackedLinkRTreeParallel() {
+		return IntStream.range(0, NUMBER_OF_QUERIES).parallel()
+				.mapToObj(i -> this.rTree.getNearest(this.queryX[i], this.queryY[i]))
+				.count();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(NearestLinkBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+
+}
@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Runs the mobsim of the same scenario once for every {@link NetworkPartitioning} and prints the wall clock times.
+ * The per-runner busy and waiting times are logged by the QNetsimEngine at the end of every mobsim.
+ * <p></p>
+ * Arguments (all optional): number of qsim threads (default 4), path to a config file (default: the benchmark scenario).
+ * The difference between the partitionings only becomes visible on large networks with many threads.
+ */
+public class QSimNetworkPartitioningBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numberOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+		Map<NetworkPartitioning, Long> mobsimTimes = new LinkedHashMap<>();
+		for (NetworkPartitioning partitioning : NetworkPartitioning.values()) {
+			Config config = args.length > 1 ? ConfigUtils.loadConfig(args[1])
+					: ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+			config.controler().setLastIteration(config.controler().getFirstIteration());
+			config.controler().setOutputDirectory(config.controler().getOutputDirectory() + "/partitioning_" + partitioning);
+			config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+			config.controler().setCreateGraphs(false);
+			config.controler().setWriteEventsInterval(0);
+			config.controler().setWritePlansInterval(0);
+			config.controler().setDumpDataAtEnd(false);
+			config.qsim().setNumberOfThreads(numberOfThreads);
+			config.qsim().setNetworkPartitioning(partitioning);
+
+			MobsimTimer timer = new MobsimTimer();
+			Controler controler = new Controler(config);
+			controler.addControlerListener(timer);
+			controler.run();
+			mobsimTimes.put(partitioning, timer.duration);
+		}
+
+		System.out.println("mobsim wall clock times with " + numberOfThreads + " threads:");
+		for (Map.Entry<NetworkPartitioning, Long> e : mobsimTimes.entrySet()) {
+			System.out.println("\t" + e.getKey() + "\t" + e.getValue() / 1000000 + " ms");
+		}
+	}
+
+	private static class MobsimTimer implements BeforeMobsimListener, AfterMobsimListener {
+		private long start;
+		private long duration;
+
+		@Override
+		public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void notifyAfterMobsim(AfterMobsimEvent event) {
+			this.duration = System.nanoTime() - this.start;
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QuadTreeBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building a {@link QuadTree} with put() and with the bulk-loading constructor, and finding the k closest
+ * objects for many locations with a growing getDisk() (as e.g. the stop search of SwissRailRaptor does), with
+ * getKNearest() per location, and with the batch getKNearest().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeBenchmark {
+
+	private static final double WIDTH = 50000;
+	private static final double HEIGHT = 30000;
+	private static final int NUMBER_OF_QUERIES = 10000;
+
+	@Param({"100000", "1000000"})
+	private int numberOfPoints;
+
+	@Param({"10"})
+	private int k;
+
+	private List<Coord> coords;
+	private QuadTree<Coord> quadTree;
+	private double[] queryX;
+	private double[] queryY;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(20200514L);
+		this.coords = new ArrayList<>(this.numberOfPoints);
+		for (int i = 0; i < this.numberOfPoints; i++) {
+			this.coords.add(new Coord(random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT));
+		}
+		this.quadTree = new QuadTree<>(0, 0, WIDTH, HEIGHT, this.coords, Coord::getX, Coord::getY);
+		this.queryX = new double[NUMBER_OF_QUERIES];
+		this.queryY = new double[NUMBER_OF_QUERIES];
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			this.queryX[i] = random.nextDouble() * WIDTH;
+			this.queryY[i] = random.nextDouble() * HEIGHT;
+		}
+	}
+
+	@Benchmark
+	public QuadTree<Coord> buildWithPut() {
+		QuadTree<Coord> qt = new QuadTree<>(0, 0, WIDTH, HEIGHT);
+		for (Coord coord : this.coords) {
+			qt.put(coord.getX(), coord.getY(), coord);
+		}
+		return qt;
+	}
+
+	@Benchmark
+	public QuadTree<Coord> buildWithBulkLoad() {
+		return new QuadTree<>(0, 0, WIDTH, HEIGHT, this.coords, Coord::getX, Coord::getY);
+	}
+
+	@Benchmark
+	public int kNearestWithGrowingDisk() {
+		int count = 0;
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			double x = this.queryX[i];
+			double y = this.queryY[i];
+			double radius = 100;
+			Collection<Coord> found = this.quadTree.getDisk(x, y, radius);
+			while (found.size() < this.k) {
+				radius *= 2;
+				found = this.quadTree.getDisk(x, y, radius);
+			}
+			List<Coord> sorted = new ArrayList<>(found);
+			Coord query = new Coord(x, y);
+			sorted.sort((a, b) -> Double.compare(CoordUtils.calcEuclideanDistance(query, a), CoordUtils.calcEuclideanDistance(query, b)));
+			count += sorted.subList(0, this.k).size();
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int kNearest() {
+		int count = 0;
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			count += this.quadTree.getKNearest(this.queryX[i], this.queryY[i], this.k).size();
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int kNearestBatch() {
+		int count = 0;
+		for (List<Coord> found : this.quadTree.getKNearest(this.queryX, this.queryY, this.k)) {
+			count += found.size();
+		}
+		return count;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(QuadTreeBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+
+}
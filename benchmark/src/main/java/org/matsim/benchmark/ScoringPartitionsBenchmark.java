@@ -0,0 +1,174 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.EventsToScore;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Scores the events of a synthetic day (a car trip to work and a walk trip back for every person) through
+ * {@link EventsToScore} and a {@link ParallelEventsManager}, with as many scoring partitions as event handling threads.
+ * With one thread, the single synchronized handler is used as before.  The time per day divided by the number of
+ * events gives the scoring throughput for the different numbers of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScoringPartitionsBenchmark {
+
+	private static final int NUMBER_OF_PERSONS = 50000;
+	private static final int NUMBER_OF_LINKS = 200;
+	private static final int LINKS_PER_TRIP = 10;
+
+	@Param({"1", "2", "4", "8"})
+	private int numberOfThreads;
+
+	private ParallelEventsManager eventsManager;
+	private EventsToScore eventsToScore;
+	private List<Event> events;
+	private Id<Person> firstPersonId;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().addActivityParams(new ActivityParams("home").setTypicalDuration(14 * 3600));
+		config.planCalcScore().addActivityParams(new ActivityParams("work").setTypicalDuration(8 * 3600));
+		config.parallelEventHandling().setNumberOfScoringPartitions(this.numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node[] nodes = new Node[NUMBER_OF_LINKS];
+		for (int i = 0; i < NUMBER_OF_LINKS; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+		}
+		List<Id<Link>> ring = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_LINKS; i++) {
+			ring.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), nodes[i], nodes[(i + 1) % NUMBER_OF_LINKS], 100, 10, 1000, 1).getId());
+		}
+
+		Population population = scenario.getPopulation();
+		Random random = new Random(4711);
+		this.events = new ArrayList<>();
+		for (int p = 0; p < NUMBER_OF_PERSONS; p++) {
+			Id<Person> personId = Id.createPersonId(p);
+			population.addPerson(population.getFactory().createPerson(personId));
+			Id<Vehicle> vehicleId = Id.createVehicleId(p);
+			int home = random.nextInt(NUMBER_OF_LINKS);
+			int work = (home + LINKS_PER_TRIP) % NUMBER_OF_LINKS;
+			double time = 6 * 3600 + random.nextInt(3 * 3600);
+
+			this.events.add(new ActivityEndEvent(time, personId, ring.get(home), null, "home"));
+			this.events.add(new PersonDepartureEvent(time, personId, ring.get(home), TransportMode.car));
+			this.events.add(new PersonEntersVehicleEvent(time, personId, vehicleId));
+			this.events.add(new VehicleEntersTrafficEvent(time, personId, ring.get(home), vehicleId, TransportMode.car, 1.0));
+			for (int l = 1; l <= LINKS_PER_TRIP; l++) {
+				time += 10;
+				this.events.add(new LinkLeaveEvent(time, vehicleId, ring.get((home + l - 1) % NUMBER_OF_LINKS)));
+				this.events.add(new LinkEnterEvent(time, vehicleId, ring.get((home + l) % NUMBER_OF_LINKS)));
+			}
+			this.events.add(new VehicleLeavesTrafficEvent(time, personId, ring.get(work), vehicleId, TransportMode.car, 1.0));
+			this.events.add(new PersonLeavesVehicleEvent(time, personId, vehicleId));
+			this.events.add(new PersonArrivalEvent(time, personId, ring.get(work), TransportMode.car));
+			this.events.add(new ActivityStartEvent(time, personId, ring.get(work), null, "work"));
+
+			time += 8 * 3600 + random.nextInt(3600);
+			this.events.add(new ActivityEndEvent(time, personId, ring.get(work), null, "work"));
+			this.events.add(new PersonDepartureEvent(time, personId, ring.get(work), TransportMode.walk));
+			time += 1200;
+			this.events.add(new TeleportationArrivalEvent(time, personId, 1000));
+			this.events.add(new PersonArrivalEvent(time, personId, ring.get(home), TransportMode.walk));
+			this.events.add(new ActivityStartEvent(time, personId, ring.get(home), null, "home"));
+		}
+		this.firstPersonId = Id.createPersonId(0);
+
+		this.eventsManager = new ParallelEventsManager(false, this.numberOfThreads);
+		this.eventsToScore = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), this.eventsManager);
+	}
+
+	@Benchmark
+	public double scoreDay() {
+		this.eventsManager.resetHandlers(this.iteration);
+		this.eventsToScore.beginIteration(this.iteration);
+		this.eventsManager.initProcessing();
+		for (Event event : this.events) {
+			this.eventsManager.processEvent(event);
+		}
+		this.eventsManager.finishProcessing();
+		this.eventsToScore.finish();
+		this.iteration++;
+		return this.eventsToScore.getAgentScore(this.firstPersonId);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ScoringPartitionsBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
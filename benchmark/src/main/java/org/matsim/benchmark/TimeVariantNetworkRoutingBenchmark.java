@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TimeVariantNetworkRoutingBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Routes on a grid network in which every link has time-variant freespeeds, from several threads sharing the network
+ * (each thread has its own router, as in the replanning).  Every relaxed link reads its freespeed at the current time,
+ * so this shows how well reading the time-variant link attributes scales with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeVariantNetworkRoutingBenchmark {
+
+	private static final int NUMBER_OF_ROUTES = 20;
+
+	@Param({"50"})
+	private int gridSize;
+
+	@Param({"24"})
+	private int changeEventsPerLink;
+
+	private Network network;
+	private Config config;
+
+	@Setup
+	public void setup() {
+		this.config = ConfigUtils.createConfig();
+		this.config.network().setTimeVariantNetwork(true);
+		this.network = NetworkUtils.createNetwork(this.config);
+		NetworkFactory nf = this.network.getFactory();
+		Node[][] nodes = new Node[this.gridSize][this.gridSize];
+		for (int x = 0; x < this.gridSize; x++) {
+			for (int y = 0; y < this.gridSize; y++) {
+				nodes[x][y] = nf.createNode(Id.createNodeId(x + "_" + y), new Coord(x * 200.0, y * 200.0));
+				this.network.addNode(nodes[x][y]);
+			}
+		}
+		List<Link> links = new ArrayList<>();
+		for (int x = 0; x < this.gridSize; x++) {
+			for (int y = 0; y < this.gridSize; y++) {
+				if (x + 1 < this.gridSize) {
+					links.add(addLink(nodes[x][y], nodes[x + 1][y]));
+					links.add(addLink(nodes[x + 1][y], nodes[x][y]));
+				}
+				if (y + 1 < this.gridSize) {
+					links.add(addLink(nodes[x][y], nodes[x][y + 1]));
+					links.add(addLink(nodes[x][y + 1], nodes[x][y]));
+				}
+			}
+		}
+
+		// every event changes all links, alternating between four freespeeds
+		int stepSize = 24 * 3600 / this.changeEventsPerLink;
+		for (int e = 0; e < this.changeEventsPerLink; e++) {
+			NetworkChangeEvent event = new NetworkChangeEvent(e * stepSize);
+			event.addLinks(links);
+			event.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 5.0 + (e % 4) * 5.0));
+			NetworkUtils.addNetworkChangeEvent(this.network, event);
+		}
+	}
+
+	private Link addLink(final Node from, final Node to) {
+		Link link = this.network.getFactory().createLink(Id.createLinkId(from.getId() + "-" + to.getId()), from, to);
+		link.setLength(200);
+		link.setFreespeed(13.9);
+		link.setCapacity(1800);
+		link.setNumberOfLanes(1);
+		this.network.addLink(link);
+		return link;
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		private LeastCostPathCalculator router;
+		private Node[] fromNodes;
+		private Node[] toNodes;
+		private double[] departureTimes;
+
+		@Setup
+		public void setup(final TimeVariantNetworkRoutingBenchmark benchmark) {
+			FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(benchmark.config.planCalcScore());
+			this.router = new DijkstraFactory().createPathCalculator(benchmark.network, travelTime, travelTime);
+			List<Node> nodes = new ArrayList<>(benchmark.network.getNodes().values());
+			this.fromNodes = new Node[NUMBER_OF_ROUTES];
+			this.toNodes = new Node[NUMBER_OF_ROUTES];
+			this.departureTimes = new double[NUMBER_OF_ROUTES];
+			int offset = (int) (Thread.currentThread().getId() % nodes.size());
+			for (int i = 0; i < NUMBER_OF_ROUTES; i++) {
+				this.fromNodes[i] = nodes.get((offset + i * 7919) % nodes.size());
+				this.toNodes[i] = nodes.get((offset + i * 104729 + nodes.size() / 2) % nodes.size());
+				this.departureTimes[i] = (i * 4513) % (24 * 3600);
+			}
+		}
+	}
+
+	@Benchmark
+	public double route(final ThreadState state) {
+		double travelTime = 0;
+		for (int i = 0; i < NUMBER_OF_ROUTES; i++) {
+			travelTime += state.router.calcLeastCostPath(state.fromNodes[i], state.toNodes[i], state.departureTimes[i], null, null).travelTime;
+		}
+		return travelTime;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		// compare e.g. 1 thread with all cores, the time per operation should stay about the same
+		for (int threads : new int[] { 1, Runtime.getRuntime().availableProcessors() }) {
+			new Runner(new OptionsBuilder()
+					.include(TimeVariantNetworkRoutingBenchmark.class.getSimpleName())
+					.threads(threads)
+					.build()).run();
+		}
+	}
+
+}
@@ -37,6 +37,10 @@ import java.util.Map.Entry;
  * remembering time stamps. The class collects all the data and provides a simple analysis of the time stamps
  * and durations for operations for each iteration in the simulation. This analysis can be dumped to console
  * or to a file using the <code>write()</code>-methods.
+ * <p></p>
+ * Operations outside of the iterations, e.g. the preparation of the scenario before the first iteration, can be
+ * measured in sections.  They are written to a file of their own, so the rows of the iteration file remain
+ * iteration numbers.
  *
  * @author mrieser
  */
@@ -51,11 +55,20 @@ public final class IterationStopWatch {
 	 */
 	public static final String OPERATION_OTHER = "other";
 
-	/** The current iteration number, or null if not yet initialized. */
-	private Integer iteration = null;
+	/** The label of the first column when writing the data, "Iteration" or "Section". */
+	private final String rowHeader;
 
-	/** The main collection, where all the gathered data is stored. */
-	private final Map<Integer, Map<String, Long>> iterations;
+	/** The current iteration number or section name, or null if not yet initialized. */
+	private String iteration = null;
+
+	/** The main collection, where all the gathered data is stored, per iteration number or section name. */
+	private final Map<String, Map<String, Long>> iterations;
+
+	/** The data of the sections, or null if no section was measured. */
+	private IterationStopWatch sections = null;
+
+	/** Whether operations and time stamps are currently assigned to a section instead of the current iteration. */
+	private boolean inSection = false;
 
 	/** A list of identifiers used to enumerate time stamps. */
 	private final List<String> identifiers;
@@ -78,15 +91,20 @@ public final class IterationStopWatch {
 	/** data structures to identify nested operations */
 	private Stack<String> currentMeasuredOperations;
 	private Map<String, List<String>> currentIterationChildren;
-	private Map<Integer, Map<String, List<String>>> children;
+	private Map<String, Map<String, List<String>>> children;
 	
 	/** Creates a new IterationStopWatch. */
 	public IterationStopWatch() {
-		this.iterations = new LinkedHashMap<Integer, Map<String, Long>>();
+		this("Iteration");
+	}
+
+	private IterationStopWatch(final String rowHeader) {
+		this.rowHeader = rowHeader;
+		this.iterations = new LinkedHashMap<String, Map<String, Long>>();
 		this.identifiers = new LinkedList<String>();
 		this.operations = new LinkedList<String>();
 		this.currentIterationValues = null;
-		this.children = new LinkedHashMap<Integer, Map<String, List<String>>>();
+		this.children = new LinkedHashMap<String, Map<String, List<String>>>();
 	}
 
 	/**
@@ -103,6 +121,8 @@ public final class IterationStopWatch {
 		this.currentMeasuredOperations.clear();
 		this.currentIterationChildren.clear();
 		this.children.clear();
+		this.sections = null;
+		this.inSection = false;
 	}
 
 	/**
@@ -113,7 +133,27 @@ public final class IterationStopWatch {
 	 * @param iteration
 	 */
 	public void beginIteration(final int iteration) {
-		this.iteration = Integer.valueOf(iteration);
+		begin(Integer.toString(iteration));
+	}
+
+	/**
+	 * Like {@link #beginIteration(int)}, but for operations which do not belong to an iteration, e.g. the preparation
+	 * of the scenario before the first iteration.  Until {@link #endSection()}, operations and time stamps are
+	 * assigned to the section, which is written to a file of its own by {@link #writeTextFile(String)}.  An
+	 * iteration which is running when the section begins is continued after the end of the section.
+	 *
+	 * @param name
+	 */
+	public void beginSection(final String name) {
+		if (this.sections == null) {
+			this.sections = new IterationStopWatch("Section");
+		}
+		this.sections.begin(name);
+		this.inSection = true;
+	}
+
+	private void begin(final String iteration) {
+		this.iteration = iteration;
 		if (this.iterations.get(this.iteration) == null) {
 			this.currentIterationValues = new HashMap<String, Long>();
 			this.iterations.put(this.iteration, this.currentIterationValues);
@@ -132,6 +172,10 @@ public final class IterationStopWatch {
 	 * @param identifier The name of the beginning operation.
 	 */
 	public void beginOperation(final String identifier) {
+		if (this.inSection) {
+			this.sections.beginOperation(identifier);
+			return;
+		}
 
 		if (identifier.equals(OPERATION_OTHER)) {
 			throw new RuntimeException("Identifier " + OPERATION_OTHER + " is reserved! Please use another one. Aborting!");
@@ -160,6 +204,10 @@ public final class IterationStopWatch {
 	 * @param identifier The name of the ending operation.
 	 */
 	public void endOperation(final String identifier) {
+		if (this.inSection) {
+			this.sections.endOperation(identifier);
+			return;
+		}
 		String ident = "END " + identifier;
 		ensureIdentifier(ident);
 		ensureOperation(identifier);
@@ -173,28 +221,45 @@ public final class IterationStopWatch {
         this.endOperation(OPERATION_ITERATION);
     }
 
+	public void endSection() {
+		this.sections.endOperation(OPERATION_ITERATION);
+		this.inSection = false;
+	}
+
 	/**
 	 * Tells the stop watch that a special event happened, for which the time should be remembered.
 	 *
 	 * @param identifier The name of the event.
 	 */
 	public void timestamp(final String identifier) {
+		if (this.inSection) {
+			this.sections.timestamp(identifier);
+			return;
+		}
 		ensureIdentifier(identifier);
 		this.currentIterationValues.put(identifier, Long.valueOf(System.currentTimeMillis()));
 	}
 
 	/**
-	 * Writes the gathered data tab-separated into a text file.
+	 * Writes the gathered data tab-separated into a text file.  If sections were measured, they are written to a
+	 * second file, with "_sections" appended to the name.
 	 *
 	 * @param filename The name of a file where to write the gathered data.
 	 */
 	public void writeTextFile(final String filename) {
+		writeTable(filename);
+		if (this.sections != null) {
+			this.sections.writeTable(filename + "_sections");
+		}
+	}
+
+	private void writeTable(final String filename) {
 
 		try {
 			BufferedWriter writer = IOUtils.getBufferedWriter(filename + ".txt");
 
 			// print header
-			writer.write("Iteration");
+			writer.write(this.rowHeader);
 			for (String identifier : this.identifiers) {
 				writer.write('\t');
 				writer.write(identifier);
@@ -207,11 +272,10 @@ public final class IterationStopWatch {
 			writer.newLine();
 
 			// print data
-			for (Map.Entry<Integer, Map<String, Long>> entry : this.iterations.entrySet()) {
-				Integer iteration = entry.getKey();
+			for (Map.Entry<String, Map<String, Long>> entry : this.iterations.entrySet()) {
 				Map<String, Long> data = entry.getValue();
 				// iteration
-				writer.write(iteration.toString());
+				writer.write(entry.getKey());
 				// identifiers
 				for (String identifier : this.identifiers) {
 					Long time = data.get(identifier);
@@ -253,7 +317,7 @@ public final class IterationStopWatch {
 		for (String identifier : this.operations) arrayMap.put(identifier, new double[iterations]);
 
 		int iter = 0;
-		for(Entry<Integer, Map<String, Long>> entry : this.iterations.entrySet()) {
+		for(Entry<String, Map<String, Long>> entry : this.iterations.entrySet()) {
 			Map<String, Long> data = entry.getValue();
 			
 			// children map of current iteration
@@ -288,8 +352,8 @@ public final class IterationStopWatch {
 
 		String[] categories = new String[this.iterations.size()];
 		int index = 0;
-		for (int iteration : this.iterations.keySet()) {
-			categories[index] = String.valueOf(iteration);
+		for (String iteration : this.iterations.keySet()) {
+			categories[index] = iteration;
 			index++;
 		}
 
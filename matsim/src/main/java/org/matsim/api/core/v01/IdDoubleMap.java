@@ -0,0 +1,150 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The <code>double</code> counterpart of {@link IdIntMap}, e.g. for times or scores per agent.  {@link #get(Id)} returns
+ * the <code>noEntryValue</code> for ids without a value; <code>Double.NaN</code> can be used as such if <code>0.0</code>
+ * is a valid value.  Not thread-safe.
+ */
+public class IdDoubleMap<T> {
+
+	/**
+	 * @see IdDoubleMap#forEach(EntryConsumer)
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<T> {
+		void accept(Id<T> id, double value);
+	}
+
+	private final Class<T> idClass;
+	private final double noEntryValue;
+	private final BitSet keys;
+	private double[] values;
+	private int size = 0;
+
+	public IdDoubleMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), 100));
+	}
+
+	public IdDoubleMap(Class<T> idClass, int size) {
+		this(idClass, size, 0.0);
+	}
+
+	public IdDoubleMap(Class<T> idClass, int size, double noEntryValue) {
+		this.idClass = idClass;
+		this.noEntryValue = noEntryValue;
+		this.keys = new BitSet(size);
+		this.values = new double[size];
+		if (Double.doubleToRawLongBits(noEntryValue) != 0L) {
+			Arrays.fill(this.values, noEntryValue);
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public double getNoEntryValue() {
+		return this.noEntryValue;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		return this.keys.get(key.index());
+	}
+
+	/**
+	 * @return the value of the key, or the <code>noEntryValue</code> if the map contains no value for it.
+	 */
+	public double get(Id<T> key) {
+		int index = key.index();
+		return index < this.values.length ? this.values[index] : this.noEntryValue;
+	}
+
+	/**
+	 * @return the previous value of the key, or the <code>noEntryValue</code> if there was none.
+	 */
+	public double put(Id<T> key, double value) {
+		int index = key.index();
+		ensureCapacity(index);
+		double oldValue = this.values[index];
+		this.values[index] = value;
+		if (!this.keys.get(index)) {
+			this.keys.set(index);
+			this.size++;
+		}
+		return oldValue;
+	}
+
+	/**
+	 * Adds the amount to the value of the key, or puts the amount if the map contains no value for the key.
+	 *
+	 * @return the new value
+	 */
+	public double add(Id<T> key, double amount) {
+		int index = key.index();
+		ensureCapacity(index);
+		if (this.keys.get(index)) {
+			this.values[index] += amount;
+		} else {
+			this.keys.set(index);
+			this.size++;
+			this.values[index] = amount;
+		}
+		return this.values[index];
+	}
+
+	/**
+	 * @return the previous value of the key, or the <code>noEntryValue</code> if there was none.
+	 */
+	public double remove(Id<T> key) {
+		int index = key.index();
+		if (!this.keys.get(index)) {
+			return this.noEntryValue;
+		}
+		double oldValue = this.values[index];
+		this.values[index] = this.noEntryValue;
+		this.keys.clear(index);
+		this.size--;
+		return oldValue;
+	}
+
+	public void clear() {
+		Arrays.fill(this.values, this.noEntryValue);
+		this.keys.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Passes all entries, ordered by the index of their ids, to the consumer.
+	 */
+	public void forEach(EntryConsumer<T> action) {
+		for (int index = this.keys.nextSetBit(0); index >= 0; index = this.keys.nextSetBit(index + 1)) {
+			action.accept(Id.get(index, this.idClass), this.values[index]);
+		}
+	}
+
+	public IdSet<T> keySet() {
+		IdSet<T> set = new IdSet<>(this.idClass, this.values.length);
+		for (int index = this.keys.nextSetBit(0); index >= 0; index = this.keys.nextSetBit(index + 1)) {
+			set.add(Id.get(index, this.idClass));
+		}
+		return set;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= this.values.length) {
+			int oldLength = this.values.length;
+			this.values = Arrays.copyOf(this.values, Math.max(index + 1, oldLength + (oldLength >> 1)));
+			if (Double.doubleToRawLongBits(this.noEntryValue) != 0L) {
+				Arrays.fill(this.values, oldLength, this.values.length, this.noEntryValue);
+			}
+		}
+	}
+
+}
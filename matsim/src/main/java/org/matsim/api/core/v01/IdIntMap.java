@@ -0,0 +1,153 @@
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A map from ids to primitive <code>int</code> values, stored in an array indexed by {@link Id#index()} like in
+ * {@link IdMap}.  Compared to a <code>Map&lt;Id&lt;T&gt;, Integer&gt;</code>, neither entries nor boxed values are
+ * created, and an entry only needs the 4 bytes of its value plus one bit.
+ * <p></p>
+ * Like in trove's primitive maps, {@link #get(Id)} returns the <code>noEntryValue</code> (<code>0</code> by default)
+ * for ids without a value; use {@link #containsKey(Id)} where this needs to be distinguished.  Not thread-safe.
+ */
+public class IdIntMap<T> {
+
+	/**
+	 * @see IdIntMap#forEach(EntryConsumer)
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<T> {
+		void accept(Id<T> id, int value);
+	}
+
+	private final Class<T> idClass;
+	private final int noEntryValue;
+	private final BitSet keys;
+	private int[] values;
+	private int size = 0;
+
+	public IdIntMap(Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), 100));
+	}
+
+	public IdIntMap(Class<T> idClass, int size) {
+		this(idClass, size, 0);
+	}
+
+	public IdIntMap(Class<T> idClass, int size, int noEntryValue) {
+		this.idClass = idClass;
+		this.noEntryValue = noEntryValue;
+		this.keys = new BitSet(size);
+		this.values = new int[size];
+		if (noEntryValue != 0) {
+			Arrays.fill(this.values, noEntryValue);
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int getNoEntryValue() {
+		return this.noEntryValue;
+	}
+
+	public boolean containsKey(Id<T> key) {
+		return this.keys.get(key.index());
+	}
+
+	/**
+	 * @return the value of the key, or the <code>noEntryValue</code> if the map contains no value for it.
+	 */
+	public int get(Id<T> key) {
+		int index = key.index();
+		return index < this.values.length ? this.values[index] : this.noEntryValue;
+	}
+
+	/**
+	 * @return the previous value of the key, or the <code>noEntryValue</code> if there was none.
+	 */
+	public int put(Id<T> key, int value) {
+		int index = key.index();
+		ensureCapacity(index);
+		int oldValue = this.values[index];
+		this.values[index] = value;
+		if (!this.keys.get(index)) {
+			this.keys.set(index);
+			this.size++;
+		}
+		return oldValue;
+	}
+
+	/**
+	 * Adds the amount to the value of the key, or puts the amount if the map contains no value for the key.
+	 *
+	 * @return the new value
+	 */
+	public int add(Id<T> key, int amount) {
+		int index = key.index();
+		ensureCapacity(index);
+		if (this.keys.get(index)) {
+			this.values[index] += amount;
+		} else {
+			this.keys.set(index);
+			this.size++;
+			this.values[index] = amount;
+		}
+		return this.values[index];
+	}
+
+	/**
+	 * @return the previous value of the key, or the <code>noEntryValue</code> if there was none.
+	 */
+	public int remove(Id<T> key) {
+		int index = key.index();
+		if (!this.keys.get(index)) {
+			return this.noEntryValue;
+		}
+		int oldValue = this.values[index];
+		this.values[index] = this.noEntryValue;
+		this.keys.clear(index);
+		this.size--;
+		return oldValue;
+	}
+
+	public void clear() {
+		Arrays.fill(this.values, this.noEntryValue);
+		this.keys.clear();
+		this.size = 0;
+	}
+
+	/**
+	 * Passes all entries, ordered by the index of their ids, to the consumer.
+	 */
+	public void forEach(EntryConsumer<T> action) {
+		for (int index = this.keys.nextSetBit(0); index >= 0; index = this.keys.nextSetBit(index + 1)) {
+			action.accept(Id.get(index, this.idClass), this.values[index]);
+		}
+	}
+
+	public IdSet<T> keySet() {
+		IdSet<T> set = new IdSet<>(this.idClass, this.values.length);
+		for (int index = this.keys.nextSetBit(0); index >= 0; index = this.keys.nextSetBit(index + 1)) {
+			set.add(Id.get(index, this.idClass));
+		}
+		return set;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= this.values.length) {
+			int oldLength = this.values.length;
+			this.values = Arrays.copyOf(this.values, Math.max(index + 1, oldLength + (oldLength >> 1)));
+			if (this.noEntryValue != 0) {
+				Arrays.fill(this.values, oldLength, this.values.length, this.noEntryValue);
+			}
+		}
+	}
+
+}
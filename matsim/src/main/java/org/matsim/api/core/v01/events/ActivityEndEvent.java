@@ -85,5 +85,17 @@ public final class ActivityEndEvent extends Event implements HasPersonId {
 		return attr;
 	}
 
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		if (this.linkId != null) {
+			sink.attribute(ATTRIBUTE_LINK, this.linkId.toString());
+		}
+		if (this.facilityId != null) {
+			sink.attribute(ATTRIBUTE_FACILITY, this.facilityId.toString());
+		}
+		sink.attribute(ATTRIBUTE_ACTTYPE, this.acttype);
+	}
+
 	
 }
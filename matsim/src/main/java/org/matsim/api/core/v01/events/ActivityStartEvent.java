@@ -83,4 +83,16 @@ public class ActivityStartEvent extends Event implements HasPersonId {
 		attr.put(ATTRIBUTE_ACTTYPE, this.acttype);
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		if (this.linkId != null) {
+			sink.attribute(ATTRIBUTE_LINK, this.linkId.toString());
+		}
+		if (this.facilityId != null) {
+			sink.attribute(ATTRIBUTE_FACILITY, this.facilityId.toString());
+		}
+		sink.attribute(ATTRIBUTE_ACTTYPE, this.acttype);
+	}
 }
@@ -30,6 +30,34 @@ public abstract class Event {
 	public final static String ATTRIBUTE_TIME = "time";
 	public final static String ATTRIBUTE_TYPE = "type";
 
+	/**
+	 * Receives the attributes of an event, see {@link Event#writeAttributes(AttributeSink)}.
+	 */
+	public interface AttributeSink {
+		void attribute(String key, String value);
+
+		/**
+		 * Numeric attributes are passed as double, so the sink can format them without creating a string; the value
+		 * must be formatted like {@link Double#toString(double)} to get the same as from {@link Event#getAttributes()}.
+		 */
+		default void attribute(String key, double value) {
+			attribute(key, Double.toString(value));
+		}
+	}
+
+	/*
+	 * Whether writeAttributes() can use emitAttributes(), i.e. whether the event class has not overridden getAttributes()
+	 * below the class which implements emitAttributes().  Otherwise, the attributes are taken from getAttributes().
+	 */
+	private static final ClassValue<Boolean> EMITS_ALL_ATTRIBUTES = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			Class<?> getAttributesClass = getDeclaringClass(type, "getAttributes");
+			Class<?> emitAttributesClass = getDeclaringClass(type, "emitAttributes", AttributeSink.class);
+			return getAttributesClass.isAssignableFrom(emitAttributesClass);
+		}
+	};
+
 	private final double time;
 
 	public Event(final double time) {
@@ -48,6 +76,47 @@ public abstract class Event {
 		return attr;
 	}
 
+	/**
+	 * Passes the same attributes as {@link #getAttributes()}, in the same order, to the sink. For event types which
+	 * implement {@link #emitAttributes(AttributeSink)}, this does not create a map and (apart from the sink) no other
+	 * objects, so event writers should prefer it.
+	 */
+	public final void writeAttributes(final AttributeSink sink) {
+		if (EMITS_ALL_ATTRIBUTES.get(getClass())) {
+			emitAttributes(sink);
+		} else {
+			for (Map.Entry<String, String> entry : getAttributes().entrySet()) {
+				sink.attribute(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Passes the attributes of this event to the sink, like {@link #getAttributes()} puts them into the map. Event types
+	 * which override getAttributes() should override this method, too, and call super.emitAttributes() first; as long as
+	 * they do not, {@link #writeAttributes(AttributeSink)} falls back on getAttributes().
+	 */
+	protected void emitAttributes(final AttributeSink sink) {
+		sink.attribute(ATTRIBUTE_TIME, this.time);
+		sink.attribute(ATTRIBUTE_TYPE, getEventType());
+		if ( this instanceof HasPersonId ) {
+			// subclasses which also put the person into the map (for historical reasons) must not pass it again
+			sink.attribute( HasPersonId.ATTRIBUTE_PERSON, ((HasPersonId) this).getPersonId().toString() ) ;
+		}
+	}
+
+	private static Class<?> getDeclaringClass(Class<?> type, String methodName, Class<?>... parameterTypes) {
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(methodName, parameterTypes);
+				return c;
+			} catch (NoSuchMethodException e) {
+				// look in the super class
+			}
+		}
+		throw new IllegalStateException("method " + methodName + " not found in " + type);
+	}
+
 	/** @return a unique, descriptive name for this event type, used to identify event types in files. */
 	abstract public String getEventType();
 
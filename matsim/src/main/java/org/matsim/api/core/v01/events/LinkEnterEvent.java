@@ -76,4 +76,11 @@ public class LinkEnterEvent extends Event implements HasLinkId {
 		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		sink.attribute(ATTRIBUTE_LINK, this.linkId.toString());
+	}
 }
@@ -74,4 +74,13 @@ public class PersonDepartureEvent extends Event implements HasPersonId {
 		}
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_LINK, (this.linkId == null ? null : this.linkId.toString()));
+		if (this.legMode != null) {
+			sink.attribute(ATTRIBUTE_LEGMODE, this.legMode);
+		}
+	}
 }
\ No newline at end of file
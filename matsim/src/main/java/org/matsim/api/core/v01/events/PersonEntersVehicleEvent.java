@@ -66,4 +66,10 @@ public class PersonEntersVehicleEvent extends Event implements HasPersonId {
 		attrs.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 		return attrs;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+	}
 }
\ No newline at end of file
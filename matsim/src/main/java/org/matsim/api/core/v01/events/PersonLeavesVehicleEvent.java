@@ -67,4 +67,10 @@ public class PersonLeavesVehicleEvent extends Event implements HasPersonId {
 		attrs.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 		return attrs;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+	}
 }
\ No newline at end of file
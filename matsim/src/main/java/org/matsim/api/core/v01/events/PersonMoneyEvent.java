@@ -107,4 +107,16 @@ public final class PersonMoneyEvent extends Event implements HasPersonId {
 		}
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_AMOUNT, this.amount);
+		if (this.purpose != null) {
+			sink.attribute(ATTRIBUTE_PURPOSE, this.purpose);
+		}
+		if (this.transactionPartner != null) {
+			sink.attribute(ATTRIBUTE_TRANSACTION_PARTNER, this.transactionPartner);
+		}
+	}
 }
\ No newline at end of file
@@ -75,4 +75,15 @@ public class PersonStuckEvent extends Event implements HasPersonId {
 		attr.put(ATTRIBUTE_PERSON, this.personId.toString());
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		if (this.linkId != null) {
+			sink.attribute(ATTRIBUTE_LINK, this.linkId.toString());
+		}
+		if (this.legMode != null) {
+			sink.attribute(ATTRIBUTE_LEGMODE, this.legMode);
+		}
+	}
 }
\ No newline at end of file
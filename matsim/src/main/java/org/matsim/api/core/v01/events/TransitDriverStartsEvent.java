@@ -90,4 +90,14 @@ public class TransitDriverStartsEvent extends Event {
 		atts.put(ATTRIBUTE_DEPARTURE_ID, this.getDepartureId().toString());
 		return atts;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_DRIVER_ID, this.getDriverId().toString());
+		sink.attribute(ATTRIBUTE_VEHICLE_ID, this.getVehicleId().toString());
+		sink.attribute(ATTRIBUTE_TRANSIT_LINE_ID, this.getTransitLineId().toString());
+		sink.attribute(ATTRIBUTE_TRANSIT_ROUTE_ID, this.getTransitRouteId().toString());
+		sink.attribute(ATTRIBUTE_DEPARTURE_ID, this.getDepartureId().toString());
+	}
 }
\ No newline at end of file
@@ -62,4 +62,11 @@ public class VehicleAbortsEvent extends Event {
 		attr.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_LINK, this.linkId.toString());
+		sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+	}
 }
\ No newline at end of file
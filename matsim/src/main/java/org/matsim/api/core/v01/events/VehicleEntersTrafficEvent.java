@@ -94,4 +94,17 @@ public class VehicleEntersTrafficEvent extends Event implements HasPersonId, Has
 		attr.put(ATTRIBUTE_POSITION, Double.toString(this.relativePositionOnLink));
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_LINK, (this.linkId == null ? null : this.linkId.toString()));
+		if (this.vehicleId != null) {
+			sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		}
+		if (this.networkMode != null) {
+			sink.attribute(ATTRIBUTE_NETWORKMODE, this.networkMode);
+		}
+		sink.attribute(ATTRIBUTE_POSITION, this.relativePositionOnLink);
+	}
 }
\ No newline at end of file
@@ -77,4 +77,12 @@ public final class AgentWaitingForPtEvent extends Event implements HasPersonId {
 		
 		return attr;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_AGENT, this.agentId.toString());
+		sink.attribute(ATTRIBUTE_WAITSTOP, this.waitingAtStopId.toString());
+		sink.attribute(ATTRIBUTE_DESTINATIONSTOP, this.destinationStopId.toString());
+	}
 }
\ No newline at end of file
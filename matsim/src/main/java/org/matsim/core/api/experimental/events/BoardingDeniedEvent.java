@@ -66,6 +66,12 @@ public final class BoardingDeniedEvent extends Event implements HasPersonId
 		atts.put(ATTRIBUTE_VEHICLE_ID, this.vehicleId.toString());
 		return atts;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_VEHICLE_ID, this.vehicleId.toString());
+	}
 	
 	@Override
 	public String getEventType() {
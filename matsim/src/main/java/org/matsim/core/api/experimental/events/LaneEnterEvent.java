@@ -65,6 +65,14 @@ public final class LaneEnterEvent extends Event  {
 		return attr;
 	}
 
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		sink.attribute(ATTRIBUTE_LINK, this.linkId.toString());
+		sink.attribute(ATTRIBUTE_LANE, this.laneId.toString());
+	}
+
 	public Id<Vehicle> getVehicleId() {
 		return vehicleId;
 	}
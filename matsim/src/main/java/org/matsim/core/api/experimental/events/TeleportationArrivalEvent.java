@@ -66,4 +66,10 @@ public final class TeleportationArrivalEvent extends Event implements HasPersonI
         attributes.put(ATTRIBUTE_DISTANCE, Double.toString(distance));
         return attributes;
     }
+
+    @Override
+    protected void emitAttributes(final AttributeSink sink) {
+        super.emitAttributes(sink);
+        sink.attribute(ATTRIBUTE_DISTANCE, this.distance);
+    }
 }
\ No newline at end of file
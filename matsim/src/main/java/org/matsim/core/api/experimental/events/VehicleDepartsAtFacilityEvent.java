@@ -79,4 +79,12 @@ public final class VehicleDepartsAtFacilityEvent extends Event {
 		attributes.put(ATTRIBUTE_DELAY, Double.toString(this.delay));
 		return attributes;
 	}
+
+	@Override
+	protected void emitAttributes(final AttributeSink sink) {
+		super.emitAttributes(sink);
+		sink.attribute(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		sink.attribute(ATTRIBUTE_FACILITY, this.facilityId.toString());
+		sink.attribute(ATTRIBUTE_DELAY, this.delay);
+	}
 }
\ No newline at end of file
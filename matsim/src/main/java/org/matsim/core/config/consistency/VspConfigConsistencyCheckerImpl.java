@@ -96,6 +96,8 @@ public final class VspConfigConsistencyCheckerImpl implements ConfigConsistencyC
 			case Dijkstra:
 			case AStarLandmarks:
 			case FastDijkstra:
+			case BidirectionalAStarLandmarks:
+			case ContractionHierarchies:
 				log.log( lvl, "you are not using FastAStarLandmarks as routing algorithm.  vsp default is to use FastAStarLandmarks.") ;
 				System.out.flush();
 				break;
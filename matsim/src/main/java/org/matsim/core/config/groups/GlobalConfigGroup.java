@@ -39,6 +39,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(WORK_STEALING_REPLANNING, WORK_STEALING_REPLANNING_CMT ) ;
 		return map ;
 	}
 
@@ -88,6 +89,27 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	private boolean workStealingReplanning = false;
+	private static final String WORK_STEALING_REPLANNING = "workStealingReplanning";
+	private static final String WORK_STEALING_REPLANNING_CMT = "If true, the multi-threaded replanning modules hand out the plans "
+							     + "in small batches to a persistent pool of numberOfThreads threads, so that threads which are done early help the others.  "
+							     + "The random numbers are then re-seeded for every person, so the results do not depend on which thread handles which plan, "
+							     + "but differ from the results with the default (false), where every thread gets the same number of plans.";
+	/**
+	 * @return {@link #WORK_STEALING_REPLANNING_CMT}
+	 */
+	@StringGetter( WORK_STEALING_REPLANNING )
+	public boolean isWorkStealingReplanning() {
+		return this.workStealingReplanning;
+	}
+	/**
+	 * @param workStealingReplanning -- {@link #WORK_STEALING_REPLANNING_CMT}
+	 */
+	@StringSetter( WORK_STEALING_REPLANNING )
+	public void setWorkStealingReplanning(final boolean workStealingReplanning) {
+		this.workStealingReplanning = workStealingReplanning;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
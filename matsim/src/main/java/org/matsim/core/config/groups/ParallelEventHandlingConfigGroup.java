@@ -44,6 +44,12 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
+
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private boolean useRingBuffer = false;
+
+	private final static String NUMBER_OF_SCORING_PARTITIONS = "numberOfScoringPartitions";
+	private int numberOfScoringPartitions = 1;
 	
 	private boolean locked = false;
 
@@ -60,6 +66,11 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(USE_RING_BUFFER, "If enabled, the events are passed to the handler threads through a pre-allocated ring buffer instead of blocking queues. "
+				+ "Respects " + SYNCHRONIZE_ON_SIMSTEPS + ", " + ONE_THREAD_PER_HANDLER + " and " + NUMBER_OF_THREADS + ". This feature is still experimental!");
+		comments.put(NUMBER_OF_SCORING_PARTITIONS, "Number of partitions of the persons for scoring. Each partition is a separate event handler with its own legs and activities "
+				+ "state, so the partitions can be handled by different threads without locking. Should be at least " + NUMBER_OF_THREADS + " to be useful. "
+				+ "1 means that all persons are scored by a single synchronized handler.");
 		return comments;
 	}
 
@@ -127,6 +138,36 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public boolean isUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( NUMBER_OF_SCORING_PARTITIONS )
+	public int getNumberOfScoringPartitions() {
+		return this.numberOfScoringPartitions;
+	}
+
+	@StringSetter( NUMBER_OF_SCORING_PARTITIONS )
+	public void setNumberOfScoringPartitions(int numberOfScoringPartitions) {
+		if ( this.locked ) {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+		if ( numberOfScoringPartitions < 1 ) {
+			throw new IllegalArgumentException("numberOfScoringPartitions must be at least 1, but is " + numberOfScoringPartitions);
+		}
+		this.numberOfScoringPartitions = numberOfScoringPartitions;
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -34,6 +34,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String VarIntNetworkRoute = "VarIntNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -67,7 +68,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.VarIntNetworkRoute + ".");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -87,6 +89,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(COMPACT_PLANS, "(experimental) if true, the plans which are not selected are stored in compact arrays " +
+				"instead of one object per activity and leg, and only materialized when they are accessed.  Saves memory for " +
+				"large populations with several plans per person. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -193,6 +199,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String COMPACT_PLANS = "compactPlans";
+	private boolean compactPlans = false;
+	@StringGetter(COMPACT_PLANS)
+	public boolean isCompactPlans() {
+		return this.compactPlans;
+	}
+	@StringSetter(COMPACT_PLANS)
+	public void setCompactPlans(final boolean compactPlans) {
+		this.compactPlans = compactPlans;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -20,9 +20,11 @@
 
 package org.matsim.core.config.groups;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import javax.validation.constraints.Positive;
@@ -273,6 +275,25 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NetworkPartitioning np : NetworkPartitioning.values() ) {
+				stb.append(" ").append( np.toString() ) ;
+			}
+			map.put(NETWORK_PARTITIONING, "How nodes (and their out-links) are assigned to the runners of the netsim engine if numberOfThreads > 1. "
+					+ "roundRobin: in network order; loadBalanced: start with round robin, then re-assign every loadBalancingInterval "
+					+ "according to the activity measured during the previous interval; spatial: contiguous regions of about the same "
+					+ "number of links (recursive coordinate bisection), which keeps vehicles moving between links of the same runner.  "
+					+ "Options:" + stb ) ;
+		}
+		map.put(LOAD_BALANCING_INTERVAL, "Simulated time between two re-assignments of nodes to runners if networkPartitioning is loadBalanced.");
+		map.put(CHECKPOINT_TIMES, "[comma-separated list of times] The qsim writes a checkpoint of its state to the iteration directory "
+				+ "(or to the output directory, if run without a controler) after each of these time steps, from which the mobsim can be resumed with " + CHECKPOINT_FILE + ".  Only possible "
+				+ "if all qsim components support it (e.g. not with transit or within-day replanning).");
+		map.put(CHECKPOINT_FILE, "If set, the qsim does not start at the beginning of the day, but resumes from this checkpoint.  The "
+				+ "scenario, in particular the selected plans, and the qsim settings, including " + CHECKPOINT_TIMES + ", need to be "
+				+ "the same as in the run which wrote the checkpoint.  Events are only produced for the time after the checkpoint.  Only the "
+				+ "first iteration resumes from the checkpoint, the later iterations simulate their plans from the beginning of the day.");
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
 		{	
 			StringBuilder stb = new StringBuilder() ;
@@ -534,6 +555,76 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	// ---
+	private static final String NETWORK_PARTITIONING = "networkPartitioning" ;
+	public enum NetworkPartitioning { roundRobin, loadBalanced, spatial }
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin ;
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning( NetworkPartitioning val ) {
+		this.networkPartitioning = val ;
+	}
+	// ---
+	private static final String LOAD_BALANCING_INTERVAL = "loadBalancingInterval" ;
+	@Positive
+	private double loadBalancingInterval = 900. ;
+	@StringGetter(LOAD_BALANCING_INTERVAL)
+	private String getLoadBalancingIntervalAsString() {
+		return Time.writeTime( getLoadBalancingInterval() ) ;
+	}
+	@StringSetter(LOAD_BALANCING_INTERVAL)
+	private void setLoadBalancingInterval( String value ) {
+		setLoadBalancingInterval( Time.parseTime( value ) ) ;
+	}
+	public double getLoadBalancingInterval() {
+		return this.loadBalancingInterval ;
+	}
+	public void setLoadBalancingInterval( double seconds ) {
+		this.loadBalancingInterval = seconds ;
+	}
+	// ---
+	private static final String CHECKPOINT_TIMES = "checkpointTimes" ;
+	private List<Double> checkpointTimes = new ArrayList<>() ;
+	@StringGetter(CHECKPOINT_TIMES)
+	private String getCheckpointTimesAsString() {
+		StringBuilder stb = new StringBuilder() ;
+		for ( Double time : this.checkpointTimes ) {
+			if ( stb.length() > 0 ) {
+				stb.append(',') ;
+			}
+			stb.append( Time.writeTime( time ) ) ;
+		}
+		return stb.toString() ;
+	}
+	@StringSetter(CHECKPOINT_TIMES)
+	private void setCheckpointTimes( String value ) {
+		List<Double> times = new ArrayList<>() ;
+		for ( String time : CollectionUtils.stringToArray( value ) ) {
+			times.add( Time.parseTime( time ) ) ;
+		}
+		setCheckpointTimes( times ) ;
+	}
+	public List<Double> getCheckpointTimes() {
+		return this.checkpointTimes ;
+	}
+	public void setCheckpointTimes( List<Double> times ) {
+		this.checkpointTimes = times ;
+	}
+	// ---
+	private static final String CHECKPOINT_FILE = "checkpointFile" ;
+	private String checkpointFile = null ;
+	@StringGetter(CHECKPOINT_FILE)
+	public String getCheckpointFile() {
+		return this.checkpointFile ;
+	}
+	@StringSetter(CHECKPOINT_FILE)
+	public void setCheckpointFile( String checkpointFile ) {
+		this.checkpointFile = checkpointFile ;
+	}
+	// ---
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -57,6 +57,8 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
 
+	private static final String NUMBER_OF_PARTITIONS = "numberOfPartitions";
+
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
 	private String travelTimeGetter = "average";
@@ -70,6 +72,8 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private boolean filterModes = false;
 	private boolean separateModes = true;
 
+	private int numberOfPartitions = 1;
+
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
 		analyzedModes.add( TransportMode.car ) ;
@@ -90,6 +94,11 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 							 "respected by the travel time collector. 'car' is default which includes also buses from the pt simulation module.");
 		map.put(FILTERMODES, "(only for backwards compatiblity; only used if " + SEPARATEMODES + "==false)  Only modes included in analyzedModes are included." ) ;
 		map.put(SEPARATEMODES, "(only for backwards compatibility) If false, link travel times are measured and aggregated over all vehicles using the link." ) ;
+		map.put(NUMBER_OF_PARTITIONS, "If larger than 1, the link travel times are collected by this many event handlers, each " +
+				"responsible for a part of the links, so that a parallel events manager can feed them from different threads. " +
+				"The data is then kept in primitive arrays by the PartitionedTravelTimeCalculator, which is bound instead of the " +
+				"TravelTimeCalculator. Cannot be used together with " + CALCULATE_LINKTOLINK_TRAVELTIMES + "; " + TRAVEL_TIME_CALCULATOR +
+				" is ignored then.") ;
 		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() ) );
 		return map;
 	}
@@ -214,4 +223,17 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		this.separateModes = separateModes;
 	}
 
+	@StringGetter(NUMBER_OF_PARTITIONS)
+	public int getNumberOfPartitions() {
+		return this.numberOfPartitions;
+	}
+
+	@StringSetter(NUMBER_OF_PARTITIONS)
+	public void setNumberOfPartitions(int numberOfPartitions) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("numberOfPartitions must be at least 1, but is " + numberOfPartitions);
+		}
+		this.numberOfPartitions = numberOfPartitions;
+	}
+
 }
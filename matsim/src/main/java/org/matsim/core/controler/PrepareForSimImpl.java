@@ -23,6 +23,7 @@
 
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
@@ -77,6 +78,10 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 	private final FacilitiesConfigGroup facilitiesConfigGroup;
 	private final MainModeIdentifier backwardCompatibilityMainModeIdentifier;
 
+	// not bound when PrepareForSim is used without a controler
+	@com.google.inject.Inject(optional=true)
+	private IterationStopWatch stopwatch = null;
+
 	/**
 	 * TODO: backwardCompatibilityMainModeIdentifier should be a separate MainModeidentifier, neither the routing mode identifier from TripStructureUtils, 
 	 * nor the MainModeidentifier used for analysis (ModeStats etc.).
@@ -100,6 +105,11 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 
 	@Override
 	public void run() {
+		if (this.stopwatch != null) {
+			this.stopwatch.beginSection("prepareForSim");
+		}
+		final int numberOfThreads = this.globalConfigGroup.getNumberOfThreads();
+
 		/*
 		 * Create single-mode network here and hand it over to PersonPrepareForSim. Otherwise, each instance would create its
 		 * own single-mode network. However, this assumes that the main mode is car - which PersonPrepareForSim also does. Should
@@ -118,6 +128,7 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 		}
 
 		//matsim-724
+		beginOperation("facilitiesFromPopulation");
 		switch(this.facilitiesConfigGroup.getFacilitiesSource()){
 			case none:
 //				Gbl.assertIf( this.activityFacilities.getFacilities().isEmpty() );
@@ -148,26 +159,36 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 			default:
 				throw new RuntimeException("Facilities source '"+this.facilitiesConfigGroup.getFacilitiesSource()+"' is not implemented.");
 		}
+		endOperation("facilitiesFromPopulation");
 
 		// get links for facilities
 		// using car only network to get the links for facilities. Amit July'18
-		XY2LinksForFacilities.run(carOnlyNetwork, this.activityFacilities);
+		beginOperation("xy2LinksForFacilities");
+		XY2LinksForFacilities.run(carOnlyNetwork, this.activityFacilities, numberOfThreads);
+		endOperation("xy2LinksForFacilities");
 
 		// yyyy from a behavioral perspective, the vehicle must be somehow linked to
 		// the person (maybe via the household).    kai, feb'18
 		// each agent receives a vehicle for each main mode now. janek, aug'19
+		// (not parallel, as the order in which the vehicle ids are created is the iteration order of the vehicles)
+		beginOperation("createVehicles");
 		createAndAddVehiclesForEveryNetworkMode();
-		
-		adaptOutdatedPlansForRoutingMode();
+		endOperation("createVehicles");
+
+		beginOperation("adaptOutdatedPlans");
+		ParallelPersonAlgorithmUtils.run(population, numberOfThreads, this::adaptOutdatedPlansForRoutingMode);
+		endOperation("adaptOutdatedPlans");
 
 		// make sure all routes are calculated.
 		// the above creation of vehicles per agent has to be run before executing the initial routing here. janek, aug'19
 		// At least xy2links is needed here, i.e. earlier than PrepareForMobsimImpl.  It could, however, presumably be separated out
 		// (i.e. we introduce a separate PersonPrepareForMobsim).  kai, jul'18
-		ParallelPersonAlgorithmUtils.run(population, globalConfigGroup.getNumberOfThreads(),
+		beginOperation("personPrepareForSim");
+		ParallelPersonAlgorithmUtils.run(population, numberOfThreads,
 				() -> new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities), scenario, 
 						carOnlyNetwork)
 		);
+		endOperation("personPrepareForSim");
 		
 		if (scenario instanceof Lockable) {
 			((Lockable)scenario).setLocked();
@@ -187,6 +208,22 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 		}
 
 		// (yyyy means that if someone replaces prepareForSim and does not add the above lines, the containers are not locked.  kai, nov'16)
+
+		if (this.stopwatch != null) {
+			this.stopwatch.endSection();
+		}
+	}
+
+	private void beginOperation(final String operation) {
+		if (this.stopwatch != null) {
+			this.stopwatch.beginOperation(operation);
+		}
+	}
+
+	private void endOperation(final String operation) {
+		if (this.stopwatch != null) {
+			this.stopwatch.endOperation(operation);
+		}
 	}
 
 	// only warn once that legacy vehicle id is used
@@ -265,88 +302,86 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 	
 	private static boolean insistingOnPlansWithoutRoutingModeLogWarnNotShownYet = true;
 	
-	private void adaptOutdatedPlansForRoutingMode() {
-		population.getPersons().values().stream().forEach(person -> {
-			for (Plan plan : person.getPlans()) {
-				for (Trip trip : TripStructureUtils.getTrips(plan.getPlanElements())) {
-					List<Leg> legs = trip.getLegsOnly();
-					if (legs.size() >= 1) {
-						String routingMode = TripStructureUtils.getRoutingMode(legs.get(0));
-
-						for (Leg leg : legs) {
-							// 1. check all legs either have the same routing mode or all have routingMode==null
-							if (TripStructureUtils.getRoutingMode(leg) == null) {
-								if (routingMode == null) {
-									// outdated initial plan without routingMode
-								} else {
-									String errorMessage = "Found a mixed trip having some legs with routingMode set and others without. "
-											+ "This is inconsistent. Agent id: " + person.getId().toString()
-											+ "\nTrip: " + trip.getTripElements().toString();
-									log.error(errorMessage);
-									throw new RuntimeException(errorMessage);
-								}
+	private void adaptOutdatedPlansForRoutingMode(final Person person) {
+		for (Plan plan : person.getPlans()) {
+			for (Trip trip : TripStructureUtils.getTrips(plan.getPlanElements())) {
+				List<Leg> legs = trip.getLegsOnly();
+				if (legs.size() >= 1) {
+					String routingMode = TripStructureUtils.getRoutingMode(legs.get(0));
+
+					for (Leg leg : legs) {
+						// 1. check all legs either have the same routing mode or all have routingMode==null
+						if (TripStructureUtils.getRoutingMode(leg) == null) {
+							if (routingMode == null) {
+								// outdated initial plan without routingMode
 							} else {
-								if (routingMode.equals(TripStructureUtils.getRoutingMode(leg))) {
-									TripStructureUtils.setRoutingMode(leg, routingMode);
-								} else {
-									String errorMessage = "Found a trip whose legs have different routingModes. "
-											+ "This is inconsistent. Agent id: " + person.getId().toString()
-											+ "\nTrip: " + trip.getTripElements().toString();
-									log.error(errorMessage);
-									throw new RuntimeException(errorMessage);
-								}
+								String errorMessage = "Found a mixed trip having some legs with routingMode set and others without. "
+										+ "This is inconsistent. Agent id: " + person.getId().toString()
+										+ "\nTrip: " + trip.getTripElements().toString();
+								log.error(errorMessage);
+								throw new RuntimeException(errorMessage);
+							}
+						} else {
+							if (routingMode.equals(TripStructureUtils.getRoutingMode(leg))) {
+								TripStructureUtils.setRoutingMode(leg, routingMode);
+							} else {
+								String errorMessage = "Found a trip whose legs have different routingModes. "
+										+ "This is inconsistent. Agent id: " + person.getId().toString()
+										+ "\nTrip: " + trip.getTripElements().toString();
+								log.error(errorMessage);
+								throw new RuntimeException(errorMessage);
 							}
 						}
+					}
 
-						// add routing mode
-						if (routingMode == null) {
-							if (legs.size() == 1) {
-								// there is only a single leg (e.g. after Trips2Legs and a mode choice replanning
-								// module)
-
-								String oldMainMode = replaceOutdatedFallbackModesAndReturnOldMainMode(legs.get(0),
-										null);
-								if (oldMainMode != null) {
-									if (true /* config switch insisting on bla */) {
-										routingMode = oldMainMode;
-										TripStructureUtils.setRoutingMode(legs.get(0), routingMode);
-									} else {
-										// error config switch insisting on bla
-									}
-								} else {
-									// leg has a real mode (not an outdated fallback mode)
-									routingMode = legs.get(0).getMode();
-									TripStructureUtils.setRoutingMode(legs.get(0), routingMode);
-								}
-							} else {
+					// add routing mode
+					if (routingMode == null) {
+						if (legs.size() == 1) {
+							// there is only a single leg (e.g. after Trips2Legs and a mode choice replanning
+							// module)
+
+							String oldMainMode = replaceOutdatedFallbackModesAndReturnOldMainMode(legs.get(0),
+									null);
+							if (oldMainMode != null) {
 								if (true /* config switch insisting on bla */) {
-									routingMode = getAndAddRoutingModeFromBackwardCompatibilityMainModeIdentifier(
-											person, trip);
+									routingMode = oldMainMode;
+									TripStructureUtils.setRoutingMode(legs.get(0), routingMode);
 								} else {
 									// error config switch insisting on bla
 								}
+							} else {
+								// leg has a real mode (not an outdated fallback mode)
+								routingMode = legs.get(0).getMode();
+								TripStructureUtils.setRoutingMode(legs.get(0), routingMode);
 							}
-						}
-
-						for (Leg leg : legs) {
-							// check before replaceOutdatedAccessEgressHelperModes
-							if (leg.getMode().equals(TransportMode.walk) && leg.getRoute() instanceof NetworkRoute) {
-								log.error(
-										"Found a walk leg with a NetworkRoute. This is the only allowed use case of having "
-												+ "non_network_walk as an access/egress mode. PrepareForSimImpl replaces "
-												+ "non_network_walk with walk, because access/egress to modes other than walk should "
-												+ "use the walk Router. If this causes any problem please report to gleich or kai -nov'19");
+						} else {
+							if (true /* config switch insisting on bla */) {
+								routingMode = getAndAddRoutingModeFromBackwardCompatibilityMainModeIdentifier(
+										person, trip);
+							} else {
+								// error config switch insisting on bla
 							}
 						}
+					}
 
-						for (Leg leg : legs) {
-							replaceOutdatedAccessEgressHelperModes(leg, routingMode);
-							replaceOutdatedFallbackModesAndReturnOldMainMode(leg, routingMode);
+					for (Leg leg : legs) {
+						// check before replaceOutdatedAccessEgressHelperModes
+						if (leg.getMode().equals(TransportMode.walk) && leg.getRoute() instanceof NetworkRoute) {
+							log.error(
+									"Found a walk leg with a NetworkRoute. This is the only allowed use case of having "
+											+ "non_network_walk as an access/egress mode. PrepareForSimImpl replaces "
+											+ "non_network_walk with walk, because access/egress to modes other than walk should "
+											+ "use the walk Router. If this causes any problem please report to gleich or kai -nov'19");
 						}
 					}
+
+					for (Leg leg : legs) {
+						replaceOutdatedAccessEgressHelperModes(leg, routingMode);
+						replaceOutdatedFallbackModesAndReturnOldMainMode(leg, routingMode);
+					}
 				}
 			}
-		});
+		}
 	}
 
 	private String getAndAddRoutingModeFromBackwardCompatibilityMainModeIdentifier(Person person, Trip trip) {
@@ -28,6 +28,11 @@ import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.ActivityFacility;
 import org.matsim.facilities.ActivityFacilityImpl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 /**
  * Created by amit on 13.07.18.
  */
@@ -37,9 +42,26 @@ public class XY2LinksForFacilities {
     public static final Logger LOGGER = Logger.getLogger(XY2LinksForFacilities.class);
 
     public static void run(Network network, ActivityFacilities facilities){
+        run(network, facilities, 1);
+    }
+
+    /**
+     * Same as {@link #run(Network, ActivityFacilities)}, but searches the nearest links with several threads.  The links
+     * are assigned afterwards in the order of the facilities, so the result does not depend on the number of threads.
+     */
+    public static void run(Network network, ActivityFacilities facilities, int numberOfThreads){
+
+        List<ActivityFacility> withoutLink = new ArrayList<>();
+        for (ActivityFacility activityFacility : facilities.getFacilities().values()) {
+            if (activityFacility.getLinkId() == null && activityFacility.getCoord() != null) {
+                withoutLink.add(activityFacility);
+            }
+        }
+        List<Link> nearestLinks = findNearestLinks(network, withoutLink, numberOfThreads);
 
         int coordNullWarn = 0;
         int linkNullWarn = 0;
+        int nextWithoutLink = 0;
 
         for (ActivityFacility activityFacility : facilities.getFacilities().values()) {
 
@@ -51,7 +73,7 @@ public class XY2LinksForFacilities {
                     LOGGER.warn(Gbl.ONLYONCE);
                     linkNullWarn++;
                 }
-                Link link = NetworkUtils.getNearestLink(network, activityFacility.getCoord());
+                Link link = nearestLinks.get(nextWithoutLink++);
                 if (link==null) {
                     LOGGER.warn("No nearest link is found for coord "+activityFacility.getCoord());
                 } else{
@@ -67,4 +89,28 @@ public class XY2LinksForFacilities {
             }
         }
     }
+
+    private static List<Link> findNearestLinks(Network network, List<ActivityFacility> facilities, int numberOfThreads) {
+        List<Link> nearestLinks = new ArrayList<>(facilities.size());
+        if (numberOfThreads <= 1) {
+            for (ActivityFacility facility : facilities) {
+                nearestLinks.add(NetworkUtils.getNearestLink(network, facility.getCoord()));
+            }
+            return nearestLinks;
+        }
+        ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+        try {
+            List<ForkJoinTask<Link>> tasks = new ArrayList<>(facilities.size());
+            for (ActivityFacility facility : facilities) {
+                tasks.add(pool.submit(() -> NetworkUtils.getNearestLink(network, facility.getCoord())));
+            }
+            // joined in the order of the facilities, so that also an exception does not depend on the threads
+            for (ForkJoinTask<Link> task : tasks) {
+                nearestLinks.add(task.join());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return nearestLinks;
+    }
 }
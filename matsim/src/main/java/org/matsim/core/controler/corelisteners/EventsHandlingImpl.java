@@ -37,6 +37,7 @@ import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.events.algorithms.EventWriterXML;
 
 import com.google.inject.Inject;
@@ -58,6 +59,8 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 	
 	private OutputDirectoryHierarchy controlerIO ;
 
+	private ControlerConfigGroup.CompressionType compressionType ;
+
 	private int writeMoreUntilIteration;
 
 	@Inject
@@ -71,6 +74,7 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		this.eventsFileFormats = config.getEventsFileFormats();
 		this.controlerIO = controlerIO;
 		this.writeMoreUntilIteration = config.getWriteEventsUntilIteration() ;
+		this.compressionType = config.getCompressionType() ;
 	}
 
 	@Override
@@ -88,6 +92,10 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 					this.eventWriters.add(new EventWriterXML(controlerIO.getIterationFilename(event.getIteration(), 
 							Controler.DefaultFiles.events)));
 					break;
+				case binary:
+					this.eventWriters.add(new EventWriterBinary(controlerIO.getIterationFilename(event.getIteration(),
+							"events.bin" + (this.compressionType == null ? "" : this.compressionType.fileEnding))));
+					break;
 				default:
 					log.warn("Unknown events file format specified: " + format.toString() + ".");
 				}
@@ -30,11 +30,15 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.population.io.BackgroundPopulationWriter;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 
 /**
@@ -43,11 +47,14 @@ import org.matsim.core.utils.geometry.transformations.TransformationFactory;
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p></p>
+ * With {@link ControlerConfigGroup#isWritePlansInBackground()}, the plans are only copied at the start of the
+ * iteration and written by a {@link BackgroundPopulationWriter}.  Pending writes are finished at shutdown.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
+final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener, ShutdownListener {
 
 	static final private Logger log = Logger.getLogger(PlansDumpingImpl.class);
 
@@ -60,6 +67,8 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 
 	private int writeMoreUntilIteration;
 
+	private BackgroundPopulationWriter backgroundWriter = null;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
@@ -77,7 +86,17 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
-			if ( inputCRS == null ) {
+			if ( config.controler().isWritePlansInBackground() ) {
+				final CoordinateTransformation transformation = inputCRS == null ?
+						new IdentityTransformation() :
+						TransformationFactory.getCoordinateTransformation( internalCRS, inputCRS );
+				if ( backgroundWriter == null ) {
+					backgroundWriter = new BackgroundPopulationWriter( config.global().getNumberOfThreads() );
+				}
+				backgroundWriter.write(population, transformation, controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				log.info("plans copied, writing them in the background.");
+			}
+			else if ( inputCRS == null ) {
 				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
 			}
 			else {
@@ -95,4 +114,13 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 		}
 	}
 
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if ( backgroundWriter != null ) {
+			log.info("waiting for plans being written in the background...");
+			backgroundWriter.close();
+			backgroundWriter = null;
+		}
+	}
+
 }
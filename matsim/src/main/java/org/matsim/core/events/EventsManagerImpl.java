@@ -20,9 +20,16 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -73,8 +80,9 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
+ * <li>(optional) add an appropriate line to FAST_CALLERS.  Not really necessary
+ * any more, since a direct caller is generated for every other event type when
+ * the first handler for it is added.</li>
  * </ol>
  *
  * @author dstrippgen
@@ -84,14 +92,27 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
+	/**
+	 * Calls the handleEvent method of a handler without reflection.  One instance is created per event class when
+	 * the first handler for it is added, see {@link #createCaller(Class, Method)}.
+	 */
+	@FunctionalInterface
+	/*package*/ interface EventHandlerCaller {
+		void callHandler(EventHandler handler, Event event);
+	}
+
 	static private class HandlerData {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
 		protected Method method;
+		protected final EventHandlerCaller caller;
+		protected final boolean fastCall;
 		protected HandlerData(final Class<?> eventklass, final Method method) {
 			this.eventklass = eventklass;
 			this.method = method;
+			this.caller = createCaller(eventklass, method);
+			this.fastCall = FAST_CALLERS.containsKey(eventklass);
 		}
 		protected void removeHandler(final EventHandler handler) {
 			this.handlerList.remove(handler);
@@ -101,12 +122,14 @@ public final class EventsManagerImpl implements EventsManager {
 	static private class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
+		protected final EventHandlerCaller caller;
+		protected final boolean fastCall;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final HandlerData data) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+			this.caller = data.caller;
+			this.fastCall = data.fastCall;
 		}
 	}
 
@@ -219,15 +242,15 @@ public final class EventsManagerImpl implements EventsManager {
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
+				if (info.fastCall) {
+					info.caller.callHandler(info.eventHandler, event);
 					continue;
 				}
 				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
+					info.caller.callHandler(info.eventHandler, event);
+				} catch (Throwable e) {
+					// same behavior as with the earlier reflective calls: exceptions from custom handlers are wrapped
 					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
 				}
 			}
 		}
@@ -246,7 +269,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, dat));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -256,7 +279,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, dat));
 				}
 			}
 		}
@@ -282,58 +305,100 @@ public final class EventsManagerImpl implements EventsManager {
 		return intfs;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
-		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
-		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
-		} else if (klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
-		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
-		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
-		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
-		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
-		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
-		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
-		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
-		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
-		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
-		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
-		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
-		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
-		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
+	/*
+	 * Direct callers for the most frequent event types.  They are purely for performance reasons and need not be
+	 * implemented; for all other event types a caller is generated in createCaller(...).
+	 */
+	private static final Map<Class<?>, EventHandlerCaller> FAST_CALLERS = new HashMap<>();
+	static {
+		FAST_CALLERS.put(LinkLeaveEvent.class, (handler, ev) -> ((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev));
+		FAST_CALLERS.put(LinkEnterEvent.class, (handler, ev) -> ((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev));
+		FAST_CALLERS.put(VehicleEntersTrafficEvent.class, (handler, ev) -> ((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev));
+		FAST_CALLERS.put(PersonArrivalEvent.class, (handler, ev) -> ((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev));
+		FAST_CALLERS.put(PersonDepartureEvent.class, (handler, ev) -> ((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev));
+		FAST_CALLERS.put(ActivityEndEvent.class, (handler, ev) -> ((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev));
+		FAST_CALLERS.put(ActivityStartEvent.class, (handler, ev) -> ((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev));
+		FAST_CALLERS.put(TransitDriverStartsEvent.class, (handler, ev) -> ((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev));
+		FAST_CALLERS.put(PersonStuckEvent.class, (handler, ev) -> ((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev));
+		FAST_CALLERS.put(PersonMoneyEvent.class, (handler, ev) -> ((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev));
+		FAST_CALLERS.put(AgentWaitingForPtEvent.class, (handler, ev) -> ((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev));
+		FAST_CALLERS.put(PersonEntersVehicleEvent.class, (handler, ev) -> ((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev));
+		FAST_CALLERS.put(PersonLeavesVehicleEvent.class, (handler, ev) -> ((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev));
+		FAST_CALLERS.put(VehicleDepartsAtFacilityEvent.class, (handler, ev) -> ((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev));
+		FAST_CALLERS.put(VehicleArrivesAtFacilityEvent.class, (handler, ev) -> ((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev));
+		FAST_CALLERS.put(Event.class, (handler, ev) -> ((BasicEventHandler)handler).handleEvent(ev));
+	}
+
+	/**
+	 * Creates the caller for the given handleEvent method once, when the first handler for the event class is added.
+	 * If possible, this is a class generated by the {@link LambdaMetafactory} which calls the method directly, just
+	 * like the fast callers do.  Otherwise, e.g. if the handler interface is not accessible from here, it falls back
+	 * to a method handle, and finally to reflection.
+	 */
+	private static EventHandlerCaller createCaller(final Class<?> eventClass, final Method method) {
+		EventHandlerCaller caller = FAST_CALLERS.get(eventClass);
+		if (caller != null) {
+			return caller;
+		}
+		MethodType callerType = MethodType.methodType(void.class, EventHandler.class, Event.class);
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			if (EventHandler.class.isAssignableFrom(method.getDeclaringClass()) && Event.class.isAssignableFrom(eventClass)
+					&& isAccessible(method.getDeclaringClass()) && isAccessible(eventClass)) {
+				CallSite site = LambdaMetafactory.metafactory(lookup, "callHandler", MethodType.methodType(EventHandlerCaller.class),
+						callerType, target, target.type());
+				return (EventHandlerCaller) site.getTarget().invoke();
+			}
+			final MethodHandle handle = target.asType(callerType);
+			return (handler, ev) -> {
+				try {
+					handle.invokeExact(handler, ev);
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new RuntimeException(e);
+				}
+			};
+		} catch (Throwable e) {
+			log.warn("could not create a direct caller for " + method + ", falling back to reflection: " + e.getMessage());
+			return (handler, ev) -> {
+				try {
+					method.invoke(handler, ev);
+				} catch (IllegalAccessException e1) {
+					throw new RuntimeException(e1);
+				} catch (InvocationTargetException e1) {
+					Throwable cause = e1.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new RuntimeException(cause);
+				}
+			};
+		}
+	}
+
+	/*
+	 * Classes generated by the LambdaMetafactory are defined in the package of this class and must be able to resolve
+	 * and access the handler interface and the event class.
+	 */
+	private static boolean isAccessible(final Class<?> klass) {
+		try {
+			if (Class.forName(klass.getName(), false, EventsManagerImpl.class.getClassLoader()) != klass) {
+				return false;
+			}
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+		for (Class<?> c = klass; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers()) && c.getPackage() != EventsManagerImpl.class.getPackage()) {
+				return false;
+			}
 		}
-		return false;
+		return true;
 	}
 
 	public void printEventHandlers() {
@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.  The events are created by the same code as when reading
+ * xml events, so the same events (including custom events) result from both formats.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private final EventsReaderXMLv1 delegate;
+
+	private final List<String> stringTable = new ArrayList<>();
+	private final AttributesImpl atts = new AttributesImpl();
+
+	private InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int position = 0;
+	private int limit = 0;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads all events from the stream; does not close the stream.
+	 */
+	public void parse(final InputStream stream) {
+		this.in = stream;
+		this.position = 0;
+		this.limit = 0;
+		this.stringTable.clear();
+		try {
+			for (byte b : EventWriterBinary.MAGIC) {
+				if (readByte() != b) {
+					throw new IllegalArgumentException("Not a binary MATSim events file.");
+				}
+			}
+			long version = readVarLong();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file.");
+			}
+
+			long lastIntegralTime = 0;
+			while (true) {
+				String eventType = readString(true);
+				if (eventType == null) {
+					break;
+				}
+
+				double time;
+				long timeCode = readVarLong();
+				if (timeCode == EventWriterBinary.TIME_DOUBLE) {
+					time = readDouble();
+				} else {
+					lastIntegralTime += unZigZag(timeCode >>> 1);
+					time = lastIntegralTime;
+				}
+
+				this.atts.clear();
+				long count = readVarLong();
+				for (long i = 0; i < count; i++) {
+					String key = readString(false);
+					String value = readString(false);
+					this.atts.addAttribute("", key, key, "CDATA", value);
+				}
+
+				this.delegate.processEvent(time, eventType, this.atts);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.in = null;
+		}
+	}
+
+	/**
+	 * @return the string, or <code>null</code> at the end of the events if endAllowed is set.
+	 */
+	private String readString(boolean endAllowed) throws IOException {
+		long code = readVarLong();
+		if (code >= EventWriterBinary.STRING_INDEX_OFFSET) {
+			return this.stringTable.get((int) (code - EventWriterBinary.STRING_INDEX_OFFSET));
+		}
+		switch ((int) code) {
+			case EventWriterBinary.END_OF_EVENTS:
+				if (!endAllowed) {
+					throw new IOException("Corrupt binary events file: unexpected end of events.");
+				}
+				return null;
+			case EventWriterBinary.STRING_NEW:
+				String s = readUtf8();
+				this.stringTable.add(s);
+				return s;
+			case EventWriterBinary.STRING_LITERAL:
+				return readUtf8();
+			case EventWriterBinary.STRING_DOUBLE:
+				return Double.toString(readDouble());
+			case EventWriterBinary.STRING_INTEGRAL_DOUBLE:
+				return Double.toString(unZigZag(readVarLong()));
+			default:
+				throw new IOException("Corrupt binary events file: unknown string code " + code);
+		}
+	}
+
+	private String readUtf8() throws IOException {
+		int length = (int) readVarLong();
+		if (length <= this.buffer.length) {
+			ensureAvailable(length);
+			String s = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return s;
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = readByte();
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private double readDouble() throws IOException {
+		ensureAvailable(8);
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (this.buffer[this.position++] & 0xFF);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private byte readByte() throws IOException {
+		if (this.position == this.limit) {
+			ensureAvailable(1);
+		}
+		return this.buffer[this.position++];
+	}
+
+	private void ensureAvailable(int bytes) throws IOException {
+		if (this.limit - this.position >= bytes) {
+			return;
+		}
+		System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+		this.limit -= this.position;
+		this.position = 0;
+		while (this.limit < bytes) {
+			int read = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			if (read < 0) {
+				throw new IOException("Unexpected end of binary events file. The file may be truncated.");
+			}
+			this.limit += read;
+		}
+	}
+
+}
@@ -50,6 +50,8 @@ public class EventsUtils {
     		return events;
     	} else if (events instanceof ParallelEventsManager) {
     		return events;
+    	} else if (events instanceof RingBufferEventsManager) {
+    		return events;
     	}
     	else if (events instanceof SynchronizedEventsManagerImpl) {
     		return events;
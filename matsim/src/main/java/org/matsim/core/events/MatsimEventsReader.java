@@ -20,6 +20,8 @@
 
 package org.matsim.core.events;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.LinkedHashMap;
@@ -31,13 +33,17 @@ import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 /**
  * A reader for events-files of MATSim. This reader recognizes the format of the events-file and uses
- * the correct reader for the specific events-version, without manual setting.
+ * the correct reader for the specific events-version, without manual setting. Files are recognized as
+ * binary events (see {@link EventWriterBinary}) by their file ending <code>.bin</code> (before the
+ * compression ending, if any), streams by their first bytes.
  *
  * @author mrieser
  */
@@ -48,10 +54,20 @@ public final class MatsimEventsReader implements MatsimReader {
 
 	private final Map<String, CustomEventMapper> map = new LinkedHashMap<>(  ) ;
 
+	private int numberOfThreads = 1;
+
 	public void addCustomEventMapper( String eventType, CustomEventMapper mapper ) {
 		map.put( eventType, mapper ) ;
 	}
 
+	/**
+	 * If more than one thread is set, xml events are read with {@link ParallelEventsReaderXML}. The events are still
+	 * passed to the events manager in the order of the file, and they are created on the calling thread.
+	 */
+	public void setNumberOfThreads( int numberOfThreads ) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Creates a new reader for MATSim events files.
 	 *
@@ -70,7 +86,13 @@ public final class MatsimEventsReader implements MatsimReader {
 	public void readFile(final String filename) {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
-			new XmlEventsReader(this.events, map ).readFile(filename );
+			if (this.numberOfThreads > 1) {
+				createParallelXmlEventsReader().readFile(filename);
+			} else {
+				new XmlEventsReader(this.events, map ).readFile(filename );
+			}
+		} else if (isBinaryEventsFile(lcFilename)) {
+			createBinaryEventsReader().readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -79,12 +101,69 @@ public final class MatsimEventsReader implements MatsimReader {
 	}
 
 	public void readStream(final InputStream stream) {
-		new XmlEventsReader(this.events, map ).parse(stream );
+		InputStream bufferedStream = stream.markSupported() ? stream : new BufferedInputStream(stream);
+		if (startsWithBinaryMagic(bufferedStream)) {
+			createBinaryEventsReader().parse(bufferedStream);
+		} else {
+			if (this.numberOfThreads > 1) {
+				createParallelXmlEventsReader().parse(bufferedStream);
+			} else {
+				new XmlEventsReader(this.events, map ).parse(bufferedStream );
+			}
+		}
 	}
 
 	@Override
 	public void readURL( final URL url ) {
-		new XmlEventsReader( this.events, map ).readURL( url );
+		if (isBinaryEventsFile(url.getPath().toLowerCase(Locale.ROOT))) {
+			createBinaryEventsReader().readURL(url);
+		} else {
+			if (this.numberOfThreads > 1) {
+				createParallelXmlEventsReader().readURL(url);
+			} else {
+				new XmlEventsReader( this.events, map ).readURL( url );
+			}
+		}
+	}
+
+	private static boolean isBinaryEventsFile(final String lcFilename) {
+		return lcFilename.endsWith(".bin") || lcFilename.endsWith(".bin.gz") || lcFilename.endsWith(".bin.lz4")
+				|| lcFilename.endsWith(".bin.zst") || lcFilename.endsWith(".bin.bz2");
+	}
+
+	private static boolean startsWithBinaryMagic(final InputStream stream) {
+		byte[] magic = EventWriterBinary.MAGIC;
+		try {
+			stream.mark(magic.length);
+			try {
+				for (byte b : magic) {
+					if (stream.read() != b) {
+						return false;
+					}
+				}
+				return true;
+			} finally {
+				stream.reset();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ParallelEventsReaderXML createParallelXmlEventsReader() {
+		ParallelEventsReaderXML reader = new ParallelEventsReaderXML(this.events, this.numberOfThreads);
+		for (Map.Entry<String, CustomEventMapper> entry : map.entrySet()) {
+			reader.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		return reader;
+	}
+
+	private EventsReaderBinary createBinaryEventsReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : map.entrySet()) {
+			reader.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		return reader;
 	}
 
 	private static class XmlEventsReader extends MatsimXmlParser {
@@ -172,8 +172,8 @@ public final class ParallelEventsManager implements EventsManager {
 		if (this.oneThreadPerHandler) {
 			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[i] = new SingleHandlerEventsManager(this.eventsHandlers.get(i));
 		} else {
-			for (int i = 0; i < this.numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
-			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[this.eventsHandlers.size() % numOfThreads].addHandler(this.eventsHandlers.get(i));
+			for (int i = 0; i < numHandlers; i++) this.eventsManagers[i] = new EventsManagerImpl();
+			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[i % numHandlers].addHandler(this.eventsHandlers.get(i));
 		}
 		
 		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
@@ -0,0 +1,425 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelEventsReaderXML.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads xml events files with several threads, but still passes the events to the events manager in the order of the
+ * file and from the calling thread.
+ * <p></p>
+ * One thread reads (and thus decompresses) the file and cuts it into chunks of complete tags.  The chunks are parsed in
+ * parallel by the parser threads into the times, types and attributes of their events.  The calling thread creates the
+ * events of one chunk after the other and passes them to the events manager.
+ * <p></p>
+ * Instead of a SAX parser, a simple tokenizer is used which only understands what events files contain: the xml
+ * declaration, comments, the <code>events</code> element and empty <code>event</code> elements with attributes.  The
+ * events are created by the same code as in {@link EventsReaderXMLv1}, including the custom event mappers.  As this
+ * happens in the order of the file on a single thread, ids which do not exist yet get the same index as with the
+ * sequential reader.
+ */
+public final class ParallelEventsReaderXML implements MatsimReader {
+
+	private final static int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	private final static List<ParsedEvent> END_OF_FILE = new ArrayList<>(0);
+
+	private final EventsManager events;
+	private final int numberOfThreads;
+	private final int chunkSize;
+	private final Map<String, CustomEventMapper> customEventMappers = new LinkedHashMap<>();
+
+	public ParallelEventsReaderXML(final EventsManager events, final int numberOfThreads) {
+		this(events, numberOfThreads, DEFAULT_CHUNK_SIZE);
+	}
+
+	/*package*/ ParallelEventsReaderXML(final EventsManager events, final int numberOfThreads, final int chunkSize) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		this.events = events;
+		this.numberOfThreads = numberOfThreads;
+		this.chunkSize = chunkSize;
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads all events from the stream; does not close the stream.
+	 */
+	public void parse(final InputStream stream) {
+		AtomicInteger threadCounter = new AtomicInteger();
+		ExecutorService parsers = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "ParallelEventsReaderXML-parser-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		EventsReaderXMLv1 delegate = new EventsReaderXMLv1(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+			delegate.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		// limits the number of chunks in memory
+		BlockingQueue<Future<List<ParsedEvent>>> chunks = new ArrayBlockingQueue<>(2 * this.numberOfThreads + 2);
+		Thread input = new Thread(() -> readChunks(stream, parsers, chunks), "ParallelEventsReaderXML-input");
+		input.setDaemon(true);
+		input.start();
+
+		try {
+			while (true) {
+				List<ParsedEvent> chunk = chunks.take().get();
+				if (chunk == END_OF_FILE) {
+					break;
+				}
+				for (ParsedEvent event : chunk) {
+					delegate.processEvent(event.time, event.type, event.atts);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			input.interrupt();
+			parsers.shutdownNow();
+		}
+	}
+
+	private void readChunks(final InputStream stream, final ExecutorService parsers, final BlockingQueue<Future<List<ParsedEvent>>> chunks) {
+		try {
+			try {
+				Charset charset = null;
+				byte[] remainder = new byte[0];
+				boolean endOfFile = false;
+				while (!endOfFile) {
+					byte[] buffer = Arrays.copyOf(remainder, remainder.length + this.chunkSize);
+					int length = remainder.length;
+					while (length < buffer.length) {
+						int read = stream.read(buffer, length, buffer.length - length);
+						if (read < 0) {
+							endOfFile = true;
+							break;
+						}
+						length += read;
+					}
+					if (charset == null) {
+						charset = getCharset(buffer, length);
+					}
+
+					// cut before the last tag, as it may be incomplete. '<' cannot occur in attribute values.
+					int cut = endOfFile ? length : lastIndexOf(buffer, (byte) '<', length);
+					if (cut > 0) {
+						final Charset chunkCharset = charset;
+						final int chunkLength = cut;
+						chunks.put(parsers.submit(() -> parseChunk(buffer, chunkLength, chunkCharset)));
+						remainder = Arrays.copyOfRange(buffer, cut, length);
+					} else {
+						// not even one complete tag, read more
+						remainder = Arrays.copyOf(buffer, length);
+					}
+				}
+				chunks.put(CompletableFuture.completedFuture(END_OF_FILE));
+			} catch (IOException | RuntimeException e) {
+				CompletableFuture<List<ParsedEvent>> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e instanceof IOException ? new UncheckedIOException((IOException) e) : e);
+				chunks.put(failed);
+			}
+		} catch (InterruptedException e) {
+			// the reading thread has stopped, e.g. because of an exception in an event handler
+		}
+	}
+
+	private static List<ParsedEvent> parseChunk(final byte[] bytes, final int end, final Charset charset) {
+		List<ParsedEvent> parsedEvents = new ArrayList<>();
+		int pos = 0;
+		while ((pos = indexOf(bytes, (byte) '<', pos, end)) >= 0) {
+			pos++;
+			checkAvailable(pos, end);
+			byte b = bytes[pos];
+			if (b == '?') {
+				pos = skipPast(bytes, "?>", pos, end);
+			} else if (b == '!') {
+				pos = startsWith(bytes, "!--", pos, end) ? skipPast(bytes, "-->", pos, end) : skipTag(bytes, pos, end);
+			} else if (b == '/') {
+				pos = skipTag(bytes, pos, end);
+			} else {
+				int nameStart = pos;
+				while (pos < end && !isWhitespace(bytes[pos]) && bytes[pos] != '/' && bytes[pos] != '>') {
+					pos++;
+				}
+				if (pos - nameStart == EventsReaderXMLv1.EVENT.length() && startsWith(bytes, EventsReaderXMLv1.EVENT, nameStart, end)) {
+					AttributesImpl atts = new AttributesImpl();
+					pos = parseAttributes(bytes, pos, end, charset, atts);
+					parsedEvents.add(new ParsedEvent(Double.parseDouble(atts.getValue(Event.ATTRIBUTE_TIME)), atts.getValue(Event.ATTRIBUTE_TYPE), atts));
+				} else {
+					pos = skipTag(bytes, pos, end);
+				}
+			}
+		}
+		return parsedEvents;
+	}
+
+	/**
+	 * @return the position after the end of the tag
+	 */
+	private static int parseAttributes(final byte[] bytes, int pos, final int end, final Charset charset, final AttributesImpl atts) {
+		while (true) {
+			pos = skipWhitespace(bytes, pos, end);
+			checkAvailable(pos, end);
+			byte b = bytes[pos];
+			if (b == '/' || b == '>') {
+				return skipTag(bytes, pos, end);
+			}
+			int nameStart = pos;
+			while (pos < end && bytes[pos] != '=' && !isWhitespace(bytes[pos])) {
+				pos++;
+			}
+			String name = new String(bytes, nameStart, pos - nameStart, charset);
+			pos = skipWhitespace(bytes, pos, end);
+			checkAvailable(pos, end);
+			if (bytes[pos] != '=') {
+				throw new RuntimeException("Malformed events file: expected '=' after attribute " + name);
+			}
+			pos = skipWhitespace(bytes, pos + 1, end);
+			checkAvailable(pos, end);
+			byte quote = bytes[pos];
+			if (quote != '"' && quote != '\'') {
+				throw new RuntimeException("Malformed events file: expected quote after attribute " + name + "=");
+			}
+			int valueStart = ++pos;
+			boolean needsDecoding = false;
+			while (pos < end && bytes[pos] != quote) {
+				b = bytes[pos];
+				if (b == '&' || b == '\t' || b == '\n' || b == '\r') {
+					needsDecoding = true;
+				}
+				pos++;
+			}
+			checkAvailable(pos, end);
+			String value = new String(bytes, valueStart, pos - valueStart, charset);
+			if (needsDecoding) {
+				value = decodeAttributeValue(value);
+			}
+			pos++;
+			atts.addAttribute("", name, name, "CDATA", value);
+		}
+	}
+
+	/**
+	 * Replaces entities and normalizes white space like an xml parser does for attribute values.
+	 */
+	private static String decodeAttributeValue(final String value) {
+		StringBuilder decoded = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '&') {
+				int semicolon = value.indexOf(';', i);
+				if (semicolon < 0) {
+					throw new RuntimeException("Malformed events file: unterminated entity in attribute value " + value);
+				}
+				String entity = value.substring(i + 1, semicolon);
+				switch (entity) {
+					case "lt": decoded.append('<'); break;
+					case "gt": decoded.append('>'); break;
+					case "amp": decoded.append('&'); break;
+					case "quot": decoded.append('"'); break;
+					case "apos": decoded.append('\''); break;
+					default:
+						if (entity.startsWith("#x")) {
+							decoded.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+						} else if (entity.startsWith("#")) {
+							decoded.appendCodePoint(Integer.parseInt(entity.substring(1)));
+						} else {
+							throw new RuntimeException("Malformed events file: unknown entity &" + entity + ";");
+						}
+				}
+				i = semicolon;
+			} else if (c == '\r') {
+				decoded.append(' ');
+				if (i + 1 < value.length() && value.charAt(i + 1) == '\n') {
+					i++;
+				}
+			} else if (c == '\t' || c == '\n') {
+				decoded.append(' ');
+			} else {
+				decoded.append(c);
+			}
+		}
+		return decoded.toString();
+	}
+
+	private static Charset getCharset(final byte[] bytes, final int length) {
+		if (!startsWith(bytes, "<?xml", 0, length)) {
+			return StandardCharsets.UTF_8;
+		}
+		int declarationEnd = indexOf(bytes, (byte) '>', 0, length);
+		String declaration = new String(bytes, 0, declarationEnd < 0 ? length : declarationEnd, StandardCharsets.US_ASCII);
+		int encodingIndex = declaration.indexOf("encoding");
+		if (encodingIndex < 0) {
+			return StandardCharsets.UTF_8;
+		}
+		int start = encodingIndex + "encoding".length();
+		while (start < declaration.length() && declaration.charAt(start) != '"' && declaration.charAt(start) != '\'') {
+			start++;
+		}
+		int stop = declaration.indexOf(declaration.charAt(start), start + 1);
+		Charset charset = Charset.forName(declaration.substring(start + 1, stop));
+		if (charset.name().startsWith("UTF-16") || charset.name().startsWith("UTF-32")) {
+			throw new RuntimeException("The encoding " + charset + " is not supported by " + ParallelEventsReaderXML.class.getSimpleName()
+					+ ". Use MatsimEventsReader with one thread.");
+		}
+		return charset;
+	}
+
+	private static int skipTag(final byte[] bytes, int pos, final int end) {
+		byte quote = 0;
+		while (pos < end) {
+			byte b = bytes[pos++];
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return pos;
+			}
+		}
+		throw new RuntimeException("Malformed events file: unterminated tag.");
+	}
+
+	private static int skipPast(final byte[] bytes, final String marker, int pos, final int end) {
+		while (pos < end) {
+			if (startsWith(bytes, marker, pos, end)) {
+				return pos + marker.length();
+			}
+			pos++;
+		}
+		throw new RuntimeException("Malformed events file: missing " + marker);
+	}
+
+	private static int skipWhitespace(final byte[] bytes, int pos, final int end) {
+		while (pos < end && isWhitespace(bytes[pos])) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static boolean isWhitespace(final byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+
+	private static boolean startsWith(final byte[] bytes, final String prefix, final int pos, final int end) {
+		if (pos + prefix.length() > end) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (bytes[pos + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(final byte[] bytes, final byte b, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(final byte[] bytes, final byte b, final int end) {
+		for (int i = end - 1; i >= 0; i--) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static void checkAvailable(final int pos, final int end) {
+		if (pos >= end) {
+			throw new RuntimeException("Malformed events file: unexpected end of file.");
+		}
+	}
+
+	/**
+	 * An event of a chunk, which is created by the calling thread.
+	 */
+	private static final class ParsedEvent {
+		final double time;
+		final String type;
+		final AttributesImpl atts;
+
+		ParsedEvent(final double time, final String type, final AttributesImpl atts) {
+			this.time = time;
+			this.type = type;
+			this.atts = atts;
+		}
+	}
+
+}
@@ -0,0 +1,425 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * An EventsManager that hands the events to the handler threads through a pre-allocated ring buffer instead of
+ * blocking queues (similar to the "disruptor" pattern).
+ * <p></p>
+ * Producers claim a slot by incrementing a sequence number, store the event in the slot and publish it by writing
+ * the sequence number into the slot's entry of the published sequences.  Every handler thread reads all events from
+ * the same buffer, in the order of the sequence numbers, and records after every event up to which sequence number it
+ * has processed the events.  The last handler thread that has processed an event clears its slot.  A producer only waits if the buffer is full, i.e. if the slowest handler thread is a whole buffer behind.
+ * Neither producers nor consumers take a lock.  processEvent(...) may be called from several threads, e.g. the
+ * threads of the QNetsimEngine, and from event handlers.  A handler thread cannot wait for itself, so a quarter of
+ * the buffer is reserved for events created by event handlers.
+ * <p></p>
+ * Like {@link ParallelEventsManager}, handlers are either assigned to a fixed number of threads or each handler gets
+ * its own thread; afterSimStep(...) waits until all events of the time step (including events created by handlers)
+ * have been processed if syncOnTimeSteps is set.  An exception in a handler thread is thrown to the producer by the
+ * next call of processEvent(...), afterSimStep(...) or finishProcessing(), wrapped like in ParallelEventsManager,
+ * so that the simulation stops instead of producing events which are never handled.  Before initProcessing() and
+ * after finishProcessing(), events are processed directly by the calling thread.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	/*package*/ final static int DEFAULT_BUFFER_SIZE = 1048576;
+
+	private final boolean syncOnTimeSteps;
+	private final boolean oneThreadPerHandler;
+	private final int numOfThreads;
+	private final int bufferSize;
+
+	private final EventsManager singleThreadEventsHandler;
+	private final List<EventHandler> eventsHandlers = new ArrayList<>();
+	private EventsManager[] eventsManagers;
+
+	/*
+	 * Not null while in parallel mode.  All state that is shared between producers and consumers lives in this
+	 * object, so that a producer needs to read only one volatile field per event.
+	 */
+	private volatile RingBuffer ringBuffer = null;
+
+	// the first exception of a handler thread
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	private boolean locked = false;
+
+	@Inject
+	RingBufferEventsManager(Config config) {
+		this(config.parallelEventHandling());
+	}
+
+	private RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getSynchronizeOnSimSteps() != null ? config.getSynchronizeOnSimSteps() : true,
+				config.getOneThreadPerHandler() != null && config.getOneThreadPerHandler(),
+				config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates an instance which processes all events in one thread per handler.
+	 */
+	public RingBufferEventsManager(final boolean syncOnTimeSteps) {
+		this(syncOnTimeSteps, true, -1, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates an instance which distributes the handlers to the given number of threads.
+	 */
+	public RingBufferEventsManager(final boolean syncOnTimeSteps, final int numOfThreads) {
+		this(syncOnTimeSteps, false, numOfThreads, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize the number of events in the ring buffer; is rounded up to a power of two.
+	 */
+	/*package*/ RingBufferEventsManager(final boolean syncOnTimeSteps, final boolean oneThreadPerHandler, final int numOfThreads,
+			final int bufferSize) {
+		this.syncOnTimeSteps = syncOnTimeSteps;
+		this.oneThreadPerHandler = oneThreadPerHandler;
+		this.numOfThreads = numOfThreads;
+		this.bufferSize = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+		this.singleThreadEventsHandler = new EventsManagerImpl();
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		RingBuffer ring = this.ringBuffer;
+		if (ring == null) {
+			this.singleThreadEventsHandler.processEvent(event);
+			return;
+		}
+		rethrowHandlerException();
+
+		long sequence = ring.claimedSequence.incrementAndGet();
+		long wrapPoint = sequence - ring.capacity;
+		if (wrapPoint > ring.cachedMinimumSequence) {
+			Consumer self = ring.getConsumerOfCurrentThread();
+			if (self != null) {
+				// an event handler creates an event, it may use the reserved part of the buffer
+				wrapPoint = sequence - ring.events.length;
+			}
+			long minimumSequence;
+			int counter = 0;
+			while (wrapPoint > (minimumSequence = ring.getMinimumConsumerSequence())) {
+				// the handler threads are stopping
+				rethrowHandlerException();
+				if (self != null && self.sequence.get() <= wrapPoint) {
+					throw new RuntimeException("The events ring buffer is full while an event handler creates additional events. "
+							+ "The handler would wait for itself.  Increase the buffer size.");
+				}
+				counter = waitFor(counter);
+			}
+			ring.cachedMinimumSequence = minimumSequence;
+		}
+
+		int index = (int) sequence & ring.mask;
+		if (ring.consumers.length > 1) {
+			ring.remainingConsumers.lazySet(index, ring.consumers.length);
+		}
+		ring.events[index] = event;
+		ring.publishedSequences.lazySet(index, sequence);
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (this.locked) throw new RuntimeException("Cannot add an event handler at the moment!");
+
+		this.eventsHandlers.add(handler);
+		this.singleThreadEventsHandler.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		if (this.ringBuffer != null) log.warn("Removing EventHandler while RingBufferEventsManager is in 'parallel' mode. This is not expected to happen :?");
+
+		this.eventsHandlers.remove(handler);
+		this.singleThreadEventsHandler.removeHandler(handler);
+
+		if (this.eventsManagers != null) {
+			for (EventsManager eventsManager : this.eventsManagers) {
+				if (eventsManager instanceof SingleHandlerEventsManager) ((SingleHandlerEventsManager) eventsManager).deactivate();
+				else eventsManager.removeHandler(handler);
+			}
+		}
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.singleThreadEventsHandler.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+
+		this.locked = true;
+
+		int numHandlers;
+		if (this.oneThreadPerHandler) numHandlers = this.eventsHandlers.size();
+		else numHandlers = Math.min(this.numOfThreads, this.eventsHandlers.size());	// don't create more managers than we have handlers
+
+		this.eventsManagers = new EventsManager[numHandlers];
+		if (this.oneThreadPerHandler) {
+			for (int i = 0; i < numHandlers; i++) this.eventsManagers[i] = new SingleHandlerEventsManager(this.eventsHandlers.get(i));
+		} else {
+			for (int i = 0; i < numHandlers; i++) this.eventsManagers[i] = new EventsManagerImpl();
+			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[i % numHandlers].addHandler(this.eventsHandlers.get(i));
+		}
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.exception.set(null);
+
+		Consumer[] consumers = new Consumer[numHandlers];
+		Thread[] threads = new Thread[numHandlers];
+		RingBuffer ring = new RingBuffer(this.bufferSize, consumers, threads);
+		for (int i = 0; i < numHandlers; i++) {
+			EventsManager eventsManager = this.eventsManagers[i];
+			consumers[i] = new Consumer(eventsManager, ring);
+			threads[i] = new Thread(consumers[i]);
+			threads[i].setDaemon(true);
+			threads[i].setUncaughtExceptionHandler((t, e) -> {
+				this.exception.compareAndSet(null, e);
+				log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+			});
+			if (eventsManager instanceof SingleHandlerEventsManager) threads[i].setName("SingleHandlerEventsManager: " + ((SingleHandlerEventsManager) eventsManager).getEventHandlerClassName());
+			else threads[i].setName("RingBufferEventsConsumer" + i);
+		}
+
+		/*
+		 * Enable parallel mode while simulation is running. It is disabled after the simulation in case additional
+		 * events are created afterwards, e.g. money events by the road pricing contrib.
+		 */
+		this.ringBuffer = ring;
+
+		for (Thread thread : threads) thread.start();
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		RingBuffer ring = this.ringBuffer;
+
+		/*
+		 * If an exception occurred, at least one of the events processing threads has crashed.
+		 * If not, it is waited until all threads have processed all events.
+		 */
+		if (this.exception.get() == null) {
+			waitUntilAllEventsProcessed(ring);
+		}
+
+		for (Consumer consumer : ring.consumers) consumer.running = false;
+		for (Thread thread : ring.threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+		this.singleThreadEventsHandler.finishProcessing();
+
+		this.eventsManagers = null;
+
+		/*
+		 * Disable parallel mode after the simulation has ended in case additional
+		 * events are created afterwards, e.g. money events by the road pricing contrib.
+		 */
+		this.ringBuffer = null;
+
+		this.locked = false;
+
+		rethrowHandlerException();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		RingBuffer ring = this.ringBuffer;
+		if (ring == null) {
+			return;
+		}
+		rethrowHandlerException();
+		if (this.syncOnTimeSteps) {
+			waitUntilAllEventsProcessed(ring);
+		}
+	}
+
+	/*
+	 * If an exception occurred, at least one of the events processing threads has crashed, so the remaining events
+	 * would never be processed.
+	 */
+	private void rethrowHandlerException() {
+		Throwable e = this.exception.get();
+		if (e != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", e);
+		}
+	}
+
+	/*
+	 * Events created by handlers are claimed before the handler thread marks the event that triggered them as
+	 * processed, so when all handler threads have reached the last claimed sequence, there is nothing left.
+	 */
+	private void waitUntilAllEventsProcessed(RingBuffer ring) {
+		int counter = 0;
+		while (ring.getMinimumConsumerSequence() < ring.claimedSequence.get()) {
+			rethrowHandlerException();
+			counter = waitFor(counter);
+		}
+	}
+
+	/*
+	 * Busy spinning first, since the waiting is usually short, then giving up the cpu.
+	 */
+	private static int waitFor(int counter) {
+		if (counter > 200) {
+			LockSupport.parkNanos(1000L);
+		} else if (counter > 100) {
+			Thread.yield();
+		}
+		return counter + 1;
+	}
+
+	private static final class RingBuffer {
+		private final Event[] events;
+		private final AtomicLongArray publishedSequences;
+		// per slot, the number of handler threads which have not yet processed the event; only used with several threads
+		private final AtomicIntegerArray remainingConsumers;
+		private final int mask;
+		// the number of slots that can be filled by producers which are not handler threads
+		private final int capacity;
+		private final AtomicLong claimedSequence = new AtomicLong(-1);
+		private final Consumer[] consumers;
+		private final Thread[] threads;
+
+		// only an optimization, so it need not be exact; may be written concurrently by several producers
+		private volatile long cachedMinimumSequence = -1;
+
+		RingBuffer(int size, Consumer[] consumers, Thread[] threads) {
+			this.events = new Event[size];
+			this.publishedSequences = new AtomicLongArray(size);
+			this.remainingConsumers = new AtomicIntegerArray(size);
+			for (int i = 0; i < size; i++) {
+				this.publishedSequences.set(i, -1);
+			}
+			this.mask = size - 1;
+			this.capacity = size - size / 4;
+			this.consumers = consumers;
+			this.threads = threads;
+		}
+
+		long getMinimumConsumerSequence() {
+			long minimum = Long.MAX_VALUE;
+			for (Consumer consumer : this.consumers) {
+				minimum = Math.min(minimum, consumer.sequence.get());
+			}
+			return minimum == Long.MAX_VALUE ? this.claimedSequence.get() : minimum;
+		}
+
+		/*
+		 * Called by every handler thread after processing the event in the slot, before it publishes its new sequence
+		 * number.  So no producer can re-use the slot before the last handler thread has cleared it, and the buffer does
+		 * not keep processed events alive.
+		 */
+		void release(int index) {
+			if (this.consumers.length == 1 || this.remainingConsumers.decrementAndGet(index) == 0) {
+				this.events[index] = null;
+			}
+		}
+
+		Consumer getConsumerOfCurrentThread() {
+			Thread current = Thread.currentThread();
+			for (int i = 0; i < this.threads.length; i++) {
+				if (this.threads[i] == current) return this.consumers[i];
+			}
+			return null;
+		}
+	}
+
+	private final class Consumer implements Runnable {
+		private final EventsManager eventsManager;
+		private final RingBuffer ring;
+
+		// the sequence number of the last processed event
+		private final AtomicLong sequence = new AtomicLong(-1);
+		private volatile boolean running = true;
+		private double lastEventTime = Double.NEGATIVE_INFINITY;
+
+		Consumer(EventsManager eventsManager, RingBuffer ring) {
+			this.eventsManager = eventsManager;
+			this.ring = ring;
+		}
+
+		@Override
+		public void run() {
+			long next = this.sequence.get() + 1;
+			int counter = 0;
+			while (true) {
+				int index = (int) next & this.ring.mask;
+				if (this.ring.publishedSequences.get(index) == next) {
+					Event event = this.ring.events[index];
+
+					// Check whether the events are ordered chronologically.
+					if (event.getTime() < this.lastEventTime) {
+						throw new RuntimeException("Events in the queue are not ordered chronologically. " +
+								"This should never happen. Is the RingBufferEventsManager registered " +
+								"as a MobsimAfterSimStepListener?");
+					} else this.lastEventTime = event.getTime();
+
+					this.eventsManager.processEvent(event);
+					this.ring.release(index);
+					/*
+					 * Tell the producers after every event how far we got, not only after all available events.  A
+					 * handler which creates events while processing a long run of events would otherwise wait for the
+					 * slots of events it has already processed.
+					 */
+					this.sequence.lazySet(next);
+					next++;
+					counter = 0;
+				} else if (!this.running) {
+					break;
+				} else {
+					counter = waitFor(counter);
+				}
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+	}
+}
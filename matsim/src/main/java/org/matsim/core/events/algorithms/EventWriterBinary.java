@@ -0,0 +1,303 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format, which can be read with
+ * {@link org.matsim.core.events.MatsimEventsReader} (or directly with {@link org.matsim.core.events.EventsReaderBinary})
+ * much faster than xml.  Like for all other files, the compression is chosen by the file ending, e.g.
+ * <code>events.bin.zst</code> or <code>events.bin.lz4</code>; the format itself is not compressed.
+ * <p></p>
+ * The file starts with the bytes of {@link #MAGIC} and the format {@link #VERSION}, followed by the events.  Every event
+ * consists of the event type, the time, the number of the remaining attributes and the attributes as key/value pairs.
+ * <ul>
+ * <li>The time is stored as difference to the last integral time (as zig-zag encoded variable length integer, shifted left
+ * by one bit) if it is integral, otherwise as <code>1</code> followed by the 8 bytes of the double value.</li>
+ * <li>All strings (event types, attribute keys and values) are stored as variable length integer code:
+ * {@link #STRING_NEW} is followed by a new string (length and UTF-8 bytes) which gets the next index,
+ * {@link #STRING_LITERAL} by a string which does not get an index, {@link #STRING_DOUBLE} by the 8 bytes of a double value
+ * and {@link #STRING_INTEGRAL_DOUBLE} by an integral double value as zig-zag encoded variable length integer.  Both
+ * double codes are only used if the string is the output of {@link Double#toString(double)} of the value.  Codes of
+ * {@link #STRING_INDEX_OFFSET} or higher refer to the string with the index <code>code - STRING_INDEX_OFFSET</code>.
+ * Ids, modes and activity types thus only take one to three bytes per event.</li>
+ * <li>The file ends with {@link #END_OF_EVENTS} in place of an event type.</li>
+ * </ul>
+ * All variable length integers use 7 bits per byte, the least significant group first, with the highest bit set on all but
+ * the last byte.  Attributes with a <code>null</code> value are not written.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = { 'M', 'A', 'T', 'S', 'I', 'M', 'E', 'V' };
+	public static final int VERSION = 1;
+
+	public static final int END_OF_EVENTS = 0;
+	public static final int STRING_NEW = 1;
+	public static final int STRING_LITERAL = 2;
+	public static final int STRING_DOUBLE = 3;
+	public static final int STRING_INTEGRAL_DOUBLE = 4;
+	public static final int STRING_INDEX_OFFSET = 5;
+
+	public static final int TIME_DOUBLE = 1;
+
+	/**
+	 * Strings that occur after this many different strings are written as literals, so the memory used by the string
+	 * table stays bounded if some attribute has a different value in every event.
+	 */
+	private static final int MAX_STRING_TABLE_SIZE = 1 << 24;
+
+	private final OutputStream out;
+	private final Map<String, Integer> stringTable = new HashMap<>();
+
+	private final byte[] buffer = new byte[1 << 16];
+	private int position = 0;
+
+	private long lastIntegralTime = 0;
+
+	private final AttributeBuffer attributes = new AttributeBuffer();
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(outfilename), false));
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this.out = stream;
+		System.arraycopy(MAGIC, 0, this.buffer, 0, MAGIC.length);
+		this.position = MAGIC.length;
+		writeVarLong(VERSION);
+	}
+
+	@Override
+	public void closeFile() {
+		writeVarLong(END_OF_EVENTS);
+		try {
+			flushBuffer();
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.attributes.count = 0;
+		event.writeAttributes(this.attributes);
+		writeString(event.getEventType());
+		writeTime(event.getTime());
+		AttributeBuffer attr = this.attributes;
+		writeVarLong(attr.count);
+		for (int i = 0; i < attr.count; i++) {
+			writeString(attr.keys[i]);
+			if (attr.values[i] == null) {
+				writeDoubleValue(attr.doubles[i]);
+			} else {
+				writeString(attr.values[i]);
+			}
+		}
+	}
+
+	/*
+	 * The number of attributes is written before the attributes, so they are collected first.  The arrays are reused for
+	 * all events; double values are kept as doubles, so no strings need to be created and parsed again.
+	 */
+	private static final class AttributeBuffer implements Event.AttributeSink {
+		private int count = 0;
+		private String[] keys = new String[16];
+		private String[] values = new String[16];
+		private double[] doubles = new double[16];
+
+		@Override
+		public void attribute(final String key, final String value) {
+			if (value != null && !isTimeOrType(key)) {
+				add(key, value, 0.0);
+			}
+		}
+
+		@Override
+		public void attribute(final String key, final double value) {
+			if (!isTimeOrType(key)) {
+				add(key, null, value);
+			}
+		}
+
+		private void add(final String key, final String value, final double doubleValue) {
+			if (this.count == this.keys.length) {
+				this.keys = Arrays.copyOf(this.keys, 2 * this.count);
+				this.values = Arrays.copyOf(this.values, 2 * this.count);
+				this.doubles = Arrays.copyOf(this.doubles, 2 * this.count);
+			}
+			this.keys[this.count] = key;
+			this.values[this.count] = value;
+			this.doubles[this.count] = doubleValue;
+			this.count++;
+		}
+	}
+
+	private static boolean isTimeOrType(String key) {
+		return Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key);
+	}
+
+	private void writeTime(double time) {
+		long integralTime = (long) time;
+		if (isExactly(integralTime, time)) {
+			writeVarLong(zigZag(integralTime - this.lastIntegralTime) << 1);
+			this.lastIntegralTime = integralTime;
+		} else {
+			writeVarLong(TIME_DOUBLE);
+			writeDouble(time);
+		}
+	}
+
+	private void writeString(String value) {
+		Integer index = this.stringTable.get(value);
+		if (index != null) {
+			writeVarLong(STRING_INDEX_OFFSET + (long) index);
+			return;
+		}
+		if (isCanonicalDouble(value)) {
+			writeDoubleValue(Double.parseDouble(value));
+			return;
+		}
+		if (this.stringTable.size() < MAX_STRING_TABLE_SIZE) {
+			this.stringTable.put(value, this.stringTable.size());
+			writeVarLong(STRING_NEW);
+		} else {
+			writeVarLong(STRING_LITERAL);
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length);
+		if (bytes.length > this.buffer.length - this.position) {
+			flushBufferUnchecked();
+			if (bytes.length > this.buffer.length) {
+				try {
+					this.out.write(bytes);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+		this.position += bytes.length;
+	}
+
+	/**
+	 * Writes a double attribute value, which is read as the output of {@link Double#toString(double)} of the value.
+	 */
+	private void writeDoubleValue(double value) {
+		long l = (long) value;
+		if (isExactly(l, value)) {
+			writeVarLong(STRING_INTEGRAL_DOUBLE);
+			writeVarLong(zigZag(l));
+		} else {
+			writeVarLong(STRING_DOUBLE);
+			writeDouble(value);
+		}
+	}
+
+	/**
+	 * @return true if the value is the output of {@link Double#toString(double)}, so it can be restored from the double.
+	 */
+	private static boolean isCanonicalDouble(String value) {
+		int length = value.length();
+		if (length < 3 || length > 24) {
+			return false;
+		}
+		boolean hasDot = false;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c == '.') {
+				hasDot = true;
+			} else if ((c < '0' || c > '9') && c != '-' && c != 'E') {
+				return false;
+			}
+		}
+		if (!hasDot) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private static boolean isExactly(long l, double d) {
+		// also distinguishes -0.0 from 0.0
+		return Double.doubleToRawLongBits(l) == Double.doubleToRawLongBits(d);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private void writeDouble(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		ensureCapacity(8);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			this.buffer[this.position++] = (byte) (bits >>> shift);
+		}
+	}
+
+	private void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.position++] = (byte) value;
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (this.buffer.length - this.position < bytes) {
+			flushBufferUnchecked();
+		}
+	}
+
+	private void flushBufferUnchecked() {
+		try {
+			flushBuffer();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		this.out.write(this.buffer, 0, this.position);
+		this.position = 0;
+	}
+
+}
@@ -112,6 +112,15 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 	}
 
 	private void writeLine(final double time, final Id<Person> agentId, final Id<Link> linkId, final int flag, final String description) {
+		writeLine(time, agentId, linkId, flag, description, null, null);
+	}
+
+	/**
+	 * Writes the description followed by the separator and the detail (if the separator is not null), without creating
+	 * the concatenated string.
+	 */
+	private void writeLine(final double time, final Id<Person> agentId, final Id<Link> linkId, final int flag, final String description,
+			final String separator, final String detail) {
 		try {
 			this.out.write(getTimeString(time));
 			if (agentId != null) {
@@ -126,11 +135,19 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 			this.out.write('\t');
 			this.out.write('0'); // from-node-id
 			this.out.write('\t');
-			this.out.write(Integer.toString(flag));
+			if (flag < 10) {
+				this.out.write('0' + flag);
+			} else {
+				this.out.write(Integer.toString(flag));
+			}
 			this.out.write('\t');
 			if (description != null) {
 				this.out.write(description);
 			}
+			if (separator != null) {
+				this.out.write(separator);
+				this.out.write(String.valueOf(detail));
+			}
 			this.out.write('\n');
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -155,12 +172,12 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 
 	@Override
 	public void handleEvent(ActivityEndEvent event) {
-		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityEnd.ordinal(), ActivityEndEvent.EVENT_TYPE + " " + event.getActType());
+		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityEnd.ordinal(), ActivityEndEvent.EVENT_TYPE, " ", event.getActType());
 	}
 
 	@Override
 	public void handleEvent(ActivityStartEvent event) {
-		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityStart.ordinal(), ActivityStartEvent.EVENT_TYPE + " " + event.getActType());
+		writeLine(event.getTime(), event.getPersonId(), event.getLinkId(), Number.ActivityStart.ordinal(), ActivityStartEvent.EVENT_TYPE, " ", event.getActType());
 	}
 
 	@Override
@@ -183,7 +200,7 @@ public class EventWriterTXT implements EventWriter, ActivityEndEventHandler, Act
 
 	@Override
 	public void handleEvent(PersonMoneyEvent event) {
-		writeLine(event.getTime(), event.getPersonId(), null, Number.PersonMoney.ordinal(), "agentMoney" + "\t" + event.getAmount());
+		writeLine(event.getTime(), event.getPersonId(), null, Number.PersonMoney.ordinal(), "agentMoney", "\t", Double.toString(event.getAmount()));
 	}
 
 	@Override
@@ -30,11 +30,14 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 
 public class EventWriterXML implements EventWriter, BasicEventHandler {
 	private final BufferedWriter out;
 
+	private final StringBuilder line = new StringBuilder(256);
+	private char[] chars = new char[256];
+	private final AttributeAppender attributeAppender = new AttributeAppender();
+
 	public EventWriterXML(final String outfilename) {
 		this.out = IOUtils.getBufferedWriter(outfilename);
 		this.writeHeader();
@@ -79,73 +82,68 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	@Override
 	public void handleEvent(final Event event) {
 		try {
-			this.out.append("\t<event ");
-			Map<String, String> attr = event.getAttributes();
-			for (Map.Entry<String, String> entry : attr.entrySet()) {
-				this.out.append(entry.getKey());
-				this.out.append("=\"");
-				this.out.append(encodeAttributeValue(entry.getValue()));
-				this.out.append("\" ");
+			this.line.setLength(0);
+			this.line.append("\t<event ");
+			event.writeAttributes(this.attributeAppender);
+			this.line.append(" />\n");
+			int length = this.line.length();
+			if (length > this.chars.length) {
+				this.chars = new char[Math.max(length, 2 * this.chars.length)];
 			}
-			this.out.append(" />\n");
+			this.line.getChars(0, length, this.chars, 0);
+			this.out.write(this.chars, 0, length);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/*
+	 * Appends the attributes to the reused line buffer, so writing an event neither creates a map with its attributes nor
+	 * strings for its numbers, see Event.writeAttributes().
+	 */
+	private final class AttributeAppender implements Event.AttributeSink {
+		@Override
+		public void attribute(final String key, final String value) {
+			line.append(key).append("=\"");
+			appendEncodedAttributeValue(value);
+			line.append("\" ");
+		}
+
+		@Override
+		public void attribute(final String key, final double value) {
+			line.append(key).append("=\"").append(value).append("\" ");
+		}
+	}
+
 	// the following method was taken from MatsimXmlWriter in order to correctly encode attributes, but
 	// to forego the overhead of using the full MatsimXmlWriter.
 	/**
-	 * Encodes the given string in such a way that it no longer contains
+	 * Appends the given string to the line buffer in such a way that it no longer contains
 	 * characters that have a special meaning in xml.
 	 * 
 	 * @see <a href="http://www.w3.org/International/questions/qa-escapes#use">http://www.w3.org/International/questions/qa-escapes#use</a>
 	 * @param attributeValue
-	 * @return String with some characters replaced by their xml-encoding.
 	 */
-	private String encodeAttributeValue(final String attributeValue) {
+	private void appendEncodedAttributeValue(final String attributeValue) {
 		if (attributeValue == null) {
-			return null;
+			this.line.append((String) null);
+			return;
 		}
 		int len = attributeValue.length();
-		boolean encode = false;
 		for (int pos = 0; pos < len; pos++) {
 			char ch = attributeValue.charAt(pos);
 			if (ch == '<') {
-				encode = true;
-				break;
+				this.line.append("&lt;");
 			} else if (ch == '>') {
-				encode = true;
-				break;
+				this.line.append("&gt;");
 			} else if (ch == '\"') {
-				encode = true;
-				break;
+				this.line.append("&quot;");
 			} else if (ch == '&') {
-				encode = true;
-				break;
+				this.line.append("&amp;");
+			} else {
+				this.line.append(ch);
 			}
 		}
-		if (encode) {
-			StringBuilder bf = new StringBuilder(attributeValue.length() + 30);
-			for (int pos = 0; pos < len; pos++) {
-				char ch = attributeValue.charAt(pos);
-				if (ch == '<') {
-					bf.append("&lt;");
-				} else if (ch == '>') {
-					bf.append("&gt;");
-				} else if (ch == '\"') {
-					bf.append("&quot;");
-				} else if (ch == '&') {
-					bf.append("&amp;");
-				} else {
-					bf.append(ch);
-				}
-			}
-			
-			return bf.toString();
-		}
-		return attributeValue;
-
 	}
 
 }
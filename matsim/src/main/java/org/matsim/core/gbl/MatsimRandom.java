@@ -20,7 +20,9 @@
 
 package org.matsim.core.gbl;
 
+import java.util.List;
 import java.util.Random;
+import java.util.function.Supplier;
 
 import org.apache.log4j.Logger;
 
@@ -49,13 +51,73 @@ public abstract class MatsimRandom {
 		}
 	}
 
+	/**
+	 * The same pseudo-random numbers as {@link Random}, but with a state that can be copied from another instance,
+	 * see {@link MatsimRandom#restore(Random, Random)}.
+	 */
+	private static final class RestorableRandom extends Random {
+		private static final long serialVersionUID = 1L;
+		private static final long MULTIPLIER = 0x5DEECE66DL;
+		private static final long ADDEND = 0xBL;
+		private static final long MASK = (1L << 48) - 1;
+
+		// not initialized here, since the constructor of Random already calls setSeed
+		private long state;
+		private double nextNextGaussian;
+		private boolean haveNextNextGaussian;
+
+		RestorableRandom(long seed) {
+			super(seed);
+		}
+
+		@Override
+		public synchronized void setSeed(long seed) {
+			this.state = (seed ^ MULTIPLIER) & MASK;
+			this.haveNextNextGaussian = false;
+		}
+
+		@Override
+		protected synchronized int next(int bits) {
+			this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+			return (int) (this.state >>> (48 - bits));
+		}
+
+		@Override
+		public synchronized double nextGaussian() {
+			if (this.haveNextNextGaussian) {
+				this.haveNextNextGaussian = false;
+				return this.nextNextGaussian;
+			}
+			double v1, v2, s;
+			do {
+				v1 = 2 * nextDouble() - 1;
+				v2 = 2 * nextDouble() - 1;
+				s = v1 * v1 + v2 * v2;
+			} while (s >= 1 || s == 0);
+			double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+			this.nextNextGaussian = v2 * multiplier;
+			this.haveNextNextGaussian = true;
+			return v1 * multiplier;
+		}
+
+		synchronized void copyStateFrom(RestorableRandom other) {
+			synchronized (other) {
+				this.state = other.state;
+				this.nextNextGaussian = other.nextNextGaussian;
+				this.haveNextNextGaussian = other.haveNextNextGaussian;
+			}
+		}
+	}
+
 	private static final long DEFAULT_RANDOM_SEED = 4711;
 
 	private static long lastUsedSeed = DEFAULT_RANDOM_SEED;
 	private static int internalCounter = 0;
 
 	/** the global random number generator */
-	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
+	private static final Random random = new RestorableRandom(DEFAULT_RANDOM_SEED);
+
+	private static final ThreadLocal<List<Random>> recordedLocalInstances = new ThreadLocal<>();
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
 
 	/** Resets the random number generator with a default random seed. */
@@ -84,11 +146,52 @@ public abstract class MatsimRandom {
 	 */
 	public static Random getLocalInstance() {
 		internalCounter++;
-		Random r = new Random(lastUsedSeed + internalCounter*23l);
+		Random r = new RestorableRandom(lastUsedSeed + internalCounter*23l);
 		prepareRNG(r);
+		List<Random> recorded = recordedLocalInstances.get();
+		if (recorded != null) {
+			recorded.add(r);
+		}
 		return r;
 	}
 
+	/**
+	 * Calls the supplier and adds all local instances it creates in the calling thread to the given list, so that
+	 * they can be re-seeded later on, see {@link #reseed(Random, long)}.
+	 */
+	public static <T> T recordLocalInstances(final Supplier<T> supplier, final List<Random> localInstances) {
+		List<Random> previous = recordedLocalInstances.get();
+		recordedLocalInstances.set(localInstances);
+		try {
+			return supplier.get();
+		} finally {
+			recordedLocalInstances.set(previous);
+		}
+	}
+
+	/**
+	 * Re-seeds a random number generator, so that the random numbers drawn afterwards only depend on the seed of
+	 * the run and the given key, and not on the numbers drawn before.
+	 */
+	public static void reseed(final Random rng, final long key) {
+		rng.setSeed(lastUsedSeed + key*23l);
+		prepareRNG(rng);
+	}
+
+	/**
+	 * Sets the state of a random number generator of this class to the one of another, e.g. one which was serialized
+	 * together with a snapshot of the simulation, so that both draw the same random numbers afterwards.
+	 *
+	 * @param rng the global random number generator or a local instance
+	 * @param state a copy of the global random number generator or of a local instance
+	 */
+	public static void restore(final Random rng, final Random state) {
+		if (!(rng instanceof RestorableRandom) || !(state instanceof RestorableRandom)) {
+			throw new IllegalArgumentException("Only random number generators created by MatsimRandom can be restored.");
+		}
+		((RestorableRandom) rng).copyStateFrom((RestorableRandom) state);
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
@@ -39,4 +39,10 @@ public abstract class EventMessage extends Message {
 		this.vehicle = vehicle;
 	}
 
+	@Override
+	int getPersonIndex() {
+		// some tests use messages without a vehicle
+		return this.vehicle == null ? -1 : this.vehicle.getOwnerPerson().getId().index();
+	}
+
 }
@@ -57,6 +57,7 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	public final static String CAR_SIZE = "carSize";
 	public final static String GAP_TRAVEL_SPEED = "gapTravelSpeed";
 	public final static String END_TIME = "endTime";
+	public final static String NUMBER_OF_THREADS = "numberOfThreads";
 
 	// INPUT
 	private double simulationEndTime = Double.MAX_VALUE; // in s
@@ -71,6 +72,11 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	 * 'stuckTime' for entering next road, it will enter the next. in seconds
 	 */
 	private double squeezeTime = 1800;
+	/**
+	 * with more than one thread, the roads are simulated in several partitions
+	 * concurrently, see {@link ParallelScheduler}
+	 */
+	private int numberOfThreads = 1;
 
 	public JDEQSimConfigGroup() {
 		super(NAME);
@@ -169,4 +175,14 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 		this.squeezeTime = squeezeTime;
 	}
 
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 }
@@ -66,7 +66,12 @@ public class JDEQSimulation implements Mobsim {
 		Timer t = new Timer();
 		t.startTimer();
 
-		Scheduler scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime());
+		Scheduler scheduler;
+		if (config.getNumberOfThreads() > 1) {
+			scheduler = new ParallelScheduler(this.scenario.getNetwork(), this.scenario.getPopulation(), config);
+		} else {
+			scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime());
+		}
 		Road.setAllRoads(new HashMap<Id<Link>, Road>());
 
 		// initialize network
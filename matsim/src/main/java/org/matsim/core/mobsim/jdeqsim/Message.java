@@ -58,7 +58,9 @@ public abstract class Message implements Comparable<Message> {
 
 	/**
 	 * The comparison is done according to the message arrival Time. If the time
-	 * is equal of two messages, then the priority of the messages is compared
+	 * is equal of two messages, then the priority of the messages is compared,
+	 * and then the index of the person, so that messages of different persons
+	 * are not handled in the arbitrary order of the queue.
 	 */
 	@Override
 	public int compareTo(Message otherMessage) {
@@ -66,12 +68,21 @@ public abstract class Message implements Comparable<Message> {
 			return 1;
 		} else if (messageArrivalTime < otherMessage.messageArrivalTime) {
 			return -1;
-		} else {
+		} else if (priority != otherMessage.priority) {
 			// higher priority means for a queue, that it comes first
 			return otherMessage.priority - priority;
+		} else {
+			return Integer.compare(getPersonIndex(), otherMessage.getPersonIndex());
 		}
 	}
 
+	/**
+	 * @return the index of the id of the person the message belongs to, or -1 if it does not belong to a person
+	 */
+	int getPersonIndex() {
+		return -1;
+	}
+
 //	public int getPriority() {
 //		return priority;
 //	}
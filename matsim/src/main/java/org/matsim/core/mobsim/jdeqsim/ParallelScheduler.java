@@ -0,0 +1,614 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelScheduler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.TimeDependentNetwork;
+import org.matsim.core.population.routes.NetworkRoute;
+
+/**
+ * A scheduler which simulates the roads in several partitions concurrently, using conservative synchronisation.
+ * <p></p>
+ * The roads are split into spatially compact partitions, each with its own message queue and thread.  All partitions
+ * advance together in windows [T, T + lookahead), where T is the time of the earliest message.  Messages to other
+ * partitions always arrive after the end of the window.  Between two windows, the thread arriving last at the barrier
+ * passes on the events of the window, exchanges the messages between the partitions and determines the next window, so
+ * there is one barrier per window.
+ * <p></p>
+ * The lookahead is the shortest time in which a message can act on another partition.  Only the roads at the
+ * boundaries of the partitions limit it, see {@link #calcLookahead(Network, JDEQSimConfigGroup, int[])}; the roads
+ * inside the partitions do not.  Legs which may end before the lookahead (empty car routes, short teleported legs) would
+ * act on the road of the next activity without any delay, so their start and end roads are put into the same partition.
+ * <p></p>
+ * A few messages act on another partition without any delay: the end of a road asks the next road for entry, and the
+ * vehicle may leave its road at the same time; deadlock prevention lets a vehicle leave its road at once.  These are
+ * known when they are scheduled, as the vehicle does not change until then, and each window ends before the first of
+ * them.  They are then handled one by one between the windows, together with all other messages of the same time.
+ * <p></p>
+ * The messages of each partition are handled in the order of {@link Message#compareTo(Message)}, and the events of all
+ * partitions are merged in this order.  So the events are the same as the ones of the sequential {@link Scheduler}.
+ */
+final class ParallelScheduler extends Scheduler {
+
+	private static final Logger log = Logger.getLogger(ParallelScheduler.class);
+
+	private final Partition[] partitions;
+	private final int[] partitionOfLink; // by the index of the link id
+	private final double lookahead;
+	private final double simulationEndTime;
+	private final CyclicBarrier barrier;
+	private final ThreadLocal<Partition> partitionOfThread = new ThreadLocal<>();
+
+	private EventsManager events = null;
+	private double simTime = 0;
+	private double hourlyLogTime = 3600;
+	// only written between the windows, while all partitions wait at the barrier
+	private boolean windowRunning = false;
+	private double windowEnd = Double.NEGATIVE_INFINITY;
+	private boolean finished = false;
+	private Throwable exception = null;
+	private long windows = 0;
+	private long messagesInWindows = 0;
+	private long messagesBetweenWindows = 0;
+
+	ParallelScheduler(final Network network, final Population population, final JDEQSimConfigGroup config) {
+		super(new MessageQueue(), config.getSimulationEndTime()); // the queue of the super class is not used
+		this.simulationEndTime = config.getSimulationEndTime();
+
+		int numberOfPartitions = config.getNumberOfThreads();
+		this.partitions = new Partition[numberOfPartitions];
+		for (int i = 0; i < numberOfPartitions; i++) {
+			this.partitions[i] = new Partition(i);
+		}
+		this.partitionOfLink = new int[Id.getNumberOfIds(Link.class)];
+		bisect(new ArrayList<>(network.getLinks().values()), 0, numberOfPartitions, this.partitionOfLink);
+		double lookahead = calcLookahead(network, config, this.partitionOfLink);
+		joinImmediateLegs(network, population, lookahead, this.partitionOfLink);
+		// this changes the roads at the boundaries, but all legs shorter than the smaller of both lookaheads are joined
+		this.lookahead = Math.min(lookahead, calcLookahead(network, config, this.partitionOfLink));
+		this.barrier = new CyclicBarrier(numberOfPartitions, this::advance);
+
+		// the events create the vehicle ids; create them here, so that their index does not depend on the threads
+		for (Person person : population.getPersons().values()) {
+			Id.create(person.getId(), org.matsim.vehicles.Vehicle.class);
+		}
+
+		int crossingLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			for (Link next : link.getToNode().getOutLinks().values()) {
+				if (partitionOf(next.getId()) != partitionOf(link.getId())) {
+					crossingLinks++;
+					break;
+				}
+			}
+		}
+		log.info("simulating " + network.getLinks().size() + " roads in " + numberOfPartitions + " partitions with a lookahead of "
+				+ this.lookahead + "s; " + crossingLinks + " roads lead to another partition.");
+	}
+
+	/**
+	 * A message acts on another partition, or has to be handled between the windows, only on the roads where a
+	 * partition ends: the end of a road leading to another partition is reached at the earliest after the free-flow
+	 * travel time or the time between two leaving vehicles; a waiting vehicle may leave its road for a road of another
+	 * partition once the gap has travelled back over that road; and deadlock prevention lets a vehicle leave its road
+	 * after the squeeze time.  So the lookahead is the minimum of these times over the roads at the boundaries only.
+	 */
+	private static double calcLookahead(final Network network, final JDEQSimConfigGroup config, final int[] partitionOfLink) {
+		double[] maxFreespeed = new double[partitionOfLink.length];
+		for (Link link : network.getLinks().values()) {
+			maxFreespeed[link.getId().index()] = link.getFreespeed();
+		}
+		if (network instanceof TimeDependentNetwork && ((TimeDependentNetwork) network).getNetworkChangeEvents() != null) {
+			// the free speed only changes with the change events
+			for (NetworkChangeEvent event : ((TimeDependentNetwork) network).getNetworkChangeEvents()) {
+				for (Link link : event.getLinks()) {
+					int index = link.getId().index();
+					maxFreespeed[index] = Math.max(maxFreespeed[index], link.getFreespeed(event.getStartTime()));
+				}
+			}
+		}
+
+		double lookahead = config.getSqueezeTime();
+		for (Link link : network.getLinks().values()) {
+			for (Link next : link.getToNode().getOutLinks().values()) {
+				if (partitionOfLink[next.getId().index()] != partitionOfLink[link.getId().index()]) {
+					double freeFlowTravelTime = link.getLength() / maxFreespeed[link.getId().index()];
+					double inverseOutFlowCapacity = 1 / (link.getFlowCapacityPerSec() * config.getFlowCapacityFactor());
+					double gapTravelTime = next.getLength() / config.getGapTravelSpeed();
+					lookahead = Math.min(lookahead, Math.min(freeFlowTravelTime, Math.min(inverseOutFlowCapacity, gapTravelTime)));
+				}
+			}
+		}
+		return Math.max(0, lookahead);
+	}
+
+	/**
+	 * Joins the partitions of the start and end link of legs which may end before the lookahead: every group of joined
+	 * links goes to the partition of its first link.
+	 */
+	private static void joinImmediateLegs(final Network network, final Population population, final double lookahead, final int[] partitionOfLink) {
+		int[] parent = new int[partitionOfLink.length];
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+		}
+		for (Person person : population.getPersons().values()) {
+			Plan plan = person.getSelectedPlan();
+			if (plan == null) {
+				continue;
+			}
+			List<? extends PlanElement> actsLegs = plan.getPlanElements();
+			for (int i = 1; i + 1 < actsLegs.size(); i += 2) {
+				Leg leg = (Leg) actsLegs.get(i);
+				boolean immediate;
+				if (leg.getMode().equals(TransportMode.car)) {
+					immediate = leg.getRoute() instanceof NetworkRoute && ((NetworkRoute) leg.getRoute()).getLinkIds().isEmpty();
+				} else {
+					immediate = !(leg.getTravelTime() >= lookahead);
+				}
+				Id<Link> from = ((Activity) actsLegs.get(i - 1)).getLinkId();
+				Id<Link> to = ((Activity) actsLegs.get(i + 1)).getLinkId();
+				if (immediate && from != null && to != null && network.getLinks().containsKey(from) && network.getLinks().containsKey(to)) {
+					parent[find(parent, from.index())] = find(parent, to.index());
+				}
+			}
+		}
+
+		int[] partitionOfGroup = new int[partitionOfLink.length];
+		Arrays.fill(partitionOfGroup, -1);
+		for (Link link : network.getLinks().values()) {
+			int group = find(parent, link.getId().index());
+			if (partitionOfGroup[group] < 0) {
+				partitionOfGroup[group] = partitionOfLink[link.getId().index()];
+			}
+			partitionOfLink[link.getId().index()] = partitionOfGroup[group];
+		}
+	}
+
+	private static void bisect(final List<Link> links, final int firstPartition, final int numberOfPartitions, final int[] partitionOfLink) {
+		if (numberOfPartitions == 1 || links.size() <= 1) {
+			for (Link link : links) {
+				partitionOfLink[link.getId().index()] = firstPartition;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (Link link : links) {
+			minX = Math.min(minX, link.getCoord().getX());
+			minY = Math.min(minY, link.getCoord().getY());
+			maxX = Math.max(maxX, link.getCoord().getX());
+			maxY = Math.max(maxY, link.getCoord().getY());
+		}
+		// split along the longer side, the number of links in proportion to the number of partitions on each side
+		if (maxX - minX >= maxY - minY) {
+			links.sort(Comparator.comparingDouble(link -> link.getCoord().getX()));
+		} else {
+			links.sort(Comparator.comparingDouble(link -> link.getCoord().getY()));
+		}
+		int lowerPartitions = numberOfPartitions / 2;
+		int split = (int) ((long) links.size() * lowerPartitions / numberOfPartitions);
+		bisect(new ArrayList<>(links.subList(0, split)), firstPartition, lowerPartitions, partitionOfLink);
+		bisect(new ArrayList<>(links.subList(split, links.size())), firstPartition + lowerPartitions, numberOfPartitions - lowerPartitions, partitionOfLink);
+	}
+
+	private static int find(final int[] parent, final int index) {
+		int root = index;
+		while (parent[root] != root) {
+			root = parent[root];
+		}
+		for (int i = index; parent[i] != root; ) {
+			int next = parent[i];
+			parent[i] = root;
+			i = next;
+		}
+		return root;
+	}
+
+	private Partition partitionOf(final Id<Link> linkId) {
+		return this.partitions[this.partitionOfLink[linkId.index()]];
+	}
+
+	@Override
+	public void schedule(final Message m) {
+		Partition target = partitionOf(((Road) m.getReceivingUnit()).getLink().getId());
+		Entry entry = new Entry(m, isBoundary(m, target));
+		Partition current = this.windowRunning ? this.partitionOfThread.get() : null;
+		if (current != null && current != target) {
+			if (entry.time < this.windowEnd) {
+				throw new IllegalStateException("A message to another partition at " + entry.time + " arrives before the end of the window at "
+						+ this.windowEnd + ". This should not happen.");
+			}
+			target.mailbox.add(entry);
+		} else {
+			target.add(entry);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if handling the message may act on another partition at the same time
+	 */
+	private boolean isBoundary(final Message m, final Partition target) {
+		if (m instanceof EndRoadMessage) {
+			Vehicle vehicle = ((EndRoadMessage) m).vehicle;
+			Id<Link> nextLinkId;
+			if (vehicle.isCurrentLegFinished()) {
+				nextLinkId = getNextActivity(vehicle).getLinkId();
+			} else {
+				nextLinkId = vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() + 1];
+			}
+			return partitionOf(nextLinkId) != target;
+		}
+		if (m instanceof DeadlockPreventionMessage) {
+			Vehicle vehicle = ((DeadlockPreventionMessage) m).vehicle;
+			return vehicle.getLinkIndex() >= 0 && partitionOf(vehicle.getPreviousRoad().getLink().getId()) != target;
+		}
+		return false;
+	}
+
+	private static Activity getNextActivity(final Vehicle vehicle) {
+		return (Activity) vehicle.getOwnerPerson().getSelectedPlan().getPlanElements().get(vehicle.getLegIndex() + 1);
+	}
+
+	@Override
+	public void unschedule(final Message m) {
+		m.killMessage();
+	}
+
+	@Override
+	public void startSimulation() {
+		this.events = Message.eventsManager;
+		Message.setEventsManager(new BufferingEventsManager());
+		try {
+			for (int i = 1; i < this.partitions.length; i++) {
+				Partition partition = this.partitions[i];
+				Thread worker = new Thread(() -> simulate(partition), "JDEQSim." + i);
+				worker.setDaemon(true);
+				worker.start();
+			}
+			// the calling thread simulates the first partition
+			simulate(this.partitions[0]);
+		} finally {
+			Message.setEventsManager(this.events);
+		}
+		// many small windows mean that the partitions mostly wait for each other
+		log.info("handled " + this.messagesInWindows + " messages in " + this.windows + " windows and "
+				+ this.messagesBetweenWindows + " messages between the windows.");
+		if (this.exception instanceof RuntimeException) {
+			throw (RuntimeException) this.exception;
+		}
+		if (this.exception instanceof Error) {
+			throw (Error) this.exception;
+		}
+		if (this.exception != null) {
+			throw new RuntimeException(this.exception);
+		}
+	}
+
+	private void simulate(final Partition partition) {
+		this.partitionOfThread.set(partition);
+		try {
+			while (true) {
+				await();
+				if (this.finished) {
+					return;
+				}
+				try {
+					partition.runWindow(this.windowEnd);
+				} catch (Throwable e) {
+					partition.exception = e;
+				}
+			}
+		} finally {
+			this.partitionOfThread.remove();
+		}
+	}
+
+	private void await() {
+		try {
+			this.barrier.await();
+		} catch (InterruptedException | BrokenBarrierException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * The action of the barrier, run by one thread while all partitions wait: passes on the events of the last window,
+	 * handles the messages acting on another partition without delay, and determines the next window.
+	 */
+	private void advance() {
+		this.windowRunning = false;
+		try {
+			for (Partition partition : this.partitions) {
+				if (partition.exception != null) {
+					throw new RuntimeException("Exception while simulating partition " + partition.index, partition.exception);
+				}
+			}
+			passOnEvents();
+			for (Partition partition : this.partitions) {
+				Entry entry;
+				while ((entry = partition.mailbox.poll()) != null) {
+					partition.add(entry);
+				}
+			}
+
+			while (true) {
+				Partition first = nextPartition();
+				if (first == null) {
+					this.finished = true;
+					return;
+				}
+				Entry next = first.queue.peek();
+				this.simTime = next.time;
+				printLog();
+				if (next.time >= this.simulationEndTime) {
+					// like the sequential scheduler, handle the first message after the end
+					first.queue.poll();
+					handle(next);
+					this.finished = true;
+					return;
+				}
+
+				double end = Math.min(next.time + this.lookahead, this.simulationEndTime);
+				for (Partition partition : this.partitions) {
+					end = Math.min(end, partition.nextBoundaryTime());
+				}
+				if (end > next.time) {
+					this.windows++;
+					this.windowEnd = end;
+					this.windowRunning = true;
+					return;
+				}
+				// a message acting on another partition at this time; handle all messages of this time in order
+				while ((first = nextPartition()) != null && first.queue.peek().time == next.time) {
+					handle(first.queue.poll());
+					this.messagesBetweenWindows++;
+				}
+			}
+		} catch (Throwable e) {
+			// the barrier would break otherwise; the exception is thrown once all partitions stopped
+			this.exception = e;
+			this.finished = true;
+		}
+	}
+
+	/** @return the partition with the next message in all queues, or <code>null</code> if there is none */
+	private Partition nextPartition() {
+		Partition first = null;
+		for (Partition partition : this.partitions) {
+			Entry head = partition.peekAlive();
+			if (head != null && (first == null || head.compareTo(first.queue.peek()) < 0)) {
+				first = partition;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Merges the events of the last window in the order in which the messages would have been handled in a single queue.
+	 */
+	private void passOnEvents() {
+		int[] handled = new int[this.partitions.length];
+		int[] processedEvents = new int[this.partitions.length];
+		while (true) {
+			int first = -1;
+			Entry firstEntry = null;
+			for (int i = 0; i < this.partitions.length; i++) {
+				List<Entry> entries = this.partitions[i].handled;
+				if (handled[i] < entries.size() && (firstEntry == null || entries.get(handled[i]).compareTo(firstEntry) < 0)) {
+					first = i;
+					firstEntry = entries.get(handled[i]);
+				}
+			}
+			if (first < 0) {
+				break;
+			}
+			handled[first]++;
+			this.messagesInWindows++;
+			List<Event> partitionEvents = this.partitions[first].events;
+			for (; processedEvents[first] < firstEntry.eventsEnd; processedEvents[first]++) {
+				this.events.processEvent(partitionEvents.get(processedEvents[first]));
+			}
+		}
+		for (Partition partition : this.partitions) {
+			partition.handled.clear();
+			partition.events.clear();
+		}
+	}
+
+	private static void handle(final Entry entry) {
+		entry.handled = true;
+		entry.message.processEvent();
+		entry.message.handleMessage();
+	}
+
+	@Override
+	public double getSimTime() {
+		return this.simTime;
+	}
+
+	private void printLog() {
+		if (this.simTime > this.hourlyLogTime) {
+			this.hourlyLogTime = this.simTime + 3600;
+			log.info("Simulation at " + this.simTime / 3600 + "[h]");
+		}
+	}
+
+	/**
+	 * A message with the key by which it is ordered, see {@link Message#compareTo(Message)}: the time, the priority
+	 * (higher first) and the index of the person.  A person never has two messages with the same time and priority.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		final Message message;
+		final double time;
+		final int priority;
+		final int person;
+		final boolean boundary;
+		boolean handled = false;
+		int eventsEnd;
+
+		Entry(final Message message, final boolean boundary) {
+			this.message = message;
+			this.time = message.getMessageArrivalTime();
+			this.priority = message.priority;
+			this.person = message.getPersonIndex();
+			this.boundary = boundary;
+		}
+
+		@Override
+		public int compareTo(final Entry o) {
+			int cmp = Double.compare(this.time, o.time);
+			if (cmp == 0) {
+				cmp = Integer.compare(o.priority, this.priority);
+			}
+			if (cmp == 0) {
+				cmp = Integer.compare(this.person, o.person);
+			}
+			return cmp;
+		}
+	}
+
+	private final class Partition {
+		final int index;
+		final PriorityQueue<Entry> queue = new PriorityQueue<>();
+		// the messages acting on other partitions, to find the end of the window
+		final PriorityQueue<Entry> boundaryQueue = new PriorityQueue<>();
+		// messages from other partitions, while the window is running
+		final ConcurrentLinkedQueue<Entry> mailbox = new ConcurrentLinkedQueue<>();
+		// the messages handled in the current window, and their events
+		final List<Entry> handled = new ArrayList<>();
+		final List<Event> events = new ArrayList<>();
+		Throwable exception = null;
+
+		Partition(final int index) {
+			this.index = index;
+		}
+
+		void add(final Entry entry) {
+			this.queue.add(entry);
+			if (entry.boundary) {
+				this.boundaryQueue.add(entry);
+			}
+		}
+
+		Entry peekAlive() {
+			Entry head;
+			while ((head = this.queue.peek()) != null && !head.message.isAlive()) {
+				this.queue.poll();
+			}
+			return head;
+		}
+
+		double nextBoundaryTime() {
+			Entry head;
+			while ((head = this.boundaryQueue.peek()) != null && (head.handled || !head.message.isAlive())) {
+				this.boundaryQueue.poll();
+			}
+			return head == null ? Double.POSITIVE_INFINITY : head.time;
+		}
+
+		void runWindow(final double end) {
+			Entry entry;
+			while ((entry = peekAlive()) != null && entry.time < end) {
+				this.queue.poll();
+				if (entry.boundary) {
+					throw new IllegalStateException("A message acting on another partition at " + entry.time + " is before the end of the window at "
+							+ end + ". This should not happen.");
+				}
+				handle(entry);
+				entry.eventsEnd = this.events.size();
+				this.handled.add(entry);
+			}
+		}
+	}
+
+
+	/**
+	 * Collects the events of the messages handled during a window per partition, and passes the events of the messages
+	 * handled between the windows on directly.
+	 */
+	private final class BufferingEventsManager implements EventsManager {
+
+		@Override
+		public void processEvent(final Event event) {
+			if (windowRunning) {
+				partitionOfThread.get().events.add(event);
+			} else {
+				events.processEvent(event);
+			}
+		}
+
+		@Override
+		public void addHandler(final EventHandler handler) {
+			events.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(final EventHandler handler) {
+			events.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(final int iteration) {
+			events.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			events.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(final double time) {
+			events.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			events.finishProcessing();
+		}
+	}
+
+}
@@ -246,6 +246,13 @@ public class Vehicle extends SimUnit {
 	}
 
 	public void scheduleLeavePreviousRoadMessage(double scheduleTime) {
+		scheduleLeaveRoadMessage(scheduleTime, getPreviousRoad());
+	}
+
+	/**
+	 * @return the road the vehicle is on while waiting to enter the road of the current link index
+	 */
+	public Road getPreviousRoad() {
 		Road previousRoad = null;
 		Id<Link> previousLinkId = null;
 		/*
@@ -263,8 +270,7 @@ public class Vehicle extends SimUnit {
 		} else {
 			log.error("Some thing is wrong with the simulation: Why is this.getLinkIndex() negative");
 		}
-
-		scheduleLeaveRoadMessage(scheduleTime, previousRoad);
+		return previousRoad;
 	}
 
 	protected void _scheduleEnterRoadMessage(double scheduleTime, Road road) {
@@ -19,14 +19,14 @@
 
 package org.matsim.core.mobsim.qsim;
 
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.io.IOException;
+import java.util.List;
 
 import javax.inject.Inject;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
@@ -34,9 +34,11 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
+import org.matsim.core.utils.collections.CalendarQueue;
 import org.matsim.core.utils.misc.Time;
 
-public class ActivityEngineDefaultImpl implements ActivityEngine {
+public class ActivityEngineDefaultImpl implements ActivityEngine, Checkpointable {
 	private static final Logger log = Logger.getLogger( ActivityEngineDefaultImpl.class ) ;
 
 	private EventsManager eventsManager;
@@ -49,6 +51,8 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 		this.eventsManager = eventsManager;
 	}
 
+	private InternalInterface internalInterface;
+
 	/**
 	 * Agents cannot be added directly to the activityEndsList since that would
 	 * not be thread-safe when within-day replanning is used. There, an agent's
@@ -57,38 +61,26 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 	 * rescheduleActivityEnd(...). However, if another agent is added to the list
 	 * in the mean time, it might be inserted at the wrong position.
 	 * cdobler, apr'12
-	 */
-	private static class AgentEntry {
-		public AgentEntry(MobsimAgent agent, double activityEndTime) {
-			this.agent = agent;
-			this.activityEndTime = activityEndTime;
-		}
-		final MobsimAgent agent;
-		final double activityEndTime;
-	}
-
-	private InternalInterface internalInterface;
-
-	/**
+	 * (The queue entries keep the activity end time the agent had when it was added.  The entries are found through
+	 * activityEndsEntries when the agent is rescheduled.)
+	 * <p></p>
 	 * This list needs to be a "blocking" queue since this is needed for
 	 * thread-safety in the parallel qsim. cdobler, oct'10
+	 * (All accesses to the queue and to activityEndsEntries are synchronized on the queue instead.)
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
-		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
-		if (cmp == 0) {
-			// Both depart at the same time -> let the one with the larger id be first (=smaller)
-			//
-			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-			// to say that the agent with the larger ID should be "smaller" one in the comparison.
-			// In practice, it seems
-			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-			// It is unclear why this convention is supposed to be helpful.
-			// kai & dominik, jul'12
-			//
-			return e1.agent.getId().compareTo(e0.agent.getId());
-		}
-		return cmp;
+	private final CalendarQueue<MobsimAgent> activityEndsList = new CalendarQueue<>((a0, a1) -> {
+		// Both depart at the same time -> let the one with the larger id be first (=smaller)
+		//
+		// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+		// to say that the agent with the larger ID should be "smaller" one in the comparison.
+		// In practice, it seems
+		// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+		// It is unclear why this convention is supposed to be helpful.
+		// kai & dominik, jul'12
+		//
+		return a1.getId().compareTo(a0.getId());
 	});
+	private final IdMap<Person, CalendarQueue.Entry<MobsimAgent>> activityEndsEntries = new IdMap<>(Person.class);
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
@@ -101,29 +93,63 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
-				unregisterAgentAtActivityLocation(agent);
-				agent.endActivityAndComputeNextState(time);
-				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
+		while (true) {
+			MobsimAgent agent;
+			synchronized (activityEndsList) {
+				agent = activityEndsList.poll(time);
+				if (agent == null) {
+					return;
+				}
+				activityEndsEntries.remove(agent.getId());
 			}
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
 		}
 	}
 
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
-			if (entry.activityEndTime!=Double.POSITIVE_INFINITY && entry.activityEndTime!=Time.UNDEFINED_TIME) {
-				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
-				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
-				eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+		synchronized (activityEndsList) {
+			for (CalendarQueue.Entry<MobsimAgent> entry : activityEndsList.getEntries()) {
+				if (entry.getTime()!=Double.POSITIVE_INFINITY && entry.getTime()!=Time.UNDEFINED_TIME) {
+					// since we are at an activity, it is not plausible to assume that the agents know mode or destination
+					// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
+					eventsManager.processEvent(new PersonStuckEvent(now, entry.getElement().getId(), null, null));
+				}
+			}
+			activityEndsList.clear();
+			activityEndsEntries.clear();
+		}
+	}
+
+	@Override
+	public void writeCheckpoint(QSimCheckpointWriter writer) throws IOException {
+		writer.writeBoolean(beforeFirstSimStep);
+		synchronized (activityEndsList) {
+			List<CalendarQueue.Entry<MobsimAgent>> entries = activityEndsList.getEntries();
+			writer.writeInt(entries.size());
+			for (CalendarQueue.Entry<MobsimAgent> entry : entries) {
+				writer.writeAgent(entry.getElement());
+				writer.writeDouble(entry.getTime());
+			}
+		}
+	}
+
+	@Override
+	public void readCheckpoint(QSimCheckpointReader reader) throws IOException {
+		// the agents at their activity locations are restored with the links
+		beforeFirstSimStep = reader.readBoolean();
+		synchronized (activityEndsList) {
+			activityEndsList.clear();
+			activityEndsEntries.clear();
+			int size = reader.readInt();
+			for (int i = 0; i < size; i++) {
+				MobsimAgent agent = reader.readAgent();
+				addToQueue(agent, reader.readDouble());
 			}
 		}
-		activityEndsList.clear();
 	}
 
 	@Override
@@ -155,8 +181,7 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			final AgentEntry agentEntry = new AgentEntry(agent, agent.getActivityEndTime());
-			activityEndsList.add(agentEntry);
+			addToQueue(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -188,16 +213,16 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 		
 		
 		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		boolean wasInQueue = removeAgentFromQueue(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
-		if (oldEntry == null) {
+		if (!wasInQueue) {
 			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				addToQueue(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -212,20 +237,25 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+			addToQueue(agent, newActivityEndTime);
+		}
+	}
+
+	private void addToQueue(MobsimAgent agent, double activityEndTime) {
+		synchronized (activityEndsList) {
+			activityEndsEntries.put(agent.getId(), activityEndsList.add(agent, activityEndTime));
 		}
 	}
 
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
+	private boolean removeAgentFromQueue(MobsimAgent agent) {
+		synchronized (activityEndsList) {
+			CalendarQueue.Entry<MobsimAgent> entry = activityEndsEntries.get(agent.getId());
+			if (entry != null && entry.getElement() == agent) {
+				activityEndsEntries.remove(agent.getId());
+				return activityEndsList.remove(entry);
 			}
+			return false;
 		}
-		return null;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
@@ -21,8 +21,6 @@ package org.matsim.core.mobsim.qsim;
 
 import java.util.Comparator;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
 
 import javax.inject.Inject;
 
@@ -34,6 +32,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
+import org.matsim.core.utils.collections.CalendarQueue;
 
 public final class ActivityEngineWithWakeup implements ActivityEngine {
 
@@ -41,8 +40,8 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 	private PreplanningEngine preplanningEngine;
 	private ActivityEngine delegate;
 
-	private final Queue<AgentEntry> wakeUpList = new PriorityBlockingQueue<>(500,
-			Comparator.comparingDouble((AgentEntry o) -> o.time).thenComparing(o -> o.agent.getId()));
+	// synchronized on, like the queue in ActivityEngineDefaultImpl
+	private final CalendarQueue<AgentEntry> wakeUpList = new CalendarQueue<>(Comparator.comparing((AgentEntry o) -> o.agent.getId()));
 	private InternalInterface internalInterface;
 
 	@Inject
@@ -59,8 +58,14 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 
 	@Override
 	public void doSimStep(double now) {
-		while (!wakeUpList.isEmpty() && wakeUpList.peek().time <= now) {
-			final AgentEntry entry = wakeUpList.poll();
+		while (true) {
+			final AgentEntry entry;
+			synchronized (wakeUpList) {
+				entry = wakeUpList.poll(now);
+			}
+			if (entry == null) {
+				break;
+			}
 			this.eventsManager.processEvent(new AgentWakeupEvent(now, entry.agent.getId()));
 			entry.agentWakeup.wakeUp(entry.agent, now);
 		}
@@ -92,7 +97,11 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 
 		Activity act = (Activity)WithinDayAgentUtils.getCurrentPlanElement(agent);
 		if (!act.getType().contains("interaction")) {
-			wakeUpList.addAll(preplanningEngine.generateWakeups(agent, now));
+			synchronized (wakeUpList) {
+				for (AgentEntry entry : preplanningEngine.generateWakeups(agent, now)) {
+					wakeUpList.add(entry, entry.time);
+				}
+			}
 		}
 
 		return delegate.handleActivity(agent);
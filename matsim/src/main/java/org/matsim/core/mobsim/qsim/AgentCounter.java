@@ -55,6 +55,12 @@ class AgentCounter implements org.matsim.core.mobsim.qsim.interfaces.AgentCounte
 
     final void incLiving() {living.incrementAndGet();}
 
+    /** for resuming the simulation from a checkpoint */
+    final void setCounts(int living, int lost) {
+        this.living.set(living);
+        this.lost.set(lost);
+    }
+
     @Override
     public final void decLiving() {living.decrementAndGet();}
 
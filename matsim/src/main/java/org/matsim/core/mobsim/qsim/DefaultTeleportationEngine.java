@@ -31,10 +31,11 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.utils.collections.Tuple;
+import org.matsim.core.utils.collections.CalendarQueue;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.facilities.Facility;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
@@ -42,27 +43,18 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
 import org.matsim.vis.snapshotwriters.VisData;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.*;
 
 /**
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, Checkpointable {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
-
-		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond().getId().compareTo(o1.getSecond().getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
-		}
-	});
+	// ordered by arrival time; if they're equal, compare the Ids: the one with the larger Id should be first
+	private final CalendarQueue<MobsimAgent> teleportationList = new CalendarQueue<>((a1, a2) -> a2.getId().compareTo(a1.getId()));
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -95,7 +87,7 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		}
     	
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		this.teleportationList.add(agent, arrivalTime);
 		
 		// === below here is only visualization, no dynamics ===
 		Id<Person> agentId = agent.getId();
@@ -126,21 +118,15 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		while (teleportationList.peek() != null) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
-						.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
-			} else {
-				break;
-			}
+		MobsimAgent personAgent;
+		while ((personAgent = teleportationList.poll(now)) != null) {
+			personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
+					.getDestinationLinkId());
+			double distance = personAgent.getExpectedTravelDistance();
+			this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
+			personAgent.endLegAndComputeNextState(now);
+			this.teleportationData.remove(personAgent.getId());
+			internalInterface.arrangeNextAgentState(personAgent);
 		}
 	}
 
@@ -152,13 +138,43 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
-			MobsimAgent agent = entry.getSecond();
+		for (CalendarQueue.Entry<MobsimAgent> entry : teleportationList.getEntries()) {
+			MobsimAgent agent = entry.getElement();
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
 		teleportationList.clear();
 	}
 
+	@Override
+	public void writeCheckpoint(QSimCheckpointWriter writer) throws IOException {
+		List<CalendarQueue.Entry<MobsimAgent>> entries = teleportationList.getEntries();
+		writer.writeInt(entries.size());
+		for (CalendarQueue.Entry<MobsimAgent> entry : entries) {
+			writer.writeAgent(entry.getElement());
+			writer.writeDouble(entry.getTime());
+			writer.writeDouble(teleportationData.get(entry.getElement().getId()).getTravelTime());
+		}
+	}
+
+	@Override
+	public void readCheckpoint(QSimCheckpointReader reader) throws IOException {
+		teleportationList.clear();
+		teleportationData.clear();
+		int size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			MobsimAgent agent = reader.readAgent();
+			double arrivalTime = reader.readDouble();
+			double travelTime = reader.readDouble();
+			this.teleportationList.add(agent, arrivalTime);
+
+			// the agent is still on the link where it departed
+			Coord fromCoord = this.scenario.getNetwork().getLinks().get(agent.getCurrentLinkId()).getToNode().getCoord();
+			Coord toCoord = this.scenario.getNetwork().getLinks().get(agent.getDestinationLinkId()).getToNode().getCoord();
+			this.teleportationData.put(agent.getId(),
+					new TeleportationVisData(arrivalTime - travelTime, agent.getId(), fromCoord, toCoord, travelTime));
+		}
+	}
+
 	@Override
 	public void setInternalInterface(InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
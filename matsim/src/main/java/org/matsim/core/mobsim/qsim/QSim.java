@@ -20,7 +20,9 @@
 
 package org.matsim.core.mobsim.qsim;
 
+import com.google.inject.Binding;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
@@ -30,10 +32,14 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.AgentSource;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -41,6 +47,7 @@ import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.mobsim.qsim.changeeventsengine.NetworkChangeEventsEngineI;
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
@@ -61,11 +68,15 @@ import org.matsim.vis.snapshotwriters.VisNetwork;
 import org.matsim.withinday.mobsim.WithinDayEngine;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -133,6 +144,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private final Map<Id<Person>, MobsimAgent> agents = new LinkedHashMap<>();
 	private final IdMap<Vehicle, MobsimVehicle> vehicles = new IdMap<>(Vehicle.class);
 	private final List<AgentSource> agentSources = new ArrayList<>();
+	private final List<Double> checkpointTimes = new ArrayList<>();
+	private double nextCheckpointTime = Double.POSITIVE_INFINITY;
 
 	// for detailed run time analysis
 	public static boolean analyzeRunTimes = false;
@@ -245,15 +258,20 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			prepareSim();
 			this.listenerManager.fireQueueSimulationInitializedEvent();
 
-			// Put agents into the handler for their first ("overnight") action,
-			// probably the ActivityEngine. This is done before the first
-			// beforeSimStepEvent, because the expectation seems to be
-			// (e.g. in OTFVis), that agents are doing something
-			// (can be located somewhere) before you execute a sim step.
-			// Agents can abort in this loop already, so we iterate over
-			// a defensive copy of the agent collection.
-			for (MobsimAgent agent : new ArrayList<>(this.agents.values())) {
-				arrangeNextAgentAction(agent);
+			if (resumesFromCheckpoint()) {
+				// The agents are not arranged for their first action, they continue where they were at the checkpoint.
+				readCheckpoint(ConfigGroup.getInputFileURL(this.scenario.getConfig().getContext(), this.scenario.getConfig().qsim().getCheckpointFile()));
+			} else {
+				// Put agents into the handler for their first ("overnight") action,
+				// probably the ActivityEngine. This is done before the first
+				// beforeSimStepEvent, because the expectation seems to be
+				// (e.g. in OTFVis), that agents are doing something
+				// (can be located somewhere) before you execute a sim step.
+				// Agents can abort in this loop already, so we iterate over
+				// a defensive copy of the agent collection.
+				for (MobsimAgent agent : new ArrayList<>(this.agents.values())) {
+					arrangeNextAgentAction(agent);
+				}
 			}
 
 			// do iterations
@@ -294,6 +312,31 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
 			mobsimEngine.onPrepareSim();
 		}
+
+		initCheckpoints();
+	}
+
+	private void initCheckpoints() {
+		QSimConfigGroup qsimConfig = this.scenario.getConfig().qsim();
+		this.checkpointTimes.clear();
+		this.checkpointTimes.addAll(qsimConfig.getCheckpointTimes());
+		Collections.sort(this.checkpointTimes);
+		if (!this.checkpointTimes.isEmpty() || resumesFromCheckpoint()) {
+			// fail now and not after hours of simulation
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				if (!(mobsimEngine instanceof Checkpointable)) {
+					throw new RuntimeException("The mobsim engine " + mobsimEngine.getClass().getName()
+							+ " does not support checkpoints; remove the checkpoint settings from the qsim config group.");
+				}
+			}
+			for (MobsimAgent agent : this.agents.values()) {
+				if (!(agent instanceof Checkpointable)) {
+					throw new RuntimeException("Agents of type " + agent.getClass().getName()
+							+ " do not support checkpoints; remove the checkpoint settings from the qsim config group.");
+				}
+			}
+		}
+		this.nextCheckpointTime = getNextCheckpointTime(Double.NEGATIVE_INFINITY);
 	}
 
 	private void createAgents() {
@@ -421,6 +464,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			}
 		}
 
+		if (doContinue && now >= this.nextCheckpointTime) {
+			writeCheckpoint(now);
+		}
+
 		if (doContinue) {
 			this.simTimer.incrementTime();
 		}
@@ -521,6 +568,112 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	}
 
+	/*package*/ static String getCheckpointFilename(final double time) {
+		return "qsim_checkpoint." + (long) time + ".bin.gz";
+	}
+
+	/**
+	 * @return the counter of the controler iterations, or <code>null</code> if the qsim runs without a controler
+	 */
+	private IterationCounter getIterationCounter() {
+		Binding<IterationCounter> binding = this.childInjector.getExistingBinding(Key.get(IterationCounter.class));
+		return binding == null ? null : binding.getProvider().get();
+	}
+
+	/**
+	 * The checkpoint file is only read in the first iteration of a run, the later iterations simulate their own plans
+	 * from the beginning of the day.
+	 */
+	private boolean resumesFromCheckpoint() {
+		if (this.scenario.getConfig().qsim().getCheckpointFile() == null) {
+			return false;
+		}
+		IterationCounter iterationCounter = getIterationCounter();
+		return iterationCounter == null
+				|| iterationCounter.getIterationNumber() == this.scenario.getConfig().controler().getFirstIteration();
+	}
+
+	/**
+	 * The checkpoints of an iteration go to its directory, so that they are not overwritten by the next iteration.
+	 */
+	private String getCheckpointPath(final double time) {
+		IterationCounter iterationCounter = getIterationCounter();
+		if (iterationCounter == null) {
+			return this.scenario.getConfig().controler().getOutputDirectory() + "/" + getCheckpointFilename(time);
+		}
+		return this.childInjector.getInstance(OutputDirectoryHierarchy.class)
+				.getIterationFilename(iterationCounter.getIterationNumber(), getCheckpointFilename(time));
+	}
+
+	private double getNextCheckpointTime(final double time) {
+		for (double checkpointTime : this.checkpointTimes) {
+			if (checkpointTime > time) {
+				return checkpointTime;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	private void writeCheckpoint(final double now) {
+		String filename = getCheckpointPath(now);
+		log.info("writing checkpoint at " + Time.writeTime(now) + " to " + filename);
+		try (QSimCheckpointWriter writer = new QSimCheckpointWriter(filename, now)) {
+			writer.beginSection(QSim.class.getName());
+			writer.writeDouble(this.simTimer.getSimStartTime());
+			writer.writeRandom(MatsimRandom.getRandom());
+			writer.writeInt(this.agentCounter.getLiving());
+			writer.writeInt(this.agentCounter.getLost());
+			writer.writeInt(this.agents.size());
+			for (MobsimAgent agent : this.agents.values()) {
+				writer.writeAgent(agent);
+			}
+			for (MobsimAgent agent : this.agents.values()) {
+				((Checkpointable) agent).writeCheckpoint(writer);
+			}
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				writer.beginSection(mobsimEngine.getClass().getName());
+				((Checkpointable) mobsimEngine).writeCheckpoint(writer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.nextCheckpointTime = getNextCheckpointTime(now);
+	}
+
+	private void readCheckpoint(final URL url) {
+		log.info("resuming from the checkpoint " + url);
+		double time;
+		try (QSimCheckpointReader reader = new QSimCheckpointReader(url, this)) {
+			time = reader.getTime();
+			reader.beginSection(QSim.class.getName());
+			this.simTimer.setSimStartTime(reader.readDouble());
+			reader.readRandom(MatsimRandom.getRandom());
+			int living = reader.readInt();
+			int lost = reader.readInt();
+			this.agentCounter.setCounts(living, lost);
+			int numberOfAgents = reader.readInt();
+			List<MobsimAgent> agentsAtCheckpoint = new ArrayList<>(numberOfAgents);
+			for (int i = 0; i < numberOfAgents; i++) {
+				agentsAtCheckpoint.add(reader.readAgent());
+			}
+			// agents which aborted before the checkpoint are no longer in the mobsim
+			this.agents.values().retainAll(new HashSet<>(agentsAtCheckpoint));
+			for (MobsimAgent agent : agentsAtCheckpoint) {
+				((Checkpointable) agent).readCheckpoint(reader);
+			}
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				reader.beginSection(mobsimEngine.getClass().getName());
+				((Checkpointable) mobsimEngine).readCheckpoint(reader);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.nextCheckpointTime = getNextCheckpointTime(time);
+		this.infoTime = Math.floor(time / INFO_PERIOD) * INFO_PERIOD + INFO_PERIOD;
+		this.simTimer.setTime(time);
+		this.simTimer.incrementTime();
+	}
+
 	private double calculateFirstAgentStartTime() {
 		double firstAgentStartTime = Double.POSITIVE_INFINITY;
 		for (MobsimAgent agent : agents.values()) {
@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimCheckpointReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads a checkpoint written by {@link QSimCheckpointWriter}.  References to agents and vehicles are resolved against
+ * the agents and vehicles of the QSim into which the checkpoint is read.
+ */
+public final class QSimCheckpointReader implements Closeable {
+
+	private final DataInputStream in;
+	private final List<String> ids = new ArrayList<>();
+	private final QSim qsim;
+	private final double time;
+
+	/*package*/ QSimCheckpointReader(final URL url, final QSim qsim) throws IOException {
+		this.in = new DataInputStream(IOUtils.getInputStream(url));
+		this.qsim = qsim;
+		byte[] magic = new byte[QSimCheckpointWriter.MAGIC.length];
+		this.in.readFully(magic);
+		if (!Arrays.equals(magic, QSimCheckpointWriter.MAGIC)) {
+			throw new IOException(url + " is not a checkpoint of the QSim.");
+		}
+		int version = this.in.readInt();
+		if (version != QSimCheckpointWriter.VERSION) {
+			throw new IOException("Unsupported version " + version + " of the checkpoint " + url + ".");
+		}
+		this.time = this.in.readDouble();
+	}
+
+	/**
+	 * @return the time step after which the checkpoint was written
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	public void beginSection(final String name) throws IOException {
+		String found = this.in.readUTF();
+		if (!found.equals(name)) {
+			throw new IOException("Expected the section " + name + " in the checkpoint, but found " + found
+					+ ". The checkpoint was presumably written by a QSim with different engines.");
+		}
+	}
+
+	public boolean readBoolean() throws IOException {
+		return this.in.readBoolean();
+	}
+
+	public int readInt() throws IOException {
+		return this.in.readInt();
+	}
+
+	public long readLong() throws IOException {
+		return this.in.readLong();
+	}
+
+	public double readDouble() throws IOException {
+		return this.in.readDouble();
+	}
+
+	public String readString() throws IOException {
+		return this.in.readBoolean() ? this.in.readUTF() : null;
+	}
+
+	public <T> Id<T> readId(final Class<T> type) throws IOException {
+		int index = this.in.readInt();
+		if (index < 0) {
+			return null;
+		}
+		if (index == this.ids.size()) {
+			this.ids.add(this.in.readUTF());
+		} else if (index > this.ids.size()) {
+			throw new IOException("Invalid id index " + index + " in the checkpoint.");
+		}
+		return Id.create(this.ids.get(index), type);
+	}
+
+	/**
+	 * Sets the state of the given random number generator, which must have been created by {@link MatsimRandom}, to the
+	 * one written by {@link QSimCheckpointWriter#writeRandom(Random)}.
+	 */
+	public void readRandom(final Random random) throws IOException {
+		byte[] bytes = new byte[this.in.readInt()];
+		this.in.readFully(bytes);
+		try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			MatsimRandom.restore(random, (Random) objectIn.readObject());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Invalid random number generator in the checkpoint.", e);
+		}
+	}
+
+	/**
+	 * @return the agent of the QSim with the id written by {@link QSimCheckpointWriter#writeAgent(MobsimAgent)}
+	 */
+	public MobsimAgent readAgent() throws IOException {
+		Id<Person> id = readId(Person.class);
+		if (id == null) {
+			return null;
+		}
+		MobsimAgent agent = this.qsim.getAgents().get(id);
+		if (agent == null) {
+			throw new IOException("The checkpoint refers to the agent " + id + ", which is not in the QSim.");
+		}
+		return agent;
+	}
+
+	/**
+	 * @return the vehicle of the QSim with the id written by {@link QSimCheckpointWriter#writeVehicle(MobsimVehicle)}
+	 */
+	public MobsimVehicle readVehicle() throws IOException {
+		Id<Vehicle> id = readId(Vehicle.class);
+		if (id == null) {
+			return null;
+		}
+		MobsimVehicle vehicle = this.qsim.getVehicles().get(id);
+		if (vehicle == null) {
+			throw new IOException("The checkpoint refers to the vehicle " + id + ", which is not in the QSim.");
+		}
+		return vehicle;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+}
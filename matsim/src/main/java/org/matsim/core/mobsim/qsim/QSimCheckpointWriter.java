@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimCheckpointWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Writes a checkpoint of the QSim, i.e. the state of the simulation after a time step, from which the simulation can be
+ * resumed with {@link QSimCheckpointReader}.  The file is a stream of primitive values as written by the
+ * {@link Checkpointable}s, compressed according to the file name (usually gzip).  Ids are only written once as
+ * strings, afterwards as their number.  The parts of the checkpoint are separated by named sections, so that reading
+ * a checkpoint written by a differently set up QSim fails early instead of producing garbage.
+ */
+public final class QSimCheckpointWriter implements Closeable {
+
+	/*package*/ static final byte[] MAGIC = { 'M', 'A', 'T', 'S', 'I', 'M', 'C', 'P' };
+	/*package*/ static final int VERSION = 2;
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> ids = new HashMap<>();
+	private final double time;
+
+	/*package*/ QSimCheckpointWriter(final String filename, final double time) throws IOException {
+		this.out = new DataOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+		this.time = time;
+		this.out.write(MAGIC);
+		this.out.writeInt(VERSION);
+		this.out.writeDouble(time);
+	}
+
+	/**
+	 * @return the time step after which the checkpoint is written
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	public void beginSection(final String name) throws IOException {
+		this.out.writeUTF(name);
+	}
+
+	public void writeBoolean(final boolean value) throws IOException {
+		this.out.writeBoolean(value);
+	}
+
+	public void writeInt(final int value) throws IOException {
+		this.out.writeInt(value);
+	}
+
+	public void writeLong(final long value) throws IOException {
+		this.out.writeLong(value);
+	}
+
+	public void writeDouble(final double value) throws IOException {
+		this.out.writeDouble(value);
+	}
+
+	/**
+	 * @param value may be <code>null</code>
+	 */
+	public void writeString(final String value) throws IOException {
+		this.out.writeBoolean(value != null);
+		if (value != null) {
+			this.out.writeUTF(value);
+		}
+	}
+
+	/**
+	 * @param id may be <code>null</code>
+	 */
+	public void writeId(final Id<?> id) throws IOException {
+		if (id == null) {
+			this.out.writeInt(-1);
+			return;
+		}
+		String key = id.toString();
+		Integer index = this.ids.get(key);
+		if (index == null) {
+			// the reader knows that an index it has not yet seen is followed by the id itself
+			this.out.writeInt(this.ids.size());
+			this.out.writeUTF(key);
+			this.ids.put(key, this.ids.size());
+		} else {
+			this.out.writeInt(index);
+		}
+	}
+
+	/**
+	 * Writes the state of a random number generator, see {@link QSimCheckpointReader#readRandom(Random)}.
+	 */
+	public void writeRandom(final Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+			objectOut.writeObject(random);
+		}
+		this.out.writeInt(bytes.size());
+		bytes.writeTo(this.out);
+	}
+
+	/**
+	 * Writes a reference to an agent of the QSim, see {@link QSimCheckpointReader#readAgent()}.
+	 */
+	public void writeAgent(final MobsimAgent agent) throws IOException {
+		writeId(agent == null ? null : agent.getId());
+	}
+
+	/**
+	 * Writes a reference to a vehicle of the QSim, see {@link QSimCheckpointReader#readVehicle()}.
+	 */
+	public void writeVehicle(final MobsimVehicle vehicle) throws IOException {
+		writeId(vehicle == null ? null : vehicle.getId());
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+	}
+
+}
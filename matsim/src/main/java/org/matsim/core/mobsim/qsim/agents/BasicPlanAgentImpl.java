@@ -21,6 +21,7 @@
 
  package org.matsim.core.mobsim.qsim.agents;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -44,6 +45,8 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.PlanAgent;
 import org.matsim.core.mobsim.framework.VehicleUsingAgent;
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
@@ -208,6 +211,51 @@ public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPers
 		}
 	}
 
+	/**
+	 * Writes the position of the agent in its plan.  If the agent has a modifiable copy of its plan, only the
+	 * activity start times set by {@link #initializeActivity} are written; other modifications of the plan (e.g.
+	 * by within-day replanning) are not supported.
+	 */
+	final void writeCheckpoint(final QSimCheckpointWriter writer) throws IOException {
+		List<PlanElement> planElements = this.getCurrentPlan().getPlanElements();
+		writer.writeInt(planElements.size());
+		writer.writeInt(this.currentPlanElementIndex);
+		writer.writeInt(this.state.ordinal());
+		writer.writeId(this.currentLinkId);
+		writer.writeDouble(this.activityEndTime);
+		writer.writeInt(this.currentLinkIndex);
+		writer.writeVehicle(this.vehicle);
+		writer.writeBoolean(!this.firstTimeToGetModifiablePlan);
+		if (!this.firstTimeToGetModifiablePlan) {
+			for (PlanElement planElement : planElements) {
+				if (planElement instanceof Activity) {
+					writer.writeDouble(((Activity) planElement).getStartTime());
+				}
+			}
+		}
+	}
+
+	final void readCheckpoint(final QSimCheckpointReader reader) throws IOException {
+		int numberOfPlanElements = reader.readInt();
+		if (numberOfPlanElements != this.getCurrentPlan().getPlanElements().size()) {
+			throw new IOException("The plan of agent " + this.getId() + " has " + this.getCurrentPlan().getPlanElements().size()
+					+ " plan elements, but " + numberOfPlanElements + " in the checkpoint.");
+		}
+		this.currentPlanElementIndex = reader.readInt();
+		this.state = MobsimAgent.State.values()[reader.readInt()];
+		this.currentLinkId = reader.readId(Link.class);
+		this.activityEndTime = reader.readDouble();
+		this.currentLinkIndex = reader.readInt();
+		this.vehicle = reader.readVehicle();
+		if (reader.readBoolean()) {
+			for (PlanElement planElement : getModifiablePlan().getPlanElements()) {
+				if (planElement instanceof Activity) {
+					((Activity) planElement).setStartTime(reader.readDouble());
+				}
+			}
+		}
+	}
+
 	// ============================================================================
 	// (nearly) pure getters and setters below here
 	
@@ -20,6 +20,8 @@
 
 package org.matsim.core.mobsim.qsim.agents;
 
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -28,6 +30,9 @@ import org.matsim.core.mobsim.framework.HasPerson;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimPassengerAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import org.matsim.core.population.PopulationUtils;
@@ -39,7 +44,7 @@ import org.matsim.vehicles.Vehicle;
  * <p></p>
  * I think this class is reasonable in terms of what is public and/or final and what not.
  */
-public class PersonDriverAgentImpl implements MobsimDriverAgent, MobsimPassengerAgent, HasPerson, PlanAgent, HasModifiablePlan {
+public class PersonDriverAgentImpl implements MobsimDriverAgent, MobsimPassengerAgent, HasPerson, PlanAgent, HasModifiablePlan, Checkpointable {
 	// yy cannot make this final since it is overridden at 65 locations
 	// (but since all methods are final, it seems that all of these could be solved by delegation).
 	// kai, nov'14
@@ -210,4 +215,19 @@ public class PersonDriverAgentImpl implements MobsimDriverAgent, MobsimPassenger
 		return this.basicAgentDelegate.getPreviousPlanElement();
 	}
 
+	/**
+	 * Subclasses with state of their own need to override this (and {@link #readCheckpoint}) if they are to be used
+	 * with checkpoints.
+	 */
+	@Override
+	public void writeCheckpoint(QSimCheckpointWriter writer) throws IOException {
+		this.basicAgentDelegate.writeCheckpoint(writer);
+	}
+
+	@Override
+	public void readCheckpoint(QSimCheckpointReader reader) throws IOException {
+		this.basicAgentDelegate.readCheckpoint(reader);
+		this.driverAgentDelegate.resetCaches();
+	}
+
 }
@@ -27,20 +27,26 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.TimeVariantLink;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 
-class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, Checkpointable {
 	private static final Logger log = Logger.getLogger( NetworkChangeEventsEngine.class ) ;
 
 	private final MessageQueue messageQueue;
 	private final Network network;
 	private InternalInterface internalInterface;
+	private final List<Message> messages = new ArrayList<>();
 
 	@Inject
 	NetworkChangeEventsEngine(Network network, MessageQueue messageQueue) {
@@ -70,6 +76,7 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 		};
 		m.setMessageArrivalTime(changeEvent.getStartTime());
 		this.messageQueue.putMessage(m);
+		this.messages.add(m);
 	}
 	
 	private void applyTheChangeEvent(NetworkChangeEvent changeEvent) {
@@ -108,6 +115,21 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	}
 	
 	
+	@Override
+	public void writeCheckpoint(QSimCheckpointWriter writer) {
+		// the change events which were applied before the checkpoint are reflected in the state of the links
+	}
+
+	@Override
+	public void readCheckpoint(QSimCheckpointReader reader) {
+		// ... so they must not be applied again
+		for (Message m : this.messages) {
+			if (m.getMessageArrivalTime() <= reader.getTime()) {
+				this.messageQueue.removeMessage(m);
+			}
+		}
+	}
+
 	@Override
 	public void afterSim() {
 
@@ -0,0 +1,46 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpointable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+import java.io.IOException;
+
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
+
+/**
+ * A part of the QSim (an engine, an agent, ...) which can write its state to a checkpoint of the QSim and restore it
+ * from there, so that the simulation can be resumed at the time of the checkpoint.
+ * <p></p>
+ * The QSim only writes checkpoints if all its engines and agents implement this interface.  When a checkpoint is read,
+ * the object has been created and prepared (onPrepareSim) exactly as for a simulation from the start, so
+ * readCheckpoint only needs to replace the state which changed since then.  Other agents and vehicles are referenced
+ * by their ids, see {@link QSimCheckpointWriter#writeAgent} and {@link QSimCheckpointReader#readAgent}.
+ */
+public interface Checkpointable {
+
+	void writeCheckpoint(QSimCheckpointWriter writer) throws IOException;
+
+	/**
+	 * Reads exactly what was written by {@link #writeCheckpoint(QSimCheckpointWriter)}.
+	 */
+	void readCheckpoint(QSimCheckpointReader reader) throws IOException;
+
+}
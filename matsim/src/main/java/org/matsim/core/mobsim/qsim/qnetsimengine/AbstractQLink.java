@@ -19,6 +19,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -48,6 +49,8 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine.NetsimInternalInterface;
@@ -107,6 +110,12 @@ abstract class AbstractQLink implements QLinkI {
 
 	private boolean active = false;
 
+	/*
+	 * Number of time steps in which this link was simulated since the last reset.  See the same field
+	 * in AbstractQNode.
+	 */
+	/*package*/ int activityCount = 0;
+
 	private TransitQLink transitQLink;
 	
 	private final QNodeI toQNode ;
@@ -430,6 +439,10 @@ abstract class AbstractQLink implements QLinkI {
 		this.netElementActivationRegistry = qSimEngineRunner;
 	}
 
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.netElementActivationRegistry;
+	}
+
 	@Override
 	public void registerDriverAgentWaitingForCar(final MobsimDriverAgent agent) {
 		final Id<Vehicle> vehicleId = agent.getPlannedVehicleId() ;
@@ -482,6 +495,96 @@ abstract class AbstractQLink implements QLinkI {
 		return link;
 	}
 
+	/**
+	 * Writes the infrastructure part of the link; the traffic dynamics are written by the subclasses.  The transit
+	 * stop queue is not written, transit is not supported by checkpoints.
+	 */
+	void writeCheckpoint(QSimCheckpointWriter writer) throws IOException {
+		writer.writeBoolean(this.active);
+		writer.writeInt(this.activityCount);
+		writer.writeInt(this.parkedVehicles.size());
+		for (QVehicle vehicle : this.parkedVehicles.values()) {
+			writer.writeVehicle(vehicle);
+		}
+		writer.writeInt(this.additionalAgentsOnLink.size());
+		for (MobsimAgent agent : this.additionalAgentsOnLink.values()) {
+			writer.writeAgent(agent);
+		}
+		writer.writeInt(this.driversWaitingForCars.size());
+		for (Map.Entry<Id<Vehicle>, Queue<MobsimDriverAgent>> entry : this.driversWaitingForCars.entrySet()) {
+			writer.writeId(entry.getKey());
+			writer.writeInt(entry.getValue().size());
+			for (MobsimDriverAgent driver : entry.getValue()) {
+				writer.writeAgent(driver);
+			}
+		}
+		writer.writeInt(this.driversWaitingForPassengers.size());
+		for (MobsimDriverAgent driver : this.driversWaitingForPassengers.values()) {
+			writer.writeAgent(driver);
+		}
+		writer.writeInt(this.passengersWaitingForCars.size());
+		for (Map.Entry<Id<Vehicle>, Set<MobsimAgent>> entry : this.passengersWaitingForCars.entrySet()) {
+			writer.writeId(entry.getKey());
+			writer.writeInt(entry.getValue().size());
+			for (MobsimAgent passenger : entry.getValue()) {
+				writer.writeAgent(passenger);
+			}
+		}
+		writer.writeInt(this.waitingList.size());
+		for (QVehicle vehicle : this.waitingList) {
+			writer.writeVehicle(vehicle);
+		}
+	}
+
+	void readCheckpoint(QSimCheckpointReader reader) throws IOException {
+		this.active = reader.readBoolean();
+		this.activityCount = reader.readInt();
+		// the vehicles parked here when the mobsim was prepared may be somewhere else by now
+		this.parkedVehicles.clear();
+		int size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			QVehicle vehicle = (QVehicle) reader.readVehicle();
+			this.parkedVehicles.put(vehicle.getId(), vehicle);
+		}
+		this.additionalAgentsOnLink.clear();
+		size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			MobsimAgent agent = reader.readAgent();
+			this.additionalAgentsOnLink.put(agent.getId(), agent);
+		}
+		this.driversWaitingForCars.clear();
+		size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			Queue<MobsimDriverAgent> queue = new LinkedList<>();
+			this.driversWaitingForCars.put(reader.readId(Vehicle.class), queue);
+			int queueSize = reader.readInt();
+			for (int j = 0; j < queueSize; j++) {
+				queue.add((MobsimDriverAgent) reader.readAgent());
+			}
+		}
+		this.driversWaitingForPassengers.clear();
+		size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			MobsimDriverAgent driver = (MobsimDriverAgent) reader.readAgent();
+			this.driversWaitingForPassengers.put(driver.getId(), driver);
+		}
+		this.passengersWaitingForCars.clear();
+		size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			Set<MobsimAgent> passengers = new LinkedHashSet<>();
+			this.passengersWaitingForCars.put(reader.readId(Vehicle.class), passengers);
+			int setSize = reader.readInt();
+			for (int j = 0; j < setSize; j++) {
+				passengers.add(reader.readAgent());
+			}
+		}
+		this.waitingList.clear();
+		size = reader.readInt();
+		for (int i = 0; i < size; i++) {
+			this.waitingList.add((QVehicle) reader.readVehicle());
+		}
+	}
+
 	boolean isActive() {
 		return active;
 	}
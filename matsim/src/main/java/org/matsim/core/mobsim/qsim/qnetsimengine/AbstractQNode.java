@@ -48,6 +48,13 @@ abstract class AbstractQNode implements QNodeI {
 
 	// for Customizable
 	private final Map<String, Object> customAttributes = new HashMap<>();
+
+	/*
+	 * Number of time steps in which this node was simulated since the last reset.  Only written by the
+	 * runner that owns the node, and only read by the QNetsimEngine between two time steps, i.e. when the
+	 * runners are waiting at the barriers.  Used for load balancing.
+	 */
+	/*package*/ int activityCount = 0;
 	
 	final Node node;
 
@@ -73,6 +80,10 @@ abstract class AbstractQNode implements QNodeI {
 		
 		this.activator = activator;
 	}
+
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.activator;
+	}
 	
 	/**
 	 * This method is called from QueueWithBuffer.addToBuffer(...) which is triggered at 
@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Computes the assignment of the nodes of the netsim network to the {@link QNetsimEngineRunner}s.  Nodes are
+ * identified by their position in the (deterministic) iteration order of the netsim nodes; the result is an
+ * array with the index of the runner for each node.
+ * <p></p>
+ * All methods are deterministic: for the same input they return the same partition, independent of timing.
+ */
+final class NetsimNetworkPartitioner {
+
+	private NetsimNetworkPartitioner() {
+		// static methods only
+	}
+
+	/**
+	 * The classic assignment: node i goes to runner (i mod numberOfParts).
+	 */
+	static int[] roundRobin(final int numberOfNodes, final int numberOfParts) {
+		int[] partition = new int[numberOfNodes];
+		for (int i = 0; i < numberOfNodes; i++) {
+			partition[i] = i % numberOfParts;
+		}
+		return partition;
+	}
+
+	/**
+	 * Greedy "longest processing time first" assignment: the nodes are sorted by decreasing weight and each
+	 * node is assigned to the part with the currently smallest load.  Ties are broken by the node index resp.
+	 * the part index, so the result is deterministic.
+	 */
+	static int[] balanceByWeight(final long[] weights, final int numberOfParts) {
+		Integer[] order = new Integer[weights.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.<Integer>comparingLong(i -> -weights[i]).thenComparingInt(i -> i));
+
+		int[] partition = new int[weights.length];
+		long[] load = new long[numberOfParts];
+		for (Integer node : order) {
+			int lightest = 0;
+			for (int p = 1; p < numberOfParts; p++) {
+				if (load[p] < load[lightest]) {
+					lightest = p;
+				}
+			}
+			partition[node] = lightest;
+			load[lightest] += weights[node];
+		}
+		return partition;
+	}
+
+	/**
+	 * Recursive coordinate bisection: the set of nodes is split at the median (by weight) of the longer side of its
+	 * bounding box, and both halves are split further until there is one set per part.  The result are contiguous
+	 * regions of about the same weight, so that vehicles moving from one link to the next mostly stay with the same
+	 * runner.  If numberOfParts is not a power of two, the halves are split in proportion to their number of parts.
+	 */
+	static int[] recursiveCoordinateBisection(final double[] x, final double[] y, final long[] weights, final int numberOfParts) {
+		Integer[] nodes = new Integer[x.length];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = i;
+		}
+		int[] partition = new int[x.length];
+		bisect(nodes, 0, nodes.length, 0, numberOfParts, x, y, weights, partition);
+		return partition;
+	}
+
+	private static void bisect(final Integer[] nodes, final int from, final int to, final int firstPart, final int numberOfParts,
+			final double[] x, final double[] y, final long[] weights, final int[] partition) {
+		if (numberOfParts == 1) {
+			for (int i = from; i < to; i++) {
+				partition[nodes[i]] = firstPart;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		long totalWeight = 0;
+		for (int i = from; i < to; i++) {
+			int node = nodes[i];
+			minX = Math.min(minX, x[node]);
+			maxX = Math.max(maxX, x[node]);
+			minY = Math.min(minY, y[node]);
+			maxY = Math.max(maxY, y[node]);
+			totalWeight += weights[node];
+		}
+		final double[] coord = (maxX - minX >= maxY - minY) ? x : y;
+		Arrays.sort(nodes, from, to, Comparator.<Integer>comparingDouble(i -> coord[i]).thenComparingInt(i -> i));
+
+		int lowerParts = numberOfParts / 2;
+		double targetWeight = (double) totalWeight * lowerParts / numberOfParts;
+		int split = from;
+		long weight = 0;
+		while (split < to && weight + weights[nodes[split]] / 2.0 <= targetWeight) {
+			weight += weights[nodes[split]];
+			split++;
+		}
+
+		bisect(nodes, from, split, firstPart, lowerParts, x, y, weights, partition);
+		bisect(nodes, split, to, firstPart + lowerParts, numberOfParts - lowerParts, x, y, weights, partition);
+	}
+
+	/**
+	 * @return the sum of the weights per part, mostly for statistics.
+	 */
+	static long[] getLoads(final int[] partition, final long[] weights, final int numberOfParts) {
+		long[] load = new long[numberOfParts];
+		for (int i = 0; i < partition.length; i++) {
+			load[partition[i]] += weights[i];
+		}
+		return load;
+	}
+
+}
@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +29,9 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
 import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
@@ -52,7 +56,7 @@ import org.matsim.vis.snapshotwriters.VisData;
  * @author dgrether
  * @author mrieser
  */
-public final class QLinkImpl extends AbstractQLink implements SignalizeableItem {
+public final class QLinkImpl extends AbstractQLink implements SignalizeableItem, Checkpointable {
 	@SuppressWarnings("unused")
 	private final static Logger log = Logger.getLogger(QLinkImpl.class);
 	
@@ -122,6 +126,25 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		qlane.clearVehicles();
 	}
 
+	@Override
+	public void writeCheckpoint(QSimCheckpointWriter writer) throws IOException {
+		super.writeCheckpoint(writer);
+		getCheckpointableLane().writeCheckpoint(writer);
+	}
+
+	@Override
+	public void readCheckpoint(QSimCheckpointReader reader) throws IOException {
+		super.readCheckpoint(reader);
+		getCheckpointableLane().readCheckpoint(reader);
+	}
+
+	private Checkpointable getCheckpointableLane() {
+		if (!(qlane instanceof Checkpointable)) {
+			throw new RuntimeException("Lanes of type " + qlane.getClass().getName() + " do not support checkpoints.");
+		}
+		return (Checkpointable) qlane;
+	}
+
 	@Override
 	public boolean doSimStep() {
 		double now = context.getSimTimer().getTimeOfDay() ;
@@ -22,24 +22,33 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.framework.DriverAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.PassengerAgent;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
@@ -48,9 +57,10 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -69,7 +79,7 @@ import java.util.concurrent.ThreadFactory;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine, NetsimEngine {
+public class QNetsimEngine implements MobsimEngine, NetsimEngine, Checkpointable {
 
 	public interface NetsimInternalInterface {
 		QNetwork getNetsimNetwork();
@@ -95,7 +105,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private QNetwork network;
 
-	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
+	private final IdMap<Vehicle, QVehicle> vehicles = new IdMap<>(Vehicle.class);
 
 	private final QSim qsim;
 
@@ -119,6 +129,17 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final NetworkPartitioning networkPartitioning;
+	private final double loadBalancingInterval;
+	private double nextLoadBalancingTime = Double.POSITIVE_INFINITY;
+
+	// the nodes in the order used for the partitioning; partition[i] is the index of the runner of node i
+	private List<QNodeI> partitionedNodes;
+	private int[] partition;
+
+	// wall clock time (in nanoseconds) the runners needed for all time steps so far, used to compute their waiting times
+	private long stepTime = 0;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -140,6 +161,8 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.networkPartitioning = qsimConfigGroup.getNetworkPartitioning();
+		this.loadBalancingInterval = qsimConfigGroup.getLoadBalancingInterval();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -227,6 +250,27 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		 */
 
 		initQSimEngineThreads();
+
+		if (this.networkPartitioning == NetworkPartitioning.loadBalanced && this.numOfRunners > 1 && !hasOnlyAbstractNetElements()) {
+			log.warn("The netsim network contains nodes or links which are not derived from AbstractQNode and AbstractQLink. "
+					+ "Their runner cannot be changed during the simulation, so the nodes stay with their round robin runners "
+					+ "and load balancing is switched off.");
+		} else if (this.networkPartitioning == NetworkPartitioning.loadBalanced && this.numOfRunners > 1) {
+			this.nextLoadBalancingTime = internalInterface.getMobsim().getSimTimer().getSimStartTime() + this.loadBalancingInterval;
+			for (QNetsimEngineRunner engine : this.engines) {
+				engine.setCountingActivity(true);
+			}
+		}
+
+		QSimConfigGroup qsimConfig = qsim.getScenario().getConfig().qsim();
+		if (!qsimConfig.getCheckpointTimes().isEmpty() || qsimConfig.getCheckpointFile() != null) {
+			for (QLinkI link : network.getNetsimLinks().values()) {
+				if (!(link instanceof Checkpointable)) {
+					throw new RuntimeException("Links of type " + link.getClass().getName() + " do not support checkpoints; "
+							+ "remove the checkpoint settings from the qsim config group.");
+				}
+			}
+		}
 	}
 
 	@Override
@@ -240,6 +284,13 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.afterSim();
 		}
 
+		long[] busyTimes = getRunnerBusyTimes();
+		long[] waitTimes = getRunnerWaitTimes();
+		for (int i = 0; i < this.engines.size(); i++) {
+			log.info("QNetsimEngineRunner #" + i + " was busy for " + busyTimes[i] / 1000000 + " ms and waited for " 
+					+ waitTimes[i] / 1000000 + " ms.");
+		}
+
 		if (this.usingThreadpool) {
 			this.pool.shutdown();
 		} else {
@@ -267,6 +318,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	 */
 	@Override
 	public void doSimStep(final double time) {
+		if (time >= this.nextLoadBalancingTime) {
+			balanceLoad();
+			this.nextLoadBalancingTime = time + this.loadBalancingInterval;
+		}
+
 		run(time);
 
 		this.printSimLog(time);
@@ -312,6 +368,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.setTime(time);
 		}
 
+		long start = System.nanoTime();
 		if (this.usingThreadpool) {
 			try {
 				for (QNetsimEngineRunner engine : this.engines) {
@@ -335,6 +392,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
+		this.stepTime += System.nanoTime() - start;
 	}
 
 
@@ -376,6 +434,29 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 //	}
 	// do not hand out back pointers! kai, mar'16
 
+	/**
+	 * @return for every runner, the wall clock time (in nanoseconds) it spent moving nodes and links.
+	 */
+	public long[] getRunnerBusyTimes() {
+		long[] busyTimes = new long[this.engines.size()];
+		for (int i = 0; i < busyTimes.length; i++) {
+			busyTimes[i] = this.engines.get(i).getBusyTime();
+		}
+		return busyTimes;
+	}
+
+	/**
+	 * @return for every runner, the wall clock time (in nanoseconds) it spent waiting for the other runners, i.e. the
+	 * time of all netsim time steps minus its busy time.
+	 */
+	public long[] getRunnerWaitTimes() {
+		long[] waitTimes = getRunnerBusyTimes();
+		for (int i = 0; i < waitTimes.length; i++) {
+			waitTimes[i] = this.stepTime - waitTimes[i];
+		}
+		return waitTimes;
+	}
+
 	public NetsimNetwork getNetsimNetwork() {
 		return this.network;
 	}
@@ -469,9 +550,16 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		this.partitionedNodes = new ArrayList<>(network.getNetsimNodes().values());
+		if (this.networkPartitioning == NetworkPartitioning.spatial) {
+			this.partition = createSpatialPartition();
+		} else {
+			this.partition = NetsimNetworkPartitioner.roundRobin(this.partitionedNodes.size(), this.numOfRunners);
+		}
+
+		for (int n = 0; n < this.partitionedNodes.size(); n++) {
+			QNodeI node = this.partitionedNodes.get(n);
+			int i = this.partition[n];
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -497,8 +585,6 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
@@ -509,6 +595,216 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.linksToActivateInitially.clear();
 	}
 
+	/*
+	 * Contiguous regions, each with about the same number of nodes and out-links.
+	 */
+	private int[] createSpatialPartition() {
+		double[] x = new double[this.partitionedNodes.size()];
+		double[] y = new double[x.length];
+		long[] weights = new long[x.length];
+		for (int n = 0; n < x.length; n++) {
+			Node node = this.partitionedNodes.get(n).getNode();
+			x[n] = node.getCoord().getX();
+			y[n] = node.getCoord().getY();
+			weights[n] = 1 + node.getOutLinks().size();
+		}
+		return NetsimNetworkPartitioner.recursiveCoordinateBisection(x, y, weights, this.numOfRunners);
+	}
+
+	/*
+	 * Only AbstractQNode and AbstractQLink can be handed over to another runner.
+	 */
+	private boolean hasOnlyAbstractNetElements() {
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			if (!(node instanceof AbstractQNode)) {
+				return false;
+			}
+		}
+		for (QLinkI link : network.getNetsimLinks().values()) {
+			if (!(link instanceof AbstractQLink)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Re-assigns the nodes (and their out-links) to the runners according to the activity measured since the last
+	 * call, so that runners which were idle take over work from the busy ones.  This is done between two time steps
+	 * and not within them, since a link must only be activated by the runner of its from-node (see above). 
+	 * The activity is counted in simulated time steps, not measured in wall clock time, so the result is the same
+	 * for every run with the same number of threads.  It is only called if all nodes and links are AbstractQNode and
+	 * AbstractQLink, see onPrepareSim.
+	 */
+	private void balanceLoad() {
+		long[] weights = new long[this.partitionedNodes.size()];
+		for (int n = 0; n < weights.length; n++) {
+			QNodeI node = this.partitionedNodes.get(n);
+			long weight = 1; // so that nodes without any activity are still distributed evenly
+			if (node instanceof AbstractQNode) {
+				weight += ((AbstractQNode) node).activityCount;
+				((AbstractQNode) node).activityCount = 0;
+			}
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				QLinkI qLink = network.getNetsimLink(outLink.getId());
+				if (qLink instanceof AbstractQLink) {
+					weight += ((AbstractQLink) qLink).activityCount;
+					((AbstractQLink) qLink).activityCount = 0;
+				}
+			}
+			weights[n] = weight;
+		}
+
+		long[] oldLoads = NetsimNetworkPartitioner.getLoads(this.partition, weights, this.numOfRunners);
+		this.partition = NetsimNetworkPartitioner.balanceByWeight(weights, this.numOfRunners);
+		long[] newLoads = NetsimNetworkPartitioner.getLoads(this.partition, weights, this.numOfRunners);
+		log.info("re-balancing netsim runners; activity per runner during last interval: " + Arrays.toString(oldLoads)
+				+ ", expected after re-balancing: " + Arrays.toString(newLoads));
+
+		// take away the active elements from their current runners, keeping their order ...
+		List<QNodeI> activeNodes = new ArrayList<>();
+		List<QLinkI> activeLinks = new ArrayList<>();
+		for (QNetsimEngineRunner engine : this.engines) {
+			engine.removeActiveNetElements(activeNodes, activeLinks);
+		}
+
+		// ... re-assign all nodes and links ...
+		applyPartition();
+
+		// ... and hand the active elements over to their new runners.
+		for (QNodeI node : activeNodes) {
+			((AbstractQNode) node).getNetElementActivationRegistry().registerNodeAsActive(node);
+		}
+		for (QLinkI link : activeLinks) {
+			((AbstractQLink) link).getNetElementActivationRegistry().registerLinkAsActive(link);
+		}
+	}
+
+	private void applyPartition() {
+		for (int n = 0; n < this.partitionedNodes.size(); n++) {
+			QNodeI node = this.partitionedNodes.get(n);
+			QNetsimEngineRunner engine = this.engines.get(this.partition[n]);
+			if (node instanceof AbstractQNode) {
+				((AbstractQNode) node).setNetElementActivationRegistry(engine);
+			}
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				((AbstractQLink) network.getNetsimLink(outLink.getId())).setNetElementActivationRegistry(engine);
+			}
+		}
+	}
+
+	@Override
+	public void writeCheckpoint(QSimCheckpointWriter writer) throws IOException {
+		writer.writeInt(this.numOfRunners);
+		writer.writeDouble(this.nextLoadBalancingTime);
+		writer.writeInt(this.partitionedNodes.size());
+		for (int n = 0; n < this.partitionedNodes.size(); n++) {
+			AbstractQNode node = (AbstractQNode) this.partitionedNodes.get(n);
+			writer.writeInt(this.partition[n]);
+			writer.writeBoolean(node.isActive());
+			writer.writeInt(node.activityCount);
+			// with more than one thread, the nodes have random number generators of their own
+			if (node instanceof QNodeImpl && ((QNodeImpl) node).getRandom() != MatsimRandom.getRandom()) {
+				writer.writeRandom(((QNodeImpl) node).getRandom());
+			}
+		}
+
+		writer.writeInt(this.vehicles.size());
+		for (QVehicle vehicle : this.vehicles.values()) {
+			writer.writeVehicle(vehicle);
+			writer.writeDouble(vehicle.getLinkEnterTime());
+			writer.writeDouble(vehicle.getEarliestLinkExitTime());
+			writer.writeId(vehicle.getCurrentLink() == null ? null : vehicle.getCurrentLink().getId());
+			writer.writeId(vehicle.getDriver() == null ? null : vehicle.getDriver().getId());
+			writer.writeInt(vehicle.getPassengers().size());
+			for (PassengerAgent passenger : vehicle.getPassengers()) {
+				writer.writeId(passenger.getId());
+			}
+		}
+
+		// after the vehicles, since the order of the vehicles on a link depends on their times
+		for (QLinkI link : network.getNetsimLinks().values()) {
+			((Checkpointable) link).writeCheckpoint(writer);
+		}
+
+		// the order in which the runners simulate their nodes and links matters, see QNodeImpl.moveNode
+		for (QNetsimEngineRunner engine : this.engines) {
+			List<QNodeI> activeNodes = new ArrayList<>();
+			List<QLinkI> activeLinks = new ArrayList<>();
+			engine.getActiveNetElements(activeNodes, activeLinks);
+			writer.writeInt(activeNodes.size());
+			for (QNodeI node : activeNodes) {
+				writer.writeId(node.getNode().getId());
+			}
+			writer.writeInt(activeLinks.size());
+			for (QLinkI link : activeLinks) {
+				writer.writeId(link.getLink().getId());
+			}
+		}
+	}
+
+	@Override
+	public void readCheckpoint(QSimCheckpointReader reader) throws IOException {
+		int numberOfRunners = reader.readInt();
+		if (numberOfRunners != this.numOfRunners) {
+			throw new IOException("The checkpoint was written with " + numberOfRunners + " netsim runners, but there are "
+					+ this.numOfRunners + " now.  Use the same number of threads as the run that wrote the checkpoint.");
+		}
+		this.nextLoadBalancingTime = reader.readDouble();
+		int numberOfNodes = reader.readInt();
+		if (numberOfNodes != this.partitionedNodes.size()) {
+			throw new IOException("The checkpoint was written for a network with " + numberOfNodes + " nodes, but there are "
+					+ this.partitionedNodes.size() + " now.");
+		}
+		for (int n = 0; n < numberOfNodes; n++) {
+			AbstractQNode node = (AbstractQNode) this.partitionedNodes.get(n);
+			this.partition[n] = reader.readInt();
+			node.setActive(reader.readBoolean());
+			node.activityCount = reader.readInt();
+			if (node instanceof QNodeImpl && ((QNodeImpl) node).getRandom() != MatsimRandom.getRandom()) {
+				reader.readRandom(((QNodeImpl) node).getRandom());
+			}
+		}
+
+		int numberOfVehicles = reader.readInt();
+		for (int i = 0; i < numberOfVehicles; i++) {
+			QVehicle vehicle = (QVehicle) reader.readVehicle();
+			vehicle.setLinkEnterTime(reader.readDouble());
+			vehicle.setEarliestLinkExitTime(reader.readDouble());
+			Id<Link> linkId = reader.readId(Link.class);
+			vehicle.setCurrentLink(linkId == null ? null : network.getNetsimLink(linkId).getLink());
+			vehicle.setDriver(null);
+			vehicle.setDriver((DriverAgent) reader.readAgent());
+			for (PassengerAgent passenger : new ArrayList<>(vehicle.getPassengers())) {
+				vehicle.removePassenger(passenger);
+			}
+			int numberOfPassengers = reader.readInt();
+			for (int j = 0; j < numberOfPassengers; j++) {
+				vehicle.addPassenger((PassengerAgent) reader.readAgent());
+			}
+		}
+
+		for (QLinkI link : network.getNetsimLinks().values()) {
+			((Checkpointable) link).readCheckpoint(reader);
+		}
+
+		// the links which were activated initially are replaced by the ones active at the checkpoint
+		for (QNetsimEngineRunner engine : this.engines) {
+			engine.removeActiveNetElements(new ArrayList<>(), new ArrayList<>());
+		}
+		applyPartition();
+		for (QNetsimEngineRunner engine : this.engines) {
+			int size = reader.readInt();
+			for (int i = 0; i < size; i++) {
+				engine.registerNodeAsActive(network.getNetsimNodes().get(reader.readId(Node.class)));
+			}
+			size = reader.readInt();
+			for (int i = 0; i < size; i++) {
+				engine.registerLinkAsActive(network.getNetsimLink(reader.readId(Link.class)));
+			}
+		}
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -76,6 +76,18 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * If true, the activityCount of every simulated node and link is increased.  This is used by the
+	 * QNetsimEngine to re-balance the load between the runners.
+	 */
+	private boolean countingActivity = false;
+
+	/*
+	 * Wall clock time (in nanoseconds) spent in moveNodes() and moveLinks().  Everything else the runner spends
+	 * within a time step is waiting for the other runners.
+	 */
+	private long busyTime = 0;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -165,30 +177,61 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		}
 	}
 	private void moveNodes() {
+		long start = System.nanoTime();
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNodeI node;
 		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.countingActivity && node instanceof AbstractQNode) ((AbstractQNode) node).activityCount++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
+		this.busyTime += System.nanoTime() - start;
 	}
 	private void moveLinks() {
+		long start = System.nanoTime();
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
 		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			if (this.countingActivity && link instanceof AbstractQLink) ((AbstractQLink) link).activityCount++;
 
 			remainsActive = link.doSimStep();
 
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
+		this.busyTime += System.nanoTime() - start;
+	}
+
+	/*
+	 * Moves all currently active nodes and links to the given lists, keeping their order.  Must only be called
+	 * between two time steps, i.e. while the runner is neither moving nodes nor links.  Used when nodes are
+	 * re-assigned to other runners.
+	 */
+	/*package*/ void getActiveNetElements(List<QNodeI> activeNodes, List<QLinkI> activeLinks) {
+		activeNodes.addAll(this.nodesQueue);
+		activeLinks.addAll(this.linksList);
+	}
+
+	/*package*/ void removeActiveNetElements(List<QNodeI> activeNodes, List<QLinkI> activeLinks) {
+		activeNodes.addAll(this.nodesQueue);
+		this.nodesQueue.clear();
+		activeLinks.addAll(this.linksList);
+		this.linksList.clear();
+	}
+
+	/*package*/ void setCountingActivity(boolean countingActivity) {
+		this.countingActivity = countingActivity;
+	}
+
+	/*package*/ long getBusyTime() {
+		return this.busyTime;
 	}
 
 	/*
@@ -90,6 +90,10 @@ final class QNodeImpl extends AbstractQNode {
 		}
 	}
 	
+	/*package*/ Random getRandom() {
+		return this.random;
+	}
+
 	/**
 	 * Loads the inLinks-array with the corresponding links.
 	 * Cannot be called in constructor, as the queueNetwork does not yet know
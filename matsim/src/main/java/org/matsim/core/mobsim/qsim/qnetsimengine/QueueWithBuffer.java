@@ -33,6 +33,9 @@ import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
+import org.matsim.core.mobsim.qsim.QSimCheckpointReader;
+import org.matsim.core.mobsim.qsim.QSimCheckpointWriter;
+import org.matsim.core.mobsim.qsim.interfaces.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
 import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
@@ -51,6 +54,7 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.VisVehicle;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -70,7 +74,7 @@ import java.util.*;
  *
  * @author nagel
  */
-final class QueueWithBuffer implements QLaneI, SignalizeableItem {
+final class QueueWithBuffer implements QLaneI, SignalizeableItem, Checkpointable {
 	private static final Logger log = Logger.getLogger( QueueWithBuffer.class ) ;
 
 	static final class Builder implements LaneFactory {
@@ -866,6 +870,79 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		this.recalcTimeVariantAttributes();
 	}
 
+	@Override
+	public void writeCheckpoint( final QSimCheckpointWriter writer ) throws IOException {
+		if ( qSignalizedItem != null ) {
+			throw new RuntimeException( "signalized lanes do not support checkpoints." ) ;
+		}
+		writer.writeDouble( flowcap_accumulate.getTimeStep() );
+		writer.writeDouble( flowcap_accumulate.getValue() );
+		writer.writeBoolean( thisTimeStepGreen );
+		// the capacities may have been changed by network change events
+		writer.writeDouble( unscaledFlowCapacity_s );
+		writer.writeDouble( effectiveNumberOfLanes );
+		writer.writeDouble( inverseFlowCapacityPerTimeStep );
+		writer.writeDouble( flowCapacityPerTimeStep );
+		writer.writeDouble( storageCapacity );
+		writer.writeDouble( usedStorageCapacity );
+		writer.writeDouble( remainingHolesStorageCapacity );
+		writer.writeDouble( maxFlowFromFdiag );
+		writer.writeDouble( accumulatedInflowCap );
+		writer.writeInt( noOfSeepModeBringFwd );
+		writer.writeDouble( bufferLastMovedTime );
+		writer.writeInt( holes.size() );
+		for ( Hole hole : holes ) {
+			writer.writeDouble( hole.getEarliestLinkExitTime() );
+			writer.writeDouble( hole.getSizeInEquivalents() );
+		}
+		// in iteration order, which for the PassingVehicleQ is the order of its heap; adding the vehicles in this
+		// order rebuilds exactly the same heap
+		writer.writeInt( vehQueue.size() );
+		for ( QVehicle veh : vehQueue ) {
+			writer.writeVehicle( veh );
+		}
+		writer.writeInt( buffer.size() );
+		for ( QVehicle veh : buffer ) {
+			writer.writeVehicle( veh );
+		}
+	}
+
+	@Override
+	public void readCheckpoint( final QSimCheckpointReader reader ) throws IOException {
+		flowcap_accumulate.setTimeStep( reader.readDouble() );
+		flowcap_accumulate.setValue( reader.readDouble() );
+		thisTimeStepGreen = reader.readBoolean();
+		unscaledFlowCapacity_s = reader.readDouble();
+		effectiveNumberOfLanes = reader.readDouble();
+		inverseFlowCapacityPerTimeStep = reader.readDouble();
+		flowCapacityPerTimeStep = reader.readDouble();
+		storageCapacity = reader.readDouble();
+		usedStorageCapacity = reader.readDouble();
+		remainingHolesStorageCapacity = reader.readDouble();
+		maxFlowFromFdiag = reader.readDouble();
+		accumulatedInflowCap = reader.readDouble();
+		noOfSeepModeBringFwd = reader.readInt();
+		bufferLastMovedTime = reader.readDouble();
+		holes.clear();
+		int size = reader.readInt();
+		for ( int i = 0; i < size; i++ ) {
+			Hole hole = new Hole();
+			hole.setEarliestLinkExitTime( reader.readDouble() );
+			hole.setSizeInEquivalents( reader.readDouble() );
+			holes.add( hole );
+		}
+		vehQueue.clear();
+		size = reader.readInt();
+		for ( int i = 0; i < size; i++ ) {
+			vehQueue.add( (QVehicle) reader.readVehicle() );
+		}
+		buffer.clear();
+		size = reader.readInt();
+		for ( int i = 0; i < size; i++ ) {
+			buffer.add( (QVehicle) reader.readVehicle() );
+		}
+	}
+
 	@Override public Id<Lane> getId() {
 		return this.id;
 	}
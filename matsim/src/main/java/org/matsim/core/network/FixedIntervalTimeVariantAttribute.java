@@ -36,11 +36,22 @@ implements TimeVariantAttribute
 	private final int timeSlice;
 	private final int numSlots;
 
-	private double baseValue;
-	private double[] values;
-
-	private int eventsCount = 0;
-	private int eventsCountWhenLastRecalc = -1;
+	private volatile int eventsCount = 0;
+	private volatile int version = 0;
+	// replaced as a whole by recalc, so that getValue can be called without synchronization
+	private volatile Bins bins = null;
+
+	private static final class Bins {
+		private final double baseValue;
+		private final double[] values;
+		private final int version;
+
+		private Bins(double baseValue, double[] values, int version) {
+			this.baseValue = baseValue;
+			this.values = values;
+			this.version = version;
+		}
+	}
 
 
 	public FixedIntervalTimeVariantAttribute(int timeSlice, int maxTime)
@@ -53,7 +64,8 @@ implements TimeVariantAttribute
 	@Override
 	public boolean isRecalcRequired()
 	{
-		return eventsCountWhenLastRecalc != eventsCount;
+		Bins bins = this.bins;
+		return bins == null || bins.version != version;
 	}
 
 
@@ -62,18 +74,17 @@ implements TimeVariantAttribute
 	public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
 			ChangeValueGetter valueGetter, double baseValue1)
 	{
-		this.baseValue = baseValue1;
-
+		int eventsCount = this.eventsCount;
 		if (eventsCount == 0) {
+			this.bins = new Bins(baseValue1, null, version);
 			return;
 		}
 
 		//To save memory, the array is constructed only if there is at least one ChangeEvent.
 		//This saves a lot of memory in cases when only one attribute is time variant, while
 		//the remaining two are invariant.
-		if (values == null) {
-			values = new double[numSlots];
-		}
+		//A new array is needed for each recalc, as readers may still use the previous one.
+		double[] values = new double[numSlots];
 
 		int numEvent = 0;
 		int fromBin = 0;//inclusive
@@ -105,24 +116,25 @@ implements TimeVariantAttribute
 			}
 		}
 		Arrays.fill(values, fromBin, values.length, currentValue);
-		eventsCountWhenLastRecalc = eventsCount;
 
-		if (numEvent != this.eventsCount) {
-			throw new RuntimeException("Expected number of change events (" + (this.eventsCount)
+		if (numEvent != eventsCount) {
+			throw new RuntimeException("Expected number of change events (" + eventsCount
 					+ ") differs from the number of events found (" + numEvent + ")!");
 		}
+		this.bins = new Bins(baseValue1, values, version);
 	}
 
 
 	@Override
 	public double getValue(final double time)
 	{
-		if (Time.isUndefinedTime(time) || eventsCount == 0) {
-			return baseValue;
+		Bins bins = this.bins;
+		if (Time.isUndefinedTime(time) || bins.values == null) {
+			return bins.baseValue;
 		}
 
 		int bin = TimeBinUtils.getTimeBinIndex(time, timeSlice, numSlots);
-		return values[bin];
+		return bins.values[bin];
 	}
 
 
@@ -130,14 +142,15 @@ implements TimeVariantAttribute
 	public void incChangeEvents()
 	{
 		eventsCount++;
+		version++;
 	}
 
 
 	@Override
 	public void clearEvents()
 	{
+		// the old bins stay visible to concurrent readers until the next recalc
 		eventsCount = 0;
-		eventsCountWhenLastRecalc = -1;
-		values = null;
+		version++;
 	}
 }
@@ -55,10 +55,12 @@ import java.util.*;
 
 	private final IdMap<Link, Link> links = new IdMap<>(Link.class);
 
-	private QuadTree<Node> nodeQuadTree = null;
+	private volatile QuadTree<Node> nodeQuadTree = null;
 
 	private LinkQuadTree linkQuadTree = null;
 
+	private volatile PackedLinkRTree linkRTree = null;
+
 	private static final double DEFAULT_EFFECTIVE_CELL_SIZE = 7.5;
 
 	private double effectiveCellSize = DEFAULT_EFFECTIVE_CELL_SIZE;
@@ -125,6 +127,9 @@ import java.util.*;
 
 		links.put(link.getId(), link);
 
+		// the packed tree cannot be changed, it is built again when it is needed the next time
+		this.linkRTree = null;
+
 		if (this.linkQuadTree != null) {
 			double linkMinX = Math.min(link.getFromNode().getCoord().getX(), link.getToNode().getCoord().getX());
 			double linkMaxX = Math.max(link.getFromNode().getCoord().getX(), link.getToNode().getCoord().getX());
@@ -233,6 +238,7 @@ import java.util.*;
 		l.getFromNode().removeOutLink(l.getId()) ;
 		l.getToNode().removeInLink(l.getId()) ;
 
+		this.linkRTree = null;
 		if (this.linkQuadTree != null) {
 			this.linkQuadTree.remove(l);
 		}
@@ -340,10 +346,11 @@ import java.util.*;
 	}
 
 	@Override public Link getNearestLinkExactly(final Coord coord) {
-		if (this.linkQuadTree == null) {
-			buildLinkQuadTree();
+		PackedLinkRTree tree = this.linkRTree;
+		if (tree == null) {
+			tree = buildLinkRTree();
 		}
-		return this.linkQuadTree.getNearest(coord.getX(), coord.getY());
+		return tree.getNearest(coord.getX(), coord.getY());
 	}
 
 	/**
@@ -419,10 +426,8 @@ import java.util.*;
 		// yy the above four lines are problematic if the coordinate values are much smaller than one. kai, oct'15
 
 		log.info("building QuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		QuadTree<Node> quadTree = new QuadTree<>(minx, miny, maxx, maxy);
-		for (Node n : this.nodes.values()) {
-			quadTree.put(n.getCoord().getX(), n.getCoord().getY(), n);
-		}
+		QuadTree<Node> quadTree = new QuadTree<>(minx, miny, maxx, maxy, this.nodes.values(),
+				n -> n.getCoord().getX(), n -> n.getCoord().getY());
 		/* assign the quadTree at the very end, when it is complete.
 		 * otherwise, other threads may already start working on an incomplete quadtree
 		 */
@@ -430,6 +435,17 @@ import java.util.*;
 		log.info("Building QuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
 	}
 
+	synchronized private PackedLinkRTree buildLinkRTree() {
+		if (this.linkRTree != null) {
+			return this.linkRTree;
+		}
+		double startTime = System.currentTimeMillis();
+		PackedLinkRTree tree = new PackedLinkRTree(this.links.values());
+		this.linkRTree = tree;
+		log.info("Building PackedLinkRTree for " + tree.size() + " links took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return tree;
+	}
+
 	synchronized private void buildLinkQuadTree() {
 		if (this.linkQuadTree != null) {
 			return;
@@ -502,6 +518,9 @@ import java.util.*;
 		return attributes;
 	}
 	@Override public final LinkQuadTree getLinkQuadTree() {
+		if (this.linkQuadTree == null) {
+			buildLinkQuadTree();
+		}
 		return this.linkQuadTree ;
 	}
 	@Override public final QuadTree<Node> getNodeQuadTree() {
@@ -0,0 +1,308 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedLinkRTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * A static spatial index to find the link nearest to a point, for large networks.
+ * <p></p>
+ * The links are sorted once along a Hilbert curve through the centers of their segments, and groups of
+ * {@value #NODE_CAPACITY} consecutive links form the leaves of an R-tree, groups of consecutive leaves the next level,
+ * and so on (a packed Hilbert R-tree).  As the children of every tree node are consecutive, the whole tree is stored in
+ * a few primitive arrays without any object per link or tree node, and building it is mostly one parallel sort.
+ * <p></p>
+ * In contrast to {@link LinkQuadTree}, the tree cannot be changed after it was built. Queries do not change any state
+ * and may be run from several threads concurrently. If several links have the same distance to a point, the one
+ * which came first in the collection given to the constructor is returned, independent of the shape of the tree.
+ */
+public final class PackedLinkRTree {
+
+	private static final int NODE_CAPACITY = 16;
+
+	/** below this number of links, the construction is not parallelized */
+	private static final int PARALLEL_THRESHOLD = 10000;
+
+	// the links and their segments, in the order of the Hilbert curve
+	private final Link[] links;
+	private final int[] inputIndex;
+	private final double[] fromX;
+	private final double[] fromY;
+	private final double[] toX;
+	private final double[] toY;
+
+	// the bounding boxes of the tree nodes of all levels, starting with the leaves, ending with the root
+	private final int[] levelStart;
+	private final int[] levelSize;
+	private final double[] minX;
+	private final double[] minY;
+	private final double[] maxX;
+	private final double[] maxY;
+
+	public PackedLinkRTree(final Collection<? extends Link> links) {
+		Link[] input = links.toArray(new Link[0]);
+		int n = input.length;
+
+		double boundsMinX = Double.POSITIVE_INFINITY;
+		double boundsMinY = Double.POSITIVE_INFINITY;
+		double boundsMaxX = Double.NEGATIVE_INFINITY;
+		double boundsMaxY = Double.NEGATIVE_INFINITY;
+		for (Link link : input) {
+			double cx = centerX(link);
+			double cy = centerY(link);
+			boundsMinX = Math.min(boundsMinX, cx);
+			boundsMinY = Math.min(boundsMinY, cy);
+			boundsMaxX = Math.max(boundsMaxX, cx);
+			boundsMaxY = Math.max(boundsMaxY, cy);
+		}
+		double originX = boundsMinX;
+		double originY = boundsMinY;
+		double scaleX = boundsMaxX > boundsMinX ? 65535.0 / (boundsMaxX - boundsMinX) : 0.0;
+		double scaleY = boundsMaxY > boundsMinY ? 65535.0 / (boundsMaxY - boundsMinY) : 0.0;
+
+		// the position on the Hilbert curve in the upper bits, the index of the link in the lower bits
+		long[] keys = new long[n];
+		range(n).forEach(i -> {
+			int hx = (int) ((centerX(input[i]) - originX) * scaleX);
+			int hy = (int) ((centerY(input[i]) - originY) * scaleY);
+			keys[i] = (hilbertIndex(hx, hy) << 31) | i;
+		});
+		Arrays.parallelSort(keys);
+
+		this.links = new Link[n];
+		this.inputIndex = new int[n];
+		this.fromX = new double[n];
+		this.fromY = new double[n];
+		this.toX = new double[n];
+		this.toY = new double[n];
+		range(n).forEach(i -> {
+			int index = (int) (keys[i] & Integer.MAX_VALUE);
+			Link link = input[index];
+			this.links[i] = link;
+			this.inputIndex[i] = index;
+			this.fromX[i] = link.getFromNode().getCoord().getX();
+			this.fromY[i] = link.getFromNode().getCoord().getY();
+			this.toX[i] = link.getToNode().getCoord().getX();
+			this.toY[i] = link.getToNode().getCoord().getY();
+		});
+
+		int levels = 0;
+		int totalSize = 0;
+		for (int size = n; size > 1 || levels == 0; levels++) {
+			size = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			totalSize += size;
+			if (n == 0) {
+				break;
+			}
+		}
+		this.levelStart = new int[levels];
+		this.levelSize = new int[levels];
+		this.minX = new double[totalSize];
+		this.minY = new double[totalSize];
+		this.maxX = new double[totalSize];
+		this.maxY = new double[totalSize];
+		int start = 0;
+		int childCount = n;
+		for (int level = 0; level < levels; level++) {
+			int size = (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			this.levelStart[level] = start;
+			this.levelSize[level] = size;
+			int currentLevel = level;
+			int currentChildCount = childCount;
+			range(size).forEach(node -> computeBounds(currentLevel, node, currentChildCount));
+			start += size;
+			childCount = size;
+		}
+	}
+
+	private static IntStream range(final int n) {
+		IntStream range = IntStream.range(0, n);
+		return n >= PARALLEL_THRESHOLD ? range.parallel() : range;
+	}
+
+	private void computeBounds(final int level, final int node, final int childCount) {
+		double nodeMinX = Double.POSITIVE_INFINITY;
+		double nodeMinY = Double.POSITIVE_INFINITY;
+		double nodeMaxX = Double.NEGATIVE_INFINITY;
+		double nodeMaxY = Double.NEGATIVE_INFINITY;
+		int end = Math.min(childCount, (node + 1) * NODE_CAPACITY);
+		for (int child = node * NODE_CAPACITY; child < end; child++) {
+			if (level == 0) {
+				nodeMinX = Math.min(nodeMinX, Math.min(this.fromX[child], this.toX[child]));
+				nodeMinY = Math.min(nodeMinY, Math.min(this.fromY[child], this.toY[child]));
+				nodeMaxX = Math.max(nodeMaxX, Math.max(this.fromX[child], this.toX[child]));
+				nodeMaxY = Math.max(nodeMaxY, Math.max(this.fromY[child], this.toY[child]));
+			} else {
+				int c = this.levelStart[level - 1] + child;
+				nodeMinX = Math.min(nodeMinX, this.minX[c]);
+				nodeMinY = Math.min(nodeMinY, this.minY[c]);
+				nodeMaxX = Math.max(nodeMaxX, this.maxX[c]);
+				nodeMaxY = Math.max(nodeMaxY, this.maxY[c]);
+			}
+		}
+		int index = this.levelStart[level] + node;
+		this.minX[index] = nodeMinX;
+		this.minY[index] = nodeMinY;
+		this.maxX[index] = nodeMaxX;
+		this.maxY[index] = nodeMaxY;
+	}
+
+	/**
+	 * @return the link with the shortest distance between its segment (from the from-node to the to-node) and x/y, or
+	 *         <code>null</code> if the tree is empty
+	 */
+	public Link getNearest(final double x, final double y) {
+		if (this.links.length == 0) {
+			return null;
+		}
+		int levels = this.levelStart.length;
+		// depth-first search, always continuing with the closest tree node; at most NODE_CAPACITY nodes per level are on the stack
+		int stackCapacity = levels * NODE_CAPACITY + 1;
+		int[] stackNode = new int[stackCapacity];
+		int[] stackLevel = new int[stackCapacity];
+		double[] stackDistance = new double[stackCapacity];
+		int stackSize = 1;
+		stackNode[0] = 0;
+		stackLevel[0] = levels - 1;
+
+		double bestDistance = Double.POSITIVE_INFINITY;
+		int best = -1;
+		while (stackSize > 0) {
+			stackSize--;
+			if (stackDistance[stackSize] > bestDistance) {
+				continue;
+			}
+			int node = stackNode[stackSize];
+			int level = stackLevel[stackSize];
+			int childCount = level == 0 ? this.links.length : this.levelSize[level - 1];
+			int end = Math.min(childCount, (node + 1) * NODE_CAPACITY);
+			if (level == 0) {
+				for (int i = node * NODE_CAPACITY; i < end; i++) {
+					double distance = calcLineSegmentDistanceIndicator(x, y, i);
+					if (distance < bestDistance || (distance == bestDistance && this.inputIndex[i] < this.inputIndex[best])) {
+						bestDistance = distance;
+						best = i;
+					}
+				}
+				continue;
+			}
+			// push the children such that the closest one is on top of the stack
+			int first = stackSize;
+			for (int child = node * NODE_CAPACITY; child < end; child++) {
+				double distance = calcBoxDistanceIndicator(x, y, this.levelStart[level - 1] + child);
+				if (distance > bestDistance) {
+					continue;
+				}
+				int pos = stackSize++;
+				while (pos > first && stackDistance[pos - 1] < distance) {
+					stackNode[pos] = stackNode[pos - 1];
+					stackLevel[pos] = stackLevel[pos - 1];
+					stackDistance[pos] = stackDistance[pos - 1];
+					pos--;
+				}
+				stackNode[pos] = child;
+				stackLevel[pos] = level - 1;
+				stackDistance[pos] = distance;
+			}
+		}
+		return this.links[best];
+	}
+
+	/** @return the number of links in the tree */
+	public int size() {
+		return this.links.length;
+	}
+
+	private double calcBoxDistanceIndicator(final double x, final double y, final int node) {
+		double dx = x < this.minX[node] ? this.minX[node] - x : (x > this.maxX[node] ? x - this.maxX[node] : 0.0);
+		double dy = y < this.minY[node] ? this.minY[node] - y : (y > this.maxY[node] ? y - this.maxY[node] : 0.0);
+		return dx * dx + dy * dy;
+		// (no Math.sqrt(), as it's only used to compare to each other)
+	}
+
+	/** The same as in {@link LinkQuadTree}, but with the coordinates from the arrays. */
+	private double calcLineSegmentDistanceIndicator(final double x, final double y, final int i) {
+		double fx = this.fromX[i];
+		double fy = this.fromY[i];
+		double lineDX = this.toX[i] - fx;
+		double lineDY = this.toY[i] - fy;
+
+		if ((lineDX == 0.0) && (lineDY == 0.0)) {
+			// the line segment is a point without dimension
+			return calcDistanceIndicator(fx, fy, x, y);
+		}
+
+		double u = ((x - fx) * lineDX + (y - fy) * lineDY) / (lineDX * lineDX + lineDY * lineDY);
+
+		if (u <= 0) {
+			// (x | y) is not on the line segment, but before lineFrom
+			return calcDistanceIndicator(fx, fy, x, y);
+		}
+		if (u >= 1) {
+			// (x | y) is not on the line segment, but after lineTo
+			return calcDistanceIndicator(fx + lineDX, fy + lineDY, x, y);
+		}
+		return calcDistanceIndicator(fx + u * lineDX, fy + u * lineDY, x, y);
+	}
+
+	private static double calcDistanceIndicator(final double fromX, final double fromY, final double toX, final double toY) {
+		double xDiff = toX - fromX;
+		double yDiff = toY - fromY;
+		return (xDiff * xDiff) + (yDiff * yDiff);
+	}
+
+	private static double centerX(final Link link) {
+		return (link.getFromNode().getCoord().getX() + link.getToNode().getCoord().getX()) / 2;
+	}
+
+	private static double centerY(final Link link) {
+		return (link.getFromNode().getCoord().getY() + link.getToNode().getCoord().getY()) / 2;
+	}
+
+	/**
+	 * @return the position of x/y, both in [0, 65535], on a Hilbert curve through a grid of 65536 x 65536 cells
+	 */
+	/*package*/ static long hilbertIndex(int x, int y) {
+		final int n = 1 << 16;
+		long d = 0;
+		for (int s = n / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant, so that the curve is continuous
+			if (ry == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+}
@@ -39,6 +39,10 @@ public interface SearchableNetwork {
 
 	QuadTree<Node> getNodeQuadTree();
 
+	/**
+	 * @return a {@link LinkQuadTree} of the links, which is built on first use.  {@link #getNearestLinkExactly(Coord)}
+	 * uses a {@link PackedLinkRTree} instead, which is faster to build and to query on large networks.
+	 */
 	LinkQuadTree getLinkQuadTree();
 
 }
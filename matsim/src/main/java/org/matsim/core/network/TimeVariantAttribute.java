@@ -24,6 +24,13 @@ import java.util.TreeMap;
 import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 
 
+/**
+ * The values of one attribute of a {@link TimeVariantLinkImpl} over the day.
+ * <p></p>
+ * {@link #isRecalcRequired()} and {@link #getValue(double)} may be called from several threads without
+ * synchronization.  The other methods are called while holding the lock of the link; {@link #recalc} has to publish
+ * its result at once, so that concurrent readers see either the old or the new values, but never a mix of them.
+ */
 public interface TimeVariantAttribute
 {
 	interface ChangeValueGetter {
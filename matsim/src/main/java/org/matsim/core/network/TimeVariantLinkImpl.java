@@ -38,6 +38,9 @@ import org.matsim.api.core.v01.network.*;
 
 	private TreeMap<Double,NetworkChangeEvent> changeEvents;
 
+	// The getters for a time only take the lock of the link if the values of an attribute have to be recomputed after
+	// a change, i.e. routers and the mobsim read them concurrently without contention.  Changes of the events and the
+	// recalculations are synchronized; the attributes publish recomputed values at once (see TimeVariantAttribute).
 	private final TimeVariantAttribute variableFreespeed;
 	private final TimeVariantAttribute variableFlowCapacity;
 	private final TimeVariantAttribute variableLanes;
@@ -121,10 +124,10 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the freespeed at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFreespeed(final double time) {
+	public double getFreespeed(final double time) {
 
 		if (variableFreespeed.isRecalcRequired()) {
-			recalcFreespeed();
+			recalcFreespeedIfRequired();
 		}
 
 		return variableFreespeed.getValue(time);
@@ -147,10 +150,10 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the flow capacity at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFlowCapacityPerSec(final double time) {
+	public double getFlowCapacityPerSec(final double time) {
 
 		if (variableFlowCapacity.isRecalcRequired()) {
-			recalcFlowCapacity();
+			recalcFlowCapacityIfRequired();
 		}
 
 		return variableFlowCapacity.getValue(time);
@@ -171,10 +174,17 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the capacity per network's capperiod timestep
 	 */
 	@Override
-	public synchronized double getCapacity(final double time) {
+	public double getCapacity(final double time) {
 		return getFlowCapacityPerSec(time) * getCapacityPeriod();
 	}
 
+	// checked again with the lock held, as another thread may have recalculated while this one was waiting for it
+	private synchronized void recalcFlowCapacityIfRequired() {
+		if (variableFlowCapacity.isRecalcRequired()) {
+			recalcFlowCapacity();
+		}
+	}
+
 	private synchronized void recalcFlowCapacity() {
 		double baseFlowCapacityPerSec = this.getCapacity() / getCapacityPeriod();
 		variableFlowCapacity.recalc(changeEvents, TimeVariantAttribute.FLOW_CAPACITY_GETTER, baseFlowCapacityPerSec);
@@ -193,9 +203,9 @@ import org.matsim.api.core.v01.network.*;
 	 * encode the (min) width of the link to calculate the flow capacity - [GL] 13may08
 	 */
 	@Override
-	public synchronized double getNumberOfLanes(final double time) {
+	public double getNumberOfLanes(final double time) {
 		if (variableLanes.isRecalcRequired()) {
-			recalcLanes();
+			recalcLanesIfRequired();
 		}
 
 		return variableLanes.getValue(time);
@@ -208,10 +218,22 @@ import org.matsim.api.core.v01.network.*;
 	}
 
 
+	private synchronized void recalcFreespeedIfRequired() {
+		if (variableFreespeed.isRecalcRequired()) {
+			recalcFreespeed();
+		}
+	}
+
 	private synchronized void recalcFreespeed() {
 		variableFreespeed.recalc(changeEvents, TimeVariantAttribute.FREESPEED_GETTER, this.getFreespeed() );
 	}
 
+	private synchronized void recalcLanesIfRequired() {
+		if (variableLanes.isRecalcRequired()) {
+			recalcLanes();
+		}
+	}
+
 	private synchronized void recalcLanes() {
 		variableLanes.recalc(changeEvents, TimeVariantAttribute.LANES_GETTER, this.getNumberOfLanes() );
 	}
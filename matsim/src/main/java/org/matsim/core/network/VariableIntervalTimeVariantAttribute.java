@@ -27,18 +27,32 @@ import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 final class VariableIntervalTimeVariantAttribute
 implements TimeVariantAttribute
 {
-	private int aEvents = 1;
-	private double[] aValues;
-	private double[] aTimes;
+	private volatile int aEvents = 1;
+	private volatile int version = 0;
+	// replaced as a whole by recalc, so that getValue can be called without synchronization
+	private volatile StepFunction function = null;
+
+	private static final class StepFunction {
+		private final double[] aTimes;
+		private final double[] aValues;
+		private final int version;
+
+		private StepFunction(double[] aTimes, double[] aValues, int version) {
+			this.aTimes = aTimes;
+			this.aValues = aValues;
+			this.version = version;
+		}
+	}
 
 
 	@Override
 	public boolean isRecalcRequired()
 	{
-		return (this.aTimes == null) || (this.aTimes.length != this.aEvents);
+		StepFunction function = this.function;
+		return (function == null) || (function.version != this.version);
 		// The first condition just says if there is no material, we don't need to do anything.
-		// yyyy The second condition is a bit weird.  It essentially checks if the cached data structure (aTimes) has
-		// as many entries as it should have (given by aEvents).  This does need, however, an honest calling of
+		// yyyy The second condition is a bit weird.  It essentially checks if the cached data structure (function) was
+		// computed after the last change of the events (counted by version).  This does need, however, an honest calling of
 		// incChangeEvents().  Why not just compare aTimes.length to changeEvents.length?
 		// Counterargument might be that we may not have changeEvents.length available when we call isRecalcRequired().
 		// I do think, however, that this does not happen and also cannot happen, because we need the info anyway for recalculation.
@@ -52,10 +66,10 @@ implements TimeVariantAttribute
 	public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
 			ChangeValueGetter valueGetter, double baseValue)
 	{
-		this.aTimes = new double[this.aEvents];
-		this.aValues = new double[this.aEvents];
-		this.aTimes[0] = Double.NEGATIVE_INFINITY;
-		this.aValues[0] = baseValue;
+		double[] aTimes = new double[this.aEvents];
+		double[] aValues = new double[this.aEvents];
+		aTimes[0] = Double.NEGATIVE_INFINITY;
+		aValues[0] = baseValue;
 
 		int numEvent = 0;
 		if (changeEvents != null) {
@@ -66,19 +80,19 @@ implements TimeVariantAttribute
 					switch( value.getType() ) {
 					case ABSOLUTE_IN_SI_UNITS:
 						// here, we just need to replace the value:
-						this.aValues[++numEvent] = value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						aValues[++numEvent] = value.getValue();
+						aTimes[numEvent] = event.getStartTime();
 						break;
 					case FACTOR: {
 						// there, the change event multiplies what we have so far:
-						double currentValue = this.aValues[numEvent];
-						this.aValues[++numEvent] = currentValue * value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						double currentValue = aValues[numEvent];
+						aValues[++numEvent] = currentValue * value.getValue();
+						aTimes[numEvent] = event.getStartTime();
 						break; }
 					case OFFSET_IN_SI_UNITS: {
-						double currentValue = this.aValues[numEvent];
-						this.aValues[++numEvent] = currentValue + value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						double currentValue = aValues[numEvent];
+						aValues[++numEvent] = currentValue + value.getValue();
+						aTimes[numEvent] = event.getStartTime();
 						break; }
 					default:
 						throw new RuntimeException( "unknown ChangeType" ) ;
@@ -91,6 +105,7 @@ implements TimeVariantAttribute
 			throw new RuntimeException("Expected number of change events (" + (this.aEvents - 1)
 					+ ") differs from the number of events found (" + numEvent + ")!");
 		}
+		this.function = new StepFunction(aTimes, aValues, this.version);
 	}
 
 
@@ -98,9 +113,10 @@ implements TimeVariantAttribute
 	public double getValue(final double time)
 	{
 		// after we have put everything into an array by recalc, we just need a binary search:
-		int key = Arrays.binarySearch(this.aTimes, time);
+		StepFunction function = this.function;
+		int key = Arrays.binarySearch(function.aTimes, time);
 		key = key >= 0 ? key : -key - 2;
-		return this.aValues[key];
+		return function.aValues[key];
 	}
 
 
@@ -108,14 +124,15 @@ implements TimeVariantAttribute
 	public void incChangeEvents()
 	{
 		aEvents++;
+		version++;
 	}
 
 
 	@Override
 	public void clearEvents()
 	{
-		aTimes = null;
-		aValues = null;
+		// the old function stays visible to concurrent readers until the next recalc
 		aEvents = 1;
+		version++;
 	}
 }
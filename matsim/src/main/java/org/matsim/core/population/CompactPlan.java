@@ -0,0 +1,453 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A {@link Plan} which can store its activities and legs in three arrays instead of one object per element: all ids,
+ * i.e. links, facilities and the links of {@link NetworkRoute}s, as their indices in an <code>int[]</code>, all times,
+ * coordinates and route distances in a <code>double[]</code>, and activity types and modes as interned strings in an
+ * <code>Object[]</code>, each element after the other.  Undefined values are not stored at all, but marked in an
+ * <code>int</code> of flags at the start of each element.  A leg attribute "routingMode" is stored as interned string
+ * as well; other attributes, and routes of other types, are kept as they are.
+ * <p></p>
+ * The plan elements are materialized as normal activities and legs when {@link #getPlanElements()} is called, and stay
+ * so until the plan is compacted again.  The {@link PersonImpl} does this when the plan is no longer selected, and when
+ * the person is added to a population, i.e. after it was read.  So most of the time, only the selected plans of the
+ * persons exist as objects, and the code working on plans sees the same (identical) elements as long as it works on
+ * the selected plan.  References to elements of a plan which is compacted are detached from the plan, i.e. changing
+ * them has no effect on the plan any more.
+ * <p></p>
+ * Plans containing elements of other implementations than the ones of this package are never compacted.
+ *
+ * @see org.matsim.core.config.groups.PlansConfigGroup#isCompactPlans()
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private static final Class<?> LINK_NETWORK_ROUTE = RouteUtils.createLinkNetworkRouteImpl(null, null).getClass();
+	private static final String ROUTING_MODE_ATTRIBUTE = "routingMode";
+
+	// the flags of an element
+	private static final int LEG = 1;
+	private static final int ATTRIBUTES = 1 << 1;
+	// activities
+	private static final int START_TIME = 1 << 2;
+	private static final int END_TIME = 1 << 3;
+	private static final int MAXIMUM_DURATION = 1 << 4;
+	private static final int LINK = 1 << 5;
+	private static final int FACILITY = 1 << 6;
+	private static final int COORD = 1 << 7;
+	private static final int COORD_Z = 1 << 8;
+	// legs
+	private static final int DEPARTURE_TIME = 1 << 2;
+	private static final int TRAVEL_TIME = 1 << 3;
+	private static final int ROUTING_MODE = 1 << 4;
+	private static final int ROUTE = 1 << 5;
+	private static final int NETWORK_ROUTE = 1 << 6;
+	private static final int ROUTE_DISTANCE = 1 << 7;
+	private static final int ROUTE_TRAVEL_TIME = 1 << 8;
+	private static final int ROUTE_TRAVEL_COST = 1 << 9;
+	private static final int ROUTE_VEHICLE = 1 << 10;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Customizable customizableDelegate;
+	private Attributes attributes = null;
+
+	/** the materialized elements, <code>null</code> while the plan is compact */
+	private volatile ArrayList<PlanElement> elements = new ArrayList<>();
+
+	// the compact form
+	private int size = 0;
+	private int[] ints;
+	private double[] doubles;
+	private Object[] objects;
+
+	/* package */ CompactPlan() {}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		List<PlanElement> list = this.elements;
+		return list != null ? list : expand();
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	/* package */ boolean isCompact() {
+		return this.elements == null;
+	}
+
+	/**
+	 * Replaces the plan elements by the compact form, if all of them are {@link ActivityImpl}s and {@link LegImpl}s.
+	 */
+	/* package */ synchronized void compact() {
+		List<PlanElement> list = this.elements;
+		if (list == null) {
+			return;
+		}
+		for (PlanElement pe : list) {
+			if (!(pe instanceof ActivityImpl) && !(pe instanceof LegImpl)) {
+				return;
+			}
+		}
+		Encoder encoder = new Encoder(list.size());
+		for (PlanElement pe : list) {
+			if (pe instanceof Activity) {
+				encoder.addActivity((Activity) pe);
+			} else {
+				encoder.addLeg((Leg) pe);
+			}
+		}
+		this.size = list.size();
+		this.ints = Arrays.copyOf(encoder.ints, encoder.intCount);
+		this.doubles = Arrays.copyOf(encoder.doubles, encoder.doubleCount);
+		this.objects = Arrays.copyOf(encoder.objects, encoder.objectCount);
+		this.elements = null;
+	}
+
+	private synchronized List<PlanElement> expand() {
+		ArrayList<PlanElement> list = this.elements;
+		if (list != null) {
+			return list;
+		}
+		list = new ArrayList<>(this.size);
+		Decoder decoder = new Decoder(this.ints, this.doubles, this.objects);
+		for (int i = 0; i < this.size; i++) {
+			int flags = decoder.nextInt();
+			list.add((flags & LEG) != 0 ? decoder.nextLeg(flags) : decoder.nextActivity(flags));
+		}
+		this.size = 0;
+		this.ints = null;
+		this.doubles = null;
+		this.objects = null;
+		this.elements = list;
+		return list;
+	}
+
+	private static final class Encoder {
+		private int[] ints;
+		private double[] doubles;
+		private Object[] objects;
+		private int intCount = 0;
+		private int doubleCount = 0;
+		private int objectCount = 0;
+
+		Encoder(final int size) {
+			this.ints = new int[4 * size];
+			this.doubles = new double[4 * size];
+			this.objects = new Object[2 * size];
+		}
+
+		void addActivity(final Activity act) {
+			int flagsIndex = addInt(0);
+			int flags = 0;
+			addObject(act.getType());
+			flags |= addTime(act.getStartTime(), START_TIME);
+			flags |= addTime(act.getEndTime(), END_TIME);
+			flags |= addTime(act.getMaximumDuration(), MAXIMUM_DURATION);
+			flags |= addId(act.getLinkId(), LINK);
+			flags |= addId(act.getFacilityId(), FACILITY);
+			Coord coord = act.getCoord();
+			if (coord != null) {
+				flags |= COORD;
+				addDouble(coord.getX());
+				addDouble(coord.getY());
+				if (coord.hasZ()) {
+					flags |= COORD_Z;
+					addDouble(coord.getZ());
+				}
+			}
+			if (!act.getAttributes().isEmpty()) {
+				flags |= ATTRIBUTES;
+				addObject(act.getAttributes());
+			}
+			this.ints[flagsIndex] = flags;
+		}
+
+		void addLeg(final Leg leg) {
+			int flagsIndex = addInt(0);
+			int flags = LEG;
+			addObject(leg.getMode().intern());
+			flags |= addTime(leg.getDepartureTime(), DEPARTURE_TIME);
+			flags |= addTime(leg.getTravelTime(), TRAVEL_TIME);
+			Attributes legAttributes = leg.getAttributes();
+			Object routingMode = legAttributes.getAttribute(ROUTING_MODE_ATTRIBUTE);
+			if (legAttributes.size() == 1 && routingMode instanceof String) {
+				flags |= ROUTING_MODE;
+				addObject(((String) routingMode).intern());
+			} else if (!legAttributes.isEmpty()) {
+				flags |= ATTRIBUTES;
+				addObject(legAttributes);
+			}
+			Route route = leg.getRoute();
+			if (route != null && route.getClass() == LINK_NETWORK_ROUTE) {
+				NetworkRoute networkRoute = (NetworkRoute) route;
+				flags |= NETWORK_ROUTE;
+				List<Id<Link>> linkIds = networkRoute.getLinkIds();
+				addInt(linkIds.size());
+				addInt(index(networkRoute.getStartLinkId()));
+				for (Id<Link> linkId : linkIds) {
+					addInt(linkId.index());
+				}
+				addInt(index(networkRoute.getEndLinkId()));
+				if (!Double.isNaN(networkRoute.getDistance())) {
+					flags |= ROUTE_DISTANCE;
+					addDouble(networkRoute.getDistance());
+				}
+				flags |= addTime(networkRoute.getTravelTime(), ROUTE_TRAVEL_TIME);
+				if (!Double.isNaN(networkRoute.getTravelCost())) {
+					flags |= ROUTE_TRAVEL_COST;
+					addDouble(networkRoute.getTravelCost());
+				}
+				flags |= addId(networkRoute.getVehicleId(), ROUTE_VEHICLE);
+			} else if (route != null) {
+				flags |= ROUTE;
+				addObject(route);
+			}
+			this.ints[flagsIndex] = flags;
+		}
+
+		private int addTime(final double time, final int flag) {
+			if (Time.isUndefinedTime(time)) {
+				return 0;
+			}
+			addDouble(time);
+			return flag;
+		}
+
+		private int addId(final Id<?> id, final int flag) {
+			if (id == null) {
+				return 0;
+			}
+			addInt(id.index());
+			return flag;
+		}
+
+		private int addInt(final int value) {
+			if (this.intCount == this.ints.length) {
+				this.ints = Arrays.copyOf(this.ints, 2 * this.ints.length + 8);
+			}
+			this.ints[this.intCount] = value;
+			return this.intCount++;
+		}
+
+		private void addDouble(final double value) {
+			if (this.doubleCount == this.doubles.length) {
+				this.doubles = Arrays.copyOf(this.doubles, 2 * this.doubles.length + 8);
+			}
+			this.doubles[this.doubleCount++] = value;
+		}
+
+		private void addObject(final Object value) {
+			if (this.objectCount == this.objects.length) {
+				this.objects = Arrays.copyOf(this.objects, 2 * this.objects.length + 8);
+			}
+			this.objects[this.objectCount++] = value;
+		}
+	}
+
+	private static final class Decoder {
+		private final int[] ints;
+		private final double[] doubles;
+		private final Object[] objects;
+		private int intIndex = 0;
+		private int doubleIndex = 0;
+		private int objectIndex = 0;
+
+		Decoder(final int[] ints, final double[] doubles, final Object[] objects) {
+			this.ints = ints;
+			this.doubles = doubles;
+			this.objects = objects;
+		}
+
+		int nextInt() {
+			return this.ints[this.intIndex++];
+		}
+
+		Activity nextActivity(final int flags) {
+			ActivityImpl act = new ActivityImpl((String) this.objects[this.objectIndex++]);
+			act.setStartTime(nextTime(flags, START_TIME));
+			act.setEndTime(nextTime(flags, END_TIME));
+			act.setMaximumDuration(nextTime(flags, MAXIMUM_DURATION));
+			act.setLinkId(nextId(flags, LINK, Link.class));
+			act.setFacilityId(nextId(flags, FACILITY, ActivityFacility.class));
+			if ((flags & COORD) != 0) {
+				double x = this.doubles[this.doubleIndex++];
+				double y = this.doubles[this.doubleIndex++];
+				act.setCoord((flags & COORD_Z) != 0 ? new Coord(x, y, this.doubles[this.doubleIndex++]) : new Coord(x, y));
+			}
+			if ((flags & ATTRIBUTES) != 0) {
+				copyAttributes((Attributes) this.objects[this.objectIndex++], act.getAttributes());
+			}
+			return act;
+		}
+
+		Leg nextLeg(final int flags) {
+			LegImpl leg = new LegImpl((String) this.objects[this.objectIndex++]);
+			leg.setDepartureTime(nextTime(flags, DEPARTURE_TIME));
+			leg.setTravelTime(nextTime(flags, TRAVEL_TIME));
+			if ((flags & ROUTING_MODE) != 0) {
+				leg.getAttributes().putAttribute(ROUTING_MODE_ATTRIBUTE, this.objects[this.objectIndex++]);
+			} else if ((flags & ATTRIBUTES) != 0) {
+				copyAttributes((Attributes) this.objects[this.objectIndex++], leg.getAttributes());
+			}
+			if ((flags & NETWORK_ROUTE) != 0) {
+				int linkCount = nextInt();
+				Id<Link> startLinkId = getId(nextInt(), Link.class);
+				List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+				for (int l = 0; l < linkCount; l++) {
+					linkIds.add(Id.get(nextInt(), Link.class));
+				}
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, getId(nextInt(), Link.class));
+				if ((flags & ROUTE_DISTANCE) != 0) {
+					route.setDistance(this.doubles[this.doubleIndex++]);
+				}
+				route.setTravelTime(nextTime(flags, ROUTE_TRAVEL_TIME));
+				if ((flags & ROUTE_TRAVEL_COST) != 0) {
+					route.setTravelCost(this.doubles[this.doubleIndex++]);
+				}
+				route.setVehicleId(nextId(flags, ROUTE_VEHICLE, Vehicle.class));
+				leg.setRoute(route);
+			} else if ((flags & ROUTE) != 0) {
+				leg.setRoute((Route) this.objects[this.objectIndex++]);
+			}
+			return leg;
+		}
+
+		private double nextTime(final int flags, final int flag) {
+			return (flags & flag) != 0 ? this.doubles[this.doubleIndex++] : Time.getUndefinedTime();
+		}
+
+		private <T> Id<T> nextId(final int flags, final int flag, final Class<T> type) {
+			return (flags & flag) != 0 ? Id.get(nextInt(), type) : null;
+		}
+
+		private static void copyAttributes(final Attributes source, final Attributes target) {
+			for (Map.Entry<String, Object> e : source.getAsMap().entrySet()) {
+				target.putAttribute(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	private static int index(final Id<?> id) {
+		return id == null ? -1 : id.index();
+	}
+
+	private static <T> Id<T> getId(final int index, final Class<T> type) {
+		return index < 0 ? null : Id.get(index, type);
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		List<PlanElement> list = this.elements;
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + (list != null ? list.size() : this.size) + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+}
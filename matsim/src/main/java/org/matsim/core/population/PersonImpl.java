@@ -72,6 +72,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 			throw new IllegalStateException("The plan to be set as selected is not null nor stored in the person's plans");
 		}
 		this.selectedPlan = selectedPlan;
+		compactUnselectedPlans();
 	}
 
 	@Override
@@ -80,7 +81,13 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (oldPlan == null) {
 			return null;
 		}
-		Plan newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+		Plan newPlan;
+		if (oldPlan instanceof CompactPlan) {
+			newPlan = new CompactPlan();
+			newPlan.setPerson(oldPlan.getPerson());
+		} else {
+			newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
+		}
 		PopulationUtils.copyFromTo(oldPlan, newPlan);
 		this.getPlans().add(newPlan);
 		this.setSelectedPlan(newPlan);
@@ -146,6 +153,15 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	public final void setLocked() {
 		this.locked = true ;
 		// we are not locking anything in the plans
+		compactUnselectedPlans();
+	}
+
+	private void compactUnselectedPlans() {
+		for (Plan plan : this.plans) {
+			if (plan != this.selectedPlan && plan instanceof CompactPlan) {
+				((CompactPlan) plan).compact();
+			}
+		}
 	}
 
 	private void testForLocked() {
@@ -40,12 +40,18 @@ import org.matsim.facilities.ActivityFacility;
 /* deliberately package */ class PopulationFactoryImpl implements PopulationFactory {
 
 	private final RouteFactories routeFactory;
+	private final boolean compactPlans;
 
     @Inject
 	PopulationFactoryImpl(RouteFactories routeFactory) {
-        this.routeFactory = routeFactory;
+        this(routeFactory, false);
     }
 
+	PopulationFactoryImpl(RouteFactories routeFactory, boolean compactPlans) {
+		this.routeFactory = routeFactory;
+		this.compactPlans = compactPlans;
+	}
+
     @Override
 	public Person createPerson(final Id<Person> id) {
         return new PersonImpl(id) ;
@@ -53,7 +59,7 @@ import org.matsim.facilities.ActivityFacility;
 
 	@Override
 	public Plan createPlan(){
-		return new PlanImpl() ;
+		return this.compactPlans ? new CompactPlan() : new PlanImpl() ;
 	}
 
 	@Override
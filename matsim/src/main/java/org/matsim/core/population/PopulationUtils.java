@@ -41,7 +41,9 @@ import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationReaderBinary;
 import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.io.PopulationWriterBinary;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
@@ -49,6 +51,7 @@ import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.population.routes.RouteFactory;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.population.routes.VarIntNetworkRouteFactory;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.router.TripStructureUtils.StageActivityHandling;
 import org.matsim.core.scenario.MutableScenario;
@@ -112,11 +115,13 @@ public final class PopulationUtils {
 			factory = new LinkNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new CompressedNetworkRouteFactory(network);
+		} else if (PlansConfigGroup.NetworkRouteType.VarIntNetworkRoute.equals(networkRouteType)) {
+			factory = new VarIntNetworkRouteFactory();
 		} else {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		return new PopulationImpl(new PopulationFactoryImpl(routeFactory, plansConfigGroup.isCompactPlans()));
 	}
 
 	//	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -832,7 +837,12 @@ public final class PopulationUtils {
 	}
 
 	public static void copyFromTo(Activity act, Activity newAct) {
-		Coord coord = act.getCoord() == null ? null : new Coord(act.getCoord().getX(), act.getCoord().getY());
+		Coord coord = null;
+		if (act.getCoord() != null) {
+			coord = act.getCoord().hasZ() ?
+					new Coord(act.getCoord().getX(), act.getCoord().getY(), act.getCoord().getZ()) :
+					new Coord(act.getCoord().getX(), act.getCoord().getY());
+		}
 		// (we don't want to copy the coord ref, but rather the contents!)
 		newAct.setCoord(coord);
 		newAct.setType( act.getType() );
@@ -1018,7 +1028,11 @@ public final class PopulationUtils {
 	}
 	
 	public static void writePopulation( Population population, String filename ) {
-		new PopulationWriter( population).write( filename ); 
+		if ( PopulationReaderBinary.isBinaryFile( filename ) ) {
+			new PopulationWriterBinary( population ).write( filename );
+		} else {
+			new PopulationWriter( population).write( filename ); 
+		}
 	}
 	
 	public static Id<Link> decideOnLinkIdForActivity( Activity act, Scenario sc ) {
@@ -1077,7 +1091,11 @@ public final class PopulationUtils {
 	public static void readPopulation( Population population, String filename ) {
 		MutableScenario scenario = ScenarioUtils.createMutableScenario( ConfigUtils.createConfig() ) ;
 		scenario.setPopulation( population );
-		new PopulationReader( scenario ).readFile( filename );
+		if ( PopulationReaderBinary.isBinaryFile( filename ) ) {
+			new PopulationReaderBinary( scenario ).readFile( filename );
+		} else {
+			new PopulationReader( scenario ).readFile( filename );
+		}
 		// (yyyy population reader uses network to retrofit some missing geo information such as route lenth.
 		// In my opinion, that should be done in prepareForSim, not in the parser.  It is commented as such
 		// in the PopulationReader class.  kai, nov'18)
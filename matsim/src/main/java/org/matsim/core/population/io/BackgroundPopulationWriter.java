@@ -0,0 +1,227 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BackgroundPopulationWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * Writes populations in the v6 format on background threads, so the caller (typically the controler at a plans
+ * dump iteration) can go on while the file is written.
+ * <p></p>
+ * {@link #write(Population, CoordinateTransformation, String)} first takes a snapshot of all persons and their
+ * plans in the calling thread, using {@link PopulationUtils#copyFromTo(Plan, Plan)}.  This is much cheaper than
+ * formatting and compressing the xml, and the caller may modify the population again as soon as the method returns.
+ * Attribute values are not copied, but shared with the original population.
+ * <p></p>
+ * The persons are formatted to xml in chunks in parallel, and the chunks are written in order to the stream of
+ * {@link IOUtils#getOutputStream(java.net.URL, boolean)}, so the file is compressed according to its extension like
+ * all other output files.
+ * <p></p>
+ * Writes are done in the order they are requested.  Exceptions from the background threads are re-thrown by
+ * {@link #waitForCompletion()} and {@link #close()}, which must be called before the written files are used.
+ */
+public final class BackgroundPopulationWriter implements AutoCloseable {
+	private static final Logger log = Logger.getLogger(BackgroundPopulationWriter.class);
+
+	private static final int PERSONS_PER_CHUNK = 1000;
+
+	private final int numberOfThreads;
+	private final ExecutorService writer;
+	private final ExecutorService formatters;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private final List<Future<?>> pendingWrites = new ArrayList<>();
+
+	public BackgroundPopulationWriter(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.writer = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "BackgroundPopulationWriter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.formatters = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "BackgroundPopulationWriter-formatter-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	/**
+	 * Takes a snapshot of the population and writes it to the file in the background.
+	 */
+	public synchronized Future<?> write(final Population population, final CoordinateTransformation transformation, final String filename) {
+		final Population snapshot = snapshot(population);
+		final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>(this.converters);
+		Future<?> future = this.writer.submit(() -> {
+			long start = System.currentTimeMillis();
+			writeChunked(snapshot, transformation, converters, filename);
+			log.info("population written in background to " + filename + " in " + (System.currentTimeMillis() - start) + " ms.");
+			return null;
+		});
+		this.pendingWrites.add(future);
+		return future;
+	}
+
+	/**
+	 * Blocks until all requested writes are finished.
+	 *
+	 * @throws UncheckedIOException if one of the writes failed
+	 */
+	public synchronized void waitForCompletion() {
+		try {
+			for (Future<?> future : this.pendingWrites) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new UncheckedIOException("writing the population in the background failed", e.getCause());
+		} finally {
+			this.pendingWrites.removeIf(Future::isDone);
+		}
+	}
+
+	/**
+	 * Waits for all requested writes and stops the threads.
+	 */
+	@Override
+	public synchronized void close() {
+		try {
+			waitForCompletion();
+		} finally {
+			this.writer.shutdownNow();
+			this.formatters.shutdownNow();
+		}
+	}
+
+	private void writeChunked(final Population population, final CoordinateTransformation transformation,
+			final Map<Class<?>, AttributeConverter<?>> converters, final String filename) throws Exception {
+		List<Person> persons = new ArrayList<>(PopulationUtils.getSortedPersons(population).values());
+		// limits the number of formatted chunks in memory
+		Queue<Future<byte[]>> chunks = new ArrayDeque<>();
+		int maxChunksInMemory = 2 * this.numberOfThreads;
+		try (OutputStream out = IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false)) {
+			out.write(formatChunk(w -> {
+				PopulationWriterHandler handler = createHandler(transformation, converters);
+				handler.writeHeaderAndStartElement(w);
+				handler.startPlans(population, w);
+				handler.writeSeparator(w);
+			}));
+			for (int from = 0; from < persons.size(); from += PERSONS_PER_CHUNK) {
+				final List<Person> chunk = persons.subList(from, Math.min(from + PERSONS_PER_CHUNK, persons.size()));
+				chunks.add(this.formatters.submit(() -> formatChunk(w -> {
+					PopulationWriterHandler handler = createHandler(transformation, converters);
+					for (Person person : chunk) {
+						handler.writePerson(person, w);
+					}
+				})));
+				while (chunks.size() >= maxChunksInMemory) {
+					out.write(chunks.remove().get());
+				}
+			}
+			while (!chunks.isEmpty()) {
+				out.write(chunks.remove().get());
+			}
+			out.write(formatChunk(w -> createHandler(transformation, converters).endPlans(w)));
+		} finally {
+			for (Future<byte[]> chunk : chunks) {
+				chunk.cancel(true);
+			}
+		}
+	}
+
+	private static PopulationWriterHandler createHandler(final CoordinateTransformation transformation,
+			final Map<Class<?>, AttributeConverter<?>> converters) {
+		PopulationWriterHandler handler = new PopulationWriterHandlerImplV6(transformation);
+		handler.putAttributeConverters(converters);
+		return handler;
+	}
+
+	private interface ChunkContent {
+		void write(BufferedWriter writer) throws IOException;
+	}
+
+	private static byte[] formatChunk(final ChunkContent content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+			content.write(writer);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Copies the persons with their plans, and the attributes of the population, persons and plans.  Plan elements
+	 * and routes are copied, attribute values not.
+	 */
+	static Population snapshot(final Population population) {
+		Population snapshot = PopulationUtils.createPopulation(new PlansConfigGroup(), null);
+		snapshot.setName(population.getName());
+		AttributesUtils.copyAttributesFromTo(population, snapshot);
+		for (Person person : population.getPersons().values()) {
+			Person copy = snapshot.getFactory().createPerson(person.getId());
+			AttributesUtils.copyAttributesFromTo(person, copy);
+			for (Plan plan : person.getPlans()) {
+				Plan planCopy = PopulationUtils.createPlan(copy);
+				PopulationUtils.copyFromTo(plan, planCopy);
+				copy.addPlan(planCopy);
+				if (plan == person.getSelectedPlan()) {
+					copy.setSelectedPlan(planCopy);
+				}
+			}
+			snapshot.addPerson(copy);
+		}
+		return snapshot;
+	}
+
+}
@@ -0,0 +1,297 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread reads the file,
+ * handles the population itself and collects the xml data of the persons in batches. The
+ * batches are interpreted by {@link ParallelPopulationReaderMatsimV6Runner}s, each of them a
+ * complete PopulationReaderMatsimV6 on its own thread, so plans, routes and attributes are
+ * created exactly as by the sequential reader.
+ * <p></p>
+ * The persons are added to the population by the main thread, in the order of the file, once
+ * their batch is done. Hence, in contrast to ParallelPopulationReaderMatsimV4, this also works
+ * with population streaming. Only a limited number of batches is in flight at the same time.
+ * <p></p>
+ * The ids of the persons, and of the links, facilities and vehicles referenced by their plans,
+ * are created by the main thread as well, in the same order as by the sequential reader, so their
+ * indices do not depend on the order in which the runners happen to work.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+	private final static String ACT = "activity";
+	private final static String LEG = "leg";
+	private final static String ROUTE = "route";
+
+	/*package*/ static final int PERSONS_PER_BATCH = 100;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final BlockingQueue<PersonBatch> queue = new LinkedBlockingQueue<>();
+	private final Queue<PersonBatch> pendingBatches = new ArrayDeque<>();
+
+	private Thread[] threads = null;
+	private PersonBatch currentBatch = null;
+	private boolean inPerson = false;
+	private String legMode = null;
+	private Route route = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	private void initThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			// created here and not in the constructor, as the input CRS may be given by the attributes of the population
+			ParallelPopulationReaderMatsimV6Runner runner =
+					new ParallelPopulationReaderMatsimV6Runner(
+							getTransformationInputCRS(),
+							getTargetCRS(),
+							this.scenario,
+							this.attributeConverters,
+							this.queue);
+
+			Thread thread = new Thread(runner);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6Runner.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (PERSON.equals(name)) {
+			if (this.threads == null) {
+				initThreads();
+			}
+			if (this.currentBatch == null) {
+				this.currentBatch = new PersonBatch();
+			}
+			this.inPerson = true;
+		}
+		if (this.inPerson) {
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentBatch.tags.add(new Tag(name, new AttributesImpl(atts), null));
+			createIds(name, atts);
+		} else {
+			super.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.inPerson) {
+			this.currentBatch.tags.add(new Tag(name, null, content));
+			if (ROUTE.equals(name) && this.route != null) {
+				// the ids within the description, e.g. the links of network routes
+				this.route.setRouteDescription(content.trim());
+				this.route = null;
+			}
+			if (PERSON.equals(name)) {
+				this.inPerson = false;
+				this.currentBatch.size++;
+				if (this.currentBatch.size == PERSONS_PER_BATCH) {
+					submitCurrentBatch();
+					addFinishedPersons(2 * this.numThreads);
+				}
+			}
+			return;
+		}
+		if (POPULATION.equals(name) && this.threads != null) {
+			submitCurrentBatch();
+			addFinishedPersons(0);
+			for (int i = 0; i < this.numThreads; i++) {
+				this.queue.add(PersonBatch.END);
+			}
+			try {
+				for (Thread thread : this.threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			this.threads = null;
+			log.info("Finished parallel population reading...");
+		}
+		super.endTag(name, content, context);
+	}
+
+	/**
+	 * Creates the ids which {@link PopulationReaderMatsimV6} creates for the start tag, in the same order.
+	 */
+	private void createIds(final String name, final Attributes atts) {
+		switch (name) {
+			case PERSON:
+				Id.create(atts.getValue("id"), Person.class);
+				break;
+			case ACT:
+				if (atts.getValue("link") != null) {
+					Id.create(atts.getValue("link"), Link.class);
+				}
+				if (atts.getValue("facility") != null) {
+					Id.create(atts.getValue("facility"), ActivityFacility.class);
+				}
+				break;
+			case LEG:
+				this.legMode = atts.getValue("mode");
+				break;
+			case ROUTE:
+				String startLinkId = atts.getValue("start_link");
+				String endLinkId = atts.getValue("end_link");
+				RouteFactories factories = this.scenario.getPopulation().getFactory().getRouteFactories();
+				Class<? extends Route> routeClass = factories.getRouteClassForType(getRouteType(atts, this.legMode));
+				// only to create the ids of the description at the end tag, the runner creates the route of the leg
+				this.route = factories.createRoute(routeClass, startLinkId == null ? null : Id.create(startLinkId, Link.class),
+						endLinkId == null ? null : Id.create(endLinkId, Link.class));
+				String vehicleRefId = atts.getValue("vehicleRefId");
+				if (vehicleRefId != null && !vehicleRefId.equals("null") && this.route instanceof NetworkRoute) {
+					Id.create(vehicleRefId, Vehicle.class);
+				}
+				if (this.route instanceof GenericRouteImpl) {
+					// the description of generic routes contains no ids
+					this.route = null;
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void submitCurrentBatch() {
+		if (this.currentBatch != null) {
+			this.pendingBatches.add(this.currentBatch);
+			this.queue.add(this.currentBatch);
+			this.currentBatch = null;
+		}
+	}
+
+	/**
+	 * Adds the persons of the oldest batches to the population until at most <code>maxPendingBatches</code>
+	 * batches are left, waiting for the runners where necessary.
+	 */
+	private void addFinishedPersons(final int maxPendingBatches) {
+		while (this.pendingBatches.size() > maxPendingBatches) {
+			PersonBatch batch = this.pendingBatches.poll();
+			List<Person> persons;
+			try {
+				persons = batch.persons.get();
+			} catch (InterruptedException e) {
+				stopThreads();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				stopThreads();
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new RuntimeException(cause);
+			}
+			for (Person person : persons) {
+				addPersonToPopulation(person);
+			}
+		}
+	}
+
+	private void stopThreads() {
+		for (Thread thread : this.threads) {
+			thread.interrupt();
+		}
+		this.threads = null;
+		this.pendingBatches.clear();
+		this.queue.clear();
+	}
+
+	/*package*/ static final class Tag {
+		final String name;
+		final Attributes atts; // only set for start tags
+		final String content; // only set for end tags
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	/*package*/ static final class PersonBatch {
+		/** Marker to inform the threads that no further data has to be parsed. */
+		static final PersonBatch END = new PersonBatch();
+
+		final List<Tag> tags = new ArrayList<>();
+		final CompletableFuture<List<Person>> persons = new CompletableFuture<>();
+		int size = 0;
+	}
+}
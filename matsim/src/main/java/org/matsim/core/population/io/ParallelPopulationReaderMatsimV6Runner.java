@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Runner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.PersonBatch;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.Tag;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Runnable used by ParallelPopulationReaderMatsimV6.
+ * Interprets the xml data of the person batches taken from a BlockingQueue
+ * and hands the created persons back to the main thread.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6Runner extends PopulationReaderMatsimV6 implements Runnable {
+
+	private final BlockingQueue<PersonBatch> queue;
+	private final Stack<String> context = new Stack<>();
+	private List<Person> persons = null;
+
+	ParallelPopulationReaderMatsimV6Runner(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final Map<Class<?>, AttributeConverter<?>> attributeConverters,
+			final BlockingQueue<PersonBatch> queue) {
+		super(inputCRS, targetCRS, scenario);
+		putAttributeConverters(attributeConverters);
+		this.queue = queue;
+		this.context.push("population");
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			PersonBatch batch;
+			try {
+				batch = this.queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (batch == PersonBatch.END) {
+				return;
+			}
+			this.persons = new ArrayList<>(batch.size);
+			try {
+				for (Tag tag : batch.tags) {
+					// keep the context as the sax parser would, it is needed for the attributes
+					if (tag.atts != null) {
+						startTag(tag.name, tag.atts, this.context);
+						this.context.push(tag.name);
+					} else {
+						this.context.pop();
+						endTag(tag.name, tag.content, this.context);
+					}
+				}
+				batch.persons.complete(this.persons);
+			} catch (RuntimeException | Error e) {
+				batch.persons.completeExceptionally(e);
+				this.context.setSize(1);
+			}
+			this.persons = null;
+		}
+	}
+
+	@Override
+	void addPersonToPopulation(final Person person) {
+		this.persons.add(person);
+	}
+}
@@ -0,0 +1,704 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import static org.matsim.core.population.io.PopulationWriterBinary.*;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.io.StreamingPopulationReader.StreamingPopulation;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads population files written by {@link PopulationWriterBinary}.
+ * <p></p>
+ * The blocks of persons are read from the file one after the other, but decompressed and decoded by several threads
+ * ({@link org.matsim.core.config.groups.GlobalConfigGroup#getNumberOfThreads()} by default).  The ids used in a block
+ * are created by the calling thread before the block is decoded, and the persons are added to the population in the
+ * order of the file by the calling thread as well.  So the ids get the same indices as with a single thread, and the
+ * reader also works with the population of a {@link StreamingPopulationReader}, which can read binary files as well.
+ * <p></p>
+ * Single persons can be read with {@link #readPerson(String, Id)}, which only decodes the block of the person.
+ * <p></p>
+ * Unlike the xml readers, the reader does not fill in missing route distances or travel times: the routes are read as
+ * they were written.
+ */
+public final class PopulationReaderBinary implements MatsimReader {
+	private static final Logger log = Logger.getLogger(PopulationReaderBinary.class);
+
+	private final Scenario scenario;
+	private final String externalInputCRS;
+	private final String targetCRS;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private int numberOfThreads;
+	/** the CRS of the coordinates in the file if they need to be transformed, otherwise <code>null</code> */
+	private String transformationFromCRS = null;
+
+	private String indexedFile = null;
+	private long[] blockOffsets = null;
+	private Map<String, Integer> blockOfPerson = null;
+
+	public PopulationReaderBinary(final Scenario scenario) {
+		this(null, null, scenario);
+	}
+
+	public PopulationReaderBinary(final String inputCRS, final String targetCRS, final Scenario scenario) {
+		this(inputCRS, targetCRS, scenario, false);
+	}
+
+	/*deliberately package*/ PopulationReaderBinary(
+				final String inputCRS,
+				final String targetCRS,
+				final Scenario scenario,
+				final boolean streaming) {
+		if (!streaming && scenario.getPopulation() instanceof StreamingPopulation) {
+			throw new RuntimeException("PopulationReaderBinary called directly with an instance of StreamingPopulation "
+					+ "in scenario.  Call via StreamingPopulationReader.");
+		}
+		this.externalInputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.scenario = scenario;
+		this.numberOfThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.converters.put(clazz, converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * @return true if the file name ends with <code>.bin</code>, optionally followed by a compression ending
+	 */
+	public static boolean isBinaryFile(final String filename) {
+		String lcFilename = filename.toLowerCase(Locale.ROOT);
+		return lcFilename.endsWith(".bin") || lcFilename.matches(".*\\.bin\\.[a-z0-9]+");
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			parse(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the population and adds all persons to the population of the scenario; does not close the stream.
+	 */
+	public void parse(final InputStream stream) {
+		InputStream in = stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream, 1 << 16);
+		try {
+			readMagicAndVersion(in);
+			readHeader(inflate(readBlock(in)), true);
+			readPersonBlocks(in);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads a single person from the file, using the index at the end of the file.  The person is not added to the
+	 * population.  The index is kept for further calls with the same file.
+	 *
+	 * @return the person, or <code>null</code> if there is no person with this id in the file
+	 */
+	public Person readPerson(final String filename, final Id<Person> personId) {
+		try (RandomAccessFile file = new RandomAccessFile(new File(filename), "r")) {
+			if (!filename.equals(this.indexedFile)) {
+				readIndex(file);
+				this.indexedFile = filename;
+			}
+			Integer block = this.blockOfPerson.get(personId.toString());
+			if (block == null) {
+				return null;
+			}
+			file.seek(0);
+			InputStream header = new BufferedInputStream(new RandomAccessFileInputStream(file), 1 << 12);
+			readMagicAndVersion(header);
+			readHeader(inflate(readBlock(header)), false);
+
+			file.seek(this.blockOffsets[block]);
+			InputStream in = new BufferedInputStream(new RandomAccessFileInputStream(file), 1 << 16);
+			Decoder decoder = new Decoder(inflate(readBlock(in)), createTransformation());
+			decoder.readIdTables();
+			decoder.createIds();
+			for (int i = decoder.numberOfPersons; i > 0; i--) {
+				Person person = decoder.readPerson();
+				if (person.getId().equals(personId)) {
+					return person;
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readIndex(final RandomAccessFile file) throws IOException {
+		long trailerLength = 8 + MAGIC.length;
+		if (file.length() < MAGIC.length + trailerLength) {
+			throw new IOException("file too short for a binary population file.");
+		}
+		file.seek(file.length() - trailerLength);
+		long indexOffset = file.readLong();
+		byte[] magic = new byte[MAGIC.length];
+		file.readFully(magic);
+		if (!Arrays.equals(MAGIC, magic)) {
+			throw new IOException("no index found at the end of the file; the file is either not a binary population "
+					+ "file, or compressed as a whole.");
+		}
+		file.seek(indexOffset);
+		Decoder index = new Decoder(inflate(readBlock(new BufferedInputStream(new RandomAccessFileInputStream(file), 1 << 16))), null);
+		int numberOfBlocks = (int) index.readVarLong();
+		this.blockOffsets = new long[numberOfBlocks];
+		this.blockOfPerson = new HashMap<>();
+		long offset = 0;
+		for (int b = 0; b < numberOfBlocks; b++) {
+			offset += index.readVarLong();
+			this.blockOffsets[b] = offset;
+			for (int i = (int) index.readVarLong(); i > 0; i--) {
+				this.blockOfPerson.put(index.readUtf8(), b);
+			}
+		}
+	}
+
+	private static void readMagicAndVersion(final InputStream in) throws IOException {
+		for (byte b : MAGIC) {
+			if (in.read() != b) {
+				throw new IOException("not a binary population file.");
+			}
+		}
+		long version = readVarLong(in);
+		if (version != VERSION) {
+			throw new IOException("unsupported version of binary population file: " + version);
+		}
+	}
+
+	/**
+	 * Reads the name and the attributes of the population, into the population of the scenario only if
+	 * <code>intoPopulation</code>, and decides about the transformation of the coordinates.
+	 */
+	private void readHeader(final byte[] header, final boolean intoPopulation) {
+		Population population = this.scenario.getPopulation();
+		Decoder decoder = new Decoder(header, null);
+		String name = decoder.readString();
+		Attributes attributes = intoPopulation ? population.getAttributes() : new Attributes();
+		decoder.readAttributes(attributes, new ObjectAttributesConverter(this.converters));
+		if (intoPopulation && name != null) {
+			population.setName(name);
+		}
+
+		String inputCRS = (String) attributes.getAttribute(ProjectionUtils.INPUT_CRS_ATT);
+		if (inputCRS != null && this.targetCRS != null) {
+			if (this.externalInputCRS != null && intoPopulation) {
+				// warn or crash?
+				log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
+			}
+		} else {
+			inputCRS = this.externalInputCRS;
+		}
+		this.transformationFromCRS = this.targetCRS == null ? null : inputCRS;
+		if (intoPopulation && this.transformationFromCRS != null) {
+			ProjectionUtils.putCRS(population, this.targetCRS);
+		}
+	}
+
+	private CoordinateTransformation createTransformation() {
+		if (this.transformationFromCRS == null) {
+			return new IdentityTransformation();
+		}
+		return TransformationFactory.getCoordinateTransformation(this.transformationFromCRS, this.targetCRS);
+	}
+
+	private void readPersonBlocks(final InputStream in) throws IOException {
+		AtomicInteger threadCounter = new AtomicInteger();
+		ExecutorService decoders = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "PopulationReaderBinary-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// transformations and attribute converters are not thread-safe, so every thread gets its own
+		ThreadLocal<CoordinateTransformation> transformations = ThreadLocal.withInitial(this::createTransformation);
+		ThreadLocal<ObjectAttributesConverter> attributesConverters = ThreadLocal.withInitial(() -> new ObjectAttributesConverter(this.converters));
+		/*
+		 * A block is first inflated and its id tables are read.  Then this thread creates the ids in the order of the
+		 * file, as creating ids assigns their indices, and another thread decodes the persons.  Both queues together
+		 * limit the number of blocks in memory.
+		 */
+		Queue<Future<Decoder>> inflating = new ArrayDeque<>();
+		Queue<Future<List<Person>>> decoding = new ArrayDeque<>();
+		int maxBlocksInMemory = 2 * this.numberOfThreads;
+		Population population = this.scenario.getPopulation();
+		try {
+			byte[] compressed;
+			while ((compressed = readBlock(in)) != null) {
+				final byte[] block = compressed;
+				inflating.add(decoders.submit(() -> {
+					Decoder decoder = new Decoder(inflate(block), null);
+					decoder.readIdTables();
+					return decoder;
+				}));
+				while (!inflating.isEmpty() && inflating.peek().isDone()) {
+					decoding.add(startDecoding(decoders, inflating.remove(), transformations, attributesConverters));
+				}
+				while (inflating.size() + decoding.size() >= maxBlocksInMemory) {
+					if (decoding.isEmpty()) {
+						decoding.add(startDecoding(decoders, inflating.remove(), transformations, attributesConverters));
+					} else {
+						addPersons(population, decoding.remove());
+					}
+				}
+			}
+			while (!inflating.isEmpty()) {
+				decoding.add(startDecoding(decoders, inflating.remove(), transformations, attributesConverters));
+			}
+			while (!decoding.isEmpty()) {
+				addPersons(population, decoding.remove());
+			}
+		} finally {
+			for (Future<?> block : inflating) {
+				block.cancel(true);
+			}
+			for (Future<?> block : decoding) {
+				block.cancel(true);
+			}
+			decoders.shutdownNow();
+		}
+	}
+
+	private static Future<List<Person>> startDecoding(final ExecutorService decoders, final Future<Decoder> inflated,
+			final ThreadLocal<CoordinateTransformation> transformations, final ThreadLocal<ObjectAttributesConverter> attributesConverters) {
+		Decoder decoder = getBlock(inflated);
+		decoder.createIds();
+		return decoders.submit(() -> {
+			decoder.transformation = transformations.get();
+			decoder.attributesConverter = attributesConverters.get();
+			List<Person> persons = new ArrayList<>(decoder.numberOfPersons);
+			for (int i = 0; i < decoder.numberOfPersons; i++) {
+				persons.add(decoder.readPerson());
+			}
+			return persons;
+		});
+	}
+
+	private static void addPersons(final Population population, final Future<List<Person>> block) {
+		for (Person person : getBlock(block)) {
+			population.addPerson(person);
+		}
+	}
+
+	private static <T> T getBlock(final Future<T> block) {
+		try {
+			return block.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new UncheckedIOException("decoding a block of the binary population failed", e.getCause());
+		}
+	}
+
+	/**
+	 * @return the compressed block with its uncompressed length in the first 4 bytes, or <code>null</code> at the end
+	 * of the persons
+	 */
+	private static byte[] readBlock(final InputStream in) throws IOException {
+		int compressedLength = (int) readVarLong(in);
+		if (compressedLength == 0) {
+			return null;
+		}
+		int length = (int) readVarLong(in);
+		byte[] block = new byte[4 + compressedLength];
+		block[0] = (byte) (length >>> 24);
+		block[1] = (byte) (length >>> 16);
+		block[2] = (byte) (length >>> 8);
+		block[3] = (byte) length;
+		int read = 4;
+		while (read < block.length) {
+			int n = in.read(block, read, block.length - read);
+			if (n < 0) {
+				throw new EOFException("unexpected end of binary population file.");
+			}
+			read += n;
+		}
+		return block;
+	}
+
+	private static byte[] inflate(final byte[] block) {
+		int length = ((block[0] & 0xFF) << 24) | ((block[1] & 0xFF) << 16) | ((block[2] & 0xFF) << 8) | (block[3] & 0xFF);
+		byte[] bytes = new byte[length];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(block, 4, block.length - 4);
+			int inflated = 0;
+			while (inflated < length) {
+				int n = inflater.inflate(bytes, inflated, length - inflated);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new UncheckedIOException(new EOFException("block of binary population file is truncated."));
+				}
+				inflated += n;
+			}
+		} catch (DataFormatException e) {
+			throw new UncheckedIOException(new IOException(e));
+		} finally {
+			inflater.end();
+		}
+		return bytes;
+	}
+
+	private static long readVarLong(final InputStream in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.read();
+			if (b < 0) {
+				throw new EOFException("unexpected end of binary population file.");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Decodes the persons of a block, see {@link PopulationWriterBinary} for the format.
+	 */
+	private final class Decoder {
+		private final byte[] bytes;
+		private int position = 0;
+		private final List<String> stringTable = new ArrayList<>();
+		private CoordinateTransformation transformation;
+		private ObjectAttributesConverter attributesConverter;
+
+		private int numberOfPersons;
+		private String[][] idTables;
+		private Id<Person>[] personIds;
+		private Id<Link>[] linkIds;
+		private Id<ActivityFacility>[] facilityIds;
+		private Id<Vehicle>[] vehicleIds;
+
+		private final PopulationFactory factory = PopulationReaderBinary.this.scenario.getPopulation().getFactory();
+		private final RouteFactories routeFactories = this.factory.getRouteFactories();
+
+		Decoder(final byte[] bytes, final CoordinateTransformation transformation) {
+			this.bytes = bytes;
+			this.transformation = transformation;
+		}
+
+		/**
+		 * Reads the number of persons and the ids of a block of persons, without creating the ids yet.
+		 */
+		void readIdTables() {
+			this.numberOfPersons = (int) readVarLong();
+			this.idTables = new String[4][];
+			for (int t = 0; t < this.idTables.length; t++) {
+				String[] ids = new String[(int) readVarLong()];
+				for (int i = 0; i < ids.length; i++) {
+					ids[i] = readUtf8();
+				}
+				this.idTables[t] = ids;
+			}
+		}
+
+		void createIds() {
+			this.personIds = createIds(this.idTables[0], Person.class);
+			this.linkIds = createIds(this.idTables[1], Link.class);
+			this.facilityIds = createIds(this.idTables[2], ActivityFacility.class);
+			this.vehicleIds = createIds(this.idTables[3], Vehicle.class);
+			this.idTables = null;
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> Id<T>[] createIds(final String[] ids, final Class<T> type) {
+			Id<T>[] created = new Id[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				created[i] = Id.create(ids[i], type);
+			}
+			return created;
+		}
+
+		long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.bytes[this.position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		String readUtf8() {
+			int length = (int) readVarLong();
+			String s = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+			this.position += length;
+			return s;
+		}
+
+		String readString() {
+			int code = (int) readVarLong();
+			if (code == STRING_NULL) {
+				return null;
+			}
+			if (code == STRING_NEW) {
+				String s = readUtf8();
+				this.stringTable.add(s);
+				return s;
+			}
+			return this.stringTable.get(code - STRING_INDEX_OFFSET);
+		}
+
+		double readDouble() {
+			long code = readVarLong();
+			if (code == DOUBLE_RAW) {
+				long bits = 0;
+				for (int i = 0; i < 8; i++) {
+					bits = (bits << 8) | (this.bytes[this.position++] & 0xFF);
+				}
+				return Double.longBitsToDouble(bits);
+			}
+			long zigzag = code >>> 1;
+			return (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+
+		void readAttributes(final Attributes attributes, final ObjectAttributesConverter converter) {
+			for (int i = (int) readVarLong(); i > 0; i--) {
+				String name = readString();
+				String className = readString();
+				String value = readString();
+				Object converted = converter.convert(className, value);
+				if (converted != null) {
+					attributes.putAttribute(name, converted);
+				}
+			}
+		}
+
+		Person readPerson() {
+			if (this.attributesConverter == null) {
+				this.attributesConverter = new ObjectAttributesConverter(PopulationReaderBinary.this.converters);
+			}
+			Person person = this.factory.createPerson(this.personIds[(int) readVarLong()]);
+			readAttributes(person.getAttributes(), this.attributesConverter);
+			for (int p = (int) readVarLong(); p > 0; p--) {
+				int flags = (int) readVarLong();
+				Plan plan = this.factory.createPlan();
+				plan.setPerson(person);
+				person.addPlan(plan);
+				if ((flags & PLAN_SELECTED) != 0) {
+					person.setSelectedPlan(plan);
+				}
+				if ((flags & PLAN_SCORE) != 0) {
+					plan.setScore(readDouble());
+				}
+				if ((flags & PLAN_TYPE) != 0) {
+					plan.setType(readString());
+				}
+				if ((flags & PLAN_ATTRIBUTES) != 0) {
+					readAttributes(plan.getAttributes(), this.attributesConverter);
+				}
+				for (int e = (int) readVarLong(); e > 0; e--) {
+					int elementFlags = (int) readVarLong();
+					if ((elementFlags & ELEMENT_LEG) != 0) {
+						plan.addLeg(readLeg(elementFlags));
+					} else {
+						plan.addActivity(readActivity(elementFlags));
+					}
+				}
+			}
+			return person;
+		}
+
+		private Activity readActivity(final int flags) {
+			String type = readString().intern();
+			Activity act;
+			if ((flags & ACT_LINK) != 0) {
+				act = this.factory.createActivityFromLinkId(type, this.linkIds[(int) readVarLong()]);
+			} else {
+				act = this.factory.createActivityFromLinkId(type, null);
+			}
+			if ((flags & ACT_FACILITY) != 0) {
+				act.setFacilityId(this.facilityIds[(int) readVarLong()]);
+			}
+			if ((flags & ACT_COORD) != 0) {
+				double x = readDouble();
+				double y = readDouble();
+				Coord coord = (flags & ACT_COORD_Z) != 0 ? new Coord(x, y, readDouble()) : new Coord(x, y);
+				act.setCoord(this.transformation.transform(coord));
+			}
+			if ((flags & ACT_START_TIME) != 0) {
+				act.setStartTime(readDouble());
+			}
+			if ((flags & ACT_END_TIME) != 0) {
+				act.setEndTime(readDouble());
+			}
+			if ((flags & ACT_MAXIMUM_DURATION) != 0) {
+				act.setMaximumDuration(readDouble());
+			}
+			if ((flags & ELEMENT_ATTRIBUTES) != 0) {
+				readAttributes(act.getAttributes(), this.attributesConverter);
+			}
+			return act;
+		}
+
+		private Leg readLeg(final int flags) {
+			Leg leg = this.factory.createLeg(readString().intern());
+			if ((flags & LEG_DEPARTURE_TIME) != 0) {
+				leg.setDepartureTime(readDouble());
+			}
+			if ((flags & LEG_TRAVEL_TIME) != 0) {
+				leg.setTravelTime(readDouble());
+			}
+			if ((flags & ELEMENT_ATTRIBUTES) != 0) {
+				readAttributes(leg.getAttributes(), this.attributesConverter);
+			}
+			if ((flags & LEG_ROUTE) != 0) {
+				leg.setRoute(readRoute());
+			}
+			return leg;
+		}
+
+		private Route readRoute() {
+			int flags = (int) readVarLong();
+			String routeType = readString();
+			Id<Link> startLinkId = (flags & ROUTE_START_LINK) != 0 ? this.linkIds[(int) readVarLong()] : null;
+			Id<Link> endLinkId = (flags & ROUTE_END_LINK) != 0 ? this.linkIds[(int) readVarLong()] : null;
+			double travelTime = (flags & ROUTE_TRAVEL_TIME) != 0 ? readDouble() : Double.NaN;
+			double distance = (flags & ROUTE_DISTANCE) != 0 ? readDouble() : Double.NaN;
+			Id<Vehicle> vehicleId = (flags & ROUTE_VEHICLE) != 0 ? this.vehicleIds[(int) readVarLong()] : null;
+
+			Route route = this.routeFactories.createRoute(this.routeFactories.getRouteClassForType(routeType), startLinkId, endLinkId);
+			if ((flags & ROUTE_LINKS) != 0) {
+				int size = (int) readVarLong();
+				List<Id<Link>> linkIds = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					linkIds.add(this.linkIds[(int) readVarLong()]);
+				}
+				if (route instanceof NetworkRoute) {
+					((NetworkRoute) route).setLinkIds(startLinkId, linkIds, endLinkId);
+				} else {
+					// the route type is not known as network route when reading, so use the description of network routes
+					StringBuilder description = new StringBuilder().append(startLinkId);
+					for (Id<Link> linkId : linkIds) {
+						description.append(' ').append(linkId);
+					}
+					route.setRouteDescription(description.append(' ').append(endLinkId).toString());
+				}
+			}
+			if ((flags & ROUTE_DESCRIPTION) != 0) {
+				route.setRouteDescription(readString());
+			}
+			if ((flags & ROUTE_TRAVEL_TIME) != 0) {
+				route.setTravelTime(travelTime);
+			}
+			if ((flags & ROUTE_DISTANCE) != 0) {
+				route.setDistance(distance);
+			}
+			if (vehicleId != null && route instanceof NetworkRoute) {
+				((NetworkRoute) route).setVehicleId(vehicleId);
+			}
+			return route;
+		}
+	}
+
+	/**
+	 * Reads from the current position of the file, without closing it.
+	 */
+	private static final class RandomAccessFileInputStream extends InputStream {
+		private final RandomAccessFile file;
+
+		RandomAccessFileInputStream(final RandomAccessFile file) {
+			this.file = file;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return this.file.read();
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			return this.file.read(b, off, len);
+		}
+	}
+
+}
@@ -247,7 +247,13 @@ import org.xml.sax.Attributes;
 			throw new NumberFormatException("Attribute 'selected' of Element 'Plan' is neither 'yes' nor 'no'.");
 		}
 		this.routeDescription = null;
-		this.currplan = PersonUtils.createAndAddPlan(this.currperson, selected);
+		// from the factory of the population, so that plans.compactPlans is respected
+		this.currplan = this.plans.getFactory().createPlan();
+		this.currplan.setPerson(this.currperson);
+		this.currperson.addPlan(this.currplan);
+		if (selected) {
+			this.currperson.setSelectedPlan(this.currplan);
+		}
 
 		String scoreString = atts.getValue("score");
 		if (scoreString != null) {
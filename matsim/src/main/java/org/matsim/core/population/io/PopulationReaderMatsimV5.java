@@ -191,7 +191,13 @@ import org.xml.sax.Attributes;
 					"Attribute 'selected' of Element 'Plan' is neither 'yes' nor 'no'.");
 		}
 		this.routeDescription = null;
-		this.currplan = PersonUtils.createAndAddPlan(this.currperson, selected);
+		// from the factory of the population, so that plans.compactPlans is respected
+		this.currplan = this.plans.getFactory().createPlan();
+		this.currplan.setPerson(this.currperson);
+		this.currperson.addPlan(this.currplan);
+		if (selected) {
+			this.currperson.setSelectedPlan(this.currplan);
+		}
 
 		String scoreString = atts.getValue(ATTR_PLAN_SCORE);
 		if (scoreString != null) {
@@ -27,7 +27,6 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.api.internal.MatsimReader;
-import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
@@ -109,6 +108,7 @@ import java.util.Stack;
 	private org.matsim.utils.objectattributes.attributable.Attributes currAttributes = null;
 
 	private final String targetCRS;
+	private String transformationInputCRS = null;
 	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
 
 	private Activity prevAct = null;
@@ -123,6 +123,7 @@ import java.util.Stack;
 		this.scenario = scenario;
 		this.plans = scenario.getPopulation();
 	    if (targetCRS != null && externalInputCRS !=null) {
+		    this.transformationInputCRS = externalInputCRS;
 		    this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(externalInputCRS, targetCRS);
 		    ProjectionUtils.putCRS(this.plans, targetCRS);
 	    }
@@ -191,7 +192,7 @@ import java.util.Stack;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPersonToPopulation(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -206,6 +207,7 @@ import java.util.Stack;
 							// warn or crash?
 							log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
 						}
+						transformationInputCRS = inputCRS;
 						coordinateTransformation = TransformationFactory.getCoordinateTransformation(inputCRS, targetCRS);
 						ProjectionUtils.putCRS(scenario.getPopulation(), targetCRS);
 					}
@@ -227,6 +229,26 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * Called for every completely read person. Overridden by the runners of the parallel reader,
+	 * which collect the persons instead of adding them to the population.
+	 */
+	/* package */ void addPersonToPopulation(final Person person) {
+		this.plans.addPerson(person);
+	}
+
+	/**
+	 * @return the CRS from which coordinates are currently transformed to the target CRS, or
+	 * <code>null</code> if coordinates are not transformed.
+	 */
+	/* package */ String getTransformationInputCRS() {
+		return this.transformationInputCRS;
+	}
+
+	/* package */ String getTargetCRS() {
+		return this.targetCRS;
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -249,7 +271,13 @@ import java.util.Stack;
 					"Attribute 'selected' of Element 'Plan' is neither 'yes' nor 'no'.");
 		}
 		this.routeDescription = null;
-		this.currplan = PersonUtils.createAndAddPlan(this.currperson, selected);
+		// from the factory of the population, so that plans.compactPlans is respected
+		this.currplan = this.plans.getFactory().createPlan();
+		this.currplan.setPerson(this.currperson);
+		this.currperson.addPlan(this.currplan);
+		if (selected) {
+			this.currperson.setSelectedPlan(this.currplan);
+		}
 
 		String scoreString = atts.getValue(ATTR_PLAN_SCORE);
 		if (scoreString != null) {
@@ -391,18 +419,7 @@ import java.util.Stack;
 	private void startRoute(final Attributes atts) {
 		String startLinkId = atts.getValue(ATTR_ROUTE_STARTLINK);
 		String endLinkId = atts.getValue(ATTR_ROUTE_ENDLINK);
-		String routeType = atts.getValue("type");
-		
-		if (routeType == null) {
-			String legMode = this.currleg.getMode();
-			if ("pt".equals(legMode)) {
-				routeType = "experimentalPt1";
-			} else if ("car".equals(legMode)) {
-				routeType = "links";
-			} else {
-				routeType = "generic";
-			}
-		}
+		String routeType = getRouteType(atts, this.currleg.getMode());
 		
 		RouteFactories factory = this.scenario.getPopulation().getFactory().getRouteFactories();
 		Class<? extends Route> routeClass = factory.getRouteClassForType(routeType);
@@ -422,6 +439,23 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * @return the type of the route, which depends on the mode of the leg if it is not given in the file
+	 */
+	/* package */ static String getRouteType(final Attributes atts, final String legMode) {
+		String routeType = atts.getValue("type");
+		if (routeType == null) {
+			if ("pt".equals(legMode)) {
+				routeType = "experimentalPt1";
+			} else if ("car".equals(legMode)) {
+				routeType = "links";
+			} else {
+				routeType = "generic";
+			}
+		}
+		return routeType;
+	}
+
 	private void endRoute(final String content) {
 		this.routeDescription = content;
 
@@ -0,0 +1,599 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes populations in a binary format, which can be read with {@link PopulationReaderBinary} much faster than the
+ * xml formats, by several threads.  The format keeps everything the population_v6 format keeps.
+ * <p></p>
+ * The file starts with the bytes of {@link #MAGIC} and the format {@link #VERSION}, followed by blocks:
+ * <ul>
+ * <li>the header block with the name and the attributes of the population,</li>
+ * <li>blocks of up to {@link #DEFAULT_PERSONS_PER_BLOCK} persons each,</li>
+ * <li>a block length of 0, which marks the end of the persons,</li>
+ * <li>the index block with the offset in the file and the ids of the persons of every person block,</li>
+ * <li>the offset of the index block as 8 bytes, and {@link #MAGIC} again.</li>
+ * </ul>
+ * Every block consists of its length and its uncompressed length, followed by the contents, compressed with
+ * {@link Deflater}.  Every block has its own string table, so the blocks can be decompressed and decoded independently
+ * of each other, and a single person can be read using the index at the end of the file (see
+ * {@link PopulationReaderBinary#readPerson(String, Id)}).
+ * <p></p>
+ * A block of persons starts with the number of persons and the tables of the person, link, facility and vehicle ids
+ * used in the block, each in the order of their first use, followed by the persons which refer to the ids by their
+ * position in the table.  So the reader can create the ids of a block in the order of the file before the persons are
+ * decoded by several threads, and the indices of the ids do not depend on the threads.
+ * <p></p>
+ * Within the blocks, strings are stored as variable length integer code: {@link #STRING_NULL} for <code>null</code>,
+ * {@link #STRING_NEW} followed by the length and the UTF-8 bytes of a string which gets the next index, or
+ * {@link #STRING_INDEX_OFFSET} plus the index of a string which occurred before.  Numbers are stored as zig-zag
+ * encoded variable length integer, shifted left by one bit, if they are integral (as most times are), otherwise as
+ * {@link #DOUBLE_RAW} followed by the 8 bytes of the double value.  Activities, legs and routes start with a set of
+ * flags telling which of their values follow, so undefined times and missing ids take no space.
+ * <p></p>
+ * All variable length integers use 7 bits per byte, the least significant group first, with the highest bit set on all
+ * but the last byte.
+ * <p></p>
+ * Since the blocks are compressed already, the file should not be compressed again: the file is written as it is,
+ * whatever the file ending is, and {@link PopulationReaderBinary#isBinaryFile(String)} recognizes files ending with
+ * <code>.bin</code>.
+ */
+public final class PopulationWriterBinary implements PersonAlgorithm, AutoCloseable {
+
+	public static final byte[] MAGIC = { 'M', 'A', 'T', 'S', 'I', 'M', 'P', 'O' };
+	public static final int VERSION = 2;
+
+	public static final int DEFAULT_PERSONS_PER_BLOCK = 1000;
+
+	public static final int STRING_NULL = 0;
+	public static final int STRING_NEW = 1;
+	public static final int STRING_INDEX_OFFSET = 2;
+
+	public static final int DOUBLE_RAW = 1;
+
+	/*package*/ static final int PLAN_SELECTED = 1;
+	/*package*/ static final int PLAN_SCORE = 1 << 1;
+	/*package*/ static final int PLAN_TYPE = 1 << 2;
+	/*package*/ static final int PLAN_ATTRIBUTES = 1 << 3;
+
+	/*package*/ static final int ELEMENT_LEG = 1;
+	/*package*/ static final int ELEMENT_ATTRIBUTES = 1 << 1;
+	/*package*/ static final int ACT_LINK = 1 << 2;
+	/*package*/ static final int ACT_FACILITY = 1 << 3;
+	/*package*/ static final int ACT_COORD = 1 << 4;
+	/*package*/ static final int ACT_COORD_Z = 1 << 5;
+	/*package*/ static final int ACT_START_TIME = 1 << 6;
+	/*package*/ static final int ACT_END_TIME = 1 << 7;
+	/*package*/ static final int ACT_MAXIMUM_DURATION = 1 << 8;
+	/*package*/ static final int LEG_DEPARTURE_TIME = 1 << 2;
+	/*package*/ static final int LEG_TRAVEL_TIME = 1 << 3;
+	/*package*/ static final int LEG_ROUTE = 1 << 4;
+
+	/*package*/ static final int ROUTE_START_LINK = 1;
+	/*package*/ static final int ROUTE_END_LINK = 1 << 1;
+	/*package*/ static final int ROUTE_TRAVEL_TIME = 1 << 2;
+	/*package*/ static final int ROUTE_DISTANCE = 1 << 3;
+	/*package*/ static final int ROUTE_VEHICLE = 1 << 4;
+	/*package*/ static final int ROUTE_LINKS = 1 << 5;
+	/*package*/ static final int ROUTE_DESCRIPTION = 1 << 6;
+
+	private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+	private static final double MAX_INTEGRAL = 1L << 53;
+
+	private final Population population;
+	private final CoordinateTransformation coordinateTransformation;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private int personsPerBlock = DEFAULT_PERSONS_PER_BLOCK;
+
+	private OutputStream out = null;
+	private long offset = 0;
+	private ObjectAttributesConverter attributesConverter = null;
+	private Deflater deflater = null;
+	private boolean headerWritten = false;
+
+	private final Block block = new Block();
+	private final List<String> blockPersonIds = new ArrayList<>();
+	private final IdTable personIds = new IdTable();
+	private final IdTable linkIds = new IdTable();
+	private final IdTable facilityIds = new IdTable();
+	private final IdTable vehicleIds = new IdTable();
+	private final Block index = new Block();
+	private int numberOfBlocks = 0;
+	private long lastBlockOffset = 0;
+
+	public PopulationWriterBinary(final Population population) {
+		this(new IdentityTransformation(), population);
+	}
+
+	/**
+	 * @param coordinateTransformation transformation from the internal CRS to the CRS in which the file should be written
+	 */
+	public PopulationWriterBinary(final CoordinateTransformation coordinateTransformation, final Population population) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.population = population;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> key, final AttributeConverter<?> converter) {
+		this.converters.put(key, converter);
+	}
+
+	/*package*/ void setPersonsPerBlock(final int personsPerBlock) {
+		this.personsPerBlock = personsPerBlock;
+	}
+
+	/**
+	 * Writes the whole population, sorted by person id.
+	 */
+	public void write(final String filename) {
+		startStreaming(filename);
+		for (Person person : PopulationUtils.getSortedPersons(this.population).values()) {
+			writePerson(person);
+		}
+		closeStreaming();
+	}
+
+	/**
+	 * Opens the file for writing persons one by one, with {@link #run(Person)} or {@link #writePerson(Person)}.  The name
+	 * and attributes of the population are written with the first person, so when streaming from a
+	 * {@link StreamingPopulationReader}, the population given in the constructor should be the one of its scenario.
+	 */
+	public void startStreaming(final String filename) {
+		try {
+			this.out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+			this.out.write(MAGIC);
+			this.offset = MAGIC.length;
+			Block version = new Block();
+			version.writeVarLong(VERSION);
+			this.out.write(version.bytes, 0, version.length);
+			this.offset += version.length;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.attributesConverter = new ObjectAttributesConverter(this.converters);
+		this.deflater = new Deflater();
+		this.headerWritten = false;
+		this.block.reset();
+		this.blockPersonIds.clear();
+		clearIdTables();
+		this.numberOfBlocks = 0;
+		this.lastBlockOffset = 0;
+		this.index.reset();
+	}
+
+	@Override
+	public void run(final Person person) {
+		writePerson(person);
+	}
+
+	public void writePerson(final Person person) {
+		if (!this.headerWritten) {
+			writeHeader();
+		}
+		encodePerson(person);
+		this.blockPersonIds.add(person.getId().toString());
+		if (this.blockPersonIds.size() >= this.personsPerBlock) {
+			writePersonBlock();
+		}
+	}
+
+	public void closeStreaming() {
+		try {
+			if (!this.headerWritten) {
+				writeHeader();
+			}
+			if (!this.blockPersonIds.isEmpty()) {
+				writePersonBlock();
+			}
+			Block end = new Block();
+			end.writeVarLong(0);
+			this.out.write(end.bytes, 0, end.length);
+			this.offset += end.length;
+
+			long indexOffset = this.offset;
+			Block indexBlock = new Block();
+			indexBlock.writeVarLong(this.numberOfBlocks);
+			indexBlock.writeBytes(this.index.bytes, this.index.length);
+			writeBlock(indexBlock);
+
+			for (int i = 7; i >= 0; i--) {
+				this.out.write((int) (indexOffset >>> (8 * i)));
+			}
+			this.out.write(MAGIC);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.out = null;
+			this.deflater.end();
+			this.deflater = null;
+		}
+	}
+
+	/**
+	 * Finishes the file if {@link #startStreaming(String)} was called but not yet {@link #closeStreaming()}.
+	 */
+	@Override
+	public void close() {
+		if (this.out != null) {
+			closeStreaming();
+		}
+	}
+
+	private void writeHeader() {
+		Block header = new Block();
+		header.writeString(this.population.getName());
+		header.writeAttributes(this.population.getAttributes(), this.attributesConverter);
+		writeBlock(header);
+		this.headerWritten = true;
+	}
+
+	private void writePersonBlock() {
+		long blockOffset = this.offset;
+		Block persons = new Block();
+		persons.writeVarLong(this.blockPersonIds.size());
+		for (IdTable ids : Arrays.asList(this.personIds, this.linkIds, this.facilityIds, this.vehicleIds)) {
+			persons.writeVarLong(ids.ids.size());
+			for (String id : ids.ids) {
+				persons.writeUtf8(id);
+			}
+		}
+		persons.writeBytes(this.block.bytes, this.block.length);
+		writeBlock(persons);
+		this.block.reset();
+		clearIdTables();
+
+		this.index.writeVarLong(blockOffset - this.lastBlockOffset);
+		this.index.writeVarLong(this.blockPersonIds.size());
+		for (String personId : this.blockPersonIds) {
+			// all different, so not in the string table
+			this.index.writeUtf8(personId);
+		}
+		this.lastBlockOffset = blockOffset;
+		this.numberOfBlocks++;
+		this.blockPersonIds.clear();
+	}
+
+	private void clearIdTables() {
+		this.personIds.clear();
+		this.linkIds.clear();
+		this.facilityIds.clear();
+		this.vehicleIds.clear();
+	}
+
+	private void writeBlock(final Block content) {
+		this.deflater.reset();
+		this.deflater.setInput(content.bytes, 0, content.length);
+		this.deflater.finish();
+		byte[] compressed = new byte[Math.max(64, content.length / 2)];
+		int compressedLength = 0;
+		while (!this.deflater.finished()) {
+			if (compressedLength == compressed.length) {
+				compressed = Arrays.copyOf(compressed, compressed.length * 2);
+			}
+			compressedLength += this.deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+		}
+		Block lengths = new Block();
+		lengths.writeVarLong(compressedLength);
+		lengths.writeVarLong(content.length);
+		try {
+			this.out.write(lengths.bytes, 0, lengths.length);
+			this.out.write(compressed, 0, compressedLength);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.offset += lengths.length + compressedLength;
+	}
+
+	private void encodePerson(final Person person) {
+		Block b = this.block;
+		b.writeVarLong(this.personIds.indexOf(person.getId()));
+		b.writeAttributes(person.getAttributes(), this.attributesConverter);
+		b.writeVarLong(person.getPlans().size());
+		for (Plan plan : person.getPlans()) {
+			int flags = 0;
+			flags |= PersonUtils.isSelected(plan) ? PLAN_SELECTED : 0;
+			flags |= plan.getScore() != null ? PLAN_SCORE : 0;
+			flags |= plan.getType() != null ? PLAN_TYPE : 0;
+			flags |= plan.getAttributes().size() > 0 ? PLAN_ATTRIBUTES : 0;
+			b.writeVarLong(flags);
+			if (plan.getScore() != null) {
+				b.writeDouble(plan.getScore());
+			}
+			if (plan.getType() != null) {
+				b.writeString(plan.getType());
+			}
+			if ((flags & PLAN_ATTRIBUTES) != 0) {
+				b.writeAttributes(plan.getAttributes(), this.attributesConverter);
+			}
+			b.writeVarLong(plan.getPlanElements().size());
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Activity) {
+					encodeActivity((Activity) pe);
+				} else {
+					encodeLeg((Leg) pe);
+				}
+			}
+		}
+	}
+
+	private void encodeActivity(final Activity act) {
+		Block b = this.block;
+		int flags = 0;
+		flags |= act.getAttributes().size() > 0 ? ELEMENT_ATTRIBUTES : 0;
+		flags |= act.getLinkId() != null ? ACT_LINK : 0;
+		flags |= act.getFacilityId() != null ? ACT_FACILITY : 0;
+		flags |= act.getCoord() != null ? ACT_COORD : 0;
+		flags |= act.getCoord() != null && act.getCoord().hasZ() ? ACT_COORD_Z : 0;
+		flags |= !Time.isUndefinedTime(act.getStartTime()) ? ACT_START_TIME : 0;
+		flags |= !Time.isUndefinedTime(act.getEndTime()) ? ACT_END_TIME : 0;
+		flags |= !Time.isUndefinedTime(act.getMaximumDuration()) ? ACT_MAXIMUM_DURATION : 0;
+		b.writeVarLong(flags);
+		b.writeString(act.getType());
+		if (act.getLinkId() != null) {
+			b.writeVarLong(this.linkIds.indexOf(act.getLinkId()));
+		}
+		if (act.getFacilityId() != null) {
+			b.writeVarLong(this.facilityIds.indexOf(act.getFacilityId()));
+		}
+		if (act.getCoord() != null) {
+			Coord coord = this.coordinateTransformation.transform(act.getCoord());
+			b.writeDouble(coord.getX());
+			b.writeDouble(coord.getY());
+			if (act.getCoord().hasZ()) {
+				b.writeDouble(coord.getZ());
+			}
+		}
+		if ((flags & ACT_START_TIME) != 0) {
+			b.writeDouble(act.getStartTime());
+		}
+		if ((flags & ACT_END_TIME) != 0) {
+			b.writeDouble(act.getEndTime());
+		}
+		if ((flags & ACT_MAXIMUM_DURATION) != 0) {
+			b.writeDouble(act.getMaximumDuration());
+		}
+		if ((flags & ELEMENT_ATTRIBUTES) != 0) {
+			b.writeAttributes(act.getAttributes(), this.attributesConverter);
+		}
+	}
+
+	private void encodeLeg(final Leg leg) {
+		Block b = this.block;
+		int flags = ELEMENT_LEG;
+		flags |= leg.getAttributes().size() > 0 ? ELEMENT_ATTRIBUTES : 0;
+		flags |= !Time.isUndefinedTime(leg.getDepartureTime()) ? LEG_DEPARTURE_TIME : 0;
+		flags |= !Time.isUndefinedTime(leg.getTravelTime()) ? LEG_TRAVEL_TIME : 0;
+		flags |= leg.getRoute() != null ? LEG_ROUTE : 0;
+		b.writeVarLong(flags);
+		b.writeString(leg.getMode());
+		if ((flags & LEG_DEPARTURE_TIME) != 0) {
+			b.writeDouble(leg.getDepartureTime());
+		}
+		if ((flags & LEG_TRAVEL_TIME) != 0) {
+			b.writeDouble(leg.getTravelTime());
+		}
+		if ((flags & ELEMENT_ATTRIBUTES) != 0) {
+			b.writeAttributes(leg.getAttributes(), this.attributesConverter);
+		}
+		if (leg.getRoute() != null) {
+			encodeRoute(leg.getRoute());
+		}
+	}
+
+	private void encodeRoute(final Route route) {
+		Block b = this.block;
+		NetworkRoute networkRoute = route instanceof NetworkRoute ? (NetworkRoute) route : null;
+		String description = networkRoute == null ? route.getRouteDescription() : null;
+		int flags = 0;
+		flags |= route.getStartLinkId() != null ? ROUTE_START_LINK : 0;
+		flags |= route.getEndLinkId() != null ? ROUTE_END_LINK : 0;
+		flags |= !Time.isUndefinedTime(route.getTravelTime()) ? ROUTE_TRAVEL_TIME : 0;
+		flags |= !Double.isNaN(route.getDistance()) ? ROUTE_DISTANCE : 0;
+		flags |= networkRoute != null && networkRoute.getVehicleId() != null ? ROUTE_VEHICLE : 0;
+		flags |= networkRoute != null ? ROUTE_LINKS : 0;
+		flags |= description != null ? ROUTE_DESCRIPTION : 0;
+		b.writeVarLong(flags);
+		b.writeString(route.getRouteType());
+		if (route.getStartLinkId() != null) {
+			b.writeVarLong(this.linkIds.indexOf(route.getStartLinkId()));
+		}
+		if (route.getEndLinkId() != null) {
+			b.writeVarLong(this.linkIds.indexOf(route.getEndLinkId()));
+		}
+		if ((flags & ROUTE_TRAVEL_TIME) != 0) {
+			b.writeDouble(route.getTravelTime());
+		}
+		if ((flags & ROUTE_DISTANCE) != 0) {
+			b.writeDouble(route.getDistance());
+		}
+		if ((flags & ROUTE_VEHICLE) != 0) {
+			b.writeVarLong(this.vehicleIds.indexOf(networkRoute.getVehicleId()));
+		}
+		if (networkRoute != null) {
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			b.writeVarLong(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				b.writeVarLong(this.linkIds.indexOf(linkId));
+			}
+		}
+		if (description != null) {
+			b.writeString(description);
+		}
+	}
+
+	/**
+	 * The ids of one type used in the current block of persons, in the order of their first use.
+	 */
+	private static final class IdTable {
+		private final Map<Id<?>, Integer> indices = new HashMap<>();
+		private final List<String> ids = new ArrayList<>();
+
+		int indexOf(final Id<?> id) {
+			Integer index = this.indices.get(id);
+			if (index == null) {
+				index = this.ids.size();
+				this.indices.put(id, index);
+				this.ids.add(id.toString());
+			}
+			return index;
+		}
+
+		void clear() {
+			this.indices.clear();
+			this.ids.clear();
+		}
+	}
+
+	/**
+	 * The contents of a block before compression, with its own string table.
+	 */
+	private static final class Block {
+		private byte[] bytes = new byte[1 << 12];
+		private int length = 0;
+		private final Map<String, Integer> stringTable = new HashMap<>();
+
+		void reset() {
+			this.length = 0;
+			this.stringTable.clear();
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (this.length + additional > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + additional));
+			}
+		}
+
+		void writeVarLong(final long value) {
+			ensureCapacity(10);
+			long v = value;
+			while ((v & ~0x7FL) != 0) {
+				this.bytes[this.length++] = (byte) ((v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			this.bytes[this.length++] = (byte) v;
+		}
+
+		void writeBytes(final byte[] src, final int srcLength) {
+			ensureCapacity(srcLength);
+			System.arraycopy(src, 0, this.bytes, this.length, srcLength);
+			this.length += srcLength;
+		}
+
+		void writeString(final String s) {
+			if (s == null) {
+				writeVarLong(STRING_NULL);
+				return;
+			}
+			Integer index = this.stringTable.get(s);
+			if (index != null) {
+				writeVarLong(STRING_INDEX_OFFSET + index);
+				return;
+			}
+			this.stringTable.put(s, this.stringTable.size());
+			writeVarLong(STRING_NEW);
+			writeUtf8(s);
+		}
+
+		void writeUtf8(final String s) {
+			byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(utf8.length);
+			writeBytes(utf8, utf8.length);
+		}
+
+		/**
+		 * Integral values are only written as integers if they are exactly representable as double and not -0.0, so
+		 * reading them back gives the same value.
+		 */
+		void writeDouble(final double value) {
+			if (value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL
+					&& Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+				long v = (long) value;
+				writeVarLong(((v << 1) ^ (v >> 63)) << 1);
+			} else {
+				writeVarLong(DOUBLE_RAW);
+				long bits = Double.doubleToRawLongBits(value);
+				ensureCapacity(8);
+				for (int i = 7; i >= 0; i--) {
+					this.bytes[this.length++] = (byte) (bits >>> (8 * i));
+				}
+			}
+		}
+
+		/**
+		 * Writes the number of attributes followed by name, class and value of every attribute.  Like in the xml
+		 * formats, attributes which cannot be converted to a string are not written.
+		 */
+		void writeAttributes(final Attributes attributes, final ObjectAttributesConverter converter) {
+			List<String> converted = new ArrayList<>(attributes.size() * 3);
+			for (Map.Entry<String, Object> attribute : attributes.getAsMap().entrySet()) {
+				String value = converter.convertToString(attribute.getValue());
+				if (value != null) {
+					converted.add(attribute.getKey());
+					converted.add(attribute.getValue().getClass().getName());
+					converted.add(value);
+				}
+			}
+			writeVarLong(converted.size() / 3);
+			for (String s : converted) {
+				writeString(s);
+			}
+		}
+	}
+
+}
@@ -42,6 +42,7 @@ public final class StreamingPopulationReader implements MatsimReader {
 	private static final Logger log = Logger.getLogger(StreamingPopulationReader.class);
 	
 	private PopulationReader reader ;
+	private final PopulationReaderBinary binaryReader ;
 	private final StreamingPopulation pop ;
 	private int cnt;
 
@@ -58,6 +59,7 @@ public final class StreamingPopulationReader implements MatsimReader {
 			pop = new StreamingPopulation( scenario.getConfig() ) ;
 			((MutableScenario) scenario).setPopulation(pop);
 			reader = new PopulationReader( inputCRS, targetCRS, scenario, true) ;
+			binaryReader = new PopulationReaderBinary( inputCRS, targetCRS, scenario, true ) ;
 		} else {
 			throw new RuntimeException("scenario given into this class needs to be an instance of MutableScenario.") ;
 		}
@@ -66,12 +68,16 @@ public final class StreamingPopulationReader implements MatsimReader {
 		return pop ;
 	}
 	@Override public void readFile(String filename) {
-		reader.readFile(filename);
+		if ( PopulationReaderBinary.isBinaryFile( filename ) ) {
+			binaryReader.readFile( filename );
+		} else {
+			reader.readFile(filename);
+		}
 	}
 
 	@Override
 	public void readURL( URL url ) {
-		reader.parse( url ) ;
+		parse( url ) ;
 	}
 
 	public void parse(InputStream is) {
@@ -79,7 +85,11 @@ public final class StreamingPopulationReader implements MatsimReader {
 	}
 
 	public void parse(URL url) {
-		reader.parse( url );
+		if ( PopulationReaderBinary.isBinaryFile( url.getPath() ) ) {
+			binaryReader.readURL( url );
+		} else {
+			reader.parse( url );
+		}
 	}
 
 	//////////////////////////////////////////////////////////////////////
@@ -39,6 +39,8 @@ public final class RouteFactories {
 	public RouteFactories() {
 		this.setRouteFactory(NetworkRoute.class, new LinkNetworkRouteFactory());
 		this.setRouteFactory(ExperimentalTransitRoute.class, new ExperimentalTransitRouteFactory());
+		// so that routes written by VarIntNetworkRouteImpl can be read back whatever the configured network route type is
+		this.setRouteFactory(VarIntNetworkRouteImpl.class, new VarIntNetworkRouteFactory());
 	}
 	
 	/**
@@ -0,0 +1,409 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VarIntNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which stores the links of the route as the differences between the indices
+ * ({@link Id#index()}) of subsequent links, as variable-length integers in a byte array.  The links of a road are
+ * often created one after the other, so most differences fit into one or two bytes, instead of four bytes per link in
+ * a list of ids.
+ * <p></p>
+ * {@link #getLinkIds()} returns an unmodifiable view which decodes the links only when they are accessed.  Iterating
+ * over it, or calling <code>get(i)</code> with ascending <code>i</code> like the mobsim agents do, takes constant time
+ * per link.
+ * <p></p>
+ * The route description, as written to population files, is encoded in the same way if all link ids are integer
+ * numbers: <code>~</code> followed by the differences between the numeric ids of start link, links and end link as
+ * variable-length integers, in url-safe base64.  The route type is then {@value #ROUTE_TYPE}, which is known to the
+ * {@link RouteFactories} by default.  Otherwise the route is written like a {@link LinkNetworkRouteImpl}.
+ *
+ * @see org.matsim.core.config.groups.PlansConfigGroup.NetworkRouteType#VarIntNetworkRoute
+ */
+final class VarIntNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	/*package*/ final static String ROUTE_TYPE = "encodedLinks";
+	private final static char ENCODED_PREFIX = '~';
+	private final static byte[] NO_LINKS = new byte[0];
+
+	/** the link indices and the byte offset after a link, to continue decoding from there */
+	private static final class Cursor {
+		final byte[] links;
+		final int index;
+		final int offset;
+		final int value;
+
+		Cursor(final byte[] links, final int index, final int offset, final int value) {
+			this.links = links;
+			this.index = index;
+			this.offset = offset;
+			this.value = value;
+		}
+	}
+
+	private byte[] links = NO_LINKS;
+	private int linkCount = 0;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+	/** where the last call to {@link #getLink(int)} stopped decoding; replaced, never changed, so it can be shared */
+	private Cursor cursor = null;
+
+	VarIntNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+	}
+
+	@Override
+	public VarIntNetworkRouteImpl clone() {
+		// the byte array is never changed, but replaced in setLinkIds
+		return (VarIntNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return new LinkIds();
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.links = NO_LINKS;
+			this.linkCount = 0;
+		} else {
+			byte[] bytes = new byte[srcRoute.size() * 2];
+			int length = 0;
+			long previous = 0;
+			for (Id<Link> linkId : srcRoute) {
+				if (bytes.length - length < 10) {
+					bytes = Arrays.copyOf(bytes, bytes.length * 2 + 10);
+				}
+				length = writeVarLong(bytes, length, linkId.index() - previous);
+				previous = linkId.index();
+			}
+			this.links = Arrays.copyOf(bytes, length);
+			this.linkCount = srcRoute.size();
+		}
+		this.cursor = null;
+	}
+
+	private Id<Link> getLink(final int index) {
+		if (index < 0 || index >= this.linkCount) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.linkCount);
+		}
+		byte[] bytes = this.links;
+		Cursor c = this.cursor;
+		int i = -1;
+		int offset = 0;
+		long value = 0;
+		if (c != null && c.links == bytes && c.index <= index) {
+			i = c.index;
+			offset = c.offset;
+			value = c.value;
+		}
+		long[] decoded = new long[1];
+		while (i < index) {
+			offset = readVarLong(bytes, offset, decoded);
+			value += decoded[0];
+			i++;
+		}
+		this.cursor = new Cursor(bytes, index, offset, (int) value);
+		return Id.get((int) value, Link.class);
+	}
+
+	/**
+	 * The view on the links returned by {@link #getLinkIds()}.
+	 */
+	private final class LinkIds extends AbstractList<Id<Link>> {
+		@Override
+		public Id<Link> get(final int index) {
+			return getLink(index);
+		}
+
+		@Override
+		public int size() {
+			return VarIntNetworkRouteImpl.this.linkCount;
+		}
+
+		@Override
+		public Iterator<Id<Link>> iterator() {
+			final byte[] bytes = VarIntNetworkRouteImpl.this.links;
+			final int count = VarIntNetworkRouteImpl.this.linkCount;
+			return new Iterator<Id<Link>>() {
+				private final long[] decoded = new long[1];
+				private int next = 0;
+				private int offset = 0;
+				private long value = 0;
+
+				@Override
+				public boolean hasNext() {
+					return this.next < count;
+				}
+
+				@Override
+				public Id<Link> next() {
+					if (this.next >= count) {
+						throw new NoSuchElementException();
+					}
+					this.offset = readVarLong(bytes, this.offset, this.decoded);
+					this.value += this.decoded[0];
+					this.next++;
+					return Id.get((int) this.value, Link.class);
+				}
+			};
+		}
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		List<Id<Link>> route = new ArrayList<>(getLinkIds());
+		/*
+		 * the index where the link after fromLinkId can be found in the route:
+		 * fromIndex==0 --> fromLinkId == startLinkId,
+		 * fromIndex==1 --> fromLinkId == first link in the route, etc.
+		 */
+		int fromIndex = -1;
+		/* the index where toLinkId can be found in the route */
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0, n = route.size(); (i < n) && (fromIndex < 0); i++) {
+				if (fromLinkId.equals(route.get(i))) {
+					fromIndex = i+1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = route.size();
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex, n = route.size(); (i < n) && (toIndex < 0); i++) {
+				if (fromLinkId.equals(route.get(i))) {
+					fromIndex = i+1; // in case of a loop, cut it short
+				}
+				if (toLinkId.equals(route.get(i))) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = route.size();
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		NetworkRoute ret = new VarIntNetworkRouteImpl(fromLinkId, toLinkId);
+		if (toIndex > fromIndex) {
+			ret.setLinkIds(fromLinkId, route.subList(fromIndex, toIndex), toLinkId);
+		} else {
+			ret.setLinkIds(fromLinkId, null, toLinkId);
+		}
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		long[] numericIds = getNumericIds();
+		if (numericIds != null) {
+			byte[] bytes = new byte[numericIds.length * 10];
+			int length = 0;
+			long previous = 0;
+			for (long id : numericIds) {
+				length = writeVarLong(bytes, length, id - previous);
+				previous = id;
+			}
+			return ENCODED_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(bytes, length));
+		}
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Id<Link> linkId : this.getLinkIds()) {
+			desc.append(" ");
+			desc.append(linkId.toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.linkCount > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds;
+		if (!routeDescription.isEmpty() && routeDescription.charAt(0) == ENCODED_PREFIX) {
+			byte[] bytes = Base64.getUrlDecoder().decode(routeDescription.substring(1));
+			linkIds = new ArrayList<>();
+			long[] decoded = new long[1];
+			long id = 0;
+			for (int offset = 0; offset < bytes.length; ) {
+				offset = readVarLong(bytes, offset, decoded);
+				id += decoded[0];
+				linkIds.add(Id.createLinkId(id));
+			}
+		} else {
+			linkIds = NetworkUtils.getLinkIds(routeDescription);
+		}
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return getNumericIds() != null ? ROUTE_TYPE : LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	/**
+	 * @return the ids of start link, links and end link as numbers, or <code>null</code> if not all of them are
+	 * integer numbers which are written the same way by {@link Long#toString(long)}.
+	 */
+	private long[] getNumericIds() {
+		if (this.getStartLinkId() == null || this.getEndLinkId() == null) {
+			return null;
+		}
+		long[] ids = new long[this.linkCount + 2];
+		int i = 0;
+		ids[i++] = parseNumericId(this.getStartLinkId());
+		for (Id<Link> linkId : this.getLinkIds()) {
+			ids[i++] = parseNumericId(linkId);
+		}
+		ids[i] = parseNumericId(this.getEndLinkId());
+		for (long id : ids) {
+			if (id == Long.MIN_VALUE) {
+				return null;
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * @return {@link Long#MIN_VALUE} if the id is not an integer number in canonical form
+	 */
+	private static long parseNumericId(final Id<Link> linkId) {
+		String id = linkId.toString();
+		int length = id.length();
+		int start = length > 0 && id.charAt(0) == '-' ? 1 : 0;
+		if (length == start || length - start > 18 || (id.charAt(start) == '0' && length > start + 1)) {
+			return Long.MIN_VALUE;
+		}
+		for (int i = start; i < length; i++) {
+			char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				return Long.MIN_VALUE;
+			}
+		}
+		if (id.equals("-0")) {
+			return Long.MIN_VALUE;
+		}
+		return Long.parseLong(id);
+	}
+
+	/**
+	 * Writes the zigzag-encoded value in groups of seven bits, the lowest first.
+	 *
+	 * @return the offset after the written bytes
+	 */
+	private static int writeVarLong(final byte[] bytes, final int offset, final long value) {
+		long v = (value << 1) ^ (value >> 63);
+		int o = offset;
+		while ((v & ~0x7FL) != 0) {
+			bytes[o++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		bytes[o++] = (byte) v;
+		return o;
+	}
+
+	/**
+	 * @return the offset after the read bytes; the value is stored in <code>value[0]</code>
+	 */
+	private static int readVarLong(final byte[] bytes, final int offset, final long[] value) {
+		long v = 0;
+		int shift = 0;
+		int o = offset;
+		byte b;
+		do {
+			b = bytes[o++];
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		value[0] = (v >>> 1) ^ -(v & 1);
+		return o;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+}
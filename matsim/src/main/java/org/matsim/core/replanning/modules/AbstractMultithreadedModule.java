@@ -24,13 +24,22 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +59,13 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link GlobalConfigGroup#isWorkStealingReplanning()}, the plans are instead handed out in small
+ * batches to a work-stealing {@link ForkJoinPool}, which is kept from iteration to iteration.  There is
+ * still one plan algorithm per thread, but a plan may be handled by any of them.  To nevertheless get
+ * reproducible runs, the random number generators the plan algorithm got from
+ * {@link MatsimRandom#getLocalInstance()} are re-seeded for every plan, depending on the person and
+ * the iteration.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -58,7 +74,10 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+	private static final int BATCH_SIZE = 8;
+
 	private final int numOfThreads;
+	private final boolean workStealing;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -67,6 +86,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	private int count = 0;
 
+	private ForkJoinPool pool = null;
+	private BlockingQueue<SeededPlanAlgo> idleAlgos = null;
+	private List<Plan> plans = null;
+
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 
@@ -83,11 +106,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.isWorkStealingReplanning());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, false);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final boolean workStealing) {
 		this.numOfThreads = numOfThreads;
+		this.workStealing = workStealing;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,6 +133,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+		} else if (this.workStealing) {
+			initPool();
 		} else {
 			initThreads();
 		}
@@ -118,7 +148,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.workStealing) {
+				this.plans.add(plan);
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -136,7 +170,18 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
-		if (this.directAlgo == null) {
+		if (this.directAlgo == null && this.workStealing) {
+			log.info("[" + this.name + "] handling " + this.count + " plans in batches of " + BATCH_SIZE + " with " + this.numOfThreads + " threads");
+			try {
+				this.pool.invoke(new PlanBatch(0, this.plans.size()));
+			} catch (RuntimeException | Error e) {
+				throw new RuntimeException("Some plans crashed, thus not all plans may have been handled.", e);
+			} finally {
+				this.plans = null;
+				this.idleAlgos = null;
+			}
+			log.info("[" + this.name + "] all " + this.count + " plans handled.");
+		} else if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
@@ -193,6 +238,35 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void initPool() {
+		if (this.plans != null) {
+			throw new RuntimeException("pool is already initialized");
+		}
+
+		this.plans = new ArrayList<>();
+		this.idleAlgos = new ArrayBlockingQueue<>(this.numOfThreads);
+		Counter counter = null;
+		for (int i = 0; i < this.numOfThreads; i++) {
+			List<Random> randoms = new ArrayList<>();
+			PlanAlgorithm algo = MatsimRandom.recordLocalInstances(this::getPlanAlgoInstance, randoms);
+			if (i == 0) {
+				this.name = algo.getClass().getSimpleName();
+				counter = new Counter("[" + this.name + "] handled plan # ");
+			}
+			this.idleAlgos.add(new SeededPlanAlgo(algo, randoms, counter));
+		}
+
+		if (this.pool == null) {
+			final String threadName = this.name;
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.pool = new ForkJoinPool(this.numOfThreads, pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName(threadName + "." + threadCount.getAndIncrement());
+				return thread;
+			}, null, false);
+		}
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -213,6 +287,67 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
+	/**
+	 * Splits the plans until a batch is small enough, which is then handled by one of the idle plan algorithms.
+	 */
+	private final class PlanBatch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		PlanBatch(final int from, final int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > BATCH_SIZE) {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PlanBatch(this.from, middle), new PlanBatch(middle, this.to));
+				return;
+			}
+			long salt = 31L * (31L * AbstractMultithreadedModule.this.getClass().getName().hashCode()
+					+ (replanningContext == null ? 0 : replanningContext.getIteration()));
+			SeededPlanAlgo algo;
+			try {
+				algo = idleAlgos.take();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			try {
+				for (int i = this.from; i < this.to; i++) {
+					algo.run(plans.get(i), salt);
+				}
+			} finally {
+				idleAlgos.add(algo);
+			}
+		}
+	}
+
+	private final static class SeededPlanAlgo {
+
+		private final PlanAlgorithm planAlgo;
+		private final List<Random> randoms;
+		private final Counter counter;
+
+		SeededPlanAlgo(final PlanAlgorithm algo, final List<Random> randoms, final Counter counter) {
+			this.planAlgo = algo;
+			this.randoms = randoms;
+			this.counter = counter;
+		}
+
+		void run(final Plan plan, final long salt) {
+			long key = salt + (plan.getPerson() == null ? 0 : plan.getPerson().getId().toString().hashCode());
+			for (int i = 0; i < this.randoms.size(); i++) {
+				MatsimRandom.reseed(this.randoms.get(i), 31L * key + i);
+			}
+			this.planAlgo.run(plan);
+			this.counter.incCounter();
+		}
+	}
+
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
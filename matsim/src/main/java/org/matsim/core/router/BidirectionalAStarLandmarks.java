@@ -0,0 +1,265 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalAStarLandmarks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.util.LandmarkGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Bidirectional A* with landmarks (ALT).  A forward search from the start node and a backward search from the end
+ * node are run alternately until they meet, both guided by the average of the landmark lower bounds to the end and
+ * from the start node, which is consistent for both directions.
+ * <p></p>
+ * As the backward search does not know the arrival time, the link costs are evaluated at the departure time for the
+ * whole path, i.e. the travel disutilities are assumed to be constant during a trip.  Travel time and cost of the
+ * returned path are computed along the path with the actual times, like in {@link Dijkstra}.
+ * <p></p>
+ * The network and the landmark costs are taken from a {@link LandmarkGraph}, which can be shared by all instances.
+ * Each instance only holds its search state in primitive arrays, about 64 bytes per node.  Like the other routers,
+ * instances are not thread-safe.
+ */
+public class BidirectionalAStarLandmarks implements LeastCostPathCalculator {
+
+	private static final int ACTIVE_LANDMARKS = 4;
+
+	private final LandmarkGraph graph;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardLink;
+	private final int[] backwardLink;
+	private final IntBinaryMinHeap forwardHeap;
+	private final IntBinaryMinHeap backwardHeap;
+	/** NaN for nodes not yet touched in the current search */
+	private final double[] potential;
+	private int[] touched = new int[1024];
+	private int touchedCount = 0;
+
+	private final int[] activeLandmarks;
+	private int source;
+	private int target;
+
+	public BidirectionalAStarLandmarks(final LandmarkGraph graph, final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.graph = graph;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		int nodeCount = graph.getNodeCount();
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.forwardLink = new int[nodeCount];
+		this.backwardLink = new int[nodeCount];
+		this.forwardHeap = new IntBinaryMinHeap(nodeCount);
+		this.backwardHeap = new IntBinaryMinHeap(nodeCount);
+		this.potential = new double[nodeCount];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.potential, Double.NaN);
+		this.activeLandmarks = new int[Math.min(ACTIVE_LANDMARKS, graph.getLandmarkCount())];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getIndex(fromNode);
+		int to = this.graph.getIndex(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		if (from == to) {
+			return createPath(fromNode, new ArrayList<>(), starttime, person, vehicle);
+		}
+		if (!selectLandmarks(from, to)) {
+			return null;
+		}
+
+		this.source = from;
+		this.target = to;
+		this.forwardCost[from] = 0.0;
+		this.forwardHeap.decreaseKey(from, getPotential(from));
+		this.backwardCost[to] = 0.0;
+		this.backwardHeap.decreaseKey(to, -getPotential(to));
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+		while (!this.forwardHeap.isEmpty() && !this.backwardHeap.isEmpty()) {
+			double forwardKey = this.forwardHeap.peekKey();
+			double backwardKey = this.backwardHeap.peekKey();
+			if (forwardKey + backwardKey >= bestCost) {
+				break;
+			}
+			if (forwardKey <= backwardKey) {
+				int node = this.forwardHeap.poll();
+				double cost = this.forwardCost[node];
+				for (int i = this.graph.getFirstOutLink(node), end = this.graph.getFirstOutLink(node + 1); i < end; i++) {
+					int link = this.graph.getOutLink(i);
+					int next = this.graph.getToNode(link);
+					double nextPotential = getPotential(next);
+					if (nextPotential == Double.POSITIVE_INFINITY) {
+						continue;
+					}
+					double newCost = cost + this.travelDisutility.getLinkTravelDisutility(this.graph.getLink(link), starttime, person, vehicle);
+					if (newCost < this.forwardCost[next]) {
+						this.forwardCost[next] = newCost;
+						this.forwardLink[next] = link;
+						this.forwardHeap.decreaseKey(next, newCost + nextPotential);
+						if (newCost + this.backwardCost[next] < bestCost) {
+							bestCost = newCost + this.backwardCost[next];
+							meeting = next;
+						}
+					}
+				}
+			} else {
+				int node = this.backwardHeap.poll();
+				double cost = this.backwardCost[node];
+				for (int i = this.graph.getFirstInLink(node), end = this.graph.getFirstInLink(node + 1); i < end; i++) {
+					int link = this.graph.getInLink(i);
+					int previous = this.graph.getFromNode(link);
+					double previousPotential = getPotential(previous);
+					if (previousPotential == Double.POSITIVE_INFINITY) {
+						continue;
+					}
+					double newCost = cost + this.travelDisutility.getLinkTravelDisutility(this.graph.getLink(link), starttime, person, vehicle);
+					if (newCost < this.backwardCost[previous]) {
+						this.backwardCost[previous] = newCost;
+						this.backwardLink[previous] = link;
+						this.backwardHeap.decreaseKey(previous, newCost - previousPotential);
+						if (newCost + this.forwardCost[previous] < bestCost) {
+							bestCost = newCost + this.forwardCost[previous];
+							meeting = previous;
+						}
+					}
+				}
+			}
+		}
+
+		List<Link> links = null;
+		if (meeting >= 0) {
+			links = new ArrayList<>();
+			for (int node = meeting; node != from; node = this.graph.getFromNode(this.forwardLink[node])) {
+				links.add(this.graph.getLink(this.forwardLink[node]));
+			}
+			Collections.reverse(links);
+			for (int node = meeting; node != to; node = this.graph.getToNode(this.backwardLink[node])) {
+				links.add(this.graph.getLink(this.backwardLink[node]));
+			}
+		}
+		reset();
+
+		if (links == null) {
+			return null;
+		}
+		return createPath(fromNode, links, starttime, person, vehicle);
+	}
+
+	/**
+	 * Chooses the landmarks giving the best lower bounds for the cost between the two nodes.
+	 *
+	 * @return false if the landmarks show that there is no path
+	 */
+	private boolean selectLandmarks(final int from, final int to) {
+		double[] bounds = new double[this.activeLandmarks.length];
+		Arrays.fill(bounds, Double.NEGATIVE_INFINITY);
+		for (int l = 0; l < this.graph.getLandmarkCount(); l++) {
+			double bound = this.graph.getLowerBound(from, to, l);
+			if (bound == Double.POSITIVE_INFINITY) {
+				return false;
+			}
+			for (int i = 0; i < bounds.length; i++) {
+				if (bound > bounds[i]) {
+					System.arraycopy(bounds, i, bounds, i + 1, bounds.length - i - 1);
+					System.arraycopy(this.activeLandmarks, i, this.activeLandmarks, i + 1, bounds.length - i - 1);
+					bounds[i] = bound;
+					this.activeLandmarks[i] = l;
+					break;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The average of the lower bounds to the target and from the source, so that the reduced costs are non-negative
+	 * in both directions.  {@link Double#POSITIVE_INFINITY} if the node cannot be on any path from the source to the
+	 * target.
+	 */
+	private double getPotential(final int node) {
+		double value = this.potential[node];
+		if (Double.isNaN(value)) {
+			double toTarget = 0.0;
+			double fromSource = 0.0;
+			for (int landmark : this.activeLandmarks) {
+				toTarget = Math.max(toTarget, this.graph.getLowerBound(node, this.target, landmark));
+				fromSource = Math.max(fromSource, this.graph.getLowerBound(this.source, node, landmark));
+			}
+			if (toTarget == Double.POSITIVE_INFINITY || fromSource == Double.POSITIVE_INFINITY) {
+				value = Double.POSITIVE_INFINITY;
+			} else {
+				value = (toTarget - fromSource) / 2;
+			}
+			this.potential[node] = value;
+			if (this.touchedCount == this.touched.length) {
+				this.touched = Arrays.copyOf(this.touched, 2 * this.touched.length);
+			}
+			this.touched[this.touchedCount++] = node;
+		}
+		return value;
+	}
+
+	private void reset() {
+		for (int i = 0; i < this.touchedCount; i++) {
+			int node = this.touched[i];
+			this.forwardCost[node] = Double.POSITIVE_INFINITY;
+			this.backwardCost[node] = Double.POSITIVE_INFINITY;
+			this.potential[node] = Double.NaN;
+		}
+		this.touchedCount = 0;
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+	}
+
+	private Path createPath(final Node fromNode, final List<Link> links, final double starttime, final Person person, final Vehicle vehicle) {
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+}
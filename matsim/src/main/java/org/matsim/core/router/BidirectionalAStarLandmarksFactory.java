@@ -0,0 +1,63 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalAStarLandmarksFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.router.util.LandmarkGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link BidirectionalAStarLandmarks}.  The {@link LandmarkGraph} is computed once per network, with the
+ * travel disutility of the first calculator created for it, and is shared by all calculators for that network.
+ */
+@Singleton
+public class BidirectionalAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+
+	private final Map<Network, LandmarkGraph> graphs = new HashMap<>();
+
+	private final int nThreads;
+
+	@Inject
+	public BidirectionalAStarLandmarksFactory(final GlobalConfigGroup globalConfigGroup) {
+		this(globalConfigGroup.getNumberOfThreads());
+	}
+
+	public BidirectionalAStarLandmarksFactory(final int numberOfThreads) {
+		this.nThreads = numberOfThreads;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		LandmarkGraph graph = this.graphs.computeIfAbsent(network, n -> new LandmarkGraph(n, travelCosts, this.nThreads));
+		return new BidirectionalAStarLandmarks(graph, travelCosts, travelTimes);
+	}
+
+}
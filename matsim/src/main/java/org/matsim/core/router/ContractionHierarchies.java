@@ -0,0 +1,239 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.ContractionHierarchiesGraph;
+import org.matsim.core.router.util.ContractionHierarchiesGraph.Customization;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.TimeBinUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on customizable contraction hierarchies, see {@link ContractionHierarchiesGraph}.
+ * <p></p>
+ * The day is split into time bins, and the graph is customized with the travel disutilities in the middle of
+ * each time bin, when the first path starting in the bin is searched.  The path is searched with the costs of the
+ * bin of the start time, i.e. the travel disutilities are assumed to be constant during a trip.  Travel time and
+ * cost of the returned path are computed along the path with the actual times, person and vehicle, like in
+ * {@link Dijkstra}.  Person dependent travel disutilities (e.g. routing randomness) are not taken into account when
+ * searching the path.
+ * <p></p>
+ * A query only visits the ancestors of the start and end node in the elimination tree of the graph, so no priority
+ * queue is needed.
+ * <p></p>
+ * Like the other routers, instances are not thread-safe.  The customizations may be shared between instances used
+ * by different threads.
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final ContractionHierarchiesGraph graph;
+	private final TimeBinCustomizations customizations;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardPredecessor;
+	private final int[] backwardPredecessor;
+
+	/**
+	 * @param timeBinSize size of the time bins in seconds, the last bin is used for all times after maxTime
+	 */
+	public ContractionHierarchies(final ContractionHierarchiesGraph graph, final TravelDisutility travelDisutility,
+			final TravelTime travelTime, final int timeBinSize, final int maxTime) {
+		this(new TimeBinCustomizations(graph, timeBinSize, maxTime), travelDisutility, travelTime);
+	}
+
+	ContractionHierarchies(final TimeBinCustomizations customizations, final TravelDisutility travelDisutility,
+			final TravelTime travelTime) {
+		this.graph = customizations.graph;
+		this.customizations = customizations;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		int nodeCount = this.graph.getNodeCount();
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.forwardPredecessor = new int[nodeCount];
+		this.backwardPredecessor = new int[nodeCount];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getRank(fromNode);
+		int to = this.graph.getRank(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		Customization customization = this.customizations.get(starttime, this.travelDisutility);
+
+		this.forwardCost[from] = 0.0;
+		for (int x = from; x >= 0; x = this.graph.getParent(x)) {
+			relax(x, this.forwardCost, this.forwardPredecessor, customization, true);
+		}
+		this.backwardCost[to] = 0.0;
+		for (int x = to; x >= 0; x = this.graph.getParent(x)) {
+			relax(x, this.backwardCost, this.backwardPredecessor, customization, false);
+		}
+
+		// the upward search spaces of both nodes meet in their common ancestors
+		int meeting = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int x = to; x >= 0; x = this.graph.getParent(x)) {
+			double cost = this.forwardCost[x] + this.backwardCost[x];
+			if (cost < bestCost) {
+				bestCost = cost;
+				meeting = x;
+			}
+		}
+
+		List<Link> links = null;
+		if (meeting >= 0) {
+			links = new ArrayList<>();
+			List<Integer> upward = new ArrayList<>();
+			for (int x = meeting; x != from; x = this.forwardPredecessor[x]) {
+				upward.add(x);
+			}
+			int previous = from;
+			for (int i = upward.size() - 1; i >= 0; i--) {
+				int x = upward.get(i);
+				unpack(previous, x, customization, links);
+				previous = x;
+			}
+			for (int x = meeting; x != to; x = this.backwardPredecessor[x]) {
+				unpack(x, this.backwardPredecessor[x], customization, links);
+			}
+		}
+
+		reset(from, this.forwardCost);
+		reset(to, this.backwardCost);
+
+		if (links == null) {
+			return null;
+		}
+		return createPath(fromNode, links, starttime, person, vehicle);
+	}
+
+	private void relax(final int x, final double[] costs, final int[] predecessors, final Customization customization, final boolean forward) {
+		double cost = costs[x];
+		if (cost == Double.POSITIVE_INFINITY) {
+			return;
+		}
+		int end = this.graph.getFirstEdge(x + 1);
+		for (int edge = this.graph.getFirstEdge(x); edge < end; edge++) {
+			double newCost = cost + (forward ? customization.getUpCost(edge) : customization.getDownCost(edge));
+			int y = this.graph.getEdgeHead(edge);
+			if (newCost < costs[y]) {
+				costs[y] = newCost;
+				predecessors[y] = x;
+			}
+		}
+	}
+
+	private void reset(final int start, final double[] costs) {
+		for (int x = start; x >= 0; x = this.graph.getParent(x)) {
+			costs[x] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Adds the links of the edge between the two nodes, in the direction from the first to the second node.
+	 */
+	private void unpack(final int from, final int to, final Customization customization, final List<Link> links) {
+		int via;
+		if (from < to) {
+			via = customization.getUpVia(this.graph.getEdge(from, to));
+		} else {
+			via = customization.getDownVia(this.graph.getEdge(to, from));
+		}
+		if (via < 0) {
+			links.add(this.graph.getLink(-via - 1));
+		} else {
+			unpack(from, via, customization, links);
+			unpack(via, to, customization, links);
+		}
+	}
+
+	private Path createPath(final Node fromNode, final List<Link> links, final double starttime, final Person person, final Vehicle vehicle) {
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * The customizations of a graph, one per time bin, computed when they are first needed.  Queries for time bins
+	 * which are already customized do not take a lock.  A customization only blocks the queries for the same time bin,
+	 * so that every time bin is customized only once.
+	 */
+	static final class TimeBinCustomizations {
+		private final ContractionHierarchiesGraph graph;
+		private final int timeBinSize;
+		private final int timeBinCount;
+		private final AtomicReferenceArray<Customization> customizations;
+		private final Object[] locks;
+
+		TimeBinCustomizations(final ContractionHierarchiesGraph graph, final int timeBinSize, final int maxTime) {
+			this.graph = graph;
+			this.timeBinSize = timeBinSize;
+			this.timeBinCount = TimeBinUtils.getTimeBinCount(maxTime, timeBinSize);
+			this.customizations = new AtomicReferenceArray<>(this.timeBinCount);
+			this.locks = new Object[this.timeBinCount];
+			for (int bin = 0; bin < this.timeBinCount; bin++) {
+				this.locks[bin] = new Object();
+			}
+		}
+
+		Customization get(final double time, final TravelDisutility travelDisutility) {
+			int bin = TimeBinUtils.getTimeBinIndex(Math.max(0.0, time), this.timeBinSize, this.timeBinCount);
+			Customization customization = this.customizations.get(bin);
+			if (customization == null) {
+				synchronized (this.locks[bin]) {
+					customization = this.customizations.get(bin);
+					if (customization == null) {
+						customization = this.graph.customize(travelDisutility, (bin + 0.5) * this.timeBinSize);
+						this.customizations.set(bin, customization);
+					}
+				}
+			}
+			return customization;
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.ContractionHierarchiesGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies}.  The contraction is done once per network.  The customizations are shared
+ * by all calculators for the same network, travel times and travel disutility instance, and are discarded at the
+ * start of every iteration, as the travel times have changed then.  Disutilities of the same class may have different
+ * parameters, e.g. the ones of different modes, so they never share customizations.
+ * <p></p>
+ * By default, the time bins of the {@link TravelTimeCalculatorConfigGroup} are used.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final int timeBinSize;
+	private final int maxTime;
+	private final Map<Network, ContractionHierarchiesGraph> graphs = new HashMap<>();
+	private final Map<List<Object>, ContractionHierarchies.TimeBinCustomizations> customizations = new HashMap<>();
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), travelTimeCalculatorConfigGroup.getMaxTime());
+	}
+
+	public ContractionHierarchiesFactory(final int timeBinSize, final int maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchiesGraph graph = this.graphs.computeIfAbsent(network, ContractionHierarchiesGraph::new);
+		List<Object> key = Arrays.asList(network, travelTimes, travelCosts);
+		ContractionHierarchies.TimeBinCustomizations binCustomizations = this.customizations.computeIfAbsent(key,
+				k -> new ContractionHierarchies.TimeBinCustomizations(graph, this.timeBinSize, this.maxTime));
+		return new ContractionHierarchies(binCustomizations, travelCosts, travelTimes);
+	}
+
+	@Override
+	public synchronized void notifyIterationStarts(final IterationStartsEvent event) {
+		this.customizations.clear();
+	}
+
+}
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntBinaryMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of the integers 0 .. capacity-1 with a double key each, e.g. node indices and their costs.
+ * Unlike {@link BinaryMinHeap}, no objects are needed for the elements, so a heap for all nodes of a network only
+ * needs 16 bytes per node.
+ */
+public final class IntBinaryMinHeap {
+
+	private final int[] heap;
+	private final double[] keys;
+	private final int[] positions;
+	private int size = 0;
+
+	public IntBinaryMinHeap(final int capacity) {
+		this.heap = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(this.positions, -1);
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(final int element) {
+		return this.positions[element] >= 0;
+	}
+
+	/**
+	 * @return the key of the smallest element, or {@link Double#POSITIVE_INFINITY} if the heap is empty
+	 */
+	public double peekKey() {
+		return this.size == 0 ? Double.POSITIVE_INFINITY : this.keys[0];
+	}
+
+	/**
+	 * Adds the element, or decreases its key if it is already in the heap.  Nothing is done if the element is in
+	 * the heap with a smaller key.
+	 */
+	public void decreaseKey(final int element, final double key) {
+		int position = this.positions[element];
+		if (position < 0) {
+			position = this.size++;
+		} else if (this.keys[position] <= key) {
+			return;
+		}
+		siftUp(position, element, key);
+	}
+
+	/**
+	 * Removes the element with the smallest key.
+	 */
+	public int poll() {
+		int head = this.heap[0];
+		this.positions[head] = -1;
+		this.size--;
+		if (this.size > 0) {
+			siftDown(this.heap[this.size], this.keys[this.size]);
+		}
+		return head;
+	}
+
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	private void siftUp(int position, final int element, final double key) {
+		while (position > 0) {
+			int parent = (position - 1) >> 1;
+			if (this.keys[parent] <= key) {
+				break;
+			}
+			set(position, this.heap[parent], this.keys[parent]);
+			position = parent;
+		}
+		set(position, element, key);
+	}
+
+	private void siftDown(final int element, final double key) {
+		int position = 0;
+		int half = this.size >> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			int right = child + 1;
+			if (right < this.size && this.keys[right] < this.keys[child]) {
+				child = right;
+			}
+			if (key <= this.keys[child]) {
+				break;
+			}
+			set(position, this.heap[child], this.keys[child]);
+			position = child;
+		}
+		set(position, element, key);
+	}
+
+	private void set(final int position, final int element, final double key) {
+		this.heap[position] = element;
+		this.keys[position] = key;
+		this.positions[element] = position;
+	}
+
+}
@@ -0,0 +1,480 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+
+/**
+ * The metric independent part of customizable contraction hierarchies (CCH, Dibbelt, Strasser and Wagner, 2016).
+ * <p></p>
+ * The nodes are ordered by a geometric nested dissection: the nodes are recursively split at the median of their
+ * coordinates, the nodes on the border of the split get the highest ranks within the part, and the two halves are
+ * ordered recursively.  Then the nodes are contracted in this order without looking at any travel costs, i.e. all
+ * upward neighbors of a contracted node are connected with each other.  The resulting edges (original links and
+ * shortcuts) only depend on the network, so this is done only once per network.
+ * <p></p>
+ * {@link #customize(TravelDisutility, double)} computes the costs of all edges for one point in time.  This is
+ * much cheaper than the contraction and is done whenever the travel disutilities change.
+ * <p></p>
+ * Nodes are identified by their rank in this class.  Every edge connects a lower with a higher ranked node and has
+ * a cost for both directions.
+ */
+public final class ContractionHierarchiesGraph {
+	private static final Logger log = Logger.getLogger(ContractionHierarchiesGraph.class);
+
+	private static final int MAX_NODES_PER_LEAF = 8;
+
+	/** marks a direction of an edge without any link or shortcut */
+	public static final int NO_CONNECTION = Integer.MIN_VALUE;
+
+	/**
+	 * Used for customization instead of <code>null</code>, as some travel disutilities need a person.
+	 */
+	private static final Person CUSTOMIZATION_PERSON = PopulationUtils.getFactory().createPerson(
+			Id.createPersonId("ContractionHierarchiesGraph-customization"));
+
+	private final Network network;
+	private final int nodeCount;
+	private final Node[] nodes;
+	private final int[] rankByNodeIndex;
+	private final int[] firstEdge;
+	private final int[] edgeHead;
+	private final int[] parent;
+	private final Link[] links;
+	private final int[] linkEdge;
+	private final boolean[] linkUpward;
+
+	public ContractionHierarchiesGraph(final Network network) {
+		long start = System.currentTimeMillis();
+		this.network = network;
+		this.nodeCount = network.getNodes().size();
+
+		// temporary node indices in the order of the network
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[0]);
+		this.rankByNodeIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.rankByNodeIndex, -1);
+		for (int i = 0; i < this.nodeCount; i++) {
+			this.rankByNodeIndex[nodesByIndex[i].getId().index()] = i;
+		}
+		int[][] neighbors = buildUndirectedNeighbors(network, nodesByIndex);
+
+		int[] order = new NestedDissection(nodesByIndex, neighbors).order();
+		this.nodes = new Node[this.nodeCount];
+		int[] rankByIndex = new int[this.nodeCount];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.nodes[rank] = nodesByIndex[order[rank]];
+			rankByIndex[order[rank]] = rank;
+			this.rankByNodeIndex[this.nodes[rank].getId().index()] = rank;
+		}
+
+		// contraction: connect the upward neighbors of each node, handing them on to the lowest of them
+		int[][] upward = new int[this.nodeCount][];
+		for (int i = 0; i < this.nodeCount; i++) {
+			int rank = rankByIndex[i];
+			int count = 0;
+			int[] up = new int[neighbors[i].length];
+			for (int neighbor : neighbors[i]) {
+				int neighborRank = rankByIndex[neighbor];
+				if (neighborRank > rank) {
+					up[count++] = neighborRank;
+				}
+			}
+			up = Arrays.copyOf(up, count);
+			Arrays.sort(up);
+			upward[rank] = up;
+		}
+		this.parent = new int[this.nodeCount];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			int[] up = upward[rank];
+			if (up.length == 0) {
+				this.parent[rank] = -1;
+				continue;
+			}
+			this.parent[rank] = up[0];
+			upward[up[0]] = mergeSorted(upward[up[0]], up, 1);
+		}
+
+		this.firstEdge = new int[this.nodeCount + 1];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.firstEdge[rank + 1] = this.firstEdge[rank] + upward[rank].length;
+		}
+		this.edgeHead = new int[this.firstEdge[this.nodeCount]];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			System.arraycopy(upward[rank], 0, this.edgeHead, this.firstEdge[rank], upward[rank].length);
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		this.linkEdge = new int[this.links.length];
+		this.linkUpward = new boolean[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			int fromRank = getRank(this.links[l].getFromNode());
+			int toRank = getRank(this.links[l].getToNode());
+			if (fromRank == toRank) {
+				this.linkEdge[l] = -1; // loop, never part of a least cost path
+			} else if (fromRank < toRank) {
+				this.linkEdge[l] = getEdge(fromRank, toRank);
+				this.linkUpward[l] = true;
+			} else {
+				this.linkEdge[l] = getEdge(toRank, fromRank);
+				this.linkUpward[l] = false;
+			}
+		}
+		log.info("contraction of " + this.nodeCount + " nodes and " + this.links.length + " links resulted in "
+				+ this.edgeHead.length + " edges, took " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if it is not part of the network
+	 */
+	public int getRank(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankByNodeIndex.length) {
+			return -1;
+		}
+		int rank = this.rankByNodeIndex[index];
+		return rank >= 0 && this.nodes[rank] == node ? rank : -1;
+	}
+
+	public Node getNode(final int rank) {
+		return this.nodes[rank];
+	}
+
+	public Link getLink(final int linkIndex) {
+		return this.links[linkIndex];
+	}
+
+	/**
+	 * @return the lowest upward neighbor of the node, or -1 for the highest node of a component.  All upward
+	 * neighbors of a node are ancestors of the node in this elimination tree.
+	 */
+	public int getParent(final int rank) {
+		return this.parent[rank];
+	}
+
+	public int getFirstEdge(final int rank) {
+		return this.firstEdge[rank];
+	}
+
+	public int getEdgeHead(final int edge) {
+		return this.edgeHead[edge];
+	}
+
+	/**
+	 * @return the edge between the lower and the higher ranked node, or -1 if they are not connected
+	 */
+	public int getEdge(final int lower, final int higher) {
+		int edge = Arrays.binarySearch(this.edgeHead, this.firstEdge[lower], this.firstEdge[lower + 1], higher);
+		return edge >= 0 ? edge : -1;
+	}
+
+	/**
+	 * Computes the costs of all edges with the travel disutilities at the given time.  Person dependent travel
+	 * disutilities are evaluated for an anonymous person.
+	 */
+	public Customization customize(final TravelDisutility travelDisutility, final double time) {
+		int edgeCount = this.edgeHead.length;
+		float[] upCost = new float[edgeCount];
+		float[] downCost = new float[edgeCount];
+		int[] upVia = new int[edgeCount];
+		int[] downVia = new int[edgeCount];
+		Arrays.fill(upCost, Float.POSITIVE_INFINITY);
+		Arrays.fill(downCost, Float.POSITIVE_INFINITY);
+		Arrays.fill(upVia, NO_CONNECTION);
+		Arrays.fill(downVia, NO_CONNECTION);
+
+		for (int l = 0; l < this.links.length; l++) {
+			int edge = this.linkEdge[l];
+			if (edge < 0) {
+				continue;
+			}
+			float cost = (float) travelDisutility.getLinkTravelDisutility(this.links[l], time, CUSTOMIZATION_PERSON, null);
+			if (this.linkUpward[l]) {
+				if (cost < upCost[edge]) {
+					upCost[edge] = cost;
+					upVia[edge] = -l - 1;
+				}
+			} else if (cost < downCost[edge]) {
+				downCost[edge] = cost;
+				downVia[edge] = -l - 1;
+			}
+		}
+
+		// the lower triangles of an edge only contain nodes with lower ranks, whose edges are final when they are reached
+		for (int x = 0; x < this.nodeCount; x++) {
+			int end = this.firstEdge[x + 1];
+			for (int i = this.firstEdge[x]; i < end; i++) {
+				int y = this.edgeHead[i];
+				for (int j = i + 1; j < end; j++) {
+					int z = this.edgeHead[j];
+					int edge = getEdge(y, z);
+					float cost = downCost[i] + upCost[j];
+					if (cost < upCost[edge]) {
+						upCost[edge] = cost;
+						upVia[edge] = x;
+					}
+					cost = downCost[j] + upCost[i];
+					if (cost < downCost[edge]) {
+						downCost[edge] = cost;
+						downVia[edge] = x;
+					}
+				}
+			}
+		}
+		return new Customization(upCost, downCost, upVia, downVia);
+	}
+
+	/**
+	 * The costs of the edges for one point in time.  For every edge and direction, the link or the node of the
+	 * shortcut is stored: a value <code>v &lt; 0</code> stands for the link <code>-v - 1</code>, other values for the
+	 * rank of the middle node.
+	 */
+	public static final class Customization {
+		private final float[] upCost;
+		private final float[] downCost;
+		private final int[] upVia;
+		private final int[] downVia;
+
+		private Customization(final float[] upCost, final float[] downCost, final int[] upVia, final int[] downVia) {
+			this.upCost = upCost;
+			this.downCost = downCost;
+			this.upVia = upVia;
+			this.downVia = downVia;
+		}
+
+		/**
+		 * @return the cost from the lower to the higher ranked node of the edge
+		 */
+		public float getUpCost(final int edge) {
+			return this.upCost[edge];
+		}
+
+		/**
+		 * @return the cost from the higher to the lower ranked node of the edge
+		 */
+		public float getDownCost(final int edge) {
+			return this.downCost[edge];
+		}
+
+		public int getUpVia(final int edge) {
+			return this.upVia[edge];
+		}
+
+		public int getDownVia(final int edge) {
+			return this.downVia[edge];
+		}
+	}
+
+	private int[][] buildUndirectedNeighbors(final Network network, final Node[] nodesByIndex) {
+		int[][] neighbors = new int[this.nodeCount][];
+		int[] buffer = new int[16];
+		for (int i = 0; i < this.nodeCount; i++) {
+			Node node = nodesByIndex[i];
+			int count = 0;
+			for (Link link : node.getOutLinks().values()) {
+				int other = this.rankByNodeIndex[link.getToNode().getId().index()];
+				if (other != i && network.getLinks().get(link.getId()) == link) {
+					buffer = ensureSize(buffer, count);
+					buffer[count++] = other;
+				}
+			}
+			for (Link link : node.getInLinks().values()) {
+				int other = this.rankByNodeIndex[link.getFromNode().getId().index()];
+				if (other != i && network.getLinks().get(link.getId()) == link) {
+					buffer = ensureSize(buffer, count);
+					buffer[count++] = other;
+				}
+			}
+			int[] sorted = Arrays.copyOf(buffer, count);
+			Arrays.sort(sorted);
+			// remove duplicates from parallel and opposite links
+			int unique = 0;
+			for (int k = 0; k < count; k++) {
+				if (unique == 0 || sorted[unique - 1] != sorted[k]) {
+					sorted[unique++] = sorted[k];
+				}
+			}
+			neighbors[i] = Arrays.copyOf(sorted, unique);
+		}
+		return neighbors;
+	}
+
+	private static int[] ensureSize(final int[] buffer, final int count) {
+		return count < buffer.length ? buffer : Arrays.copyOf(buffer, buffer.length * 2);
+	}
+
+	/**
+	 * Merges the sorted values from <code>from</code> on with the sorted array, without duplicates.
+	 */
+	private static int[] mergeSorted(final int[] array, final int[] values, final int from) {
+		int[] merged = new int[array.length + values.length - from];
+		int i = 0;
+		int j = from;
+		int count = 0;
+		while (i < array.length || j < values.length) {
+			int next;
+			if (j >= values.length || (i < array.length && array[i] <= values[j])) {
+				next = array[i++];
+			} else {
+				next = values[j++];
+			}
+			if (count == 0 || merged[count - 1] != next) {
+				merged[count++] = next;
+			}
+		}
+		return count == merged.length ? merged : Arrays.copyOf(merged, count);
+	}
+
+	/**
+	 * Orders the nodes by geometric nested dissection.  Nodes ordered later get higher ranks.
+	 */
+	private static final class NestedDissection {
+		private final Node[] nodes;
+		private final int[][] neighbors;
+		private final int[] mark;
+		private int currentMark = 0;
+		private final int[] order;
+		private int ordered = 0;
+
+		NestedDissection(final Node[] nodes, final int[][] neighbors) {
+			this.nodes = nodes;
+			this.neighbors = neighbors;
+			this.mark = new int[nodes.length];
+			this.order = new int[nodes.length];
+		}
+
+		int[] order() {
+			Integer[] all = new Integer[this.nodes.length];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			dissect(all);
+			return this.order;
+		}
+
+		private void dissect(final Integer[] part) {
+			if (part.length <= MAX_NODES_PER_LEAF) {
+				for (int node : part) {
+					this.order[this.ordered++] = node;
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int node : part) {
+				double x = this.nodes[node].getCoord().getX();
+				double y = this.nodes[node].getCoord().getY();
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+			}
+			if (maxX - minX >= maxY - minY) {
+				Arrays.sort(part, (a, b) -> Double.compare(this.nodes[a].getCoord().getX(), this.nodes[b].getCoord().getX()));
+			} else {
+				Arrays.sort(part, (a, b) -> Double.compare(this.nodes[a].getCoord().getY(), this.nodes[b].getCoord().getY()));
+			}
+			int half = part.length / 2;
+			Integer[] first = Arrays.copyOfRange(part, 0, half);
+			Integer[] second = Arrays.copyOfRange(part, half, part.length);
+
+			// the separator are the nodes of the smaller border between the two halves
+			int firstMark = ++this.currentMark;
+			for (int node : first) {
+				this.mark[node] = firstMark;
+			}
+			int secondMark = ++this.currentMark;
+			for (int node : second) {
+				this.mark[node] = secondMark;
+			}
+			int firstBorder = countBorder(first, secondMark);
+			int secondBorder = countBorder(second, firstMark);
+			Integer[][] split = firstBorder <= secondBorder ? splitBorder(first, secondMark) : splitBorder(second, firstMark);
+			if (firstBorder <= secondBorder) {
+				first = split[0];
+			} else {
+				second = split[0];
+			}
+			Integer[] separator = split[1];
+
+			dissect(first);
+			dissect(second);
+			for (int node : separator) {
+				this.order[this.ordered++] = node;
+			}
+		}
+
+		private int countBorder(final Integer[] part, final int otherMark) {
+			int count = 0;
+			for (int node : part) {
+				if (isBorder(node, otherMark)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		private boolean isBorder(final int node, final int otherMark) {
+			for (int neighbor : this.neighbors[node]) {
+				if (this.mark[neighbor] == otherMark) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return the inner nodes and the border nodes of the part
+		 */
+		private Integer[][] splitBorder(final Integer[] part, final int otherMark) {
+			Integer[] inner = new Integer[part.length];
+			Integer[] border = new Integer[part.length];
+			int innerCount = 0;
+			int borderCount = 0;
+			for (Integer node : part) {
+				if (isBorder(node, otherMark)) {
+					border[borderCount++] = node;
+				} else {
+					inner[innerCount++] = node;
+				}
+			}
+			return new Integer[][] { Arrays.copyOf(inner, innerCount), Arrays.copyOf(border, borderCount) };
+		}
+	}
+
+}
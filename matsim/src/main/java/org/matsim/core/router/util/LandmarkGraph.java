@@ -0,0 +1,287 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarkGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+
+/**
+ * Immutable routing graph of a network, with the least cost from and to a number of landmarks for each node.
+ * <p></p>
+ * In contrast to {@link PreProcessLandmarks} and the {@link RoutingNetwork}s, everything is stored in primitive arrays
+ * indexed by node and link indices: the out and in links of the nodes in compressed sparse row form, and the landmark
+ * costs of node <i>i</i> and landmark <i>l</i> at <i>i * landmarkCount + l</i>.  Nothing is changed after
+ * construction, so one instance can be used by any number of routers in any number of threads.  The routers only
+ * need their own search state.
+ * <p></p>
+ * Like in {@link PreProcessLandmarks}, the landmark costs are computed with
+ * {@link TravelDisutility#getLinkMinimumTravelDisutility(Link)}, so they are lower bounds for the costs at any time.
+ */
+public final class LandmarkGraph {
+	private static final Logger log = Logger.getLogger(LandmarkGraph.class);
+
+	private final Network network;
+	private final int nodeCount;
+	private final Node[] nodes;
+	private final int[] indexByNodeIndex;
+	private final Link[] links;
+	private final int[] linkFromNode;
+	private final int[] linkToNode;
+	private final int[] firstOutLink;
+	private final int[] outLinks;
+	private final int[] firstInLink;
+	private final int[] inLinks;
+
+	private final Node[] landmarks;
+	private final int landmarkCount;
+	private final double[] fromLandmarkCosts;
+	private final double[] toLandmarkCosts;
+
+	public LandmarkGraph(final Network network, final TravelDisutility costFunction, final int numberOfThreads) {
+		this(network, costFunction, new PieSlicesLandmarker(new Rectangle2D.Double()), 16, numberOfThreads);
+	}
+
+	public LandmarkGraph(final Network network, final TravelDisutility costFunction, final Landmarker landmarker,
+			final int landmarkCount, final int numberOfThreads) {
+		this.network = network;
+		this.nodeCount = network.getNodes().size();
+		this.nodes = network.getNodes().values().toArray(new Node[0]);
+		this.indexByNodeIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.indexByNodeIndex, -1);
+		for (int i = 0; i < this.nodeCount; i++) {
+			this.indexByNodeIndex[this.nodes[i].getId().index()] = i;
+		}
+
+		int linkCount = network.getLinks().size();
+		this.links = new Link[linkCount];
+		this.linkFromNode = new int[linkCount];
+		this.linkToNode = new int[linkCount];
+		this.firstOutLink = new int[this.nodeCount + 1];
+		this.firstInLink = new int[this.nodeCount + 1];
+		int l = 0;
+		for (Link link : network.getLinks().values()) {
+			this.links[l] = link;
+			this.linkFromNode[l] = getIndex(link.getFromNode());
+			this.linkToNode[l] = getIndex(link.getToNode());
+			this.firstOutLink[this.linkFromNode[l] + 1]++;
+			this.firstInLink[this.linkToNode[l] + 1]++;
+			l++;
+		}
+		for (int i = 0; i < this.nodeCount; i++) {
+			this.firstOutLink[i + 1] += this.firstOutLink[i];
+			this.firstInLink[i + 1] += this.firstInLink[i];
+		}
+		this.outLinks = new int[linkCount];
+		this.inLinks = new int[linkCount];
+		int[] nextOut = Arrays.copyOf(this.firstOutLink, this.nodeCount);
+		int[] nextIn = Arrays.copyOf(this.firstInLink, this.nodeCount);
+		for (l = 0; l < linkCount; l++) {
+			this.outLinks[nextOut[this.linkFromNode[l]]++] = l;
+			this.inLinks[nextIn[this.linkToNode[l]]++] = l;
+		}
+
+		log.info("Putting landmarks on network...");
+		long now = System.currentTimeMillis();
+		this.landmarks = landmarker.identifyLandmarks(landmarkCount, network);
+		this.landmarkCount = this.landmarks.length;
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		log.info("Calculating cost from and to each of the " + this.landmarkCount + " landmarks using " + numberOfThreads + " threads...");
+		now = System.currentTimeMillis();
+		this.fromLandmarkCosts = new double[this.nodeCount * this.landmarkCount];
+		this.toLandmarkCosts = new double[this.nodeCount * this.landmarkCount];
+		double[] minimumCosts = new double[linkCount];
+		for (l = 0; l < linkCount; l++) {
+			minimumCosts[l] = costFunction.getLinkMinimumTravelDisutility(this.links[l]);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, this.landmarkCount)));
+		for (int i = 0; i < this.landmarkCount; i++) {
+			final int landmarkIndex = i;
+			executor.execute(() -> {
+				IntBinaryMinHeap heap = new IntBinaryMinHeap(this.nodeCount);
+				double[] costs = new double[this.nodeCount];
+				int landmark = getIndex(this.landmarks[landmarkIndex]);
+				expand(landmark, minimumCosts, true, heap, costs);
+				storeCosts(costs, landmarkIndex, this.fromLandmarkCosts);
+				expand(landmark, minimumCosts, false, heap, costs);
+				storeCosts(costs, landmarkIndex, this.toLandmarkCosts);
+			});
+		}
+		executor.shutdown();
+		while (!executor.isTerminated()) {
+			try {
+				executor.awaitTermination(10, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms, landmark tables use "
+				+ (2L * 8 * this.fromLandmarkCosts.length / 1024 / 1024) + " MB");
+	}
+
+	/**
+	 * Dijkstra from (or to) the landmark over the whole network.
+	 */
+	private void expand(final int landmark, final double[] minimumCosts, final boolean fromLandmark,
+			final IntBinaryMinHeap heap, final double[] costs) {
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		costs[landmark] = 0.0;
+		heap.decreaseKey(landmark, 0.0);
+		while (!heap.isEmpty()) {
+			int node = heap.poll();
+			double cost = costs[node];
+			int end = fromLandmark ? this.firstOutLink[node + 1] : this.firstInLink[node + 1];
+			for (int i = fromLandmark ? this.firstOutLink[node] : this.firstInLink[node]; i < end; i++) {
+				int link = fromLandmark ? this.outLinks[i] : this.inLinks[i];
+				int other = fromLandmark ? this.linkToNode[link] : this.linkFromNode[link];
+				double newCost = cost + minimumCosts[link];
+				if (newCost < costs[other]) {
+					costs[other] = newCost;
+					heap.decreaseKey(other, newCost);
+				}
+			}
+		}
+	}
+
+	private void storeCosts(final double[] costs, final int landmarkIndex, final double[] table) {
+		for (int node = 0; node < this.nodeCount; node++) {
+			table[node * this.landmarkCount + landmarkIndex] = costs[node];
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	public int getLinkCount() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return the index of the node in this graph, or -1 if the node is not part of the network of this graph
+	 */
+	public int getIndex(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.indexByNodeIndex.length) {
+			return -1;
+		}
+		int nodeIndex = this.indexByNodeIndex[index];
+		return nodeIndex >= 0 && this.nodes[nodeIndex] == node ? nodeIndex : -1;
+	}
+
+	public Node getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	public Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	public int getFromNode(final int link) {
+		return this.linkFromNode[link];
+	}
+
+	public int getToNode(final int link) {
+		return this.linkToNode[link];
+	}
+
+	/**
+	 * The out links of node <i>n</i> are <code>getOutLink(i)</code> for <code>getFirstOutLink(n) &lt;= i &lt;
+	 * getFirstOutLink(n + 1)</code>.
+	 */
+	public int getFirstOutLink(final int node) {
+		return this.firstOutLink[node];
+	}
+
+	public int getOutLink(final int i) {
+		return this.outLinks[i];
+	}
+
+	/**
+	 * The in links of node <i>n</i> are <code>getInLink(i)</code> for <code>getFirstInLink(n) &lt;= i &lt;
+	 * getFirstInLink(n + 1)</code>.
+	 */
+	public int getFirstInLink(final int node) {
+		return this.firstInLink[node];
+	}
+
+	public int getInLink(final int i) {
+		return this.inLinks[i];
+	}
+
+	public int getLandmarkCount() {
+		return this.landmarkCount;
+	}
+
+	public Node[] getLandmarks() {
+		return this.landmarks.clone();
+	}
+
+	/**
+	 * @return the minimal cost from the landmark to the node, {@link Double#POSITIVE_INFINITY} if there is no path
+	 */
+	public double getFromLandmarkCost(final int node, final int landmark) {
+		return this.fromLandmarkCosts[node * this.landmarkCount + landmark];
+	}
+
+	/**
+	 * @return the minimal cost from the node to the landmark, {@link Double#POSITIVE_INFINITY} if there is no path
+	 */
+	public double getToLandmarkCost(final int node, final int landmark) {
+		return this.toLandmarkCosts[node * this.landmarkCount + landmark];
+	}
+
+	/**
+	 * Lower bound for the cost from one node to another one, using the triangle inequality with the given landmark.
+	 *
+	 * @return {@link Double#POSITIVE_INFINITY} if the landmark shows that there is no path, a negative value if the
+	 * landmark does not give any bound
+	 */
+	public double getLowerBound(final int from, final int to, final int landmark) {
+		double bound = Double.NEGATIVE_INFINITY;
+		double toToLandmark = this.toLandmarkCosts[to * this.landmarkCount + landmark];
+		if (toToLandmark < Double.POSITIVE_INFINITY) {
+			// cost(from, landmark) <= cost(from, to) + cost(to, landmark), infinite if "from" cannot reach the landmark
+			bound = this.toLandmarkCosts[from * this.landmarkCount + landmark] - toToLandmark;
+		}
+		double fromLandmarkToFrom = this.fromLandmarkCosts[from * this.landmarkCount + landmark];
+		if (fromLandmarkToFrom < Double.POSITIVE_INFINITY) {
+			// cost(landmark, to) <= cost(landmark, from) + cost(from, to), infinite if "to" cannot be reached
+			bound = Math.max(bound, this.fromLandmarkCosts[to * this.landmarkCount + landmark] - fromLandmarkToFrom);
+		}
+		return bound;
+	}
+
+}
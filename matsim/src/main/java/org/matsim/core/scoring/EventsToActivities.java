@@ -20,6 +20,7 @@
 
  package org.matsim.core.scoring;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
@@ -35,6 +36,7 @@ import org.matsim.core.population.PopulationUtils;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 
@@ -55,15 +57,23 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
 	    void handleActivity(PersonExperiencedActivity activity);
 	}
 
-    private IdMap<Person, Activity> activities = new IdMap<>(Person.class);
+    private final Map<Id<Person>, Activity> activities;
     private List<ActivityHandler> activityHandlers = new ArrayList<>();
 
     public EventsToActivities() {
+        this(new IdMap<>(Person.class));
+    }
 
+    /**
+     * For the events of a part of the persons only, where a map with an entry for every person id would be mostly empty.
+     */
+    EventsToActivities(Map<Id<Person>, Activity> activities) {
+        this.activities = activities;
     }
 
     @Inject
     EventsToActivities(ControlerListenerManager controlerListenerManager) {
+        this();
         controlerListenerManager.addControlerListener(new AfterMobsimListener() {
             @Override
             public void notifyAfterMobsim(AfterMobsimEvent event) {
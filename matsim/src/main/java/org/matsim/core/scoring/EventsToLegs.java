@@ -133,9 +133,16 @@ public final class EventsToLegs
 	}
 
 	private static class VehicleRoute {
+		private final Id<Vehicle> vehicleId;
 		private final List<Id<Link>> links = new ArrayList<>();
 		private final List<PendingVehicleTravel> newVehicleTravels = new ArrayList<>();
 		private double relativePositionOnLastArrivalLink;
+		private int travelers;
+		private boolean inTraffic;
+
+		private VehicleRoute(Id<Vehicle> vehicleId) {
+			this.vehicleId = vehicleId;
+		}
 	}
 
 	public interface LegHandler {
@@ -150,22 +157,25 @@ public final class EventsToLegs
 		this.transitSchedule = transitSchedule;
 	}
 
-	private Map<Id<Person>, Leg> legs = new HashMap<>();
-	private Map<Id<Person>, List<Id<Link>>> experiencedRoutes = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new HashMap<>();
-	private Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new HashMap<>();
+	// an entry for every person which has traveled so far, so these are sized for all ids unless only a part of the
+	// persons is handled
+	private final Map<Id<Person>, Leg> legs;
+	private final Map<Id<Person>, List<Id<Link>>> experiencedRoutes;
 
+	// only for the vehicles and persons which are currently traveling, and for transit vehicles
+	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new HashMap<>();
 	private Map<Id<Person>, TeleportationArrivalEvent> routelessTravels = new HashMap<>();
 	private Map<Id<Person>, PendingTransitTravel> transitTravels = new HashMap<>();
 	private Map<Id<Person>, PendingVehicleTravel> vehicleTravels = new HashMap<>();
+	private Map<Id<Person>, Double> relPosOnDepartureLinkPerPerson = new HashMap<>();
+	private Map<Id<Person>, Double> relPosOnArrivalLinkPerPerson = new HashMap<>();
 
 	private Map<Id<Vehicle>, LineAndRoute> transitVehicle2currentRoute = new HashMap<>();
-	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new HashMap<>();
 
 	private List<LegHandler> legHandlers = new ArrayList<>();
 
 	EventsToLegs(Scenario scenario) {
-		this.network = scenario.getNetwork();
+		this(scenario.getNetwork(), new IdMap<>(Person.class), new IdMap<>(Person.class));
 		if (scenario.getConfig().transit().isUseTransit()) {
 			this.transitSchedule = scenario.getTransitSchedule();
 		}
@@ -173,7 +183,23 @@ public final class EventsToLegs
 
 	@Inject
 	EventsToLegs(Network network) {
+		this(network, new IdMap<>(Person.class), new IdMap<>(Person.class));
+	}
+
+	/**
+	 * Creates an instance for the same network and transit schedule as the given one, but without its state and leg
+	 * handlers.  It is meant to handle the events of a part of the persons only, and keeps its state in hash maps
+	 * instead of maps with an entry for every person id.
+	 */
+	EventsToLegs(EventsToLegs template) {
+		this(template.network, new HashMap<>(), new HashMap<>());
+		this.transitSchedule = template.transitSchedule;
+	}
+
+	private EventsToLegs(Network network, Map<Id<Person>, Leg> legs, Map<Id<Person>, List<Id<Link>>> experiencedRoutes) {
 		this.network = network;
+		this.legs = legs;
+		this.experiencedRoutes = experiencedRoutes;
 	}
 
 	@Override
@@ -213,11 +239,12 @@ public final class EventsToLegs
 						new PendingTransitTravel(event.getVehicleId(), lineAndRoute.lastFacilityId));
 			}
 		} else {
-			VehicleRoute route = vehicle2route.computeIfAbsent(event.getVehicleId(), vehicleId -> new VehicleRoute());
+			VehicleRoute route = vehicle2route.computeIfAbsent(event.getVehicleId(), VehicleRoute::new);
 			int currentLinkIdx = Math.max(0, route.links.size() - 1);
 			PendingVehicleTravel vehicleTravel = new PendingVehicleTravel(route, currentLinkIdx);
 			vehicleTravels.put(event.getPersonId(), vehicleTravel);
 			route.newVehicleTravels.add(vehicleTravel);
+			route.travelers++;
 		}
 	}
 
@@ -225,6 +252,7 @@ public final class EventsToLegs
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		VehicleRoute route = vehicle2route.get(event.getVehicleId());
 		if (route != null) {
+			route.inTraffic = true;
 			if (route.links.isEmpty()) {
 				route.links.add(event.getLinkId());
 			} else {
@@ -252,6 +280,8 @@ public final class EventsToLegs
 		VehicleRoute route = vehicle2route.get(event.getVehicleId());
 		if (route != null) {
 			route.relativePositionOnLastArrivalLink = event.getRelativePositionOnLink();
+			route.inTraffic = false;
+			releaseIfUnused(route);
 		}
 	}
 
@@ -342,6 +372,8 @@ public final class EventsToLegs
 			}
 			route.setTravelTime(travelTime);
 			leg.setRoute(route);
+			vehicleRoute.travelers--;
+			releaseIfUnused(vehicleRoute);
 
 		} else {
 			// i.e. experiencedRoute.size()==1 and no pendingTransitTravel
@@ -368,6 +400,17 @@ public final class EventsToLegs
 		transitVehicle2currentRoute.put(event.getVehicleId(), lineAndRoute);
 	}
 
+	/*
+	 * Once nobody is traveling with the vehicle any more and it has left traffic, the next person entering it will see
+	 * the vehicle enter traffic again before it moves, which puts the current link into a new route just like into the
+	 * old one.  So the route can be dropped, and only the vehicles which are in use have one.
+	 */
+	private void releaseIfUnused(VehicleRoute route) {
+		if (route.travelers == 0 && !route.inTraffic) {
+			vehicle2route.remove(route.vehicleId);
+		}
+	}
+
 	public void addLegHandler(LegHandler legHandler) {
 		this.legHandlers.add(legHandler);
 	}
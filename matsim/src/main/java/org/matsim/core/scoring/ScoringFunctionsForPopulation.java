@@ -27,10 +27,16 @@ import gnu.trove.list.array.TDoubleArrayList;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.population.Activity;
@@ -39,9 +45,14 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
@@ -53,6 +64,7 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicReference;
@@ -63,6 +75,12 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * With more than one partition, the persons are split by the index of their id into partitions, each of which is a
+ * separate event handler with its own {@link EventsToLegs}, {@link EventsToActivities} and driver lookup.  A partition
+ * only touches the scoring functions of its own persons, so the partitions can be run by different threads of a
+ * parallel events manager without any lock.  Events without a person, e.g. {@link LinkEnterEvent}s, are seen by all
+ * partitions.
  * 
  * @author michaz
  *
@@ -91,9 +109,20 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
-	@Inject
 	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 1);
+	}
+
+	@Inject
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, ParallelEventHandlingConfigGroup parallelEventHandlingConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				parallelEventHandlingConfigGroup.getNumberOfScoringPartitions());
+	}
+
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfPartitions) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -102,9 +131,25 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
-		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
+		if (numberOfPartitions == 1) {
+			eventsManager.addHandler(this);
+			eventsToActivities.addActivityHandler(this);
+			eventsToLegs.addLegHandler(this);
+		} else {
+			Partition[] partitions = new Partition[numberOfPartitions];
+			for (int i = 0; i < numberOfPartitions; i++) {
+				partitions[i] = new Partition(i, numberOfPartitions, new EventsToLegs(eventsToLegs));
+				eventsManager.addHandler(partitions[i]);
+			}
+			controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+				@Override
+				public void notifyAfterMobsim(AfterMobsimEvent event) {
+					for (Partition partition : partitions) {
+						partition.eventsToActivities.finish();
+					}
+				}
+			});
+		}
 	}
 
 	private void init() {
@@ -118,6 +163,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleEvent(Event o) {
+		handleEvent(o, this.vehicles2Drivers);
+	}
+
+	private void handleEvent(Event o, Vehicle2DriverEventHandler vehicles2Drivers) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
@@ -142,10 +191,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 		// Establish and end connection between driver and vehicle
 		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
 		}
 		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
 		}
 		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
 		/*
@@ -157,7 +206,7 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		 */
 		if ( o instanceof LinkEnterEvent ) {
 			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+			Id<Person> driverId = vehicles2Drivers.getDriverOfVehicle(vehicleId);
 			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 			if (scoringFunction != null) {
@@ -168,6 +217,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
+		handleLegUnsynchronized(o);
+	}
+
+	private void handleLegUnsynchronized(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -184,6 +237,10 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
+		handleActivityUnsynchronized(o);
+	}
+
+	private void handleActivityUnsynchronized(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -278,4 +335,89 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	}
 
+	/**
+	 * The persons with <code>index % numberOfPartitions == partition</code>.  The scoring functions, partial scores and
+	 * trip records are shared with the enclosing instance, but only the entries of the own persons are used.  The legs
+	 * and activities are assembled by converters of the partition, which only keep state for the own persons and for
+	 * the vehicles while one of them is aboard, so all partitions together hold about as much as a single converter.
+	 */
+	private final class Partition implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+
+		private final int partition;
+		private final int numberOfPartitions;
+		private final EventsToLegs eventsToLegs;
+		private final EventsToActivities eventsToActivities = new EventsToActivities(new HashMap<>());
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+
+		Partition(int partition, int numberOfPartitions, EventsToLegs eventsToLegs) {
+			this.partition = partition;
+			this.numberOfPartitions = numberOfPartitions;
+			this.eventsToLegs = eventsToLegs;
+			this.eventsToLegs.addLegHandler(this);
+			this.eventsToActivities.addActivityHandler(this);
+		}
+
+		@Override
+		public void handleEvent(Event o) {
+			if (o instanceof HasPersonId) {
+				if (((HasPersonId) o).getPersonId().index() % this.numberOfPartitions == this.partition) {
+					handlePlanElementEvent(o);
+					ScoringFunctionsForPopulation.this.handleEvent(o, this.vehicles2Drivers);
+				} else if (o instanceof VehicleEntersTrafficEvent) {
+					// the vehicle may have passengers of this partition
+					this.eventsToLegs.handleEvent((VehicleEntersTrafficEvent) o);
+				} else if (o instanceof VehicleLeavesTrafficEvent) {
+					this.eventsToLegs.handleEvent((VehicleLeavesTrafficEvent) o);
+				}
+			} else {
+				handlePlanElementEvent(o);
+				// link enter events are only scored if the driver is known to the driver lookup of this partition
+				ScoringFunctionsForPopulation.this.handleEvent(o, this.vehicles2Drivers);
+			}
+		}
+
+		private void handlePlanElementEvent(Event o) {
+			if (o instanceof LinkEnterEvent) {
+				this.eventsToLegs.handleEvent((LinkEnterEvent) o);
+			} else if (o instanceof ActivityEndEvent) {
+				this.eventsToActivities.handleEvent((ActivityEndEvent) o);
+			} else if (o instanceof ActivityStartEvent) {
+				this.eventsToActivities.handleEvent((ActivityStartEvent) o);
+			} else if (o instanceof PersonDepartureEvent) {
+				this.eventsToLegs.handleEvent((PersonDepartureEvent) o);
+			} else if (o instanceof PersonArrivalEvent) {
+				this.eventsToLegs.handleEvent((PersonArrivalEvent) o);
+			} else if (o instanceof PersonEntersVehicleEvent) {
+				this.eventsToLegs.handleEvent((PersonEntersVehicleEvent) o);
+			} else if (o instanceof VehicleEntersTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleEntersTrafficEvent) o);
+			} else if (o instanceof VehicleLeavesTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleLeavesTrafficEvent) o);
+			} else if (o instanceof TeleportationArrivalEvent) {
+				this.eventsToLegs.handleEvent((TeleportationArrivalEvent) o);
+			} else if (o instanceof TransitDriverStartsEvent) {
+				this.eventsToLegs.handleEvent((TransitDriverStartsEvent) o);
+			} else if (o instanceof VehicleArrivesAtFacilityEvent) {
+				this.eventsToLegs.handleEvent((VehicleArrivesAtFacilityEvent) o);
+			}
+		}
+
+		@Override
+		public void handleLeg(PersonExperiencedLeg leg) {
+			handleLegUnsynchronized(leg);
+		}
+
+		@Override
+		public void handleActivity(PersonExperiencedActivity activity) {
+			handleActivityUnsynchronized(activity);
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.eventsToLegs.reset(iteration);
+			this.eventsToActivities.reset(iteration);
+			this.vehicles2Drivers.reset(iteration);
+		}
+	}
+
 }
@@ -0,0 +1,363 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedTravelTimeCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdSet;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleAbortsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+
+/**
+ * Calculates the link travel times from events like {@link TravelTimeCalculator}, but with several event handlers
+ * which can be called from different threads, e.g. by the {@link org.matsim.core.events.ParallelEventsManager} or
+ * the {@link org.matsim.core.events.RingBufferEventsManager}.  Every handler is responsible for the links whose
+ * {@link Id#index()} modulo the number of partitions is the index of the handler, and ignores the enter and leave
+ * events of all other links.  Since a vehicle enters and leaves a link in the same partition, the handlers do not
+ * need to share any state, and no locks are needed while handling events.
+ * <p></p>
+ * The travel times are kept in primitive arrays per partition, with one entry per link and time bin, instead of
+ * {@link TravelTimeData} objects.  The consolidation of the travel times (see TravelTimeCalculator.consolidateData())
+ * is done per link when its travel times are requested for the first time after new events.  It writes the travel
+ * times of the link into a new array, so that travel times can be requested from several threads, also while events
+ * are handled, and a reader either gets the old or the new travel times of a link, but never a mix of both.  The sums
+ * and counts of a link are read like with a sequence lock: the handler increments a counter before and after it
+ * changes them, and the consolidation is repeated if the counter has changed in the meantime.
+ * <p></p>
+ * Link to link travel times are not supported.  Links which are not in the network when the calculator is created
+ * always get their free speed travel time.
+ */
+public final class PartitionedTravelTimeCalculator {
+	private static final Logger log = Logger.getLogger(PartitionedTravelTimeCalculator.class);
+
+	private final int timeSlice;
+	private final int numSlots;
+	private final boolean interpolate;
+	private final boolean filterModes;
+	private final Set<String> analyzedModes;
+	private final Partition[] partitions;
+
+	private static int cnt = 0;
+
+	public PartitionedTravelTimeCalculator(final Network network, final int timeSlice, final int maxTime,
+			final int numberOfPartitions, final boolean interpolate, final boolean filterModes, final Set<String> analyzedModes) {
+		if (numberOfPartitions < 1) {
+			throw new IllegalArgumentException("numberOfPartitions must be at least 1, but is " + numberOfPartitions);
+		}
+		this.timeSlice = timeSlice;
+		this.numSlots = TimeBinUtils.getTimeBinCount(maxTime, timeSlice);
+		this.interpolate = interpolate;
+		this.filterModes = filterModes;
+		this.analyzedModes = analyzedModes;
+
+		int maxIndex = -1;
+		for (Link link : network.getLinks().values()) {
+			maxIndex = Math.max(maxIndex, link.getId().index());
+		}
+		this.partitions = new Partition[numberOfPartitions];
+		for (int p = 0; p < numberOfPartitions; p++) {
+			int numberOfLinks = maxIndex < p ? 0 : (maxIndex - p) / numberOfPartitions + 1;
+			this.partitions[p] = new Partition(p, numberOfLinks);
+		}
+		for (Link link : network.getLinks().values()) {
+			int index = link.getId().index();
+			this.partitions[index % numberOfPartitions].links[index / numberOfPartitions] = link;
+		}
+	}
+
+	static PartitionedTravelTimeCalculator create(final Network network, final TravelTimeCalculatorConfigGroup config,
+			final boolean filterModes, final Set<String> analyzedModes) {
+		final boolean interpolate;
+		switch (config.getTravelTimeGetterType()) {
+			case "average":
+				interpolate = false;
+				break;
+			case "linearinterpolation":
+				interpolate = true;
+				break;
+			default:
+				throw new RuntimeException(config.getTravelTimeGetterType() + " is unknown!");
+		}
+		return new PartitionedTravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(),
+				config.getNumberOfPartitions(), interpolate, filterModes, analyzedModes);
+	}
+
+	/**
+	 * @return the event handlers, one per partition.  All of them must be added to the events manager.
+	 */
+	public List<EventHandler> getEventHandlers() {
+		return Collections.unmodifiableList(Arrays.asList(this.partitions));
+	}
+
+	public void addEventHandlers(final EventsManager eventsManager) {
+		for (Partition partition : this.partitions) {
+			eventsManager.addHandler(partition);
+		}
+	}
+
+	public TravelTime getLinkTravelTimes() {
+		return new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				// same as in TravelTimeCalculator: the observed travel time must not be faster than the vehicle can drive.
+				double linkTtimeFromVehicle = 0.;
+				if (vehicle != null) {
+					final VehicleType vehicleType = vehicle.getType();
+					if (vehicleType == null) {
+						if (cnt < 1) {
+							cnt++;
+							log.warn("encountered vehicle where vehicle.getType() returns null.  That should be repaired (whereever it comes from).");
+							log.warn(Gbl.ONLYONCE);
+						}
+					} else {
+						linkTtimeFromVehicle = link.getLength() / vehicleType.getMaximumVelocity();
+					}
+				}
+				return Math.max(linkTtimeFromVehicle, PartitionedTravelTimeCalculator.this.getLinkTravelTime(link, time));
+			}
+		};
+	}
+
+	private double getLinkTravelTime(final Link link, final double time) {
+		int index = link.getId().index();
+		Partition partition = this.partitions[index % this.partitions.length];
+		int local = index / this.partitions.length;
+		if (local >= partition.links.length || partition.links[local] != link) {
+			return link.getLength() / link.getFreespeed(time);
+		}
+		double[] travelTimes = partition.getTravelTimes(local);
+		int timeSlot = TimeBinUtils.getTimeBinIndex(time, this.timeSlice, this.numSlots);
+		if (!this.interpolate) {
+			return travelTimes[timeSlot];
+		}
+
+		// as in LinearInterpolatingTravelTimeGetter
+		double halfBinSize = this.timeSlice / 2.0;
+		if (time <= halfBinSize || time >= this.numSlots * this.timeSlice - halfBinSize) {
+			return travelTimes[timeSlot];
+		}
+		int firstSlot = (timeSlot * this.timeSlice + halfBinSize > time) ? timeSlot - 1 : timeSlot;
+		double firstTravelTime = travelTimes[firstSlot];
+		double secondTravelTime = travelTimes[firstSlot + 1];
+		double dx = time - (firstSlot * this.timeSlice + halfBinSize);
+		return firstTravelTime + (secondTravelTime - firstTravelTime) * dx / this.timeSlice;
+	}
+
+	private final class Partition implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+			VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, VehicleAbortsEventHandler {
+
+		private final int partitionIndex;
+		private final Link[] links;
+		// the raw long bits of the sums of the travel times per link and time bin
+		private final AtomicLongArray sums;
+		private final AtomicIntegerArray counts;
+		// per link, the consolidated travel times of all time bins
+		private final AtomicReferenceArray<double[]> travelTimes;
+		/*
+		 * Per link, twice the number of changes of the sums and counts by the event handler (odd while the handler
+		 * changes them), and the value for which the travel times were consolidated.  They are only equal if the link
+		 * needs no consolidation.
+		 */
+		private final AtomicIntegerArray changes;
+		private final AtomicIntegerArray consolidatedChanges;
+		// only contains the vehicles which are on a link of this partition
+		private final Map<Id<Vehicle>, Double> enterTimes = new HashMap<>();
+		private final IdSet<Vehicle> vehiclesToIgnore = new IdSet<>(Vehicle.class);
+
+		Partition(final int partitionIndex, final int numberOfLinks) {
+			this.partitionIndex = partitionIndex;
+			this.links = new Link[numberOfLinks];
+			this.sums = new AtomicLongArray(numberOfLinks * numSlots);
+			this.counts = new AtomicIntegerArray(numberOfLinks * numSlots);
+			this.travelTimes = new AtomicReferenceArray<>(numberOfLinks);
+			this.changes = new AtomicIntegerArray(numberOfLinks);
+			this.consolidatedChanges = new AtomicIntegerArray(numberOfLinks);
+			for (int i = 0; i < numberOfLinks; i++) {
+				this.consolidatedChanges.set(i, -1);
+			}
+		}
+
+		/**
+		 * @return the index of the link in the arrays of this partition, or -1 if the link belongs to another partition
+		 * or is not in the network.
+		 */
+		private int getLocalIndex(final Id<Link> linkId) {
+			int index = linkId.index();
+			if (index % partitions.length != this.partitionIndex) {
+				return -1;
+			}
+			int local = index / partitions.length;
+			return local < this.links.length && this.links[local] != null ? local : -1;
+		}
+
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			if (filterModes && this.vehiclesToIgnore.contains(event.getVehicleId())) {
+				return;
+			}
+			if (getLocalIndex(event.getLinkId()) >= 0) {
+				this.enterTimes.put(event.getVehicleId(), event.getTime());
+			}
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent event) {
+			int local = getLocalIndex(event.getLinkId());
+			if (local < 0) {
+				return;
+			}
+			Double enterTime = this.enterTimes.remove(event.getVehicleId());
+			if (enterTime != null) {
+				int timeSlot = TimeBinUtils.getTimeBinIndex(enterTime, timeSlice, numSlots);
+				int slotIndex = local * numSlots + timeSlot;
+				double sum = Double.longBitsToDouble(this.sums.get(slotIndex)) + event.getTime() - enterTime;
+				// only this thread writes, so ordered writes are enough
+				int changes = this.changes.get(local);
+				this.changes.lazySet(local, changes + 1);
+				this.sums.lazySet(slotIndex, Double.doubleToRawLongBits(sum));
+				this.counts.lazySet(slotIndex, this.counts.get(slotIndex) + 1);
+				this.changes.lazySet(local, changes + 2);
+			}
+		}
+
+		@Override
+		public void handleEvent(final VehicleEntersTrafficEvent event) {
+			if (filterModes && !analyzedModes.contains(event.getNetworkMode())) {
+				this.vehiclesToIgnore.add(event.getVehicleId());
+			}
+		}
+
+		@Override
+		public void handleEvent(final VehicleLeavesTrafficEvent event) {
+			// otherwise the activity duration would be counted as travel time when the vehicle departs again
+			this.enterTimes.remove(event.getVehicleId());
+			if (filterModes) {
+				this.vehiclesToIgnore.remove(event.getVehicleId());
+			}
+		}
+
+		@Override
+		public void handleEvent(final VehicleArrivesAtFacilityEvent event) {
+			// otherwise the stop time would be counted as travel time
+			this.enterTimes.remove(event.getVehicleId());
+		}
+
+		@Override
+		public void handleEvent(final VehicleAbortsEvent event) {
+			this.enterTimes.remove(event.getVehicleId());
+			if (filterModes) {
+				this.vehiclesToIgnore.remove(event.getVehicleId());
+			}
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			for (int local = 0; local < this.links.length; local++) {
+				int changes = this.changes.get(local);
+				this.changes.lazySet(local, changes + 1);
+				for (int i = local * numSlots; i < (local + 1) * numSlots; i++) {
+					this.sums.lazySet(i, Double.doubleToRawLongBits(0.0));
+					this.counts.lazySet(i, 0);
+				}
+				this.changes.lazySet(local, changes + 2);
+			}
+			this.enterTimes.clear();
+			this.vehiclesToIgnore.clear();
+		}
+
+		private double[] getTravelTimes(final int local) {
+			if (this.consolidatedChanges.get(local) != this.changes.get(local)) {
+				consolidate(local);
+			}
+			return this.travelTimes.get(local);
+		}
+
+		/**
+		 * Averages the travel times of the link per time bin and makes sure that the travel time in a time bin is not
+		 * smaller than the travel time in the bin before minus the bin size, see TravelTimeCalculator.consolidateData().
+		 * As there, the link is only marked as consolidated after the travel times are written.  Events which are
+		 * handled later change the counter of the link and lead to another consolidation.
+		 */
+		private synchronized void consolidate(final int local) {
+			if (this.consolidatedChanges.get(local) == this.changes.get(local)) {
+				return;
+			}
+			Link link = this.links[local];
+			int offset = local * numSlots;
+			double[] travelTimes = new double[numSlots];
+			int changes;
+			while (true) {
+				changes = this.changes.get(local);
+				if ((changes & 1) != 0) {
+					// the handler is just changing the sums and counts of this link
+					Thread.yield();
+					continue;
+				}
+				double prevTravelTime = 0.0;
+				for (int i = 0; i < numSlots; i++) {
+					int count = this.counts.get(offset + i);
+					double travelTime = count > 0 ? Double.longBitsToDouble(this.sums.get(offset + i)) / count
+							: link.getLength() / link.getFreespeed(i * timeSlice);
+					if (i > 0) {
+						travelTime = Math.max(travelTime, prevTravelTime - timeSlice);
+					}
+					travelTimes[i] = travelTime;
+					prevTravelTime = travelTime;
+				}
+				if (changes == this.changes.get(local)) {
+					break;
+				}
+			}
+			this.travelTimes.set(local, travelTimes);
+			this.consolidatedChanges.set(local, changes);
+		}
+	}
+
+}
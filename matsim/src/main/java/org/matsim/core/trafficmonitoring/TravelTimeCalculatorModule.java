@@ -51,6 +51,10 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
 	@Override
 	public void install() {
+		if (getConfig().travelTimeCalculator().getNumberOfPartitions() > 1) {
+			installPartitioned();
+			return;
+		}
 		if (getConfig().travelTimeCalculator().getSeparateModes()) {
 			// (this is the default)
 
@@ -100,6 +104,31 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
 	}
 
+	private void installPartitioned() {
+		if (getConfig().travelTimeCalculator().isCalculateLinkToLinkTravelTimes()) {
+			throw new RuntimeException("link2link travel times are not supported by the " + PartitionedTravelTimeCalculator.class.getSimpleName()
+					+ ", set numberOfPartitions to 1 for them.");
+		}
+		if (getConfig().travelTimeCalculator().getSeparateModes()) {
+			for (final String mode : getConfig().plansCalcRoute().getNetworkModes()) {
+				bind(PartitionedTravelTimeCalculator.class).annotatedWith(Names.named(mode)).toProvider(new PartitionedTravelTimeCalculatorProvider(mode)).in(Singleton.class);
+				addTravelTimeBinding(mode).toProvider(new Provider<TravelTime>() {
+					@Inject Injector injector;
+					@Override public TravelTime get() {
+						return injector.getInstance(Key.get(PartitionedTravelTimeCalculator.class, Names.named(mode))).getLinkTravelTimes();
+					}
+				}).in(Singleton.class);
+			}
+		} else {
+			bind(PartitionedTravelTimeCalculator.class).toProvider(new PartitionedTravelTimeCalculatorProvider(null)).in(Singleton.class);
+			if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
+				for (String mode : getConfig().plansCalcRoute().getNetworkModes()) {
+					addTravelTimeBinding(mode).toProvider(ObservedPartitionedLinkTravelTimes.class);
+				}
+			}
+		}
+	}
+
 	private static class SingleModeTravelTimeCalculatorProvider implements Provider<TravelTimeCalculator> {
 
 		@Inject TravelTimeCalculatorConfigGroup config;
@@ -144,6 +173,46 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
 	}
 
+	private static class PartitionedTravelTimeCalculatorProvider implements Provider<PartitionedTravelTimeCalculator> {
+
+		@Inject TravelTimeCalculatorConfigGroup config;
+		@Inject EventsManager eventsManager;
+		@Inject Network network;
+
+		private final String mode;
+
+		/**
+		 * @param mode the only analyzed mode, or <code>null</code> to use filterModes and analyzedModes from the config
+		 */
+		PartitionedTravelTimeCalculatorProvider(String mode) {
+			this.mode = mode;
+		}
+
+		@Override
+		public PartitionedTravelTimeCalculator get() {
+			PartitionedTravelTimeCalculator calculator;
+			if (this.mode == null) {
+				calculator = PartitionedTravelTimeCalculator.create(network, config, config.isFilterModes(), config.getAnalyzedModes());
+			} else {
+				calculator = PartitionedTravelTimeCalculator.create(network, config, true, CollectionUtils.stringToSet(mode));
+			}
+			calculator.addEventHandlers(eventsManager);
+			return calculator;
+		}
+	}
+
+	private static class ObservedPartitionedLinkTravelTimes implements Provider<TravelTime> {
+
+		@Inject
+		PartitionedTravelTimeCalculator travelTimeCalculator;
+
+		@Override
+		public TravelTime get() {
+			return travelTimeCalculator.getLinkTravelTimes();
+		}
+
+	}
+
 	private static class ObservedLinkToLinkTravelTimes implements Provider<LinkToLinkTravelTime> {
 
 		@Inject
@@ -0,0 +1,235 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A queue of elements with a time each, e.g. agents and the end times of their activities, from which the elements
+ * are taken in the order of their times as the simulation time advances.
+ * <p></p>
+ * The elements are kept in one bucket per second of simulation time, on a wheel of {@value #NUMBER_OF_SLOTS} slots
+ * (which is more than a day; elements further in the future just share the slot and are skipped until their turn).
+ * Adding an element is O(1), and when the time advances, the buckets of the passed seconds are moved into a small
+ * priority queue, which only ever contains the elements of the current second.  Elements are removed through the
+ * {@link Entry} returned when adding them, in O(1): like in {@link PseudoRemovePriorityQueue}, the entry is only
+ * marked and skipped later.
+ * <p></p>
+ * Elements with the same time are returned in the order of the given comparator, so the order is the same as with a
+ * {@link PriorityQueue} comparing the times first.  Elements added for a second which has already been polled, e.g.
+ * with a time of {@link Double#NEGATIVE_INFINITY}, go directly to the priority queue.
+ * <p></p>
+ * This class is not thread-safe.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public final class CalendarQueue<E> {
+
+	private static final int NUMBER_OF_SLOTS = 1 << 17;
+	private static final int MASK = NUMBER_OF_SLOTS - 1;
+
+	public static final class Entry<E> {
+		private final E element;
+		private final double time;
+		private final long second;
+		private boolean queued = true;
+
+		private Entry(final E element, final double time) {
+			this.element = element;
+			this.time = time;
+			this.second = (long) Math.floor(time);
+		}
+
+		public E getElement() {
+			return this.element;
+		}
+
+		public double getTime() {
+			return this.time;
+		}
+
+		/**
+		 * @return false if the entry was polled or removed
+		 */
+		public boolean isQueued() {
+			return this.queued;
+		}
+	}
+
+	private final Comparator<Entry<E>> comparator;
+	private final PriorityQueue<Entry<E>> current;
+	private final List<Entry<E>>[] slots;
+	/** all entries of earlier seconds are in {@link #current}; {@link Long#MIN_VALUE} before the first poll */
+	private long nextSecond = Long.MIN_VALUE;
+	/** number of entries in the slots, including removed ones not yet skipped */
+	private int slotEntries = 0;
+	private int size = 0;
+
+	/**
+	 * @param tieBreaker the order of elements with the same time
+	 */
+	@SuppressWarnings("unchecked")
+	public CalendarQueue(final Comparator<? super E> tieBreaker) {
+		this.comparator = Comparator.<Entry<E>>comparingDouble(entry -> entry.time).thenComparing(entry -> entry.element, tieBreaker);
+		this.current = new PriorityQueue<>(64, this.comparator);
+		this.slots = new List[NUMBER_OF_SLOTS];
+	}
+
+	public Entry<E> add(final E element, final double time) {
+		Entry<E> entry = new Entry<>(element, time);
+		if (entry.second < this.nextSecond) {
+			this.current.add(entry);
+		} else {
+			int slot = (int) (entry.second & MASK);
+			if (this.slots[slot] == null) {
+				this.slots[slot] = new ArrayList<>();
+			}
+			this.slots[slot].add(entry);
+			this.slotEntries++;
+		}
+		this.size++;
+		return entry;
+	}
+
+	/**
+	 * @return true if the entry was still in the queue
+	 */
+	public boolean remove(final Entry<E> entry) {
+		if (!entry.queued) {
+			return false;
+		}
+		entry.queued = false;
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Removes and returns the next element with a time of at most <code>now</code>.
+	 *
+	 * @return the element, or <code>null</code> if there is none
+	 */
+	public E poll(final double now) {
+		advance((long) Math.floor(now));
+		Entry<E> head;
+		while ((head = this.current.peek()) != null) {
+			if (!head.queued) {
+				this.current.poll();
+			} else if (head.time <= now) {
+				this.current.poll();
+				head.queued = false;
+				this.size--;
+				return head.element;
+			} else {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Moves the entries of all seconds up to the given one from the slots to {@link #current}.
+	 */
+	private void advance(final long second) {
+		if (second < this.nextSecond) {
+			return;
+		}
+		if (this.slotEntries > 0) {
+			if (this.nextSecond == Long.MIN_VALUE || second - this.nextSecond >= NUMBER_OF_SLOTS) {
+				for (List<Entry<E>> slot : this.slots) {
+					moveDueEntries(slot, second);
+				}
+			} else {
+				for (long s = this.nextSecond; s <= second && this.slotEntries > 0; s++) {
+					moveDueEntries(this.slots[(int) (s & MASK)], second);
+				}
+			}
+		}
+		this.nextSecond = second == Long.MAX_VALUE ? second : second + 1;
+	}
+
+	private void moveDueEntries(final List<Entry<E>> slot, final long second) {
+		if (slot == null || slot.isEmpty()) {
+			return;
+		}
+		int kept = 0;
+		for (int i = 0, n = slot.size(); i < n; i++) {
+			Entry<E> entry = slot.get(i);
+			if (!entry.queued) {
+				this.slotEntries--;
+			} else if (entry.second <= second) {
+				this.current.add(entry);
+				this.slotEntries--;
+			} else {
+				slot.set(kept++, entry);
+			}
+		}
+		slot.subList(kept, slot.size()).clear();
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * @return the entries still in the queue, in the order in which they would be polled
+	 */
+	public List<Entry<E>> getEntries() {
+		List<Entry<E>> entries = new ArrayList<>(this.size);
+		for (Entry<E> entry : this.current) {
+			if (entry.queued) {
+				entries.add(entry);
+			}
+		}
+		if (this.slotEntries > 0) {
+			for (List<Entry<E>> slot : this.slots) {
+				if (slot != null) {
+					for (Entry<E> entry : slot) {
+						if (entry.queued) {
+							entries.add(entry);
+						}
+					}
+				}
+			}
+		}
+		entries.sort(this.comparator);
+		return entries;
+	}
+
+	public void clear() {
+		for (Entry<E> entry : getEntries()) {
+			entry.queued = false;
+		}
+		this.current.clear();
+		Arrays.fill(this.slots, null);
+		this.slotEntries = 0;
+		this.size = 0;
+		this.nextSecond = Long.MIN_VALUE;
+	}
+
+}
@@ -22,6 +22,7 @@ package org.matsim.core.utils.collections;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 
 /**
  * An implementation of a QuadTree to store data assigned to geometric points.
@@ -72,6 +73,61 @@ public class QuadTree<T> implements Serializable {
 		this.top = new Node<T>(minX, minY, maxX, maxY);
 	}
 
+	/**
+	 * Creates a QuadTree with the bounds minX/minY -- maxX/maxY containing the given values, at the coordinates
+	 * returned by getX and getY.  This is much faster than adding the values one by one with
+	 * {@link #put(double, double, Object)}: the values are sorted once, and then every node of the tree is built
+	 * exactly once from its share of the values, instead of scanning and splitting nodes while they fill up.
+	 * The resulting tree contains the same values as if they had been put one by one.
+	 *
+	 * @param values the values to be stored in the tree
+	 * @param getX returns the x coordinate (easting, longitude) of a value
+	 * @param getY returns the y coordinate (northing, latitude) of a value
+	 * @throws IllegalArgumentException if a value is located outside the bounds
+	 */
+	public QuadTree(final double minX, final double minY, final double maxX, final double maxY,
+			final Collection<? extends T> values, final ToDoubleFunction<? super T> getX, final ToDoubleFunction<? super T> getY) {
+		this(minX, minY, maxX, maxY);
+		@SuppressWarnings("unchecked")
+		Leaf<T>[] leaves = new Leaf[values.size()];
+		int count = 0;
+		for (T value : values) {
+			double x = getX.applyAsDouble(value);
+			double y = getY.applyAsDouble(value);
+			if (!this.top.bounds.containsOrEquals(x, y)) {
+				throw new IllegalArgumentException("cannot add a point at x=" + x + ", y=" + y + " with bounds " + this.top.bounds);
+			}
+			leaves[count++] = new Leaf<>(x, y, value);
+		}
+		Arrays.sort(leaves, (a, b) -> a.x != b.x ? Double.compare(a.x, b.x) : Double.compare(a.y, b.y));
+
+		// merge the values at the same location into one leaf, as put() does
+		int numberOfLeaves = 0;
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			Leaf<T> leaf = leaves[i];
+			Leaf<T> previous = numberOfLeaves > 0 ? leaves[numberOfLeaves - 1] : null;
+			if (previous != null && previous.x == leaf.x && previous.y == leaf.y) {
+				if (previous.values == null) {
+					if (previous.value == leaf.value) {
+						continue;
+					}
+					previous.values = new ArrayList<>(3);
+					previous.values.add(previous.value);
+					previous.value = null;
+				} else if (previous.values.contains(leaf.value)) {
+					continue;
+				}
+				previous.values.add(leaf.value);
+			} else {
+				leaves[numberOfLeaves++] = leaf;
+			}
+			size++;
+		}
+		this.top.bulkLoad(leaves, 0, numberOfLeaves);
+		this.size = size;
+	}
+
 	/**
 	 * Associates the specified value with the specified coordinates in this
 	 * QuadTree.
@@ -131,6 +187,84 @@ public class QuadTree<T> implements Serializable {
 		return this.top.get(x, y, new MutableDouble(Double.POSITIVE_INFINITY));
 	}
 
+	/**
+	 * Gets the k objects closest to x/y. This is equivalent to, but much cheaper than, calling
+	 * {@link #getDisk(double, double, double)} with a growing distance until at least k objects are found and
+	 * sorting them, as only the nodes which may contain one of the k closest objects are visited.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the number of objects to be found
+	 * @return the min(k, size()) objects closest to x/y, ordered by increasing distance. Objects at the same
+	 *         distance are in no specific order.
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		return getKNearest(x, y, k, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Gets the k objects closest to x/y, but at most maxDistance away from x/y.
+	 *
+	 * @param x easting, left-right location, longitude
+	 * @param y northing, up-down location, latitude
+	 * @param k the maximal number of objects to be found
+	 * @param maxDistance the maximal distance returned objects can be away from x/y
+	 * @return at most k objects closest to x/y, ordered by increasing distance
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k, final double maxDistance) {
+		KNearestSearch<T> search = new KNearestSearch<>(k, this.size);
+		search.reset(maxDistance < 0 ? -1.0 : maxDistance * maxDistance);
+		return search.run(this.top, x, y);
+	}
+
+	/**
+	 * Gets the k objects closest to each of the given locations, the same as calling
+	 * {@link #getKNearest(double, double, int)} for every location.  For many locations this is faster: the
+	 * locations are processed in the order of a space filling curve, so consecutive queries visit mostly the same
+	 * nodes, and each query starts with the distance to the objects found for the previous, close-by location as
+	 * upper bound, which prunes most of the tree from the start.
+	 *
+	 * @param x the eastings of the locations
+	 * @param y the northings of the locations, in the same order as x
+	 * @param k the number of objects to be found per location
+	 * @return for each location, in the order of the arguments, the objects closest to it
+	 */
+	public List<List<T>> getKNearest(final double[] x, final double[] y, final int k) {
+		if (x.length != y.length) {
+			throw new IllegalArgumentException("got " + x.length + " x and " + y.length + " y coordinates.");
+		}
+		Rect bounds = this.top.getBounds();
+		double scaleX = bounds.maxX > bounds.minX ? 65535.0 / (bounds.maxX - bounds.minX) : 0.0;
+		double scaleY = bounds.maxY > bounds.minY ? 65535.0 / (bounds.maxY - bounds.minY) : 0.0;
+		// the z-order value of the location in the upper bits, the index of the location in the lower bits
+		long[] order = new long[x.length];
+		for (int i = 0; i < x.length; i++) {
+			long zx = spreadBits((int) Math.max(0, Math.min(65535, (x[i] - bounds.minX) * scaleX)));
+			long zy = spreadBits((int) Math.max(0, Math.min(65535, (y[i] - bounds.minY) * scaleY)));
+			order[i] = ((zx | (zy << 1)) << 31) | i;
+		}
+		Arrays.sort(order);
+
+		List<List<T>> results = new ArrayList<>(Collections.nCopies(x.length, null));
+		KNearestSearch<T> search = new KNearestSearch<>(k, this.size);
+		for (long entry : order) {
+			int i = (int) (entry & Integer.MAX_VALUE);
+			search.reset(search.getMaxDistanceSquaredOfLastResult(x[i], y[i]));
+			results.set(i, search.run(this.top, x[i], y[i]));
+		}
+		return results;
+	}
+
+	/** Moves the lower 16 bits of value to the even bits of the result. */
+	private static long spreadBits(final int value) {
+		long v = value & 0xFFFFL;
+		v = (v | (v << 8)) & 0x00FF00FFL;
+		v = (v | (v << 4)) & 0x0F0F0F0FL;
+		v = (v | (v << 2)) & 0x33333333L;
+		v = (v | (v << 1)) & 0x55555555L;
+		return v;
+	}
+
 	/**
 	 * Gets all objects within a certain distance around x/y
 	 *
@@ -379,6 +513,134 @@ public class QuadTree<T> implements Serializable {
 		}
 	}
 
+	/**
+	 * The state of a k-nearest search: the closest objects found so far in a bounded max-heap (the farthest of them at
+	 * the top), with their squared distances and locations in plain arrays.  The arrays are reused when the search is
+	 * run for several locations.
+	 */
+	private static final class KNearestSearch<T> {
+		private final int capacity;
+		private final double[] distances;
+		private final double[] xs;
+		private final double[] ys;
+		private final Object[] values;
+		private int count = 0;
+		private double maxDistanceSquared;
+
+		KNearestSearch(final int k, final int size) {
+			if (k < 0) {
+				throw new IllegalArgumentException("k must not be negative, but is " + k);
+			}
+			// there cannot be more results than objects in the tree
+			this.capacity = Math.min(k, size);
+			this.distances = new double[this.capacity];
+			this.xs = new double[this.capacity];
+			this.ys = new double[this.capacity];
+			this.values = new Object[this.capacity];
+		}
+
+		void reset(final double maxDistanceSquared) {
+			this.count = 0;
+			this.maxDistanceSquared = maxDistanceSquared;
+		}
+
+		/**
+		 * @return the squared distance from x/y to the farthest object found by the last run, which is an upper
+		 *         bound for the distance to the k-th closest object from x/y.
+		 */
+		double getMaxDistanceSquaredOfLastResult(final double x, final double y) {
+			if (this.count < this.capacity || this.capacity == 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+			double max = 0.0;
+			for (int i = 0; i < this.count; i++) {
+				double dx = this.xs[i] - x;
+				double dy = this.ys[i] - y;
+				max = Math.max(max, dx * dx + dy * dy);
+			}
+			return max;
+		}
+
+		/** @return the squared distance beyond which no more objects can become part of the result */
+		double getBound() {
+			return this.count == this.capacity ? this.distances[0] : this.maxDistanceSquared;
+		}
+
+		void offer(final double distanceSquared, final double x, final double y, final T value) {
+			if (this.count < this.capacity) {
+				if (distanceSquared > this.maxDistanceSquared) {
+					return;
+				}
+				// sift up
+				int i = this.count++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (this.distances[parent] >= distanceSquared) {
+						break;
+					}
+					move(parent, i);
+					i = parent;
+				}
+				set(i, distanceSquared, x, y, value);
+			} else if (distanceSquared < this.distances[0]) {
+				siftDown(0, this.count, distanceSquared, x, y, value);
+			}
+		}
+
+		private void siftDown(int i, final int end, final double distanceSquared, final double x, final double y, final Object value) {
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= end) {
+					break;
+				}
+				if (child + 1 < end && this.distances[child + 1] > this.distances[child]) {
+					child++;
+				}
+				if (this.distances[child] <= distanceSquared) {
+					break;
+				}
+				move(child, i);
+				i = child;
+			}
+			set(i, distanceSquared, x, y, value);
+		}
+
+		private void move(final int from, final int to) {
+			this.distances[to] = this.distances[from];
+			this.xs[to] = this.xs[from];
+			this.ys[to] = this.ys[from];
+			this.values[to] = this.values[from];
+		}
+
+		private void set(final int i, final double distanceSquared, final double x, final double y, final Object value) {
+			this.distances[i] = distanceSquared;
+			this.xs[i] = x;
+			this.ys[i] = y;
+			this.values[i] = value;
+		}
+
+		@SuppressWarnings("unchecked")
+		List<T> run(final Node<T> top, final double x, final double y) {
+			if (this.capacity > 0) {
+				top.getKNearest(x, y, this);
+			}
+			// heap sort, so that the closest object comes first
+			for (int end = this.count - 1; end > 0; end--) {
+				double distance = this.distances[end];
+				double ex = this.xs[end];
+				double ey = this.ys[end];
+				Object value = this.values[end];
+				move(0, end);
+				siftDown(0, end, distance, ex, ey, value);
+			}
+			List<T> result = new ArrayList<>(this.count);
+			for (int i = 0; i < this.count; i++) {
+				result.add((T) this.values[i]);
+			}
+			return result;
+		}
+	}
+
 	/**
 	 * An internal class to hold variable parameters when calling methods.
 	 * Here a Leaf value is packaged within an object so the value can be
@@ -655,6 +917,49 @@ public class QuadTree<T> implements Serializable {
 			return put(new Leaf<T>(x, y, value));
 		}
 
+		/**
+		 * Builds this node and its children from the leaves between from (inclusive) and to (exclusive), which
+		 * must all be at different locations.  Changes the order of the leaves in that range.
+		 */
+		/* default */ void bulkLoad(final Leaf<T>[] leaves, final int from, final int to) {
+			if (to - from <= MAX_CHILDS) {
+				if (to > from) {
+					this.leaves = new ArrayList<>(Arrays.asList(leaves).subList(from, to));
+				}
+				return;
+			}
+			this.split();
+			// the same assignment to the children as in getChild()
+			int east = partition(leaves, from, to, true, this.bounds.centerX);
+			int westNorth = partition(leaves, from, east, false, this.bounds.centerY);
+			int eastNorth = partition(leaves, east, to, false, this.bounds.centerY);
+			this.southwest.bulkLoad(leaves, from, westNorth);
+			this.northwest.bulkLoad(leaves, westNorth, east);
+			this.southeast.bulkLoad(leaves, east, eastNorth);
+			this.northeast.bulkLoad(leaves, eastNorth, to);
+		}
+
+		/**
+		 * Reorders the leaves between from and to such that those with a coordinate smaller than center come first.
+		 *
+		 * @return the index of the first leaf with a coordinate greater or equal to center
+		 */
+		private static <T> int partition(final Leaf<T>[] leaves, final int from, final int to, final boolean byX, final double center) {
+			int i = from;
+			int j = to - 1;
+			while (i <= j) {
+				Leaf<T> leaf = leaves[i];
+				if ((byX ? leaf.x : leaf.y) < center) {
+					i++;
+				} else {
+					leaves[i] = leaves[j];
+					leaves[j] = leaf;
+					j--;
+				}
+			}
+			return i;
+		}
+
 		public boolean remove(final double x, final double y, final T value) {
 			if (this.hasChilds) return getChild(x, y).remove(x, y, value);
 			if (this.leaves != null) {
@@ -740,6 +1045,48 @@ public class QuadTree<T> implements Serializable {
 			return closest;
 		}
 
+		/* default */ void getKNearest(final double x, final double y, final KNearestSearch<T> search) {
+			if (this.hasChilds) {
+				// first the child containing x/y, it most likely contains the closest objects and shrinks the bound,
+				// then the two neighbouring children, and the diagonally opposite child last
+				boolean west = x < this.bounds.centerX;
+				boolean south = y < this.bounds.centerY;
+				Node<T> bestChild = west ? (south ? this.southwest : this.northwest) : (south ? this.southeast : this.northeast);
+				Node<T> sameX = west ? (south ? this.northwest : this.southwest) : (south ? this.northeast : this.southeast);
+				Node<T> sameY = west ? (south ? this.southeast : this.northeast) : (south ? this.southwest : this.northwest);
+				Node<T> opposite = west ? (south ? this.northeast : this.southeast) : (south ? this.northwest : this.southwest);
+				bestChild.getKNearest(x, y, search);
+				if (Math.abs(x - this.bounds.centerX) < Math.abs(y - this.bounds.centerY)) {
+					sameY.getKNearestIfInBound(x, y, search);
+					sameX.getKNearestIfInBound(x, y, search);
+				} else {
+					sameX.getKNearestIfInBound(x, y, search);
+					sameY.getKNearestIfInBound(x, y, search);
+				}
+				opposite.getKNearestIfInBound(x, y, search);
+				return;
+			}
+			if (this.leaves != null) {
+				for (Leaf<T> leaf : this.leaves) {
+					double distanceSquared = (leaf.x - x) * (leaf.x - x) + (leaf.y - y) * (leaf.y - y);
+					if (leaf.value != null) {
+						search.offer(distanceSquared, leaf.x, leaf.y, leaf.value);
+					} else {
+						for (T value : leaf.values) {
+							search.offer(distanceSquared, leaf.x, leaf.y, value);
+						}
+					}
+				}
+			}
+		}
+
+		private void getKNearestIfInBound(final double x, final double y, final KNearestSearch<T> search) {
+			double distance = this.bounds.calcDistance(x, y);
+			if (distance * distance <= search.getBound()) {
+				getKNearest(x, y, search);
+			}
+		}
+
 		/* default */ Collection<T> getElliptical(
 				final double x1,
 				final double y1,
@@ -36,12 +36,15 @@ import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
 
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Generates {@link ActivityFacility}s from the {@link Activity Activities} in a population
@@ -64,6 +67,7 @@ public final class FacilitiesFromPopulation {
 	private boolean removeLinksAndCoordinates = true;
 	private PlanCalcScoreConfigGroup planCalcScoreConfigGroup = null;
 	private boolean addEmptyActivityOptions = false;
+	private int numberOfThreads = 1;
 
 	public FacilitiesFromPopulation(final ActivityFacilities facilities) {
 		// minimalistic constructor, to configure via external setters
@@ -88,6 +92,7 @@ public final class FacilitiesFromPopulation {
 		}
 		this.network = scenario.getNetwork() ;
 		this.planCalcScoreConfigGroup = scenario.getConfig().planCalcScore() ;
+		this.numberOfThreads = scenario.getConfig().global().getNumberOfThreads() ;
 	}
 
 	/**
@@ -129,6 +134,16 @@ public final class FacilitiesFromPopulation {
 		this.removeLinksAndCoordinates = doRemoval;
 	}
 
+	/**
+	 * Sets the number of threads used to find the nearest links of activities without a link.  The facilities
+	 * are still created in the order of the persons, so the result does not depend on the number of threads.
+	 *
+	 * @param numberOfThreads
+	 */
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	public void assignOpeningTimes( final PlanCalcScoreConfigGroup calcScoreConfigGroup ) {
 		Gbl.assertNotNull( calcScoreConfigGroup );
 		this.planCalcScoreConfigGroup = calcScoreConfigGroup ;
@@ -152,6 +167,7 @@ public final class FacilitiesFromPopulation {
 		ActivityFacilitiesFactory factory = this.facilities.getFactory();
 		IdMap<Link, ActivityFacility> facilitiesPerLinkId = new IdMap<>(Link.class);
 		Map<Coord, ActivityFacility> facilitiesPerCoordinate = new HashMap<>();
+		Map<Coord, Id<Link>> nearestLinks = findNearestLinks(population);
 
 		for (Person person : population.getPersons().values()) {
 			for (Plan plan : person.getPlans()) {
@@ -164,7 +180,7 @@ public final class FacilitiesFromPopulation {
 						ActivityFacility facility = null;
 
 						if ( linkId == null ) {
-							linkId = NetworkUtils.getNearestLinkExactly(this.network, coord).getId();
+							linkId = nearestLinks.get(coord);
 							// yyyy we have been using the non-exact version in other parts of the project. kai, mar'19
 						}
 
@@ -235,6 +251,40 @@ public final class FacilitiesFromPopulation {
 		}
 	}
 
+	/**
+	 * Searches the nearest link of every coordinate of an activity without a link.  This is the expensive part on
+	 * large networks, and unlike the creation of the facilities it does not depend on the order of the activities.
+	 */
+	private Map<Coord, Id<Link>> findNearestLinks(final Population population) {
+		Map<Coord, Id<Link>> nearestLinks = new ConcurrentHashMap<>();
+		ParallelPersonAlgorithmUtils.run(population, this.numberOfThreads, new NearestLinkFinder(this.network, nearestLinks));
+		return nearestLinks;
+	}
+
+	private static class NearestLinkFinder implements PersonAlgorithm {
+		private final Network network;
+		private final Map<Coord, Id<Link>> nearestLinks;
+
+		NearestLinkFinder(final Network network, final Map<Coord, Id<Link>> nearestLinks) {
+			this.network = network;
+			this.nearestLinks = nearestLinks;
+		}
+
+		@Override
+		public void run(final Person person) {
+			for (Plan plan : person.getPlans()) {
+				for (PlanElement pe : plan.getPlanElements()) {
+					if (pe instanceof Activity) {
+						Activity activity = (Activity) pe;
+						if (activity.getLinkId() == null && activity.getCoord() != null && !this.nearestLinks.containsKey(activity.getCoord())) {
+							this.nearestLinks.put(activity.getCoord(), NetworkUtils.getNearestLinkExactly(this.network, activity.getCoord()).getId());
+						}
+					}
+				}
+			}
+		}
+	}
+
 	private void assignOpeningTimes() {
 		Set<String> missingActTypes = new HashSet<>();
 		for (ActivityFacility af : this.facilities.getFacilities().values()) {
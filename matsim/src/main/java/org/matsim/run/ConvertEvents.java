@@ -0,0 +1,75 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConvertEvents.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Locale;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+
+/**
+ * Converts events files between the xml and the binary format.  The format of the input file is recognized
+ * automatically, the format of the output file is chosen by its file ending: files with <code>.bin</code> (optionally
+ * followed by a compression ending like <code>.zst</code>) are written in the binary format, all others as xml.
+ */
+public class ConvertEvents {
+
+	private static void printUsage() {
+		System.out.println();
+		System.out.println("ConvertEvents");
+		System.out.println("Converts an events file from xml to the binary format, or vice versa.");
+		System.out.println();
+		System.out.println("usage: ConvertEvents input-events-file output-events-file");
+		System.out.println();
+		System.out.println("Examples:");
+		System.out.println("  ConvertEvents output_events.xml.gz output_events.bin.zst");
+		System.out.println("  ConvertEvents output_events.bin.zst output_events.xml.gz");
+		System.out.println();
+	}
+
+	public static void convert(final String inputFile, final String outputFile) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventWriter writer = isBinary(outputFile) ? new EventWriterBinary(outputFile) : new EventWriterXML(outputFile);
+		events.addHandler(writer);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(inputFile);
+		events.finishProcessing();
+		writer.closeFile();
+	}
+
+	private static boolean isBinary(final String filename) {
+		String lcFilename = filename.toLowerCase(Locale.ROOT);
+		return lcFilename.endsWith(".bin") || lcFilename.matches(".*\\.bin\\.[a-z0-9]+");
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			printUsage();
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+}
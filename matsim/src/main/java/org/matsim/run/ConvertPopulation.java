@@ -0,0 +1,79 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConvertPopulation.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReaderBinary;
+import org.matsim.core.population.io.PopulationWriterBinary;
+import org.matsim.core.population.io.StreamingPopulationReader;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Converts population files between the xml and the binary format.  The formats are chosen by the file endings: files
+ * with <code>.bin</code> are read and written in the binary format (see {@link PopulationWriterBinary}), all others as
+ * xml.
+ * <p></p>
+ * When writing a binary file, the input is streamed, so even very large populations need little memory.  Binary files
+ * are converted to xml by reading the whole population, since the xml writer only writes the population attributes
+ * (e.g. the coordinate system) when writing a population from memory.
+ */
+public class ConvertPopulation {
+
+	private static void printUsage() {
+		System.out.println();
+		System.out.println("ConvertPopulation");
+		System.out.println("Converts a population file from xml to the binary format, or vice versa.");
+		System.out.println();
+		System.out.println("usage: ConvertPopulation input-population-file output-population-file");
+		System.out.println();
+		System.out.println("Examples:");
+		System.out.println("  ConvertPopulation output_plans.xml.gz output_plans.bin");
+		System.out.println("  ConvertPopulation output_plans.bin output_plans.xml.gz");
+		System.out.println();
+	}
+
+	public static void convert(final String inputFile, final String outputFile) {
+		if (PopulationReaderBinary.isBinaryFile(outputFile)) {
+			MutableScenario scenario = ScenarioUtils.createMutableScenario(ConfigUtils.createConfig());
+			StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+			try (PopulationWriterBinary writer = new PopulationWriterBinary(scenario.getPopulation())) {
+				writer.startStreaming(outputFile);
+				reader.addAlgorithm(writer);
+				reader.readFile(inputFile);
+			}
+		} else {
+			Population population = PopulationUtils.readPopulation(inputFile);
+			PopulationUtils.writePopulation(population, outputFile);
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			printUsage();
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+}
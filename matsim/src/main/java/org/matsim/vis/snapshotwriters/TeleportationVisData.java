@@ -84,6 +84,10 @@ public class TeleportationVisData implements AgentSnapshotInfo {
 		return this.agentId;
 	}
 
+	public double getTravelTime() {
+		return this.travelTime;
+	}
+
 	public final void updatePosition(double time) {
 		double frac = (time - starttime) / travelTime ;
 		this.currentX = (1.-frac) * this.startX + frac * this.endX + 0.1*(intX-offset/2) ;
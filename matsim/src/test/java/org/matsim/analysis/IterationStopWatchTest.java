@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationStopWatchTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class IterationStopWatchTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSectionsAreWrittenSeparately() throws IOException {
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		stopwatch.beginSection("prepareForSim");
+		stopwatch.beginOperation("prepare");
+		stopwatch.endOperation("prepare");
+		stopwatch.endSection();
+		for (int iteration = 0; iteration < 2; iteration++) {
+			stopwatch.beginIteration(iteration);
+			stopwatch.beginOperation("mobsim");
+			stopwatch.endOperation("mobsim");
+			stopwatch.endIteration();
+		}
+
+		String filename = this.utils.getOutputDirectory() + "stopwatch";
+		stopwatch.writeTextFile(filename);
+
+		List<String[]> iterations = readRows(filename + ".txt");
+		Assert.assertEquals("Iteration", iterations.get(0)[0]);
+		Assert.assertTrue(Arrays.asList(iterations.get(0)).contains("mobsim"));
+		Assert.assertFalse(Arrays.asList(iterations.get(0)).contains("prepare"));
+		Assert.assertEquals(3, iterations.size());
+		Assert.assertEquals("0", iterations.get(1)[0]);
+		Assert.assertEquals("1", iterations.get(2)[0]);
+
+		List<String[]> sections = readRows(filename + "_sections.txt");
+		Assert.assertEquals("Section", sections.get(0)[0]);
+		Assert.assertTrue(Arrays.asList(sections.get(0)).contains("prepare"));
+		Assert.assertFalse(Arrays.asList(sections.get(0)).contains("mobsim"));
+		Assert.assertEquals(2, sections.size());
+		Assert.assertEquals("prepareForSim", sections.get(1)[0]);
+		int prepare = Arrays.asList(sections.get(0)).lastIndexOf("prepare");
+		Assert.assertFalse(sections.get(1)[prepare].isEmpty());
+	}
+
+	@Test
+	public void testIterationIsContinuedAfterSection() throws IOException {
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		stopwatch.beginIteration(0);
+		stopwatch.beginOperation("replanning");
+		stopwatch.endOperation("replanning");
+		stopwatch.beginSection("prepareForSim");
+		stopwatch.beginOperation("prepare");
+		stopwatch.endOperation("prepare");
+		stopwatch.endSection();
+		stopwatch.beginOperation("mobsim");
+		stopwatch.endOperation("mobsim");
+		stopwatch.endIteration();
+
+		String filename = this.utils.getOutputDirectory() + "stopwatch";
+		stopwatch.writeTextFile(filename);
+
+		List<String[]> iterations = readRows(filename + ".txt");
+		Assert.assertEquals(2, iterations.size());
+		List<String> header = Arrays.asList(iterations.get(0));
+		Assert.assertFalse(header.contains("prepare"));
+		for (String operation : new String[] { "replanning", "mobsim", IterationStopWatch.OPERATION_ITERATION }) {
+			int column = header.lastIndexOf(operation);
+			Assert.assertTrue(operation, column > 0);
+			Assert.assertFalse(operation, iterations.get(1)[column].isEmpty());
+		}
+		Assert.assertTrue(new File(filename + "_sections.txt").exists());
+	}
+
+	@Test
+	public void testNoSectionsFileWithoutSections() {
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		stopwatch.beginIteration(0);
+		stopwatch.endIteration();
+
+		String filename = this.utils.getOutputDirectory() + "stopwatch";
+		stopwatch.writeTextFile(filename);
+
+		Assert.assertTrue(new File(filename + ".txt").exists());
+		Assert.assertFalse(new File(filename + "_sections.txt").exists());
+	}
+
+	private static List<String[]> readRows(String filename) throws IOException {
+		List<String[]> rows = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				rows.add(line.split("\t", -1));
+			}
+		}
+		return rows;
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdDoubleMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 2);
+		Id<Person> id1 = Id.create("doubleMap-1", Person.class);
+		Id<Person> id2 = Id.create("doubleMap-2", Person.class);
+		Id<Person> id3 = Id.create("doubleMap-3", Person.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertEquals(0.0, map.get(id1), 0.0);
+
+		Assert.assertEquals(0.0, map.put(id1, 1.5), 0.0);
+		Assert.assertEquals(0.0, map.put(id3, -2.5), 0.0);
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(1.5, map.put(id1, 3.5), 0.0);
+		Assert.assertEquals(3.5, map.get(id1), 0.0);
+		Assert.assertEquals(-2.5, map.get(id3), 0.0);
+		Assert.assertFalse(map.containsKey(id2));
+
+		Assert.assertEquals(0.5, map.add(id3, 3.0), 0.0);
+		Assert.assertEquals(3.0, map.add(id2, 3.0), 0.0);
+		Assert.assertEquals(3, map.size());
+
+		Assert.assertEquals(3.5, map.remove(id1), 0.0);
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+	}
+
+	@Test
+	public void testNaNAsNoEntryValue() {
+		IdDoubleMap<Person> map = new IdDoubleMap<>(Person.class, 1, Double.NaN);
+		Id<Person> id1 = Id.create("doubleMap-1", Person.class);
+		Id<Person> id3 = Id.create("doubleMap-3", Person.class);
+
+		Assert.assertTrue(Double.isNaN(map.get(id1)));
+		map.put(id3, 0.0);
+		Assert.assertEquals(0.0, map.get(id3), 0.0);
+		Assert.assertTrue(Double.isNaN(map.get(id1)));
+		map.clear();
+		Assert.assertTrue(Double.isNaN(map.get(id3)));
+	}
+
+}
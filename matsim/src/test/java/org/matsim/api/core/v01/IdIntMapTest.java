@@ -0,0 +1,100 @@
+package org.matsim.api.core.v01;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.population.Person;
+
+public class IdIntMapTest {
+
+	@Test
+	public void testPutGetRemoveSize() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 2);
+		Id<Person> id1 = Id.create("intMap-1", Person.class);
+		Id<Person> id2 = Id.create("intMap-2", Person.class);
+		Id<Person> id3 = Id.create("intMap-3", Person.class);
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertEquals(0, map.get(id1));
+		Assert.assertFalse(map.containsKey(id1));
+
+		Assert.assertEquals(0, map.put(id1, 5));
+		Assert.assertEquals(0, map.put(id3, 0));
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.isEmpty());
+		Assert.assertEquals(5, map.put(id1, 7));
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertEquals(7, map.get(id1));
+		Assert.assertEquals(0, map.get(id2));
+		Assert.assertEquals(0, map.get(id3));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+
+		Assert.assertEquals(7, map.remove(id1));
+		Assert.assertEquals(0, map.remove(id2));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.containsKey(id3));
+	}
+
+	@Test
+	public void testAdd() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create("intMap-1", Person.class);
+
+		Assert.assertEquals(1, map.add(id1, 1));
+		Assert.assertEquals(3, map.add(id1, 2));
+		Assert.assertEquals(-1, map.add(id1, -4));
+		Assert.assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testNoEntryValue() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 1, -1);
+		Id<Person> id1 = Id.create("intMap-1", Person.class);
+		Id<Person> id2 = Id.create("intMap-2", Person.class);
+
+		Assert.assertEquals(-1, map.get(id2));
+		Assert.assertEquals(-1, map.put(id2, 3));
+		Assert.assertEquals(-1, map.get(id1));
+		Assert.assertEquals(4, map.add(id1, 4));
+		Assert.assertEquals(3, map.remove(id2));
+		Assert.assertEquals(-1, map.get(id2));
+	}
+
+	@Test
+	public void testForEach() {
+		IdIntMap<Person> map = new IdIntMap<>(Person.class, 10);
+		Id<Person> id1 = Id.create("intMap-1", Person.class);
+		Id<Person> id2 = Id.create("intMap-2", Person.class);
+		Id<Person> id3 = Id.create("intMap-3", Person.class);
+		map.put(id3, 3);
+		map.put(id1, 1);
+
+		List<Id<Person>> ids = new ArrayList<>();
+		List<Integer> values = new ArrayList<>();
+		map.forEach((id, value) -> {
+			ids.add(id);
+			values.add(value);
+		});
+		Assert.assertEquals(2, ids.size());
+		Assert.assertEquals(id1, ids.get(0));
+		Assert.assertEquals(1, values.get(0).intValue());
+		Assert.assertEquals(id3, ids.get(1));
+		Assert.assertEquals(3, values.get(1).intValue());
+
+		IdSet<Person> keys = map.keySet();
+		Assert.assertEquals(2, keys.size());
+		Assert.assertTrue(keys.contains(id1));
+		Assert.assertFalse(keys.contains(id2));
+		Assert.assertTrue(keys.contains(id3));
+	}
+
+}
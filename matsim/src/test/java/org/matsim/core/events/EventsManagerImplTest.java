@@ -63,6 +63,30 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_CustomEventSubclass() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler1 = new CountingMyEventHandler();
+		CountingMyEventHandler handler2 = new CountingMyEventHandler();
+		manager.addHandler(handler1);
+		manager.addHandler(handler2);
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new MySubEvent(234.56));
+		Assert.assertEquals("EventHandler was not called for all events.", 2, handler1.counter);
+		Assert.assertEquals("EventHandler was not called for all events.", 2, handler2.counter);
+
+		manager.removeHandler(handler1);
+		manager.processEvent(new MySubEvent(345.67));
+		Assert.assertEquals("removed EventHandler was called.", 2, handler1.counter);
+		Assert.assertEquals("EventHandler was not called.", 3, handler2.counter);
+	}
+
+	/*package*/ static class MySubEvent extends MyEvent {
+		public MySubEvent(final double time) {
+			super(time);
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelEventsReaderXMLTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ParallelEventsReaderXMLTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsAsSequentialReader() {
+		String filename = this.utils.getOutputDirectory() + "events.xml.gz";
+		EventWriterXML writer = new EventWriterXML(filename);
+		for (int i = 0; i < 1000; i++) {
+			double time = 21600.0 + i / 3;
+			writer.handleEvent(new ActivityEndEvent(time, Id.createPersonId(i), Id.createLinkId(i % 17), null, "home"));
+			writer.handleEvent(new VehicleEntersTrafficEvent(time, Id.createPersonId(i), Id.createLinkId(i % 17), Id.createVehicleId(i), TransportMode.car, 1.0));
+			writer.handleEvent(new LinkLeaveEvent(time + 0.5, Id.createVehicleId(i), Id.createLinkId("link<" + i % 17 + ">")));
+			writer.handleEvent(new LinkEnterEvent(time + 0.5, Id.createVehicleId(i), Id.createLinkId("über & \"" + i % 5 + "'")));
+			writer.handleEvent(new PersonMoneyEvent(time + 1, Id.createPersonId(i), -1.5 * i, "toll", null));
+			GenericEvent generic = new GenericEvent("myEvent", time + 1);
+			generic.getAttributes().put("key", "value " + i);
+			writer.handleEvent(generic);
+		}
+		writer.closeFile();
+
+		EventsManager events1 = EventsUtils.createEventsManager();
+		EventsCollector collector1 = new EventsCollector();
+		events1.addHandler(collector1);
+		new MatsimEventsReader(events1).readFile(filename);
+
+		EventsManager events2 = EventsUtils.createEventsManager();
+		EventsCollector collector2 = new EventsCollector();
+		events2.addHandler(collector2);
+		// small chunks, so there are many chunk boundaries
+		new ParallelEventsReaderXML(events2, 4, 500).readFile(filename);
+
+		List<Event> expected = collector1.getEvents();
+		Assert.assertEquals(6000, expected.size());
+		Assert.assertEquals(expected, collector2.getEvents());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), collector2.getEvents().get(i).getClass());
+		}
+	}
+
+	@Test
+	public void testIdsCreatedInFileOrder() {
+		// written by hand, so that none of the ids exists before reading
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+		int numberOfEvents = 2000;
+		for (int i = 0; i < numberOfEvents; i++) {
+			xml.append("\t<event time=\"").append(i).append(".0\" type=\"entered link\" vehicle=\"idOrder_v").append(i)
+					.append("\" link=\"idOrder_l").append(i).append("\" />\n");
+		}
+		xml.append("</events>");
+		EventsManager events = EventsUtils.createEventsManager();
+		// small chunks, so that the parser threads work on many chunks at the same time
+		new ParallelEventsReaderXML(events, 4, 500).parse(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+
+		int lastVehicleIndex = -1;
+		int lastLinkIndex = -1;
+		for (int i = 0; i < numberOfEvents; i++) {
+			int vehicleIndex = Id.createVehicleId("idOrder_v" + i).index();
+			int linkIndex = Id.createLinkId("idOrder_l" + i).index();
+			Assert.assertTrue("vehicle " + i, vehicleIndex > lastVehicleIndex);
+			Assert.assertTrue("link " + i, linkIndex > lastLinkIndex);
+			lastVehicleIndex = vehicleIndex;
+			lastLinkIndex = linkIndex;
+		}
+	}
+
+	@Test
+	public void testEntitiesAndWhitespace() {
+		String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<!-- a comment -->\n<events version=\"1.0\">\n"
+				+ "\t<event time=\"10.0\" type = 'myEvent' a=\"&lt;&#65;&#x42;&amp;&gt;\" b=\"x\ty\" />\n"
+				+ "</events>";
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new ParallelEventsReaderXML(events, 2).parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+		Assert.assertEquals(1, collector.getEvents().size());
+		GenericEvent event = (GenericEvent) collector.getEvents().get(0);
+		Assert.assertEquals(10.0, event.getTime(), 0.0);
+		Assert.assertEquals("myEvent", event.getEventType());
+		Assert.assertEquals("<AB&>", event.getAttributes().get("a"));
+		Assert.assertEquals("x y", event.getAttributes().get("b"));
+	}
+
+	@Test
+	public void testTruncatedFile() {
+		String xml = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n"
+				+ "\t<event time=\"10.0\" type=\"myEvent\" />\n"
+				+ "\t<event time=\"11.0\" type=\"myEv";
+		EventsManager events = EventsUtils.createEventsManager();
+		try {
+			new ParallelEventsReaderXML(events, 2).parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Malformed events file"));
+		}
+	}
+
+}
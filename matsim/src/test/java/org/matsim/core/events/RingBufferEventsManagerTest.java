@@ -0,0 +1,155 @@
+
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(true, 8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testSeveralProducers_smallBuffer() throws InterruptedException {
+		// the buffer wraps around many times
+		final RingBufferEventsManager events = new RingBufferEventsManager(true, true, -1, 64);
+		final AtomicInteger counter1 = new AtomicInteger();
+		final AtomicInteger counter2 = new AtomicInteger();
+		events.addHandler((LinkEnterEventHandler) event -> counter1.incrementAndGet());
+		events.addHandler((LinkEnterEventHandler) event -> counter2.incrementAndGet());
+		events.initProcessing();
+
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++) {
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(j), Id.createLinkId(0)));
+				}
+			});
+			producers[i].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		events.afterSimStep(0.0);
+		Assert.assertEquals(40000, counter1.get());
+		Assert.assertEquals(40000, counter2.get());
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testEventHandlerProducesEventForEveryEvent_smallBuffer() {
+		// far more events than the quarter of the buffer which is reserved for events created by handlers
+		final RingBufferEventsManager events = new RingBufferEventsManager(true, false, 1, 64);
+		final AtomicInteger leaveCounter = new AtomicInteger();
+		events.addHandler((LinkEnterEventHandler) event ->
+				events.processEvent(new LinkLeaveEvent(event.getTime(), event.getVehicleId(), event.getLinkId())));
+		events.addHandler((LinkLeaveEventHandler) event -> leaveCounter.incrementAndGet());
+		events.initProcessing();
+		for (int i = 0; i < 1000; i++) {
+			events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(i), Id.createLinkId(0)));
+		}
+		events.afterSimStep(0.0);
+		Assert.assertEquals(1000, leaveCounter.get());
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testExceptionInHandlerIsReported() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(true);
+		events.addHandler((LinkEnterEventHandler) event -> {
+			throw new IllegalStateException("test");
+		});
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		// the producer learns about the exception at the end of the time step ...
+		try {
+			events.afterSimStep(0.0);
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Exception while processing events."));
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// ... and with every further event, which would not be handled any more
+		try {
+			events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Exception while processing events."));
+		}
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Exception while processing events."));
+		}
+	}
+
+}
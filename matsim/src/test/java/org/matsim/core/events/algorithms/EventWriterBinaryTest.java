@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.run.ConvertEvents;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(21600.0, Id.createPersonId("1"), Id.createLinkId("12"), null, "home"));
+		events.add(new VehicleEntersTrafficEvent(21600.0, Id.createPersonId("1"), Id.createLinkId("12"), Id.createVehicleId("1"), TransportMode.car, 1.0));
+		events.add(new LinkLeaveEvent(21601.0, Id.createVehicleId("1"), Id.createLinkId("12")));
+		events.add(new LinkEnterEvent(21601.0, Id.createVehicleId("1"), Id.createLinkId("link<2")));
+		events.add(new LinkLeaveEvent(21662.5, Id.createVehicleId("1"), Id.createLinkId("link<2")));
+		events.add(new PersonStuckEvent(86400.0, Id.createPersonId("2"), null, "pt"));
+		events.add(new PersonMoneyEvent(86400.0, Id.createPersonId("1"), -3.14159, "toll", "city"));
+		GenericEvent generic = new GenericEvent("myEvent", 90000.0);
+		generic.getAttributes().put("value", "17.25");
+		generic.getAttributes().put("integral", "-5.0");
+		generic.getAttributes().put("nonCanonical", "5.00");
+		generic.getAttributes().put("text", "über & \"quoted\"");
+		events.add(generic);
+		return events;
+	}
+
+	private List<Event> writeAndRead(String filename, List<Event> events) {
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readFile(filename);
+		return collector.getEvents();
+	}
+
+	@Test
+	public void testWriteRead() {
+		List<Event> events = createEvents();
+		List<Event> readEvents = writeAndRead(this.utils.getOutputDirectory() + "events.bin", events);
+		Assert.assertEquals(events, readEvents);
+		Assert.assertEquals(LinkEnterEvent.class, readEvents.get(3).getClass());
+	}
+
+	@Test
+	public void testWriteRead_compressed() {
+		List<Event> events = createEvents();
+		Assert.assertEquals(events, writeAndRead(this.utils.getOutputDirectory() + "events.bin.gz", events));
+	}
+
+	@Test
+	public void testReadStream() {
+		List<Event> events = createEvents();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(out);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readStream(new ByteArrayInputStream(out.toByteArray()));
+		Assert.assertEquals(events, collector.getEvents());
+	}
+
+	@Test
+	public void testNullAttribute() {
+		GenericEvent event = new GenericEvent("TEST", 3600.0);
+		event.getAttributes().put("dummy", null);
+		List<Event> readEvents = writeAndRead(this.utils.getOutputDirectory() + "events.bin", Collections.singletonList(event));
+		Assert.assertEquals("there must be 1 event.", 1, readEvents.size());
+		Assert.assertNull(readEvents.get(0).getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testConvertEvents() {
+		String binaryFile = this.utils.getOutputDirectory() + "events.bin";
+		String xmlFile = this.utils.getOutputDirectory() + "events.xml";
+		String binaryFile2 = this.utils.getOutputDirectory() + "events2.bin.gz";
+		List<Event> events = createEvents();
+		writeAndRead(binaryFile, events);
+
+		ConvertEvents.convert(binaryFile, xmlFile);
+		ConvertEvents.convert(xmlFile, binaryFile2);
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readFile(binaryFile2);
+		Assert.assertEquals(events, collector.getEvents());
+	}
+
+}
@@ -20,17 +20,49 @@
 package org.matsim.core.events.algorithms;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.LaneEnterEvent;
+import org.matsim.core.api.experimental.events.LaneLeaveEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.lanes.Lane;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.testcases.utils.EventsCollector;
 import org.matsim.vehicles.Vehicle;
@@ -92,4 +124,61 @@ public class EventWriterXMLTest {
 		
 		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
 	}
+
+	@Test
+	public void testWriteAttributesSameAsGetAttributes() {
+		Id<Person> person = Id.createPersonId("1");
+		Id<Link> link = Id.createLinkId("2");
+		Id<Vehicle> vehicle = Id.createVehicleId("3");
+		Id<TransitStopFacility> stop = Id.create("4", TransitStopFacility.class);
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(21600.0, person, link, null, "home"));
+		events.add(new ActivityStartEvent(21600.5, person, null, Id.create("5", ActivityFacility.class), "work"));
+		events.add(new PersonDepartureEvent(21601.0, person, null, TransportMode.car));
+		events.add(new PersonArrivalEvent(21601.0, person, link, null));
+		events.add(new PersonEntersVehicleEvent(21601.0, person, vehicle));
+		events.add(new PersonLeavesVehicleEvent(21601.0, person, vehicle));
+		events.add(new VehicleEntersTrafficEvent(21601.0, person, link, vehicle, TransportMode.car, 1.0));
+		events.add(new VehicleLeavesTrafficEvent(21601.0, person, link, null, null, 0.25));
+		events.add(new LinkEnterEvent(21602.0, vehicle, link));
+		events.add(new LinkLeaveEvent(21602.0, vehicle, link));
+		events.add(new VehicleAbortsEvent(21602.0, vehicle, link));
+		events.add(new PersonStuckEvent(21603.0, person, null, "pt"));
+		events.add(new PersonMoneyEvent(21603.0, person, -1.25, "toll", null));
+		events.add(new TransitDriverStartsEvent(21603.0, person, vehicle, Id.create("6", TransitLine.class),
+				Id.create("7", TransitRoute.class), Id.create("8", Departure.class)));
+		events.add(new AgentWaitingForPtEvent(21604.0, person, stop, stop));
+		events.add(new BoardingDeniedEvent(21604.0, person, vehicle));
+		events.add(new VehicleArrivesAtFacilityEvent(21604.0, vehicle, stop, 12.5));
+		events.add(new VehicleDepartsAtFacilityEvent(21604.0, vehicle, stop, 0.0));
+		events.add(new LaneEnterEvent(21605.0, vehicle, link, Id.create("9", Lane.class)));
+		events.add(new LaneLeaveEvent(21605.0, vehicle, link, Id.create("9", Lane.class)));
+		events.add(new TeleportationArrivalEvent(21606.0, person, 1234.5));
+		GenericEvent generic = new GenericEvent("myEvent", 21607.0);
+		generic.getAttributes().put("key", "value");
+		events.add(generic);
+		// a subclass which adds an attribute only in getAttributes()
+		events.add(new LinkEnterEvent(21608.0, vehicle, link) {
+			@Override
+			public Map<String, String> getAttributes() {
+				Map<String, String> attr = super.getAttributes();
+				attr.put("extra", "1");
+				return attr;
+			}
+		});
+
+		for (Event event : events) {
+			List<String> written = new ArrayList<>();
+			event.writeAttributes((key, value) -> {
+				written.add(key);
+				written.add(value);
+			});
+			List<String> expected = new ArrayList<>();
+			for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+				expected.add(entry.getKey());
+				expected.add(entry.getValue());
+			}
+			Assert.assertEquals(event.getEventType(), expected, written);
+		}
+	}
 }
@@ -20,6 +20,10 @@
 
 package org.matsim.core.gbl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Random;
 
 import org.matsim.testcases.MatsimTestCase;
@@ -109,6 +113,39 @@ public class MatsimRandomTest extends MatsimTestCase {
 		assertTrue(Math.abs(value1 - value2b) > EPSILON);
 	}
 
+	/**
+	 * Tests that the global random number generator draws the same numbers as {@link Random} with the same seed.
+	 */
+	public void testSameNumbersAsJavaUtilRandom() {
+		MatsimRandom.reset(123L);
+		Random expected = new Random(123L);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(expected.nextInt(), MatsimRandom.getRandom().nextInt());
+			assertEquals(expected.nextDouble(), MatsimRandom.getRandom().nextDouble(), 0.0);
+			assertEquals(expected.nextGaussian(), MatsimRandom.getRandom().nextGaussian(), 0.0);
+		}
+	}
+
+	/**
+	 * Tests that a local instance restored from a serialized copy of another one draws the same numbers as the other.
+	 */
+	public void testRestore() throws Exception {
+		MatsimRandom.reset();
+		Random local1 = MatsimRandom.getLocalInstance();
+		Random local2 = MatsimRandom.getLocalInstance();
+		local1.nextGaussian();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(local1);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			MatsimRandom.restore(local2, (Random) in.readObject());
+		}
+		assertEquals(local1.nextGaussian(), local2.nextGaussian(), 0.0);
+		assertEqualRandomNumberGenerators(local1, local2);
+	}
+
 	/** Test that two (Pseudo)Random Number Generators are equil by
 	 * drawing a series of random numbers and comparing those.
 	 *
@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelJDEQSimTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelJDEQSimTest extends AbstractJDEQSimTest {
+
+	@Test
+	public void test_equil_TestHandlerDetailedEventChecker() {
+		Scenario scenario = loadScenario(4);
+
+		this.runJDEQSim(scenario);
+
+		assertEquals(scenario.getPopulation().getPersons().size(), super.eventsByPerson.size());
+		super.checkAscendingTimeStamps();
+		super.checkEventsCorrespondToPlans(scenario.getPopulation());
+	}
+
+	@Test
+	public void test_equil_sameEventsAsSequentialScheduler() {
+		List<String> expected = runAndCollectEvents(loadScenario(1));
+		for (int numberOfThreads : new int[] {2, 3, 4, 8}) {
+			assertEquals("different events with " + numberOfThreads + " threads", expected, runAndCollectEvents(loadScenario(numberOfThreads)));
+		}
+	}
+
+	/**
+	 * The roads behind a bottleneck fill up, so vehicles wait for the gap to travel back over full roads and are let
+	 * in by deadlock prevention after the squeeze time, also on the roads leading to another partition.  The squeeze
+	 * time, and then the gap travel time, are set short enough to determine the lookahead of the partitions.
+	 */
+	@Test
+	public void test_congestedGrid_sameEventsAsSequentialScheduler() {
+		for (double[] squeezeTimeAndGapTravelSpeed : new double[][] {{1.5, 15.0}, {10.0, 150.0}}) {
+			double squeezeTime = squeezeTimeAndGapTravelSpeed[0];
+			double gapTravelSpeed = squeezeTimeAndGapTravelSpeed[1];
+			Scenario scenario = createCongestedGrid(1, squeezeTime, gapTravelSpeed);
+			List<String> expected = runAndCollectEvents(scenario);
+			assertEquals(scenario.getPopulation().getPersons().size(), super.eventsByPerson.size());
+			super.checkAscendingTimeStamps();
+			super.checkEventsCorrespondToPlans(scenario.getPopulation());
+
+			for (int numberOfThreads : new int[] {2, 3, 4, 8}) {
+				assertEquals("different events with " + numberOfThreads + " threads, squeeze time " + squeezeTime + " and gap travel speed " + gapTravelSpeed,
+						expected, runAndCollectEvents(createCongestedGrid(numberOfThreads, squeezeTime, gapTravelSpeed)));
+			}
+		}
+	}
+
+	private List<String> runAndCollectEvents(final Scenario scenario) {
+		this.allEvents.clear();
+		this.eventsByPerson.clear();
+		this.vehicleToDriver.clear();
+		this.runJDEQSim(scenario);
+
+		List<String> events = new ArrayList<>();
+		for (Event event : this.allEvents) {
+			events.add(event.toString());
+		}
+		return events;
+	}
+
+	private static Scenario loadScenario(final int numberOfThreads) {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class).setNumberOfThreads(numberOfThreads);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+		return scenario;
+	}
+
+	/**
+	 * A grid of 6x6 nodes, 200m apart.  All persons drive from the left to the right side, and go through the column
+	 * of links with a low capacity in the middle.  The roads hold only three vehicles.
+	 */
+	private static Scenario createCongestedGrid(final int numberOfThreads, final double squeezeTime, final double gapTravelSpeed) {
+		Config config = ConfigUtils.createConfig();
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+		jdeqSimConfig.setNumberOfThreads(numberOfThreads);
+		jdeqSimConfig.setSqueezeTime(squeezeTime);
+		jdeqSimConfig.setGapTravelSpeed(gapTravelSpeed);
+		jdeqSimConfig.setStorageCapacityFactor(0.1);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		int size = 6;
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 200.0, y * 200.0));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				for (int[] direction : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+					int toX = x + direction[0];
+					int toY = y + direction[1];
+					if (toX >= 0 && toY >= 0 && toX < size && toY < size) {
+						double capacity = x == 2 && toX == 3 ? 60.0 : 1800.0;
+						NetworkUtils.createAndAddLink(network, linkId(x, y, toX, toY), nodes[x][y], nodes[toX][toY], 200.0, 10.0, capacity, 1.0);
+					}
+				}
+			}
+		}
+
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 600; i++) {
+			int fromY = i % size;
+			int toY = (i / size) % size;
+			List<Id<Link>> route = new ArrayList<>();
+			route.add(linkId(1, fromY, 2, fromY));
+			for (int y = fromY; y != toY; y += Integer.signum(toY - fromY)) {
+				route.add(linkId(2, y, 2, y + Integer.signum(toY - fromY)));
+			}
+			route.add(linkId(2, toY, 3, toY));
+			route.add(linkId(3, toY, 4, toY));
+
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromLinkId("h", linkId(0, fromY, 1, fromY));
+			home.setEndTime(6 * 3600 + 2 * i);
+			plan.addActivity(home);
+			Leg leg = factory.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(home.getLinkId(), route, linkId(4, toY, 5, toY)));
+			plan.addLeg(leg);
+			plan.addActivity(factory.createActivityFromLinkId("w", linkId(4, toY, 5, toY)));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static Id<Link> linkId(final int fromX, final int fromY, final int toX, final int toY) {
+		return Id.createLinkId(fromX + "_" + fromY + "-" + toX + "_" + toY);
+	}
+
+}
@@ -0,0 +1,267 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimCheckpointTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class QSimCheckpointTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final double FIRST_CHECKPOINT = 6 * 3600 + 300;
+	private static final double SECOND_CHECKPOINT = 6 * 3600 + 900;
+
+	@Test
+	public void testResumedRunProducesSameEvents() {
+		assertResumedRunsProduceSameEvents(1);
+	}
+
+	@Test
+	public void testResumedRunProducesSameEvents_multipleThreads() {
+		assertResumedRunsProduceSameEvents(2);
+	}
+
+	private void assertResumedRunsProduceSameEvents(final int numberOfThreads) {
+		String directory = this.utils.getOutputDirectory();
+		List<Event> original = runQSim(directory, null, numberOfThreads, null);
+		Assert.assertTrue(new File(directory + QSim.getCheckpointFilename(FIRST_CHECKPOINT)).exists());
+		Assert.assertTrue(new File(directory + QSim.getCheckpointFilename(SECOND_CHECKPOINT)).exists());
+
+		for (double checkpoint : new double[] { FIRST_CHECKPOINT, SECOND_CHECKPOINT }) {
+			List<String> expected = new ArrayList<>();
+			for (Event event : original) {
+				if (event.getTime() > checkpoint) {
+					expected.add(event.toString());
+				}
+			}
+			Assert.assertFalse(expected.isEmpty());
+
+			String resumedDirectory = directory + "resumed" + (long) checkpoint + "/";
+			new File(resumedDirectory).mkdirs();
+			List<String> resumed = new ArrayList<>();
+			for (Event event : runQSim(resumedDirectory, directory + QSim.getCheckpointFilename(checkpoint), numberOfThreads, null)) {
+				resumed.add(event.toString());
+			}
+			Assert.assertEquals("resumed from " + checkpoint, expected, resumed);
+		}
+	}
+
+	@Test
+	public void testCheckpointsPerIterationAndResumedOnlyInFirstIteration() {
+		String directory = this.utils.getOutputDirectory();
+		List<String> original = toStrings(runQSim(directory, null, 1, 0));
+		String checkpoint = directory + "ITERS/it.0/0." + QSim.getCheckpointFilename(FIRST_CHECKPOINT);
+		Assert.assertTrue(new File(checkpoint).exists());
+		Assert.assertFalse(new File(directory + QSim.getCheckpointFilename(FIRST_CHECKPOINT)).exists());
+
+		// a later iteration simulates the whole day and does not overwrite the checkpoints of the first one
+		Assert.assertEquals(original, toStrings(runQSim(directory, checkpoint, 1, 1)));
+		Assert.assertTrue(new File(directory + "ITERS/it.1/1." + QSim.getCheckpointFilename(FIRST_CHECKPOINT)).exists());
+
+		// the first iteration resumes
+		List<String> expected = new ArrayList<>();
+		for (Event event : runQSim(directory, null, 1, null)) {
+			if (event.getTime() > FIRST_CHECKPOINT) {
+				expected.add(event.toString());
+			}
+		}
+		Assert.assertEquals(expected, toStrings(runQSim(directory, checkpoint, 1, 0)));
+	}
+
+	@Test
+	public void testUnsupportedEngineIsRejected() {
+		Scenario scenario = createScenario(this.utils.getOutputDirectory(), null, 1);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		qsim.addMobsimEngine(new MobsimEngine() {
+			@Override
+			public void doSimStep(double time) {
+			}
+
+			@Override
+			public void onPrepareSim() {
+			}
+
+			@Override
+			public void afterSim() {
+			}
+
+			@Override
+			public void setInternalInterface(InternalInterface internalInterface) {
+			}
+		});
+		try {
+			qsim.run();
+			Assert.fail("expected an exception");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("does not support checkpoints"));
+		}
+	}
+
+	private static List<String> toStrings(final List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		return strings;
+	}
+
+	/*
+	 * With more than one thread, events of the same time step are thrown by different runners in no particular order,
+	 * so they are sorted by time and then by their textual representation.  If an iteration is given, the qsim is run
+	 * as in this iteration of a controler.
+	 */
+	private static List<Event> runQSim(final String directory, final String checkpointFile, final int numberOfThreads, final Integer iteration) {
+		Scenario scenario = createScenario(directory, checkpointFile, numberOfThreads);
+		MatsimRandom.reset(scenario.getConfig().global().getRandomSeed());
+		EventsManager events = EventsUtils.createEventsManager();
+		List<Event> collected = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> {
+			synchronized (collected) {
+				collected.add(event);
+			}
+		});
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		QSimBuilder builder = new QSimBuilder(scenario.getConfig()).useDefaults();
+		if (iteration != null) {
+			OutputDirectoryHierarchy outputDirectory = new OutputDirectoryHierarchy(directory, OverwriteFileSetting.overwriteExistingFiles,
+					ControlerConfigGroup.CompressionType.none);
+			new File(outputDirectory.getIterationPath(iteration)).mkdirs();
+			builder.addOverridingModule(new AbstractModule() {
+				@Override
+				public void install() {
+					bind(IterationCounter.class).toInstance(() -> iteration);
+					bind(OutputDirectoryHierarchy.class).toInstance(outputDirectory);
+				}
+			});
+		}
+		builder.build(scenario, events).run();
+		if (numberOfThreads > 1) {
+			collected.sort(Comparator.comparingDouble(Event::getTime).thenComparing(Event::toString));
+		}
+		return collected;
+	}
+
+	/*
+	 * (0)---1---(1)---2---(2)---3---(3), link 2 is a bottleneck.  The agents drive from link 1 or link 4 to link 3 and
+	 *        /                          walk back, so that at the checkpoints there are vehicles queued on links 1, 2
+	 *       4                           and 4, agents at their activities and agents being teleported.  Node 1 draws
+	 *      /                            random numbers to decide which of links 1 and 4 may move a vehicle first.
+	 *    (4)
+	 */
+	private static Scenario createScenario(final String directory, final String checkpointFile, final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setOutputDirectory(directory);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setCheckpointTimes(Arrays.asList(FIRST_CHECKPOINT, SECOND_CHECKPOINT));
+		config.qsim().setCheckpointFile(checkpointFile);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		NetworkFactory nf = network.getFactory();
+		Node[] nodes = new Node[5];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = nf.createNode(Id.createNodeId(i), i < 4 ? new Coord(1000 * i, 0) : new Coord(0, -1000));
+			network.addNode(nodes[i]);
+		}
+		for (int i = 1; i < nodes.length; i++) {
+			Node fromNode = i < 4 ? nodes[i - 1] : nodes[4];
+			Node toNode = i < 4 ? nodes[i] : nodes[1];
+			Link link = nf.createLink(Id.createLinkId(i), fromNode, toNode);
+			link.setLength(1000);
+			link.setFreespeed(10);
+			link.setCapacity(i == 2 ? 600 : 3600);
+			link.setNumberOfLanes(1);
+			network.addLink(link);
+		}
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Id<Link> link3 = Id.createLinkId(3);
+		for (int i = 0; i < 150; i++) {
+			Id<Link> homeLink = Id.createLinkId(i % 3 == 0 ? 4 : 1);
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", homeLink);
+			home.setEndTime(6 * 3600 + 3 * i);
+			plan.addActivity(home);
+			Leg car = pf.createLeg(TransportMode.car);
+			NetworkRoute route = pf.getRouteFactories().createRoute(NetworkRoute.class, homeLink, link3);
+			route.setLinkIds(homeLink, Collections.singletonList(Id.createLinkId(2)), link3);
+			car.setRoute(route);
+			plan.addLeg(car);
+			Activity work = pf.createActivityFromLinkId("work", link3);
+			work.setMaximumDuration(60 + 7 * (i % 10));
+			plan.addActivity(work);
+			Leg walk = pf.createLeg(TransportMode.walk);
+			Route walkRoute = pf.getRouteFactories().createRoute(Route.class, link3, homeLink);
+			walkRoute.setTravelTime(1200);
+			walkRoute.setDistance(2000);
+			walk.setRoute(walkRoute);
+			plan.addLeg(walk);
+			plan.addActivity(pf.createActivityFromLinkId("home", homeLink));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		return scenario;
+	}
+
+}
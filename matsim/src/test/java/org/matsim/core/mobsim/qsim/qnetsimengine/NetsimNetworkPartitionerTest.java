@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NetsimNetworkPartitionerTest {
+
+	@Test
+	public void testRoundRobin() {
+		int[] partition = NetsimNetworkPartitioner.roundRobin(7, 3);
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 0, 1, 2, 0 }, partition);
+	}
+
+	@Test
+	public void testBalanceByWeight() {
+		// one very busy node, and many quiet ones
+		long[] weights = new long[] { 1, 1, 100, 1, 50, 1, 1, 50, 1, 1 };
+		int[] partition = NetsimNetworkPartitioner.balanceByWeight(weights, 3);
+
+		long[] loads = NetsimNetworkPartitioner.getLoads(partition, weights, 3);
+		Assert.assertArrayEquals(new long[] { 100, 54, 53 }, loads);
+
+		// the busy node is alone on its runner
+		Assert.assertEquals(0, partition[2]);
+		for (int i = 0; i < weights.length; i++) {
+			if (i != 2) {
+				Assert.assertNotEquals(0, partition[i]);
+			}
+		}
+	}
+
+	@Test
+	public void testBalanceByWeight_deterministic() {
+		long[] weights = new long[1000];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = (i * 7919) % 13;
+		}
+		int[] partition1 = NetsimNetworkPartitioner.balanceByWeight(weights, 8);
+		int[] partition2 = NetsimNetworkPartitioner.balanceByWeight(weights.clone(), 8);
+		Assert.assertArrayEquals(partition1, partition2);
+
+		long[] loads = NetsimNetworkPartitioner.getLoads(partition1, weights, 8);
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (long load : loads) {
+			min = Math.min(min, load);
+			max = Math.max(max, load);
+		}
+		Assert.assertTrue("loads are not balanced: min=" + min + " max=" + max, max - min <= 12);
+	}
+
+	@Test
+	public void testRecursiveCoordinateBisection() {
+		// 8x4 grid, wider than high, so the first cut is vertical
+		double[] x = new double[32];
+		double[] y = new double[32];
+		long[] weights = new long[32];
+		for (int i = 0; i < 32; i++) {
+			x[i] = i % 8;
+			y[i] = i / 8;
+			weights[i] = 1;
+		}
+		int[] partition = NetsimNetworkPartitioner.recursiveCoordinateBisection(x, y, weights, 4);
+
+		Assert.assertArrayEquals(new long[] { 8, 8, 8, 8 }, NetsimNetworkPartitioner.getLoads(partition, weights, 4));
+		// every part is a contiguous 2x4 stripe
+		for (int i = 0; i < 32; i++) {
+			Assert.assertEquals("node " + i, (i % 8) / 2, partition[i]);
+		}
+	}
+
+	@Test
+	public void testRecursiveCoordinateBisection_unevenParts() {
+		double[] x = new double[30];
+		double[] y = new double[30];
+		long[] weights = new long[30];
+		for (int i = 0; i < 30; i++) {
+			x[i] = i;
+			weights[i] = 1;
+		}
+		int[] partition = NetsimNetworkPartitioner.recursiveCoordinateBisection(x, y, weights, 3);
+
+		Assert.assertArrayEquals(new long[] { 10, 10, 10 }, NetsimNetworkPartitioner.getLoads(partition, weights, 3));
+		for (int i = 1; i < 30; i++) {
+			Assert.assertTrue(partition[i - 1] <= partition[i]);
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkPartitioningIntegrationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Runs the equil scenario with several netsim runners and checks that the way the nodes are assigned to the runners
+ * does not change the simulation.
+ */
+public class NetworkPartitioningIntegrationTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testLoadBalancedSameEventsAsRoundRobin() {
+		List<String> expected = runQSim(NetworkPartitioning.roundRobin);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, runQSim(NetworkPartitioning.loadBalanced));
+	}
+
+	/*
+	 * Events of the same time step are thrown by different runners in no particular order, so they are sorted by time
+	 * and then by their textual representation.
+	 */
+	private List<String> runQSim(final NetworkPartitioning partitioning) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config.xml");
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setNetworkPartitioning(partitioning);
+		// re-balance often, so that nodes with vehicles on their links are moved to other runners
+		config.qsim().setLoadBalancingInterval(300);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		List<Event> collected = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> {
+			synchronized (collected) {
+				collected.add(event);
+			}
+		});
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+
+		collected.sort(Comparator.comparingDouble(Event::getTime).thenComparing(Event::toString));
+		List<String> result = new ArrayList<>();
+		for (Event event : collected) {
+			result.add(event.toString());
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,185 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedLinkRTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+public class PackedLinkRTreeTest {
+
+	@Test
+	public void testGetNearest() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Link foo = createLink(s, 100, 200, 800, 500);
+		Link bar = createLink(s, 400, 300, 500, 400);
+		Link fbr = createLink(s, 800, 1400, 1400, 800);
+		Link a = createLink(s, 1100, 1100, 1200, 1200);
+		Link b = createLink(s, 1100, 1100, 1200, 1100);
+		Link c = createLink(s, 1200, 1200, 1200, 1100);
+		PackedLinkRTree tree = new PackedLinkRTree(Arrays.asList(foo, bar, fbr, a, b, c));
+
+		Assert.assertEquals(6, tree.size());
+		Assert.assertEquals(foo, tree.getNearest(200, 200));
+		Assert.assertEquals(foo, tree.getNearest(300, 300));
+		Assert.assertEquals(bar, tree.getNearest(390, 300));
+		Assert.assertEquals(fbr, tree.getNearest(1000, 1100));
+		Assert.assertEquals(foo, tree.getNearest(-50, -50));
+		Assert.assertEquals(a, tree.getNearest(1105, 1104));
+		Assert.assertEquals(a, tree.getNearest(1105, 1103));
+		Assert.assertEquals(b, tree.getNearest(1105, 1102));
+		Assert.assertEquals(b, tree.getNearest(1105, 1101));
+		Assert.assertEquals(c, tree.getNearest(1205, 1101));
+	}
+
+	@Test
+	public void testGetNearest_longNear_smallFarAway() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Link a = createLink(s, 500, 200, 700, 200);
+		Link b = createLink(s, 100, 100, 900, 100);
+		PackedLinkRTree tree = new PackedLinkRTree(Arrays.asList(a, b));
+
+		Assert.assertEquals(b, tree.getNearest(600, 0));
+		Assert.assertEquals(a, tree.getNearest(600, 210));
+		Assert.assertEquals(b, tree.getNearest(300, 210));
+		Assert.assertEquals(a, tree.getNearest(400, 210));
+	}
+
+	@Test
+	public void testGetNearest_zeroLengthLinks() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Link l13 = createLink(s, 0, 1000, 400, 400);
+		Link l23 = createLink(s, 1000, 1000, 400, 400);
+		Link l43 = createLink(s, 400, 400, 400, 400);
+		PackedLinkRTree tree = new PackedLinkRTree(Arrays.asList(l13, l23, l43));
+
+		Assert.assertEquals(l13, tree.getNearest(100, 800));
+		Assert.assertEquals(l13, tree.getNearest(400, 390)); // the same distance to all links, the first one is returned
+
+		// all links at the same location, so all centers are the same as well
+		PackedLinkRTree points = new PackedLinkRTree(Arrays.asList(l43, l43));
+		Assert.assertEquals(l43, points.getNearest(0, 0));
+	}
+
+	@Test
+	public void testGetNearest_empty() {
+		PackedLinkRTree tree = new PackedLinkRTree(Collections.emptyList());
+		Assert.assertEquals(0, tree.size());
+		Assert.assertNull(tree.getNearest(100, 100));
+	}
+
+	@Test
+	public void testGetNearest_sameDistance() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		Link ab = createLink(s, 0, 0, 1000, 0);
+		Link ba = createLink(s, 1000, 0, 0, 0);
+		List<Link> links = new ArrayList<>();
+		// the same segment in both directions, plus enough other links to have several levels in the tree
+		for (int i = 0; i < 500; i++) {
+			links.add(createLink(s, 5000 + i * 10, 5000 - i * 10, 5005 + i * 10, 5000 - i * 10));
+		}
+
+		links.add(0, ab);
+		links.add(ba);
+		Assert.assertEquals(ab, new PackedLinkRTree(links).getNearest(500, 100));
+
+		links.remove(0);
+		links.add(ab);
+		Assert.assertEquals(ba, new PackedLinkRTree(links).getNearest(500, 100));
+	}
+
+	@Test
+	public void testGetNearest_random() {
+		Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Random r = new Random(4711);
+		List<Link> links = new ArrayList<>();
+		// more links than the threshold for building the tree in parallel
+		for (int i = 0; i < 20000; i++) {
+			double x = r.nextDouble() * 10000;
+			double y = r.nextDouble() * 8000;
+			double length = r.nextDouble() < 0.05 ? 3000 : 200;
+			links.add(createLink(s, x, y, x + (r.nextDouble() - 0.5) * length, y + (r.nextDouble() - 0.5) * length));
+		}
+		PackedLinkRTree tree = new PackedLinkRTree(links);
+		Assert.assertEquals(links.size(), tree.size());
+
+		for (int q = 0; q < 500; q++) {
+			Coord coord = new Coord(r.nextDouble() * 12000 - 1000, r.nextDouble() * 10000 - 1000);
+			double expected = Double.POSITIVE_INFINITY;
+			for (Link link : links) {
+				expected = Math.min(expected, distance(link, coord));
+			}
+			Assert.assertEquals(coord.toString(), expected, distance(tree.getNearest(coord.getX(), coord.getY()), coord), 1e-6);
+		}
+	}
+
+	@Test
+	public void testHilbertIndex() {
+		// the first order curve visits the quadrants lower left, upper left, upper right, lower right
+		int half = 1 << 15;
+		Assert.assertEquals(0, PackedLinkRTree.hilbertIndex(0, 0) >> 30);
+		Assert.assertEquals(1, PackedLinkRTree.hilbertIndex(0, half) >> 30);
+		Assert.assertEquals(2, PackedLinkRTree.hilbertIndex(half, half) >> 30);
+		Assert.assertEquals(3, PackedLinkRTree.hilbertIndex(half, 0) >> 30);
+
+		// the curve starts and ends in the lower corners, and goes through neighbouring cells
+		int size = 1 << 16;
+		Assert.assertEquals(0, PackedLinkRTree.hilbertIndex(0, 0));
+		Assert.assertEquals(1, PackedLinkRTree.hilbertIndex(1, 0));
+		Assert.assertEquals(2, PackedLinkRTree.hilbertIndex(1, 1));
+		Assert.assertEquals(3, PackedLinkRTree.hilbertIndex(0, 1));
+		Assert.assertEquals((long) size * size - 1, PackedLinkRTree.hilbertIndex(size - 1, 0));
+	}
+
+	private static double distance(final Link link, final Coord coord) {
+		return CoordUtils.distancePointLinesegment(link.getFromNode().getCoord(), link.getToNode().getCoord(), coord);
+	}
+
+	private Link createLink(Scenario s, double fromX, double fromY, double toX, double toY) {
+		NetworkFactory nf = s.getNetwork().getFactory();
+		Coord fc = new Coord(fromX, fromY);
+		Coord tc = new Coord(toX, toY);
+		return nf.createLink(
+				Id.create(fc.toString() + "-" + tc.toString(), Link.class),
+				nf.createNode(Id.create(fc.toString(), Node.class), fc),
+				nf.createNode(Id.create(tc.toString(), Node.class), tc)
+				);
+	}
+
+}
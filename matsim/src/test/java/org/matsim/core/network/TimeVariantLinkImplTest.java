@@ -20,6 +20,9 @@
 
 package org.matsim.core.network;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -352,6 +355,63 @@ public class TimeVariantLinkImplTest extends MatsimTestCase {
 	}
 
 
+	/**
+	 * Reads the freespeed from several threads while events are applied to and cleared from the link.  The readers
+	 * must always see one of the values set by the events, and finally the values of the last events.
+	 */
+	public void testConcurrentReadsDuringChanges() throws InterruptedException {
+		for (LinkFactory lf : linkFactories(15 * 60, 30 * 3600)) {
+			final Network network = NetworkUtils.createNetwork();
+			NetworkFactory nf = network.getFactory();
+			nf.setLinkFactory(lf);
+			((NetworkImpl)network).setFactory(nf);
+			Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+			Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(0, 1000));
+			final TimeVariantLinkImpl link = (TimeVariantLinkImpl)NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 3600, 1);
+
+			final AtomicBoolean done = new AtomicBoolean(false);
+			final AtomicReference<Throwable> failure = new AtomicReference<>();
+			Thread[] readers = new Thread[4];
+			for (int r = 0; r < readers.length; r++) {
+				final int offset = r;
+				readers[r] = new Thread(() -> {
+					try {
+						for (long i = offset; !done.get(); i++) {
+							double value = link.getFreespeed((i % 24) * 3600.0);
+							// the base value is 10, the events set multiples of 10 up to 240
+							if (value < 10 || value > 240 || value % 10 != 0) {
+								throw new AssertionError("unexpected freespeed " + value);
+							}
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				});
+				readers[r].start();
+			}
+
+			for (int round = 0; round < 50; round++) {
+				link.clearEvents();
+				for (int hour = 1; hour < 24; hour++) {
+					NetworkChangeEvent event = new NetworkChangeEvent(hour * 3600.0);
+					event.addLink(link);
+					event.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 10.0 * (hour + 1)));
+					link.applyEvent(event);
+				}
+			}
+			done.set(true);
+			for (Thread reader : readers) {
+				reader.join();
+			}
+
+			assertNull(failure.get());
+			assertEquals(10.0, link.getFreespeed(0), EPSILON);
+			for (int hour = 1; hour < 24; hour++) {
+				assertEquals(10.0 * (hour + 1), link.getFreespeed(hour * 3600.0 + 1), EPSILON);
+			}
+		}
+	}
+
     static LinkFactory[] linkFactories(int interval, int maxTime)
     {
         return new LinkFactory[] {
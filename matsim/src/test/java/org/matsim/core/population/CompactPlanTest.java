@@ -0,0 +1,226 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class CompactPlanTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCompactAndExpand() {
+		Id<Link> link1 = Id.createLinkId("1");
+		Id<Link> link2 = Id.createLinkId("2");
+		Id<Link> link3 = Id.createLinkId("3");
+
+		CompactPlan plan = new CompactPlan();
+		Activity home = PopulationUtils.createActivityFromCoordAndLinkId("home", new Coord(10, 20), link1);
+		home.setEndTime(7 * 3600);
+		home.getAttributes().putAttribute("initialEndTime", 7.0 * 3600);
+		plan.addActivity(home);
+		Leg car = PopulationUtils.createLeg(TransportMode.car);
+		car.setDepartureTime(7 * 3600);
+		car.setTravelTime(600);
+		TripStructureUtils.setRoutingMode(car, TransportMode.car);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(link1, Arrays.asList(link2), link3);
+		route.setDistance(1500);
+		route.setTravelTime(550);
+		route.setTravelCost(2.5);
+		route.setVehicleId(Id.createVehicleId("car1"));
+		car.setRoute(route);
+		plan.addLeg(car);
+		Activity work = PopulationUtils.createActivityFromLinkId("work", link3);
+		work.setFacilityId(Id.create("f1", ActivityFacility.class));
+		work.setStartTime(7 * 3600 + 600);
+		work.setMaximumDuration(8 * 3600);
+		plan.addActivity(work);
+		Leg walk = PopulationUtils.createLeg(TransportMode.walk);
+		Route walkRoute = RouteUtils.createGenericRouteImpl(link3, link1);
+		walk.setRoute(walkRoute);
+		walk.getAttributes().putAttribute("comment", "teleported");
+		plan.addLeg(walk);
+		plan.addActivity(PopulationUtils.createActivityFromCoord("home", new Coord(10, 20, 5)));
+		plan.setScore(12.5);
+
+		plan.compact();
+		Assert.assertTrue(plan.isCompact());
+		Assert.assertEquals(12.5, plan.getScore(), 0.0);
+		Assert.assertTrue(plan.toString().contains("[nof_acts_legs=5]"));
+
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertFalse(plan.isCompact());
+		Assert.assertSame("the plan elements must stay the same until the plan is compacted again",
+				plan.getPlanElements().get(0), plan.getPlanElements().get(0));
+
+		Activity home2 = (Activity) plan.getPlanElements().get(0);
+		Assert.assertNotSame(home, home2);
+		Assert.assertEquals("home", home2.getType());
+		Assert.assertEquals(new Coord(10, 20), home2.getCoord());
+		Assert.assertEquals(link1, home2.getLinkId());
+		Assert.assertNull(home2.getFacilityId());
+		Assert.assertEquals(7 * 3600, home2.getEndTime(), 0.0);
+		Assert.assertEquals(home.getStartTime(), home2.getStartTime(), 0.0);
+		Assert.assertEquals(home.getMaximumDuration(), home2.getMaximumDuration(), 0.0);
+		Assert.assertEquals(7.0 * 3600, home2.getAttributes().getAttribute("initialEndTime"));
+
+		Leg car2 = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals(TransportMode.car, car2.getMode());
+		Assert.assertEquals(7 * 3600, car2.getDepartureTime(), 0.0);
+		Assert.assertEquals(600, car2.getTravelTime(), 0.0);
+		Assert.assertEquals(TransportMode.car, TripStructureUtils.getRoutingMode(car2));
+		Assert.assertEquals(1, car2.getAttributes().size());
+		NetworkRoute route2 = (NetworkRoute) car2.getRoute();
+		Assert.assertEquals(route.getClass(), route2.getClass());
+		Assert.assertEquals(link1, route2.getStartLinkId());
+		Assert.assertEquals(Arrays.asList(link2), route2.getLinkIds());
+		Assert.assertEquals(link3, route2.getEndLinkId());
+		Assert.assertEquals(1500, route2.getDistance(), 0.0);
+		Assert.assertEquals(550, route2.getTravelTime(), 0.0);
+		Assert.assertEquals(2.5, route2.getTravelCost(), 0.0);
+		Assert.assertEquals(Id.create("car1", Vehicle.class), route2.getVehicleId());
+
+		Activity work2 = (Activity) plan.getPlanElements().get(2);
+		Assert.assertEquals("work", work2.getType());
+		Assert.assertNull(work2.getCoord());
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), work2.getFacilityId());
+		Assert.assertEquals(7 * 3600 + 600, work2.getStartTime(), 0.0);
+		Assert.assertEquals(8 * 3600, work2.getMaximumDuration(), 0.0);
+
+		Leg walk2 = (Leg) plan.getPlanElements().get(3);
+		Assert.assertSame("other routes are kept as they are", walkRoute, walk2.getRoute());
+		Assert.assertEquals("teleported", walk2.getAttributes().getAttribute("comment"));
+		Assert.assertNull(TripStructureUtils.getRoutingMode(walk2));
+
+		Activity home3 = (Activity) plan.getPlanElements().get(4);
+		Assert.assertEquals(5, home3.getCoord().getZ(), 0.0);
+		Assert.assertNull(home3.getLinkId());
+	}
+
+	@Test
+	public void testPersonCompactsUnselectedPlans() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setCompactPlans(true);
+		Population population = PopulationUtils.createPopulation(config);
+		Person person = population.getFactory().createPerson(Id.createPersonId("1"));
+		for (int i = 0; i < 3; i++) {
+			Plan plan = population.getFactory().createPlan();
+			Assert.assertTrue(plan instanceof CompactPlan);
+			person.addPlan(plan);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "home", Id.createLinkId(i));
+		}
+		Assert.assertFalse(((CompactPlan) person.getPlans().get(1)).isCompact());
+
+		population.addPerson(person);
+		Assert.assertFalse(((CompactPlan) person.getPlans().get(0)).isCompact());
+		Assert.assertTrue(((CompactPlan) person.getPlans().get(1)).isCompact());
+		Assert.assertTrue(((CompactPlan) person.getPlans().get(2)).isCompact());
+
+		person.setSelectedPlan(person.getPlans().get(1));
+		Assert.assertTrue(((CompactPlan) person.getPlans().get(0)).isCompact());
+
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof CompactPlan);
+		Assert.assertTrue(((CompactPlan) person.getPlans().get(1)).isCompact());
+		Assert.assertEquals(Id.createLinkId(1), ((Activity) copy.getPlanElements().get(0)).getLinkId());
+		Assert.assertEquals(Id.createLinkId(1), ((Activity) person.getPlans().get(1).getPlanElements().get(0)).getLinkId());
+	}
+
+	@Test
+	public void testSameAsDefaultPopulation() {
+		Population expected = readBerlin(false);
+		Population compact = readBerlin(true);
+		for (Population population : Arrays.asList(expected, compact)) {
+			for (Person person : population.getPersons().values()) {
+				person.createCopyOfSelectedPlanAndMakeSelected();
+				Activity first = (Activity) person.getSelectedPlan().getPlanElements().get(0);
+				first.setEndTime(first.getEndTime() + 60);
+			}
+		}
+		int compacted = 0;
+		for (Person person : compact.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				if (((CompactPlan) plan).isCompact()) {
+					compacted++;
+				}
+			}
+		}
+		Assert.assertEquals(compact.getPersons().size(), compacted);
+		Assert.assertTrue(PopulationUtils.equalPopulation(expected, compact));
+	}
+
+	@Test
+	public void testReadV5() {
+		String file = this.utils.getOutputDirectory() + "plans_v5.xml.gz";
+		new PopulationWriter(readBerlin(false)).writeV5(file);
+		Population expected = readBerlin(false, IOUtils.getFileUrl(file));
+		Population compact = readBerlin(true, IOUtils.getFileUrl(file));
+		for (Person person : compact.getPersons().values()) {
+			Assert.assertTrue(person.getSelectedPlan() instanceof CompactPlan);
+		}
+		Assert.assertTrue(PopulationUtils.equalPopulation(expected, compact));
+	}
+
+	private static Population readBerlin(final boolean compactPlans) {
+		return readBerlin(compactPlans, IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("berlin"), "plans_hwh_1pct.xml.gz"));
+	}
+
+	private static Population readBerlin(final boolean compactPlans, final URL plansUrl) {
+		Config config = ConfigUtils.createConfig(ExamplesUtils.getTestScenarioURL("berlin"));
+		config.plans().setCompactPlans(compactPlans);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(IOUtils.extendUrl(config.getContext(), "network.xml.gz"));
+		new PopulationReader(scenario).parse(plansUrl);
+		return scenario.getPopulation();
+	}
+
+}
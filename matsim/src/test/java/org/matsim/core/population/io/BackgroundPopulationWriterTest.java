@@ -0,0 +1,128 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BackgroundPopulationWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class BackgroundPopulationWriterTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameContentAsPopulationWriter() throws IOException {
+		for (String extension : new String[] { ".xml", ".xml.gz", ".xml.zst" }) {
+			Population population = createPopulation(2500);
+			String expectedFile = this.utils.getOutputDirectory() + "expected" + extension;
+			String backgroundFile = this.utils.getOutputDirectory() + "background" + extension;
+			new PopulationWriter(population).writeV6(expectedFile);
+
+			try (BackgroundPopulationWriter writer = new BackgroundPopulationWriter(3)) {
+				writer.write(population, new IdentityTransformation(), backgroundFile);
+				// the snapshot was taken, so changes must not show up in the file
+				population.getPersons().values().iterator().next().getSelectedPlan().setScore(-1234.5);
+				population.getAttributes().putAttribute("changed", "yes");
+			}
+
+			assertSameContent(expectedFile, backgroundFile);
+		}
+	}
+
+	@Test
+	public void testSeveralWrites() throws IOException {
+		Population population = createPopulation(10);
+		String file0 = this.utils.getOutputDirectory() + "plans0.xml.gz";
+		String file1 = this.utils.getOutputDirectory() + "plans1.xml.gz";
+		String expectedFile1 = this.utils.getOutputDirectory() + "expected1.xml.gz";
+
+		BackgroundPopulationWriter writer = new BackgroundPopulationWriter(1);
+		writer.write(population, new IdentityTransformation(), file0);
+		population.getPersons().values().iterator().next().getSelectedPlan().setScore(42.0);
+		writer.write(population, new IdentityTransformation(), file1);
+		writer.waitForCompletion();
+		writer.close();
+
+		new PopulationWriter(population).writeV6(expectedFile1);
+		assertSameContent(expectedFile1, file1);
+
+		Population read = PopulationUtils.readPopulation(file0);
+		Assert.assertEquals(10, read.getPersons().size());
+		Assert.assertEquals(-10.0, read.getPersons().get(Id.createPersonId(0)).getSelectedPlan().getScore(), 0.0);
+	}
+
+	private static Population createPopulation(int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("test & population");
+		population.getAttributes().putAttribute("year", 2020);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", 20 + i % 50);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(p == 0 ? -10.0 : null);
+				Activity home = factory.createActivityFromCoord("home", i % 2 == 0 ? new Coord(i, -i) : new Coord(i, -i, 10.5));
+				home.setEndTime(7 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = factory.createLeg(p == 0 ? TransportMode.car : TransportMode.walk);
+				plan.addLeg(leg);
+				plan.addActivity(factory.createActivityFromLinkId("work", Id.createLinkId(i % 7)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(0));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static void assertSameContent(String expectedFile, String actualFile) throws IOException {
+		try (BufferedReader expected = IOUtils.getBufferedReader(expectedFile);
+				BufferedReader actual = IOUtils.getBufferedReader(actualFile)) {
+			int lineNumber = 0;
+			String line;
+			while ((line = expected.readLine()) != null) {
+				lineNumber++;
+				Assert.assertEquals("line " + lineNumber, line, actual.readLine());
+			}
+			Assert.assertNull(actual.readLine());
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV6Test {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameAsSequentialReader() {
+		String file = this.utils.getOutputDirectory() + "population.xml.gz";
+		new PopulationWriter(createPopulation(1050)).writeV6(file);
+
+		Population sequential = readPopulation(file, 1);
+		Population parallel = readPopulation(file, 4);
+
+		Assert.assertEquals(1050, parallel.getPersons().size());
+		Assert.assertEquals("the order of the persons must not change",
+				new ArrayList<>(sequential.getPersons().keySet()), new ArrayList<>(parallel.getPersons().keySet()));
+		Assert.assertEquals("test", parallel.getName());
+		Assert.assertEquals(2020, parallel.getAttributes().getAttribute("year"));
+		Assert.assertTrue(PopulationUtils.equalPopulation(sequential, parallel));
+
+		for (Person person : sequential.getPersons().values()) {
+			Person other = parallel.getPersons().get(person.getId());
+			Assert.assertEquals(person.getAttributes().toString(), other.getAttributes().toString());
+			Assert.assertEquals(person.getPlans().indexOf(person.getSelectedPlan()), other.getPlans().indexOf(other.getSelectedPlan()));
+			for (int i = 0; i < person.getPlans().size(); i++) {
+				Plan plan = person.getPlans().get(i);
+				Plan otherPlan = other.getPlans().get(i);
+				Assert.assertEquals(plan.getClass(), otherPlan.getClass());
+				Assert.assertEquals(plan.getType(), otherPlan.getType());
+				Leg leg = (Leg) plan.getPlanElements().get(1);
+				Leg otherLeg = (Leg) otherPlan.getPlanElements().get(1);
+				Assert.assertEquals(leg.getRoute().getClass(), otherLeg.getRoute().getClass());
+				Assert.assertEquals(leg.getRoute().getDistance(), otherLeg.getRoute().getDistance(), 0.0);
+				Assert.assertEquals(TripStructureUtils.getRoutingMode(leg), TripStructureUtils.getRoutingMode(otherLeg));
+			}
+		}
+	}
+
+	@Test
+	public void testCoordinateTransformationFromFile() {
+		Population population = createPopulation(250);
+		ProjectionUtils.putCRS(population, "EPSG:2056");
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(population).writeV6(file);
+
+		Config sequentialConfig = ConfigUtils.createConfig();
+		sequentialConfig.global().setNumberOfThreads(1);
+		Scenario sequential = ScenarioUtils.createScenario(sequentialConfig);
+		new PopulationReader(null, "EPSG:21781", sequential).readFile(file);
+
+		Config parallelConfig = ConfigUtils.createConfig();
+		parallelConfig.global().setNumberOfThreads(3);
+		Scenario parallel = ScenarioUtils.createScenario(parallelConfig);
+		new PopulationReader(null, "EPSG:21781", parallel).readFile(file);
+
+		Assert.assertEquals("EPSG:21781", ProjectionUtils.getCRS(parallel.getPopulation()));
+		for (Person person : sequential.getPopulation().getPersons().values()) {
+			Activity expected = (Activity) person.getSelectedPlan().getPlanElements().get(0);
+			Activity actual = (Activity) parallel.getPopulation().getPersons().get(person.getId()).getSelectedPlan().getPlanElements().get(0);
+			Assert.assertEquals(expected.getCoord(), actual.getCoord());
+			Activity original = (Activity) population.getPersons().get(person.getId()).getSelectedPlan().getPlanElements().get(0);
+			Assert.assertNotEquals(original.getCoord(), actual.getCoord());
+		}
+	}
+
+	@Test
+	public void testStreaming() {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		Population population = createPopulation(350);
+		new PopulationWriter(population).writeV6(file);
+
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		StreamingPopulationReader reader = new StreamingPopulationReader(ScenarioUtils.createScenario(config));
+		List<Id<Person>> ids = new ArrayList<>();
+		reader.addAlgorithm(person -> ids.add(person.getId()));
+		reader.readFile(file);
+
+		Assert.assertEquals(new ArrayList<>(population.getPersons().keySet()), ids);
+	}
+
+	@Test
+	public void testIdsCreatedInFileOrder() throws IOException {
+		// written by hand, so that none of the ids exists before reading
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		int numberOfPersons = 1000;
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(file)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+			writer.write("<!DOCTYPE population SYSTEM \"http://www.matsim.org/files/dtd/population_v6.dtd\">\n");
+			writer.write("<population>\n");
+			for (int i = 0; i < numberOfPersons; i++) {
+				writer.write("<person id=\"idOrder_p" + i + "\"><plan selected=\"yes\">\n");
+				writer.write("<activity type=\"home\" link=\"idOrder_h" + i + "\" end_time=\"07:00:00\" />\n");
+				writer.write("<leg mode=\"car\"><route type=\"links\" start_link=\"idOrder_h" + i + "\" end_link=\"idOrder_w" + i
+						+ "\">idOrder_h" + i + " idOrder_m" + i + " idOrder_w" + i + "</route></leg>\n");
+				writer.write("<activity type=\"work\" link=\"idOrder_w" + i + "\" />\n");
+				writer.write("</plan></person>\n");
+			}
+			writer.write("</population>\n");
+		}
+
+		readPopulation(file, 4);
+
+		int lastPersonIndex = -1;
+		int lastLinkIndex = -1;
+		for (int i = 0; i < numberOfPersons; i++) {
+			int personIndex = Id.createPersonId("idOrder_p" + i).index();
+			Assert.assertTrue(personIndex > lastPersonIndex);
+			lastPersonIndex = personIndex;
+			for (String link : new String[] {"h", "w", "m"}) {
+				int linkIndex = Id.createLinkId("idOrder_" + link + i).index();
+				Assert.assertTrue(link + i, linkIndex > lastLinkIndex);
+				lastLinkIndex = linkIndex;
+			}
+		}
+	}
+
+	private static Population readPopulation(final String file, final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).readFile(file);
+		return scenario.getPopulation();
+	}
+
+	private static Population createPopulation(final int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("test");
+		population.getAttributes().putAttribute("year", 2020);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			// not in sorted order, the order of the file must be kept
+			Person person = factory.createPerson(Id.createPersonId((i * 11) % numberOfPersons));
+			person.getAttributes().putAttribute("age", 20 + i % 50);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = factory.createPlan();
+				person.addPlan(plan);
+				plan.setScore(p == 0 ? null : 0.5 * i);
+				if (p == 1) {
+					plan.setType("special");
+				}
+				Activity home = factory.createActivityFromCoord("home", new Coord(2600000 + i, 1200000 - i));
+				home.setLinkId(Id.createLinkId("h" + i));
+				home.setEndTime(7 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = factory.createLeg(TransportMode.car);
+				TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("h" + i),
+						Arrays.asList(Id.createLinkId("a"), Id.createLinkId("b")), Id.createLinkId("w"));
+				route.setDistance(1000 + i);
+				route.setVehicleId(Id.createVehicleId(i));
+				leg.setRoute(route);
+				plan.addLeg(leg);
+				Activity work = factory.createActivityFromLinkId("work", Id.createLinkId("w"));
+				work.setMaximumDuration(8 * 3600);
+				work.getAttributes().putAttribute("fullTime", i % 2 == 0);
+				plan.addActivity(work);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
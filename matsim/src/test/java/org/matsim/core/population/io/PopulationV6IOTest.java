@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
@@ -34,14 +35,18 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 
 /**
  * @author thibautd
@@ -275,6 +280,46 @@ public class PopulationV6IOTest {
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
 
+	@Test
+	public void testVarIntNetworkRouteIO() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNetworkRouteType(PlansConfigGroup.NetworkRouteType.VarIntNetworkRoute);
+		Population population = PopulationUtils.createPopulation(config);
+		PopulationFactory pf = population.getFactory();
+
+		Person person1 = pf.createPerson(Id.create("1", Person.class));
+		Plan plan = pf.createPlan();
+		plan.addActivity(pf.createActivityFromLinkId("home", Id.createLinkId(10)));
+		Leg leg = pf.createLeg(TransportMode.car);
+		NetworkRoute route = pf.getRouteFactories().createRoute(NetworkRoute.class, Id.createLinkId(10), Id.createLinkId(14));
+		route.setLinkIds(Id.createLinkId(10), Arrays.asList(Id.createLinkId(11), Id.createLinkId(12), Id.createLinkId(1013)), Id.createLinkId(14));
+		route.setDistance(1234.5);
+		route.setVehicleId(Id.createVehicleId("car1"));
+		leg.setRoute(route);
+		plan.addLeg(leg);
+		plan.addActivity(pf.createActivityFromLinkId("work", Id.createLinkId(14)));
+		person1.addPlan(plan);
+		population.addPerson(person1);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+
+		// ----
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		new PopulationReader(scenario).parse(in);
+
+		NetworkRoute readRoute = (NetworkRoute) ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute();
+		Assert.assertEquals(route.getRouteType(), readRoute.getRouteType());
+		Assert.assertEquals(route.getStartLinkId(), readRoute.getStartLinkId());
+		Assert.assertEquals(route.getLinkIds(), readRoute.getLinkIds());
+		Assert.assertEquals(route.getEndLinkId(), readRoute.getEndLinkId());
+		Assert.assertEquals(route.getDistance(), readRoute.getDistance(), 0.0);
+		Assert.assertEquals(route.getVehicleId(), readRoute.getVehicleId());
+	}
+
 	// inspired from MATSIM-927, https://matsim.atlassian.net/browse/MATSIM-927
 	@Test
 	public void testSpecialCharactersIO() {
@@ -0,0 +1,211 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PopulationWriterBinaryTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() {
+		Population population = createPopulation(250);
+		String file = this.utils.getOutputDirectory() + "population.bin";
+		PopulationWriterBinary writer = new PopulationWriterBinary(population);
+		writer.setPersonsPerBlock(100);
+		writer.write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		PopulationReaderBinary reader = new PopulationReaderBinary(scenario);
+		reader.setNumberOfThreads(3);
+		reader.readFile(file);
+		Population read = scenario.getPopulation();
+
+		Assert.assertEquals("test & population", read.getName());
+		Assert.assertEquals(2020, read.getAttributes().getAttribute("year"));
+		Assert.assertEquals(250, read.getPersons().size());
+		Assert.assertTrue(PopulationUtils.equalPopulation(population, read));
+
+		Person person = read.getPersons().get(Id.createPersonId(3));
+		Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+		Assert.assertEquals("special", person.getPlans().get(1).getType());
+		Activity home = (Activity) person.getSelectedPlan().getPlanElements().get(0);
+		Assert.assertEquals(new Coord(3.25, -3, 10.5), home.getCoord());
+		Assert.assertEquals(Id.create("f3", ActivityFacility.class), home.getFacilityId());
+		Leg car = (Leg) person.getSelectedPlan().getPlanElements().get(1);
+		Assert.assertEquals(TransportMode.car, TripStructureUtils.getRoutingMode(car));
+		NetworkRoute route = (NetworkRoute) car.getRoute();
+		Assert.assertEquals(Arrays.asList(Id.createLinkId(1), Id.createLinkId(2)), route.getLinkIds());
+		Assert.assertEquals(Id.createVehicleId(3), route.getVehicleId());
+		Assert.assertEquals(1234.5, route.getDistance(), 0.0);
+		Leg walk = (Leg) person.getSelectedPlan().getPlanElements().get(3);
+		Assert.assertEquals("a & b", walk.getRoute().getRouteDescription());
+		Assert.assertTrue(Double.isNaN(walk.getRoute().getDistance()));
+	}
+
+	@Test
+	public void testSameAsXml() {
+		Config config = ConfigUtils.createConfig(ExamplesUtils.getTestScenarioURL("berlin"));
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(IOUtils.extendUrl(config.getContext(), "network.xml.gz"));
+		new PopulationReader(scenario).parse(IOUtils.extendUrl(config.getContext(), "plans_hwh_1pct.xml.gz"));
+
+		String file = this.utils.getOutputDirectory() + "plans.bin";
+		PopulationUtils.writePopulation(scenario.getPopulation(), file);
+		Population read = PopulationUtils.readPopulation(file);
+		Assert.assertEquals(scenario.getPopulation().getPersons().size(), read.getPersons().size());
+		Assert.assertTrue(PopulationUtils.equalPopulation(scenario.getPopulation(), read));
+	}
+
+	@Test
+	public void testReadPerson() {
+		Population population = createPopulation(250);
+		String file = this.utils.getOutputDirectory() + "population.bin";
+		PopulationWriterBinary writer = new PopulationWriterBinary(population);
+		writer.setPersonsPerBlock(100);
+		writer.write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		PopulationReaderBinary reader = new PopulationReaderBinary(scenario);
+		for (int i : new int[] { 249, 0, 100, 99, 150 }) {
+			Person person = reader.readPerson(file, Id.createPersonId(i));
+			Assert.assertEquals(Id.createPersonId(i), person.getId());
+			Assert.assertEquals(20 + i % 50, person.getAttributes().getAttribute("age"));
+			Assert.assertEquals(2, person.getPlans().size());
+		}
+		Assert.assertNull(reader.readPerson(file, Id.createPersonId("unknown")));
+		Assert.assertTrue("persons are not added to the population", scenario.getPopulation().getPersons().isEmpty());
+	}
+
+	@Test
+	public void testStreaming() {
+		Population population = createPopulation(250);
+		String file = this.utils.getOutputDirectory() + "population.bin";
+		PopulationWriterBinary writer = new PopulationWriterBinary(population);
+		writer.setPersonsPerBlock(10);
+		writer.write(file);
+
+		MutableScenario scenario = ScenarioUtils.createMutableScenario(ConfigUtils.createConfig());
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		List<Id<Person>> personIds = new ArrayList<>();
+		reader.addAlgorithm(person -> personIds.add(person.getId()));
+		reader.readFile(file);
+		Assert.assertEquals(new ArrayList<>(PopulationUtils.getSortedPersons(population).keySet()), personIds);
+		Assert.assertEquals(2020, scenario.getPopulation().getAttributes().getAttribute("year"));
+	}
+
+	@Test
+	public void testCoordinateTransformation() {
+		Population population = createPopulation(10);
+		ProjectionUtils.putCRS(population, "EPSG:2056");
+		String file = this.utils.getOutputDirectory() + "population.bin";
+		new PopulationWriterBinary(population).write(file);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderBinary(null, "EPSG:21781", scenario).readFile(file);
+		Assert.assertEquals("EPSG:21781", ProjectionUtils.getCRS(scenario.getPopulation()));
+		Activity home = (Activity) scenario.getPopulation().getPersons().get(Id.createPersonId(2)).getSelectedPlan().getPlanElements().get(0);
+		Coord original = ((Activity) population.getPersons().get(Id.createPersonId(2)).getSelectedPlan().getPlanElements().get(0)).getCoord();
+		Coord expected = TransformationFactory.getCoordinateTransformation("EPSG:2056", "EPSG:21781").transform(original);
+		Assert.assertEquals(expected.getX(), home.getCoord().getX(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(expected.getY(), home.getCoord().getY(), MatsimTestUtils.EPSILON);
+		Assert.assertNotEquals(original.getX(), home.getCoord().getX(), 1000.0);
+	}
+
+	private static Population createPopulation(int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.setName("test & population");
+		population.getAttributes().putAttribute("year", 2020);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", 20 + i % 50);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = factory.createPlan();
+				plan.setScore(p == 0 ? -10.0 : null);
+				plan.setType(p == 0 ? null : "special");
+				Activity home = factory.createActivityFromCoord("home",
+						i % 2 == 0 ? new Coord(2600000 + i, 1200000 - i) : new Coord(i + 0.25, -i, 10.5));
+				home.setFacilityId(Id.create("f" + i, ActivityFacility.class));
+				home.setEndTime(7 * 3600 + i);
+				plan.addActivity(home);
+				Leg car = factory.createLeg(TransportMode.car);
+				TripStructureUtils.setRoutingMode(car, TransportMode.car);
+				car.setDepartureTime(7 * 3600 + i);
+				NetworkRoute route = factory.getRouteFactories().createRoute(NetworkRoute.class, Id.createLinkId(0), Id.createLinkId(3));
+				route.setLinkIds(Id.createLinkId(0), Arrays.asList(Id.createLinkId(1), Id.createLinkId(2)), Id.createLinkId(3));
+				route.setVehicleId(Id.createVehicleId(i));
+				route.setDistance(1234.5);
+				route.setTravelTime(600);
+				car.setRoute(route);
+				plan.addLeg(car);
+				Activity work = factory.createActivityFromLinkId("work", Id.createLinkId(3));
+				work.setMaximumDuration(8 * 3600);
+				work.getAttributes().putAttribute("flexible", true);
+				plan.addActivity(work);
+				Leg walk = factory.createLeg(TransportMode.walk);
+				GenericRouteImpl walkRoute = new GenericRouteImpl(Id.createLinkId(3), Id.createLinkId(0));
+				walkRoute.setRouteDescription("a & b");
+				walk.setRoute(walkRoute);
+				plan.addLeg(walk);
+				plan.addActivity(factory.createActivityFromLinkId("home", Id.createLinkId(0)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(1));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+}
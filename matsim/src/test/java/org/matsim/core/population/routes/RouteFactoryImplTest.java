@@ -75,6 +75,24 @@ public class RouteFactoryImplTest {
 		Assert.assertEquals(CompressedNetworkRouteImpl.class, pf.getRouteFactories().createRoute(NetworkRoute.class, startLinkId, endLinkId).getClass());
 	}
 
+	@Test
+	public void testConstructor_VarIntNetworkRouteType() {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNetworkRouteType(PlansConfigGroup.NetworkRouteType.VarIntNetworkRoute);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+
+		Id<Link> linkId = Id.create(1, Link.class);
+		Assert.assertEquals(VarIntNetworkRouteImpl.class, pf.getRouteFactories().createRoute(NetworkRoute.class, linkId, linkId).getClass());
+		Assert.assertEquals(NetworkRoute.class, pf.getRouteFactories().getRouteClassForType(LinkNetworkRouteImpl.ROUTE_TYPE));
+	}
+
+	@Test
+	public void testEncodedLinksTypeIsKnownByDefault() {
+		RouteFactories routeFactories = new RouteFactories();
+		Assert.assertEquals(VarIntNetworkRouteImpl.class, routeFactories.getRouteClassForType(VarIntNetworkRouteImpl.ROUTE_TYPE));
+	}
+
 
 
 }
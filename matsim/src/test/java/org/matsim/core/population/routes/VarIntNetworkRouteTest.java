@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VarIntNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+public class VarIntNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return new VarIntNetworkRouteImpl(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testClone() {
+		List<Id<Link>> srcRoute = new ArrayList<>(Arrays.asList(Id.createLinkId(3), Id.createLinkId(4)));
+		NetworkRoute route1 = new VarIntNetworkRouteImpl(Id.createLinkId(1), Id.createLinkId(2));
+		route1.setLinkIds(Id.createLinkId(1), srcRoute, Id.createLinkId(2));
+		Assert.assertEquals(2, route1.getLinkIds().size());
+
+		NetworkRoute route2 = (NetworkRoute) route1.clone();
+
+		srcRoute.add(Id.createLinkId(5));
+		route1.setLinkIds(Id.createLinkId(1), srcRoute, Id.createLinkId(2));
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+		Assert.assertEquals(Id.createLinkId(4), route2.getLinkIds().get(1));
+	}
+
+	@Test
+	public void testGetLinkIds() {
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			// large jumps in both directions between the indices
+			srcRoute.add(Id.createLinkId("varint-" + (i % 7 == 0 ? 1000000 - i : i)));
+		}
+		NetworkRoute route = new VarIntNetworkRouteImpl(Id.createLinkId("start"), Id.createLinkId("end"));
+		route.setLinkIds(Id.createLinkId("start"), srcRoute, Id.createLinkId("end"));
+
+		List<Id<Link>> linkIds = route.getLinkIds();
+		Assert.assertEquals(srcRoute, linkIds);
+		Assert.assertEquals(srcRoute, new ArrayList<>(linkIds));
+		for (int i = 0; i < srcRoute.size(); i++) {
+			Assert.assertSame(srcRoute.get(i), linkIds.get(i));
+		}
+		for (int i : new int[] {999, 3, 500, 0, 501}) {
+			Assert.assertSame(srcRoute.get(i), linkIds.get(i));
+		}
+		try {
+			linkIds.get(1000);
+			Assert.fail("expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException expected) {
+		}
+		try {
+			linkIds.set(0, Id.createLinkId("start"));
+			Assert.fail("expected UnsupportedOperationException");
+		} catch (UnsupportedOperationException expected) {
+		}
+	}
+
+	@Test
+	public void testRouteDescription_numericIds() {
+		NetworkRoute route = new VarIntNetworkRouteImpl(Id.createLinkId(1), Id.createLinkId(-7));
+		route.setLinkIds(Id.createLinkId(1), Arrays.asList(Id.createLinkId(2), Id.createLinkId(300000), Id.createLinkId(12)), Id.createLinkId(-7));
+		Assert.assertEquals(VarIntNetworkRouteImpl.ROUTE_TYPE, route.getRouteType());
+		String description = route.getRouteDescription();
+		Assert.assertTrue(description, description.startsWith("~"));
+		Assert.assertTrue(description, description.length() < "1 2 300000 12 -7".length());
+
+		NetworkRoute route2 = new VarIntNetworkRouteImpl(null, null);
+		route2.setRouteDescription(description);
+		Assert.assertEquals(Id.createLinkId(1), route2.getStartLinkId());
+		Assert.assertEquals(Arrays.asList(Id.createLinkId(2), Id.createLinkId(300000), Id.createLinkId(12)), route2.getLinkIds());
+		Assert.assertEquals(Id.createLinkId(-7), route2.getEndLinkId());
+	}
+
+	@Test
+	public void testRouteDescription_otherIds() {
+		NetworkRoute route = new VarIntNetworkRouteImpl(Id.createLinkId(1), Id.createLinkId("007"));
+		route.setLinkIds(Id.createLinkId(1), Arrays.asList(Id.createLinkId(2)), Id.createLinkId("007"));
+		Assert.assertEquals("the id 007 would not be read back as it is", LinkNetworkRouteImpl.ROUTE_TYPE, route.getRouteType());
+		Assert.assertEquals("1 2 007", route.getRouteDescription());
+
+		NetworkRoute route2 = new VarIntNetworkRouteImpl(null, null);
+		route2.setRouteDescription("a b 3 c");
+		Assert.assertEquals(Id.createLinkId("a"), route2.getStartLinkId());
+		Assert.assertEquals(Arrays.asList(Id.createLinkId("b"), Id.createLinkId(3)), route2.getLinkIds());
+		Assert.assertEquals(Id.createLinkId("c"), route2.getEndLinkId());
+		Assert.assertEquals(LinkNetworkRouteImpl.ROUTE_TYPE, route2.getRouteType());
+		Assert.assertEquals("a b 3 c", route2.getRouteDescription());
+	}
+
+	@Test
+	public void testRouteDescription_sameStartAndEndLink() {
+		NetworkRoute route = new VarIntNetworkRouteImpl(Id.createLinkId(5), Id.createLinkId(5));
+		String description = route.getRouteDescription();
+		Assert.assertEquals(VarIntNetworkRouteImpl.ROUTE_TYPE, route.getRouteType());
+
+		NetworkRoute route2 = new VarIntNetworkRouteImpl(Id.createLinkId(5), Id.createLinkId(5));
+		route2.setRouteDescription(description);
+		Assert.assertEquals(Id.createLinkId(5), route2.getStartLinkId());
+		Assert.assertEquals(0, route2.getLinkIds().size());
+		Assert.assertEquals(Id.createLinkId(5), route2.getEndLinkId());
+	}
+
+}
@@ -20,12 +20,22 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +70,57 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_workStealing() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, true);
+			testee.prepareReplanning(null);
+			for (Plan plan : createPlans(30)) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testWorkStealing_independentOfNumberOfThreads() {
+		List<Plan> plans = createPlans(100);
+		Map<Id<Person>, Double> expected = runRandomDrawingModule(1, plans);
+		Assert.assertEquals(100, expected.size());
+		for (int nOfThreads : new int[] { 3, 4 }) {
+			Assert.assertEquals(expected, runRandomDrawingModule(nOfThreads, plans));
+		}
+		Assert.assertEquals("every plan should get other random numbers", 100, expected.values().stream().distinct().count());
+	}
+
+	private static Map<Id<Person>, Double> runRandomDrawingModule(int nOfThreads, List<Plan> plans) {
+		MatsimRandom.reset(4711);
+		RandomDrawingModule testee = new RandomDrawingModule(nOfThreads);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			// the second iteration re-uses the pool
+			testee.prepareReplanning(null);
+			for (Plan plan : plans) {
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+		}
+		return testee.drawn;
+	}
+
+	private static List<Plan> createPlans(int count) {
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = PopulationUtils.createPlan(person);
+			person.addPlan(plan);
+			plans.add(plan);
+		}
+		return plans;
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,12 +135,34 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final boolean workStealing) {
+			super(nOfThreads, workStealing);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
 		}
 	}
 
+	private static class RandomDrawingModule extends AbstractMultithreadedModule {
+		private final Map<Id<Person>, Double> drawn = new ConcurrentHashMap<>();
+		public RandomDrawingModule(final int nOfThreads) {
+			super(nOfThreads, true);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			Random random = MatsimRandom.getLocalInstance();
+			return plan -> {
+				// some work, so that the plans are spread over the threads
+				double value = 0;
+				for (int i = 0; i < 1000; i++) {
+					value = random.nextDouble();
+				}
+				this.drawn.put(plan.getPerson().getId(), value);
+			};
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
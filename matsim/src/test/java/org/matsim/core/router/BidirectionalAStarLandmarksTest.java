@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BidirectionalAStarLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LandmarkGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+
+public class BidirectionalAStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new BidirectionalAStarLandmarks(new LandmarkGraph(network, travelTimeCostCalculator, 2), travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = NetworkUtils.createNetwork();
+		Random random = new Random(20200311);
+		int size = 15;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkCount = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					Node other = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					addLink(network, node, other, linkCount++, random);
+					addLink(network, other, node, linkCount++, random);
+				}
+				if (y + 1 < size && random.nextDouble() < 0.8) {
+					// some one-way streets
+					Node other = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					if (random.nextBoolean()) {
+						addLink(network, node, other, linkCount++, random);
+					} else {
+						addLink(network, other, node, linkCount++, random);
+					}
+				}
+			}
+		}
+
+		// a part of the network which can be reached, but not left
+		Node dock = NetworkUtils.createAndAddNode(network, Id.createNodeId("dock"), new Coord(-100, 0));
+		Node island = NetworkUtils.createAndAddNode(network, Id.createNodeId("island"), new Coord(-200, 0));
+		addLink(network, network.getNodes().get(Id.createNodeId("0_0")), dock, linkCount++, random);
+		addLink(network, dock, island, linkCount++, random);
+		addLink(network, island, dock, linkCount++, random);
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator alt = getLeastCostPathCalculator(network);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = alt.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(from + " -> " + to, expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(from + " -> " + to, expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(from, actual.getFromNode());
+			assertEquals(to, actual.getToNode());
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	private static void addLink(Network network, Node from, Node to, int id, Random random) {
+		double freespeed = 5 + random.nextInt(25);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(id), from, to, 100 + random.nextInt(50), freespeed, 1000, 1);
+	}
+
+}
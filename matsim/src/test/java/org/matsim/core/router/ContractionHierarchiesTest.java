@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.ContractionHierarchiesGraph;
+import org.matsim.core.router.util.ContractionHierarchiesGraph.Customization;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchies(new ContractionHierarchiesGraph(network), travelTimeCostCalculator, travelTimeCostCalculator, 900, 30 * 3600);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Random random = new Random(20200101);
+		Network network = createGrid(random);
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			assertEquals(from + " -> " + to, expected.travelCost, actual.travelCost, 1e-6);
+			assertEquals(from + " -> " + to, expected.travelTime, actual.travelTime, 1e-6);
+			assertEquals(from, actual.getFromNode());
+			assertEquals(to, actual.getToNode());
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testTimeBinCustomizedOnceWithConcurrentQueries() throws InterruptedException {
+		Network network = createGrid(new Random(20200102));
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Map<Double, AtomicInteger> evaluationsPerTime = new ConcurrentHashMap<>();
+		TravelDisutility countingDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				evaluationsPerTime.computeIfAbsent(time, t -> new AtomicInteger()).incrementAndGet();
+				return freespeed.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return freespeed.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		ContractionHierarchiesGraph graph = new ContractionHierarchiesGraph(network);
+		// the number of evaluations of one customization
+		graph.customize(countingDisutility, -1.0);
+		int evaluationsPerCustomization = evaluationsPerTime.get(-1.0).get();
+		ContractionHierarchies.TimeBinCustomizations customizations = new ContractionHierarchies.TimeBinCustomizations(graph, 900, 30 * 3600);
+
+		Customization[][] seen = new Customization[4][120];
+		Thread[] threads = new Thread[seen.length];
+		for (int t = 0; t < threads.length; t++) {
+			Customization[] seenByThread = seen[t];
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10; i++) {
+					for (int bin = 0; bin < seenByThread.length; bin++) {
+						seenByThread[bin] = customizations.get(bin * 900 + 450, countingDisutility);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int bin = 0; bin < seen[0].length; bin++) {
+			for (Customization[] seenByThread : seen) {
+				assertSame(seen[0][bin], seenByThread[bin]);
+			}
+			assertEquals("time bin " + bin, evaluationsPerCustomization, evaluationsPerTime.get(bin * 900 + 450.0).get());
+		}
+	}
+
+	public void testFactoryDoesNotShareCustomizationsOfDifferentDisutilities() {
+		Random random = new Random(20200103);
+		Network network = createGrid(random);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		// same class, different parameters
+		TravelDisutility fastest = new WeightedDisutility(travelTime, 1, 0);
+		TravelDisutility shortest = new WeightedDisutility(travelTime, 0, 1);
+
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(900, 30 * 3600);
+		LeastCostPathCalculator fastestCH = factory.createPathCalculator(network, fastest, travelTime);
+		LeastCostPathCalculator shortestCH = factory.createPathCalculator(network, shortest, travelTime);
+		LeastCostPathCalculator fastestDijkstra = new Dijkstra(network, fastest, travelTime);
+		LeastCostPathCalculator shortestDijkstra = new Dijkstra(network, shortest, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		int differentPaths = 0;
+		for (int i = 0; i < 100; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path fastestPath = fastestCH.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path shortestPath = shortestCH.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			if (fastestPath == null) {
+				assertNull(shortestPath);
+				continue;
+			}
+			assertEquals(from + " -> " + to, fastestDijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null).travelCost, fastestPath.travelCost, 1e-6);
+			assertEquals(from + " -> " + to, shortestDijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null).travelCost, shortestPath.travelCost, 1e-6);
+			if (!fastestPath.links.equals(shortestPath.links)) {
+				differentPaths++;
+			}
+		}
+		assertTrue(differentPaths > 0);
+	}
+
+	/** a weighted sum of the travel time and the length of the link */
+	private static final class WeightedDisutility implements TravelDisutility {
+		private final TravelTime travelTime;
+		private final double timeWeight;
+		private final double lengthWeight;
+
+		WeightedDisutility(TravelTime travelTime, double timeWeight, double lengthWeight) {
+			this.travelTime = travelTime;
+			this.timeWeight = timeWeight;
+			this.lengthWeight = lengthWeight;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return this.timeWeight * this.travelTime.getLinkTravelTime(link, time, person, vehicle) + this.lengthWeight * link.getLength();
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return this.timeWeight * link.getLength() / link.getFreespeed() + this.lengthWeight * link.getLength();
+		}
+	}
+
+	private static Network createGrid(Random random) {
+		Network network = NetworkUtils.createNetwork();
+		int size = 15;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkCount = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < size) {
+					Node other = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					addLink(network, node, other, linkCount++, random);
+					addLink(network, other, node, linkCount++, random);
+				}
+				if (y + 1 < size && random.nextDouble() < 0.8) {
+					// some one-way streets
+					Node other = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					if (random.nextBoolean()) {
+						addLink(network, node, other, linkCount++, random);
+					} else {
+						addLink(network, other, node, linkCount++, random);
+					}
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to, int id, Random random) {
+		double freespeed = 5 + random.nextInt(25);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(id), from, to, 100 + random.nextInt(50), freespeed, 1000, 1);
+	}
+
+}
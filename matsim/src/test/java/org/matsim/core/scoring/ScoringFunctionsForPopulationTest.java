@@ -21,23 +21,44 @@
 
  package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.ParallelEventsManager;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -90,6 +111,167 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	@Test
+	public void testPartitionedScoring() {
+		Scenario scenario = createPartitioningScenario();
+		List<Event> events = createPartitioningEvents(scenario);
+		assertSameScoring(scenario, scoreEvents(scenario, events, 1, EventsUtils.createEventsManager()),
+				scoreEvents(scenario, events, 3, EventsUtils.createEventsManager()));
+	}
+
+	@Test
+	public void testPartitionedScoring_parallelEventsManager() {
+		Scenario scenario = createPartitioningScenario();
+		List<Event> events = createPartitioningEvents(scenario);
+		ScoringFunctionsForPopulation expected = scoreEvents(scenario, events, 1, EventsUtils.createEventsManager());
+		for (int i = 0; i < 5; i++) {
+			// every partition in its own thread
+			assertSameScoring(scenario, expected, scoreEvents(scenario, events, 3, new ParallelEventsManager(false, 4)));
+		}
+	}
+
+	private static Scenario createPartitioningScenario() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node[] nodes = new Node[4];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+		}
+		for (int i = 0; i < 4; i++) {
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(i), nodes[i], nodes[(i + 1) % 4], 100, 10, 1000, 1);
+		}
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 10; i++) {
+			population.addPerson(population.getFactory().createPerson(Id.createPersonId(i)));
+		}
+		return scenario;
+	}
+
+	private static List<Event> createPartitioningEvents(Scenario scenario) {
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			linkIds.add(Id.createLinkId(i));
+		}
+
+		// drivers and passengers are in different partitions, so the vehicle events must be seen by several partitions
+		List<Event> events = new ArrayList<>();
+		for (int k = 0; k < 5; k++) {
+			double time = 7 * 3600 + 2000 * k;
+			Id<Person> driver = Id.createPersonId(2 * k);
+			Id<Person> passenger = Id.createPersonId(2 * k + 1);
+			Id<Vehicle> vehicle = Id.createVehicleId(k);
+			for (Id<Person> person : Arrays.asList(driver, passenger)) {
+				events.add(new ActivityEndEvent(time, person, linkIds.get(0), null, "home"));
+				events.add(new PersonDepartureEvent(time, person, linkIds.get(0), person == driver ? TransportMode.car : TransportMode.ride));
+				events.add(new PersonEntersVehicleEvent(time, person, vehicle));
+			}
+			events.add(new VehicleEntersTrafficEvent(time, driver, linkIds.get(0), vehicle, TransportMode.car, 1.0));
+			events.add(new LinkEnterEvent(time + 10, vehicle, linkIds.get(1)));
+			events.add(new LinkEnterEvent(time + 20, vehicle, linkIds.get(2)));
+			events.add(new VehicleLeavesTrafficEvent(time + 30, driver, linkIds.get(2), vehicle, TransportMode.car, 1.0));
+			for (Id<Person> person : Arrays.asList(driver, passenger)) {
+				events.add(new PersonLeavesVehicleEvent(time + 30, person, vehicle));
+				events.add(new PersonArrivalEvent(time + 30, person, linkIds.get(2), person == driver ? TransportMode.car : TransportMode.ride));
+				events.add(new ActivityStartEvent(time + 30, person, linkIds.get(2), null, "work"));
+			}
+			events.add(new ActivityEndEvent(time + 1000, passenger, linkIds.get(2), null, "work"));
+			events.add(new PersonDepartureEvent(time + 1000, passenger, linkIds.get(2), TransportMode.walk));
+			events.add(new TeleportationArrivalEvent(time + 1100, passenger, 350));
+			events.add(new PersonArrivalEvent(time + 1100, passenger, linkIds.get(0), TransportMode.walk));
+			events.add(new ActivityStartEvent(time + 1100, passenger, linkIds.get(0), null, "home"));
+
+			// the driver takes the same vehicle home, alone
+			events.add(new ActivityEndEvent(time + 1200, driver, linkIds.get(2), null, "work"));
+			events.add(new PersonDepartureEvent(time + 1200, driver, linkIds.get(2), TransportMode.car));
+			events.add(new PersonEntersVehicleEvent(time + 1200, driver, vehicle));
+			events.add(new VehicleEntersTrafficEvent(time + 1200, driver, linkIds.get(2), vehicle, TransportMode.car, 1.0));
+			events.add(new LinkEnterEvent(time + 1210, vehicle, linkIds.get(3)));
+			events.add(new LinkEnterEvent(time + 1220, vehicle, linkIds.get(0)));
+			events.add(new VehicleLeavesTrafficEvent(time + 1230, driver, linkIds.get(0), vehicle, TransportMode.car, 1.0));
+			events.add(new PersonLeavesVehicleEvent(time + 1230, driver, vehicle));
+			events.add(new PersonArrivalEvent(time + 1230, driver, linkIds.get(0), TransportMode.car));
+			events.add(new ActivityStartEvent(time + 1230, driver, linkIds.get(0), null, "home"));
+		}
+		return events;
+	}
+
+	private static void assertSameScoring(Scenario scenario, ScoringFunctionsForPopulation expected, ScoringFunctionsForPopulation actual) {
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			LoggingScoringFunction expectedFunction = (LoggingScoringFunction) expected.getScoringFunctionForAgent(person.getId());
+			LoggingScoringFunction actualFunction = (LoggingScoringFunction) actual.getScoringFunctionForAgent(person.getId());
+			Assert.assertTrue(expectedFunction.log.toString().contains("leg "));
+			Assert.assertEquals(person.getId().toString(), expectedFunction.log.toString(), actualFunction.log.toString());
+			Assert.assertEquals(person.getId().toString(), expectedFunction.events.toString(), actualFunction.events.toString());
+		}
+	}
+
+	private static ScoringFunctionsForPopulation scoreEvents(Scenario scenario, List<Event> events, int numberOfPartitions,
+			EventsManager eventsManager) {
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsToActivities eventsToActivities = new EventsToActivities(controlerListenerManager);
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		eventsManager.addHandler(new EventsToLegsAndActivities(eventsToLegs, eventsToActivities));
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities,
+				eventsToLegs, scenario.getPopulation(), person -> new LoggingScoringFunction(), numberOfPartitions);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		eventsManager.initProcessing();
+		for (Event event : events) {
+			eventsManager.processEvent(event);
+		}
+		eventsManager.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		sf.finishScoringFunctions();
+		return sf;
+	}
+
+	private static class LoggingScoringFunction implements ScoringFunction {
+
+		final StringBuilder log = new StringBuilder();
+		// separately, as the order relative to the legs and activities depends on the order of the handlers
+		final StringBuilder events = new StringBuilder();
+
+		@Override
+		public void handleActivity(Activity activity) {
+			this.log.append("act ").append(activity.getType()).append(' ').append(activity.getStartTime()).append(' ').append(activity.getEndTime()).append('\n');
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			this.log.append("leg ").append(leg.getMode()).append(' ').append(leg.getTravelTime()).append(' ').append(leg.getRoute().getRouteDescription())
+					.append(' ').append(leg.getRoute().getDistance()).append('\n');
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			this.log.append("trip ").append(trip.getTripElements().size()).append('\n');
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			this.log.append("stuck ").append(time).append('\n');
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			this.log.append("money ").append(amount).append('\n');
+		}
+
+		@Override
+		public void finish() {
+			this.log.append("finish\n");
+		}
+
+		@Override
+		public double getScore() {
+			return 0;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			this.events.append(event.getEventType()).append(' ').append(event.getTime()).append('\n');
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
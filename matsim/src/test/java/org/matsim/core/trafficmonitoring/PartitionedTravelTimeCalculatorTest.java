@@ -0,0 +1,196 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedTravelTimeCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class PartitionedTravelTimeCalculatorTest {
+
+	@Test
+	public void testSameTravelTimesAsTravelTimeCalculator() {
+		for (String getter : new String[] { "average", "linearinterpolation" }) {
+			Network network = createChain(10);
+			TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+			config.setTraveltimeBinSize(900);
+			config.setMaxTime(6 * 3600);
+			config.setTravelTimeGetterType(getter);
+			config.setNumberOfPartitions(3);
+
+			TravelTimeCalculator expected = new TravelTimeCalculator(network, config);
+			PartitionedTravelTimeCalculator partitioned = PartitionedTravelTimeCalculator.create(network, config, false, null);
+			Assert.assertEquals(3, partitioned.getEventHandlers().size());
+
+			EventsManager events = EventsUtils.createEventsManager();
+			events.addHandler(expected);
+			partitioned.addEventHandlers(events);
+			events.initProcessing();
+			Random random = new Random(4711);
+			for (int v = 0; v < 200; v++) {
+				Id<Person> personId = Id.create(v, Person.class);
+				Id<Vehicle> vehicleId = Id.create(v, Vehicle.class);
+				double time = random.nextInt(5 * 3600);
+				events.processEvent(new VehicleEntersTrafficEvent(time, personId, Id.create(0, Link.class), vehicleId, TransportMode.car, 1.0));
+				for (int l = 1; l < 10; l++) {
+					events.processEvent(new LinkLeaveEvent(time, vehicleId, Id.create(l - 1, Link.class)));
+					events.processEvent(new LinkEnterEvent(time, vehicleId, Id.create(l, Link.class)));
+					time += 100 + random.nextInt(600);
+				}
+				events.processEvent(new VehicleLeavesTrafficEvent(time, personId, Id.create(9, Link.class), vehicleId, TransportMode.car, 1.0));
+			}
+			events.finishProcessing();
+
+			TravelTime expectedTimes = expected.getLinkTravelTimes();
+			TravelTime partitionedTimes = partitioned.getLinkTravelTimes();
+			for (Link link : network.getLinks().values()) {
+				for (double time = 0; time < 7 * 3600; time += 300) {
+					Assert.assertEquals(getter + " link " + link.getId() + " at " + time,
+							expectedTimes.getLinkTravelTime(link, time, null, null),
+							partitionedTimes.getLinkTravelTime(link, time, null, null), 1e-8);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFilterModesAndReset() {
+		Network network = createChain(3);
+		Link link1 = network.getLinks().get(Id.create(1, Link.class));
+		PartitionedTravelTimeCalculator ttc = new PartitionedTravelTimeCalculator(network, 900, 30 * 3600, 2, false, true,
+				CollectionUtils.stringToSet(TransportMode.car));
+
+		EventsManager events = EventsUtils.createEventsManager();
+		ttc.addEventHandlers(events);
+		events.initProcessing();
+		Id<Person> personId1 = Id.create(1, Person.class);
+		Id<Person> personId2 = Id.create(2, Person.class);
+		Id<Vehicle> vehId1 = Id.create(1, Vehicle.class);
+		Id<Vehicle> vehId2 = Id.create(2, Vehicle.class);
+		events.processEvent(new VehicleEntersTrafficEvent(90, personId1, Id.create(0, Link.class), vehId1, TransportMode.car, 1.0));
+		events.processEvent(new VehicleEntersTrafficEvent(90, personId2, Id.create(0, Link.class), vehId2, TransportMode.walk, 1.0));
+		events.processEvent(new LinkLeaveEvent(100, vehId1, Id.create(0, Link.class)));
+		events.processEvent(new LinkEnterEvent(100, vehId1, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(110, vehId2, Id.create(0, Link.class)));
+		events.processEvent(new LinkEnterEvent(110, vehId2, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(200, vehId1, link1.getId()));
+		events.processEvent(new LinkLeaveEvent(410, vehId2, link1.getId()));
+		events.finishProcessing();
+
+		Assert.assertEquals("walk must not be counted", 100.0, ttc.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+
+		events.resetHandlers(1);
+		Assert.assertEquals("after reset, the free speed travel time is expected", NetworkUtils.getFreespeedTravelTime(link1),
+				ttc.getLinkTravelTimes().getLinkTravelTime(link1, 200, null, null), 1e-8);
+	}
+
+	@Test
+	public void testConcurrentReadsWhileHandlingEvents() throws InterruptedException {
+		Network network = createChain(10);
+		PartitionedTravelTimeCalculator ttc = new PartitionedTravelTimeCalculator(network, 900, 30 * 3600, 3, false, false, null);
+		TravelTime travelTimes = ttc.getLinkTravelTimes();
+		double freespeedTravelTime = 100.0;
+		double observedTravelTime = 300.0;
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<String> failure = new AtomicReference<>();
+		Thread[] readers = new Thread[4];
+		for (int r = 0; r < readers.length; r++) {
+			readers[r] = new Thread(() -> {
+				while (running.get() && failure.get() == null) {
+					for (Link link : network.getLinks().values()) {
+						for (double time = 0; time < 30 * 3600; time += 900) {
+							double travelTime = travelTimes.getLinkTravelTime(link, time, null, null);
+							// every bin has either no observations or only observations of the same travel time
+							if (travelTime != freespeedTravelTime && travelTime != observedTravelTime) {
+								failure.set("link " + link.getId() + " at " + time + ": " + travelTime);
+							}
+						}
+					}
+				}
+			});
+			readers[r].start();
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		ttc.addEventHandlers(events);
+		events.initProcessing();
+		for (int v = 0; v < 20000 && failure.get() == null; v++) {
+			Id<Person> personId = Id.create(v, Person.class);
+			Id<Vehicle> vehicleId = Id.create(v, Vehicle.class);
+			double time = v;
+			events.processEvent(new VehicleEntersTrafficEvent(time, personId, Id.create(0, Link.class), vehicleId, TransportMode.car, 1.0));
+			for (int l = 1; l < 10; l++) {
+				events.processEvent(new LinkLeaveEvent(time, vehicleId, Id.create(l - 1, Link.class)));
+				events.processEvent(new LinkEnterEvent(time, vehicleId, Id.create(l, Link.class)));
+				time += observedTravelTime;
+			}
+			events.processEvent(new VehicleLeavesTrafficEvent(time, personId, Id.create(9, Link.class), vehicleId, TransportMode.car, 1.0));
+		}
+		events.finishProcessing();
+		running.set(false);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		Assert.assertNull(failure.get());
+
+		Link link5 = network.getLinks().get(Id.create(5, Link.class));
+		Assert.assertEquals(observedTravelTime, travelTimes.getLinkTravelTime(link5, 3 * 3600, null, null), 1e-8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNumberOfPartitionsMustBePositive() {
+		new TravelTimeCalculatorConfigGroup().setNumberOfPartitions(0);
+	}
+
+	private static Network createChain(int numberOfLinks) {
+		Network network = NetworkUtils.createNetwork();
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.create(0, Node.class), new Coord(0, 0));
+		for (int i = 0; i < numberOfLinks; i++) {
+			Node toNode = NetworkUtils.createAndAddNode(network, Id.create(i + 1, Node.class), new Coord((i + 1) * 1000, 0));
+			NetworkUtils.createAndAddLink(network, Id.create(i, Link.class), fromNode, toNode, 1000.0, 10.0, 3600.0, 1.0);
+			fromNode = toNode;
+		}
+		return network;
+	}
+
+}
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CalendarQueueTest {
+
+	@Test
+	public void testPollInOrderOfTimes() {
+		CalendarQueue<String> queue = new CalendarQueue<>(Comparator.reverseOrder());
+		queue.add("c", 20.0);
+		queue.add("a", 10.0);
+		queue.add("b", 10.0);
+		queue.add("d", 10.5);
+		queue.add("e", Double.NEGATIVE_INFINITY);
+		Assert.assertEquals(5, queue.size());
+
+		Assert.assertEquals("e", queue.poll(9.0));
+		Assert.assertNull(queue.poll(9.0));
+		Assert.assertEquals("b", queue.poll(10.0));
+		Assert.assertEquals("a", queue.poll(10.0));
+		Assert.assertNull("10.5 is after 10.0", queue.poll(10.0));
+		Assert.assertEquals("d", queue.poll(11.0));
+		Assert.assertNull(queue.poll(19.0));
+		Assert.assertEquals("c", queue.poll(25.0));
+		Assert.assertNull(queue.poll(25.0));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testAddDuringPolling() {
+		CalendarQueue<String> queue = new CalendarQueue<>(Comparator.naturalOrder());
+		queue.add("b", 100.0);
+		queue.add("d", 101.0);
+		Assert.assertEquals("b", queue.poll(100.0));
+		queue.add("a", 99.0);
+		queue.add("c", 100.0);
+		queue.add("x", Double.NEGATIVE_INFINITY);
+		Assert.assertEquals("x", queue.poll(100.0));
+		Assert.assertEquals("a", queue.poll(100.0));
+		Assert.assertEquals("c", queue.poll(100.0));
+		Assert.assertNull(queue.poll(100.0));
+		Assert.assertEquals("d", queue.poll(101.0));
+	}
+
+	@Test
+	public void testRemove() {
+		CalendarQueue<String> queue = new CalendarQueue<>(Comparator.naturalOrder());
+		CalendarQueue.Entry<String> a = queue.add("a", 10.0);
+		CalendarQueue.Entry<String> b = queue.add("b", 10.0);
+		queue.add("c", 12.0);
+		Assert.assertTrue(queue.remove(a));
+		Assert.assertFalse(queue.remove(a));
+		Assert.assertFalse(a.isQueued());
+		Assert.assertEquals(2, queue.size());
+		Assert.assertEquals("b", queue.poll(12.0));
+		Assert.assertFalse("already polled", queue.remove(b));
+		Assert.assertEquals("c", queue.poll(12.0));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testFarFuture() {
+		CalendarQueue<String> queue = new CalendarQueue<>(Comparator.naturalOrder());
+		// the same slot of the wheel, more than a day apart
+		queue.add("c", 10.0 + (1 << 17) * 3);
+		queue.add("b", 10.0 + (1 << 17));
+		queue.add("a", 10.0);
+		Assert.assertEquals("a", queue.poll(10.0));
+		Assert.assertNull(queue.poll(11.0));
+		Assert.assertNull(queue.poll(10.0 + (1 << 17) - 1));
+		Assert.assertEquals("b", queue.poll(10.0 + (1 << 17)));
+		Assert.assertNull(queue.poll(10.0 + (1 << 17) * 2));
+		Assert.assertEquals("c", queue.poll(1e9));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testGetEntries() {
+		CalendarQueue<String> queue = new CalendarQueue<>(Comparator.naturalOrder());
+		queue.add("c", 30.0);
+		queue.remove(queue.add("x", 15.0));
+		queue.add("b", 20.0);
+		queue.add("a", 5.0);
+		Assert.assertEquals("a", queue.poll(5.0));
+		queue.add("d", 1.0);
+		List<CalendarQueue.Entry<String>> entries = queue.getEntries();
+		Assert.assertEquals(3, entries.size());
+		Assert.assertEquals("d", entries.get(0).getElement());
+		Assert.assertEquals("b", entries.get(1).getElement());
+		Assert.assertEquals("c", entries.get(2).getElement());
+		Assert.assertEquals(30.0, entries.get(2).getTime(), 0.0);
+
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertFalse(entries.get(0).isQueued());
+		Assert.assertNull(queue.poll(100.0));
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(20200315);
+		Comparator<double[]> byTimeAndId = Comparator.<double[]>comparingDouble(e -> e[0]).thenComparingDouble(e -> e[1]);
+		PriorityQueue<double[]> expected = new PriorityQueue<>(byTimeAndId);
+		CalendarQueue<double[]> queue = new CalendarQueue<>(Comparator.comparingDouble(e -> e[1]));
+		List<CalendarQueue.Entry<double[]>> entries = new ArrayList<>();
+		int id = 0;
+		for (double now = 0; now < 5000; now += 1.0) {
+			for (int i = random.nextInt(20); i > 0; i--) {
+				double time = now + (random.nextBoolean() ? random.nextInt(100) : random.nextDouble() * 3000);
+				double[] element = {time, id++};
+				expected.add(element);
+				entries.add(queue.add(element, time));
+			}
+			if (!entries.isEmpty() && random.nextInt(3) == 0) {
+				CalendarQueue.Entry<double[]> entry = entries.get(random.nextInt(entries.size()));
+				Assert.assertEquals(expected.remove(entry.getElement()), queue.remove(entry));
+			}
+			while (!expected.isEmpty() && expected.peek()[0] <= now) {
+				Assert.assertSame(expected.poll(), queue.poll(now));
+			}
+			Assert.assertNull(queue.poll(now));
+			Assert.assertEquals(expected.size(), queue.size());
+		}
+	}
+
+}
@@ -711,6 +711,106 @@ public class QuadTreeTest {
 		}
 	}
 
+	@Test
+	public void testGetKNearest() {
+		QuadTree<String> qt = getTestTree();
+		List<String> result = qt.getKNearest(14.0, 14.0, 3);
+		assertEquals(3, result.size());
+		assertTrue(result.subList(0, 2).contains("15.0, 15.0"));
+		assertTrue(result.subList(0, 2).contains("15.0, 15.0 B"));
+		assertEquals("10.0, 10.0", result.get(2));
+
+		assertEquals(6, qt.getKNearest(0.0, 0.0, 10).size());
+		assertTrue(qt.getKNearest(0.0, 0.0, 0).isEmpty());
+		assertTrue(new QuadTree<String>(0, 0, 10, 10).getKNearest(5.0, 5.0, 3).isEmpty());
+
+		result = qt.getKNearest(14.0, 14.0, 5, 6.0);
+		assertEquals(3, result.size());
+		assertEquals("10.0, 10.0", result.get(2));
+		assertTrue(qt.getKNearest(50.0, 50.0, 5, 10.0).isEmpty());
+	}
+
+	/**
+	 * Compares the k nearest objects and the batch query with sorting all objects by distance.
+	 */
+	@Test
+	public void testGetKNearest_large() {
+		Random r = new Random(20200512L);
+		QuadTree<Coord> qt = new QuadTree<>(-1000, -5000, 20000, 12000);
+		List<Coord> coords = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			Coord coord = new Coord(-1000 + r.nextDouble() * 21000, -5000 + r.nextDouble() * 17000);
+			qt.put(coord.getX(), coord.getY(), coord);
+			coords.add(coord);
+		}
+
+		double[] xs = new double[200];
+		double[] ys = new double[200];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = -1000 + r.nextDouble() * 21000;
+			ys[i] = -5000 + r.nextDouble() * 17000;
+		}
+		List<List<Coord>> batch = qt.getKNearest(xs, ys, 20);
+		assertEquals(xs.length, batch.size());
+
+		for (int i = 0; i < xs.length; i++) {
+			Coord query = new Coord(xs[i], ys[i]);
+			List<Coord> expected = new ArrayList<>(coords);
+			expected.sort((a, b) -> Double.compare(CoordUtils.calcEuclideanDistance(query, a), CoordUtils.calcEuclideanDistance(query, b)));
+			expected = expected.subList(0, 20);
+			assertEquals(expected, qt.getKNearest(xs[i], ys[i], 20));
+			assertEquals(expected, batch.get(i));
+			assertEquals(expected.get(0), qt.getClosest(xs[i], ys[i]));
+		}
+	}
+
+	/**
+	 * Tests that a QuadTree created from a collection contains the same as one filled with put().
+	 */
+	@Test
+	public void testBulkLoad() {
+		Random r = new Random(20200513L);
+		List<Coord> coords = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			coords.add(new Coord(-1000 + r.nextDouble() * 21000, -5000 + r.nextDouble() * 17000));
+		}
+		// a second object at the same location, and the same object twice at the same location
+		coords.add(new Coord(coords.get(0).getX(), coords.get(0).getY()));
+		coords.add(coords.get(1));
+
+		QuadTree<Coord> expected = new QuadTree<>(-1000, -5000, 20000, 12000);
+		for (Coord coord : coords) {
+			expected.put(coord.getX(), coord.getY(), coord);
+		}
+		QuadTree<Coord> qt = new QuadTree<>(-1000, -5000, 20000, 12000, coords, Coord::getX, Coord::getY);
+
+		assertEquals(3001, qt.size());
+		assertEquals(expected.size(), qt.size());
+		assertEquals(qt.size(), new ArrayList<>(qt.values()).size());
+		for (int i = 0; i < 500; i++) {
+			double x = -1000 + r.nextDouble() * 21000;
+			double y = -5000 + r.nextDouble() * 17000;
+			assertTrue(expected.getClosest(x, y) == qt.getClosest(x, y));
+			Collection<Coord> expectedDisk = expected.getDisk(x, y, 500);
+			Collection<Coord> disk = qt.getDisk(x, y, 500);
+			assertEquals(expectedDisk.size(), disk.size());
+			assertTrue(disk.containsAll(expectedDisk));
+		}
+		assertEquals(2, qt.getDisk(coords.get(0).getX(), coords.get(0).getY(), 0.0).size());
+
+		assertTrue(qt.remove(coords.get(5).getX(), coords.get(5).getY(), coords.get(5)));
+		assertEquals(3000, qt.size());
+		assertTrue(qt.put(coords.get(5).getX(), coords.get(5).getY(), coords.get(5)));
+		assertEquals(3001, qt.size());
+
+		try {
+			new QuadTree<>(0, 0, 10, 10, coords, Coord::getX, Coord::getY);
+			fail("expected an exception for values outside the bounds");
+		} catch (IllegalArgumentException expectedException) {
+			log.info("catched expected exception: " + expectedException.getMessage());
+		}
+	}
+
 	/**
 	 * A kind of performance test, but not marked as test, as there is no need
 	 * to run it in every check as there is not assert statement.
@@ -151,6 +151,36 @@ public class FacilitiesFromPopulationTest {
 		assertPlan(f.scenario.getPopulation().getPersons().get(Id.create("0", Person.class)).getSelectedPlan(), "12", "10", true);
 	}
 	
+	@Test
+	public void testRun_multiple_assignLinks_numberOfThreads() {
+		Fixture expected = new Fixture();
+		FacilitiesFromPopulation generator = new FacilitiesFromPopulation(expected.scenario.getActivityFacilities());
+		generator.setOneFacilityPerLink(false);
+		generator.setAssignLinksToFacilitiesIfMissing( expected.scenario.getNetwork() );
+		generator.run(expected.scenario.getPopulation());
+
+		Fixture f = new Fixture();
+		generator = new FacilitiesFromPopulation(f.scenario.getActivityFacilities());
+		generator.setOneFacilityPerLink(false);
+		generator.setAssignLinksToFacilitiesIfMissing( f.scenario.getNetwork() );
+		generator.setNumberOfThreads(4);
+		generator.run(f.scenario.getPopulation());
+
+		Map<Id<ActivityFacility>, ? extends ActivityFacility> expectedFacilities = expected.scenario.getActivityFacilities().getFacilities();
+		Map<Id<ActivityFacility>, ? extends ActivityFacility> ffs = f.scenario.getActivityFacilities().getFacilities();
+		Assert.assertEquals(expectedFacilities.keySet(), ffs.keySet());
+		for (ActivityFacility facility : expectedFacilities.values()) {
+			Assert.assertEquals(facility.getLinkId(), ffs.get(facility.getId()).getLinkId());
+			Assert.assertEquals(facility.getCoord(), ffs.get(facility.getId()).getCoord());
+		}
+		for (Person person : expected.scenario.getPopulation().getPersons().values()) {
+			Plan plan = person.getSelectedPlan();
+			assertPlan(f.scenario.getPopulation().getPersons().get(person.getId()).getSelectedPlan(),
+					((Activity) plan.getPlanElements().get(0)).getFacilityId().toString(),
+					((Activity) plan.getPlanElements().get(2)).getFacilityId().toString(), true);
+		}
+	}
+
 	private void assertPlan(Plan plan, String homeFacilityId, String workFacilityId, boolean linkCoordMustBeNull) {
 		Activity home1 = (Activity) plan.getPlanElements().get(0);
 		Activity work = (Activity) plan.getPlanElements().get(2);